@@ -3,6 +3,7 @@ package world.willfrog.agent.tool;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.agent.tool.Tool;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.springframework.stereotype.Component;
 import world.willfrog.agent.config.AgentLlmProperties;
@@ -21,9 +22,14 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
+@Slf4j
 @Component
 public class MarketDataTools {
 
+    private static final int MAX_BATCH_TS_CODES = 500;
+
+    private static final List<String> DAILY_HEADERS = Arrays.asList("ts_code", "trade_date", "open", "high", "low", "close", "pre_close", "change", "pct_chg", "vol", "amount");
+
     @DubboReference
     private DomesticStockService domesticStockService;
 
@@ -94,7 +100,7 @@ public class MarketDataTools {
             ));
         }
 
-        List<String> headers = Arrays.asList("ts_code", "trade_date", "open", "high", "low", "close", "pre_close", "change", "pct_chg", "vol", "amount");
+        List<String> headers = DAILY_HEADERS;
         try {
             if (datasetWriter.isEnabled() && datasetRegistry.isEnabled()) {
                 return datasetRegistry.findReusable("stock_daily", normalizedTsCode, normalizedStart, normalizedEnd, headers)
@@ -233,7 +239,7 @@ public class MarketDataTools {
             ));
         }
 
-        List<String> headers = Arrays.asList("ts_code", "trade_date", "open", "high", "low", "close", "pre_close", "change", "pct_chg", "vol", "amount");
+        List<String> headers = DAILY_HEADERS;
         try {
             if (datasetWriter.isEnabled() && datasetRegistry.isEnabled()) {
                 return datasetRegistry.findReusable("index_daily", normalizedTsCode, normalizedStart, normalizedEnd, headers)
@@ -326,19 +332,18 @@ public class MarketDataTools {
                                  String startDateStr,
                                  String endDateStr,
                                  boolean stock) {
+        Map<String, String> responses = fetchDailyBatch(tsCodes, startDateStr, endDateStr, stock);
         List<CompletableFuture<Map<String, Object>>> futures = tsCodes.stream()
-                .map(code -> CompletableFuture.supplyAsync(() -> {
-                    String response = stock
+                .map(code -> {
+                    String batchResponse = responses.get(code);
+                    if (batchResponse != null) {
+                        return CompletableFuture.completedFuture(toBatchRow(code, batchResponse));
+                    }
+                    // 批量接口不可用时退回逐只并发查询
+                    return CompletableFuture.supplyAsync(() -> toBatchRow(code, stock
                             ? getStockDailySingle(code, startDateStr, endDateStr)
-                            : getIndexDailySingle(code, startDateStr, endDateStr);
-                    Map<String, Object> payload = readJsonMap(response);
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    row.put("ts_code", code);
-                    row.put("ok", Boolean.TRUE.equals(payload.get("ok")));
-                    row.put("data", readNestedMap(payload.get("data")));
-                    row.put("error", readNestedMap(payload.get("error")));
-                    return row;
-                }))
+                            : getIndexDailySingle(code, startDateStr, endDateStr)));
+                })
                 .toList();
 
         List<Map<String, Object>> results = futures.stream().map(CompletableFuture::join).toList();
@@ -355,6 +360,113 @@ public class MarketDataTools {
         ));
     }
 
+    private Map<String, Object> toBatchRow(String code, String response) {
+        Map<String, Object> payload = readJsonMap(response);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("ts_code", code);
+        row.put("ok", Boolean.TRUE.equals(payload.get("ok")));
+        row.put("data", readNestedMap(payload.get("data")));
+        row.put("error", readNestedMap(payload.get("error")));
+        return row;
+    }
+
+    /**
+     * 先复用已登记的数据集，其余代码按批量上限合并为批量 RPC；日期非法时返回空 Map，
+     * 批量调用失败时返回已拿到的部分结果，缺失的代码由调用方逐只查询
+     */
+    private Map<String, String> fetchDailyBatch(List<String> tsCodes, String startDateStr, String endDateStr, boolean stock) {
+        String toolName = stock ? "getStockDaily" : "getIndexDaily";
+        String datasetType = stock ? "stock_daily" : "index_daily";
+        String normalizedStart = compactDate(startDateStr);
+        String normalizedEnd = compactDate(endDateStr);
+        long startDate = convertToMsTimestamp(normalizedStart);
+        long endDate = convertToMsTimestamp(normalizedEnd);
+        if (startDate <= 0 || endDate <= 0) {
+            return Map.of();
+        }
+
+        Map<String, String> responses = new LinkedHashMap<>();
+        List<String> pending = new ArrayList<>();
+        for (String code : tsCodes) {
+            String normalizedTsCode = nvl(code).trim();
+            if (datasetWriter.isEnabled() && datasetRegistry.isEnabled()) {
+                Optional<String> reused = datasetRegistry.findReusable(datasetType, normalizedTsCode, normalizedStart, normalizedEnd, DAILY_HEADERS)
+                        .map(meta -> ok(toolName, datasetData(
+                                normalizedTsCode,
+                                normalizedStart,
+                                normalizedEnd,
+                                DAILY_HEADERS,
+                                meta.getDatasetId(),
+                                meta.getRowCount(),
+                                "reused",
+                                true,
+                                List.of()
+                        )));
+                if (reused.isPresent()) {
+                    responses.put(code, reused.get());
+                    continue;
+                }
+            }
+            pending.add(code);
+        }
+
+        // 服务端单次最多接受 MAX_BATCH_TS_CODES 个代码；某一批失败时保留已拿到的结果，失败的代码由调用方逐只查询
+        for (int from = 0; from < pending.size(); from += MAX_BATCH_TS_CODES) {
+            List<String> chunk = pending.subList(from, Math.min(pending.size(), from + MAX_BATCH_TS_CODES));
+            try {
+                responses.putAll(stock
+                        ? fetchStockDailyChunk(chunk, startDate, endDate, normalizedStart, normalizedEnd)
+                        : fetchIndexDailyChunk(chunk, startDate, endDate, normalizedStart, normalizedEnd));
+            } catch (Exception e) {
+                log.warn("Batch {} fetch failed, falling back to per-symbol calls: tsCodes={}, start={}, end={}",
+                        datasetType, chunk, normalizedStart, normalizedEnd, e);
+            }
+        }
+        return responses;
+    }
+
+    private Map<String, String> fetchStockDailyChunk(List<String> codes, long startDate, long endDate,
+                                                     String normalizedStart, String normalizedEnd) {
+        DomesticStockDailyByTsCodesAndDateRangeResponse response = domesticStockService.getStockDailyByTsCodesAndDateRange(
+                DomesticStockDailyByTsCodesAndDateRangeRequest.newBuilder()
+                        .addAllTsCodes(codes.stream().map(code -> nvl(code).trim()).toList())
+                        .setStartDate(startDate)
+                        .setEndDate(endDate)
+                        .build());
+        Map<String, List<DomesticStockDailyItem>> itemsByTsCode = new LinkedHashMap<>();
+        for (DomesticStockDailySeries series : response.getSeriesList()) {
+            itemsByTsCode.put(series.getTsCode(), series.getItemsList());
+        }
+        Map<String, String> responses = new LinkedHashMap<>();
+        for (String code : codes) {
+            String normalizedTsCode = nvl(code).trim();
+            responses.put(code, buildStockDailyResult(normalizedTsCode, normalizedStart, normalizedEnd, DAILY_HEADERS,
+                    itemsByTsCode.getOrDefault(normalizedTsCode, List.of())));
+        }
+        return responses;
+    }
+
+    private Map<String, String> fetchIndexDailyChunk(List<String> codes, long startDate, long endDate,
+                                                     String normalizedStart, String normalizedEnd) {
+        DomesticIndexDailyByTsCodesAndDateRangeResponse response = domesticIndexService.getDomesticIndexDailyByTsCodesAndDateRange(
+                DomesticIndexDailyByTsCodesAndDateRangeRequest.newBuilder()
+                        .addAllTsCodes(codes.stream().map(code -> nvl(code).trim()).toList())
+                        .setStartDate(startDate)
+                        .setEndDate(endDate)
+                        .build());
+        Map<String, List<DomesticIndexDailyItem>> itemsByTsCode = new LinkedHashMap<>();
+        for (DomesticIndexDailySeries series : response.getSeriesList()) {
+            itemsByTsCode.put(series.getTsCode(), series.getItemsList());
+        }
+        Map<String, String> responses = new LinkedHashMap<>();
+        for (String code : codes) {
+            String normalizedTsCode = nvl(code).trim();
+            responses.put(code, buildIndexDailyResult(normalizedTsCode, normalizedStart, normalizedEnd, DAILY_HEADERS,
+                    itemsByTsCode.getOrDefault(normalizedTsCode, List.of())));
+        }
+        return responses;
+    }
+
     private List<String> parseBatchValues(String raw, int maxItems) {
         if (raw == null || raw.isBlank()) {
             return List.of();
@@ -472,7 +584,16 @@ public class MarketDataTools {
                     .setEndDate(endDate)
                     .build();
             DomesticStockDailyByTsCodeAndDateRangeResponse response = domesticStockService.getStockDailyByTsCodeAndDateRange(request);
-            if (response.getItemsCount() <= 0) {
+            return buildStockDailyResult(tsCode, startDateStr, endDateStr, headers, response.getItemsList());
+        } catch (Exception e) {
+            return fail("getStockDaily", "TOOL_ERROR", "Error fetching stock daily data", Map.of("message", nvl(e.getMessage())));
+        }
+    }
+
+    private String buildStockDailyResult(String tsCode, String startDateStr, String endDateStr, List<String> headers,
+                                         List<DomesticStockDailyItem> items) {
+        try {
+            if (items.isEmpty()) {
                 return fail("getStockDaily", "NO_DATA", "No daily stock data found", Map.of(
                         "ts_code", tsCode,
                         "start_date", startDateStr,
@@ -483,12 +604,12 @@ public class MarketDataTools {
             if (datasetWriter.isEnabled()) {
                 String runId = AgentContext.getRunId();
                 String prefix = (runId != null ? runId : "unknown") + "-stock";
-                String datasetId = datasetWriter.writeDataset(prefix, tsCode, startDateStr, endDateStr, response.getItemsList(), headers, item -> Arrays.asList(
+                String datasetId = datasetWriter.writeDataset(prefix, tsCode, startDateStr, endDateStr, items, headers, item -> Arrays.asList(
                         item.getTsCode(), item.getTradeDate(), item.getOpen(), item.getHigh(), item.getLow(), item.getClose(),
                         item.getPreClose(), item.getChange(), item.getPctChg(), item.getVol(), item.getAmount()
                 ));
                 if (datasetRegistry.isEnabled()) {
-                    datasetRegistry.registerDataset("stock_daily", tsCode, startDateStr, endDateStr, headers, datasetId, response.getItemsCount());
+                    datasetRegistry.registerDataset("stock_daily", tsCode, startDateStr, endDateStr, headers, datasetId, items.size());
                 }
                 return ok("getStockDaily", datasetData(
                         tsCode,
@@ -496,7 +617,7 @@ public class MarketDataTools {
                         endDateStr,
                         headers,
                         datasetId,
-                        response.getItemsCount(),
+                        items.size(),
                         "created",
                         false,
                         List.of()
@@ -504,7 +625,7 @@ public class MarketDataTools {
             }
 
             List<Map<String, Object>> previewRows = new ArrayList<>();
-            response.getItemsList().stream().limit(20).forEach(item -> {
+            items.stream().limit(20).forEach(item -> {
                 Map<String, Object> row = new LinkedHashMap<>();
                 row.put("trade_date", item.getTradeDate());
                 row.put("close", item.getClose());
@@ -516,7 +637,7 @@ public class MarketDataTools {
                     endDateStr,
                     headers,
                     "",
-                    response.getItemsCount(),
+                    items.size(),
                     "inline",
                     false,
                     previewRows
@@ -536,7 +657,16 @@ public class MarketDataTools {
                     .setEndDate(endDate)
                     .build();
             DomesticIndexDailyByTsCodeAndDateRangeResponse response = domesticIndexService.getDomesticIndexDailyByTsCodeAndDateRange(request);
-            if (response.getItemsCount() <= 0) {
+            return buildIndexDailyResult(tsCode, startDateStr, endDateStr, headers, response.getItemsList());
+        } catch (Exception e) {
+            return fail("getIndexDaily", "TOOL_ERROR", "Error fetching index daily data", Map.of("message", nvl(e.getMessage())));
+        }
+    }
+
+    private String buildIndexDailyResult(String tsCode, String startDateStr, String endDateStr, List<String> headers,
+                                         List<DomesticIndexDailyItem> items) {
+        try {
+            if (items.isEmpty()) {
                 return fail("getIndexDaily", "NO_DATA", "No daily index data found", Map.of(
                         "ts_code", tsCode,
                         "start_date", startDateStr,
@@ -547,12 +677,12 @@ public class MarketDataTools {
             if (datasetWriter.isEnabled()) {
                 String runId = AgentContext.getRunId();
                 String prefix = (runId != null ? runId : "unknown") + "-index";
-                String datasetId = datasetWriter.writeDataset(prefix, tsCode, startDateStr, endDateStr, response.getItemsList(), headers, item -> Arrays.asList(
+                String datasetId = datasetWriter.writeDataset(prefix, tsCode, startDateStr, endDateStr, items, headers, item -> Arrays.asList(
                         item.getTsCode(), item.getTradeDate(), item.getOpen(), item.getHigh(), item.getLow(), item.getClose(),
                         item.getPreClose(), item.getChange(), item.getPctChg(), item.getVol(), item.getAmount()
                 ));
                 if (datasetRegistry.isEnabled()) {
-                    datasetRegistry.registerDataset("index_daily", tsCode, startDateStr, endDateStr, headers, datasetId, response.getItemsCount());
+                    datasetRegistry.registerDataset("index_daily", tsCode, startDateStr, endDateStr, headers, datasetId, items.size());
                 }
                 return ok("getIndexDaily", datasetData(
                         tsCode,
@@ -560,7 +690,7 @@ public class MarketDataTools {
                         endDateStr,
                         headers,
                         datasetId,
-                        response.getItemsCount(),
+                        items.size(),
                         "created",
                         false,
                         List.of()
@@ -568,7 +698,7 @@ public class MarketDataTools {
             }
 
             List<Map<String, Object>> previewRows = new ArrayList<>();
-            response.getItemsList().stream().limit(20).forEach(item -> {
+            items.stream().limit(20).forEach(item -> {
                 Map<String, Object> row = new LinkedHashMap<>();
                 row.put("trade_date", item.getTradeDate());
                 row.put("close", item.getClose());
@@ -580,7 +710,7 @@ public class MarketDataTools {
                     endDateStr,
                     headers,
                     "",
-                    response.getItemsCount(),
+                    items.size(),
                     "inline",
                     false,
                     previewRows
@@ -1,16 +1,22 @@
 package world.willfrog.agent.tool;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.stereotype.Service;
 import world.willfrog.agent.config.AgentLlmProperties;
 import world.willfrog.agent.context.AgentContext;
 import world.willfrog.agent.service.AgentLlmLocalConfigLoader;
+import world.willfrog.alphafrogmicro.common.utils.cache.CompactRedisSerializer;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -55,6 +61,24 @@ public class ToolResultCacheService {
     @Value("${agent.tool-cache.dataset-ttl-seconds:604800}")
     private int defaultDatasetTtlSeconds;
 
+    @Value("${agent.tool-cache.binary-writes:false}")
+    private boolean binaryWrites;
+
+    @Value("${agent.tool-cache.deflate-threshold-bytes:1024}")
+    private int deflateThreshold;
+
+    /**
+     * 缓存值为带版本头的二进制：工具结果 JSON 超过阈值时压缩；升级前写入的 JSON 文本仍可读取
+     */
+    private CompactRedisSerializer payloadCodec;
+
+    @PostConstruct
+    void initPayloadCodec() {
+        payloadCodec = new CompactRedisSerializer(
+                new Jackson2JsonRedisSerializer<>(objectMapper, objectMapper.constructType(CachePayload.class)),
+                binaryWrites, deflateThreshold);
+    }
+
     public CachedToolCallResult executeWithCache(String toolName,
                                                  Map<String, Object> params,
                                                  String scope,
@@ -368,12 +392,13 @@ public class ToolResultCacheService {
         if (blank(key)) {
             return null;
         }
-        String json = redisTemplate.opsForValue().get(key);
-        if (blank(json)) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+        if (bytes == null || bytes.length == 0) {
             return null;
         }
         try {
-            return objectMapper.readValue(json, CachePayload.class);
+            return (CachePayload) payloadCodec.deserialize(bytes);
         } catch (Exception e) {
             redisTemplate.delete(key);
             log.warn("Parse tool cache failed, key={}", key, e);
@@ -390,7 +415,10 @@ public class ToolResultCacheService {
             payload.setResult(result);
             payload.setOriginalDurationMs(Math.max(0L, originalDurationMs));
             payload.setCachedAtMillis(System.currentTimeMillis());
-            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(payload), ttlSeconds, TimeUnit.SECONDS);
+            byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = payloadCodec.serialize(payload);
+            redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                    .set(rawKey, bytes, Expiration.seconds(ttlSeconds), RedisStringCommands.SetOption.upsert()));
         } catch (Exception e) {
             log.warn("Write tool cache failed, key={}", key, e);
         }
@@ -11,6 +11,8 @@ import world.willfrog.agent.config.AgentLlmProperties;
 import world.willfrog.agent.service.AgentLlmLocalConfigLoader;
 import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockDailyItem;
 import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockDailyByTsCodeAndDateRangeResponse;
+import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockDailyByTsCodesAndDateRangeResponse;
+import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockDailySeries;
 import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockInfoSimpleItem;
 import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockSearchResponse;
 import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockService;
@@ -24,6 +26,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +43,7 @@ class MarketDataToolsBatchTest {
 
     private MarketDataTools tools;
     private ObjectMapper objectMapper;
+    private DomesticStockService stockService;
 
     @BeforeEach
     void setUp() {
@@ -56,7 +62,7 @@ class MarketDataToolsBatchTest {
         lenient().when(datasetWriter.isEnabled()).thenReturn(false);
         lenient().when(datasetRegistry.isEnabled()).thenReturn(false);
 
-        DomesticStockService stockService = mock(DomesticStockService.class);
+        stockService = mock(DomesticStockService.class);
         ReflectionTestUtils.setField(tools, "domesticStockService", stockService);
 
         DomesticStockInfoSimpleItem searchItem = DomesticStockInfoSimpleItem.newBuilder()
@@ -87,6 +93,12 @@ class MarketDataToolsBatchTest {
 
         lenient().when(stockService.searchStock(any())).thenReturn(searchResponse);
         lenient().when(stockService.getStockDailyByTsCodeAndDateRange(any())).thenReturn(dailyResponse);
+
+        DomesticStockDailyByTsCodesAndDateRangeResponse batchResponse = DomesticStockDailyByTsCodesAndDateRangeResponse.newBuilder()
+                .addSeries(DomesticStockDailySeries.newBuilder().setTsCode("000001.SZ").addItems(dailyItem).build())
+                .addSeries(DomesticStockDailySeries.newBuilder().setTsCode("000002.SZ").build())
+                .build();
+        lenient().when(stockService.getStockDailyByTsCodesAndDateRange(any())).thenReturn(batchResponse);
     }
 
     @Test
@@ -109,4 +121,30 @@ class MarketDataToolsBatchTest {
         assertEquals("batch", data.get("mode"));
         assertEquals(2, ((List<?>) data.get("results")).size());
     }
+
+    @Test
+    void getStockDaily_batchShouldUseSingleBatchRpc() throws Exception {
+        String response = tools.getStockDaily("000001.SZ|000002.SZ", "20240101", "20240131");
+        Map<?, ?> root = objectMapper.readValue(response, Map.class);
+        Map<?, ?> data = (Map<?, ?>) root.get("data");
+        List<?> results = (List<?>) data.get("results");
+
+        assertEquals(1, ((Number) data.get("success_count")).intValue());
+        assertEquals(Boolean.TRUE, ((Map<?, ?>) results.get(0)).get("ok"));
+        assertEquals(Boolean.FALSE, ((Map<?, ?>) results.get(1)).get("ok"));
+        verify(stockService, times(1)).getStockDailyByTsCodesAndDateRange(any());
+        verify(stockService, never()).getStockDailyByTsCodeAndDateRange(any());
+    }
+
+    @Test
+    void getStockDaily_batchFailureShouldFallBackToPerSymbolCalls() throws Exception {
+        when(stockService.getStockDailyByTsCodesAndDateRange(any())).thenThrow(new IllegalStateException("db down"));
+
+        String response = tools.getStockDaily("000001.SZ|000002.SZ", "20240101", "20240131");
+        Map<?, ?> root = objectMapper.readValue(response, Map.class);
+        Map<?, ?> data = (Map<?, ?>) root.get("data");
+
+        assertEquals(2, ((Number) data.get("success_count")).intValue());
+        verify(stockService, times(2)).getStockDailyByTsCodeAndDateRange(any());
+    }
 }
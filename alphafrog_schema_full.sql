@@ -46,6 +46,14 @@ CREATE TABLE IF NOT EXISTS alphafrog_stock_daily (
     UNIQUE (ts_code, trade_date)
 );
 
+CREATE TABLE IF NOT EXISTS alphafrog_stock_adj_factor (
+    id BIGSERIAL PRIMARY KEY,
+    ts_code VARCHAR(64) NOT NULL,
+    trade_date BIGINT NOT NULL,
+    adj_factor DOUBLE PRECISION NOT NULL,
+    UNIQUE (ts_code, trade_date)
+);
+
 CREATE TABLE IF NOT EXISTS alphafrog_index_info (
     id BIGSERIAL PRIMARY KEY,
     ts_code VARCHAR(64) NOT NULL,
@@ -168,6 +176,7 @@ CREATE TABLE IF NOT EXISTS alphafrog_trade_calendar (
     cal_date_timestamp BIGINT,
     is_open INTEGER,
     pre_trade_date_timestamp BIGINT,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
     UNIQUE (exchange, cal_date_timestamp)
 );
 
@@ -315,6 +324,22 @@ CREATE TABLE IF NOT EXISTS alphafrog_strategy_nav (
     created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE TABLE IF NOT EXISTS alphafrog_strategy_backtest_trade (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES alphafrog_strategy_backtest_run(id) ON DELETE CASCADE,
+    user_id VARCHAR(64) NOT NULL,
+    trade_date DATE NOT NULL,
+    symbol VARCHAR(64) NOT NULL,
+    side VARCHAR(8) NOT NULL CHECK (side IN ('buy', 'sell')),
+    quantity NUMERIC(24, 6) NOT NULL,
+    price NUMERIC(20, 6) NOT NULL,
+    amount NUMERIC(24, 4) NOT NULL,
+    commission NUMERIC(20, 4) NOT NULL DEFAULT 0,
+    stamp_duty NUMERIC(20, 4) NOT NULL DEFAULT 0,
+    slippage NUMERIC(20, 4) NOT NULL DEFAULT 0,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- ==============
 -- 3) Agent tables
 -- ==============
@@ -415,6 +440,7 @@ CREATE INDEX IF NOT EXISTS idx_stock_info_symbol ON alphafrog_stock_info(symbol)
 
 CREATE INDEX IF NOT EXISTS idx_stock_daily_ts_code_trade_date ON alphafrog_stock_daily(ts_code, trade_date);
 CREATE INDEX IF NOT EXISTS idx_stock_daily_trade_date ON alphafrog_stock_daily(trade_date);
+CREATE INDEX IF NOT EXISTS idx_stock_adj_factor_trade_date ON alphafrog_stock_adj_factor(trade_date);
 
 CREATE INDEX IF NOT EXISTS idx_index_info_ts_code ON alphafrog_index_info(ts_code);
 CREATE INDEX IF NOT EXISTS idx_index_info_name ON alphafrog_index_info(name);
@@ -457,6 +483,7 @@ CREATE INDEX IF NOT EXISTS idx_strategy_backtest_strategy ON alphafrog_strategy_
 CREATE INDEX IF NOT EXISTS idx_strategy_backtest_user ON alphafrog_strategy_backtest_run(user_id);
 CREATE INDEX IF NOT EXISTS idx_strategy_nav_run ON alphafrog_strategy_nav(run_id);
 CREATE INDEX IF NOT EXISTS idx_strategy_nav_date ON alphafrog_strategy_nav(trade_date);
+CREATE INDEX IF NOT EXISTS idx_strategy_backtest_trade_run ON alphafrog_strategy_backtest_trade(run_id);
 
 CREATE INDEX IF NOT EXISTS idx_agent_run_user ON alphafrog_agent_run(user_id);
 CREATE INDEX IF NOT EXISTS idx_agent_run_user_started_desc ON alphafrog_agent_run(user_id, started_at DESC);
@@ -11,9 +11,15 @@ import java.util.List;
 @Mapper
 public interface TradeCalendarDao {
 
+    /**
+     * 已存在的日期只在开市标记或前一交易日变化时更新，并刷新 updated_at 供内存日历探测版本
+     */
     @Insert("INSERT INTO alphafrog_trade_calendar (exchange, cal_date_timestamp, is_open, pre_trade_date_timestamp) " +
-            "VALUES (#{exchange}, #{calDateTimestamp}, #{isOpen}, #{preTradeDateTimestamp})" +
-            "ON CONFLICT DO NOTHING")
+            "VALUES (#{exchange}, #{calDateTimestamp}, #{isOpen}, #{preTradeDateTimestamp}) " +
+            "ON CONFLICT (exchange, cal_date_timestamp) DO UPDATE SET is_open = EXCLUDED.is_open, " +
+            "pre_trade_date_timestamp = EXCLUDED.pre_trade_date_timestamp, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE (alphafrog_trade_calendar.is_open, alphafrog_trade_calendar.pre_trade_date_timestamp) " +
+            "IS DISTINCT FROM (EXCLUDED.is_open, EXCLUDED.pre_trade_date_timestamp)")
     int insertTradeCalendar(TradeCalendar tradeCalendar);
 
     @Select("SELECT * FROM alphafrog_trade_calendar WHERE " +
@@ -36,6 +42,14 @@ public interface TradeCalendarDao {
                                 @Param("startDateTimestamp") long startDateTimestamp,
                                 @Param("endDateTimestamp") long endDateTimestamp);
 
+    /**
+     * 某交易所日历的版本号：行数与最近一次修改时间的组合，新增、删除与原地修改（如休市日更正）都会改变它，
+     * 用于判断内存日历是否需要重新加载
+     */
+    @Select("SELECT COUNT(1) || ':' || COALESCE(CAST(MAX(updated_at) AS TEXT), '') " +
+            "FROM alphafrog_trade_calendar WHERE exchange = #{exchange}")
+    String getCalendarVersion(@Param("exchange") String exchange);
+
     /**
      * Finds the latest actual trading day timestamp (YYYYMMDD long format)
      * that is strictly before the given currentCalDateLongYYYYMMDD.
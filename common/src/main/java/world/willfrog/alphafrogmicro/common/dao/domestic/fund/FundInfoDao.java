@@ -45,5 +45,14 @@ public interface FundInfoDao {
     @Select("SELECT ts_code FROM alphafrog_fund_info LIMIT #{limit} OFFSET #{offset}")
     List<String> getFundTsCode(@Param("offset") int offset, @Param("limit") int limit);
 
+    // 构建进程内搜索索引用，只取检索与展示需要的列
+    @Select("SELECT ts_code, name, management, fund_type, found_date, benchmark, market FROM alphafrog_fund_info ORDER BY ts_code")
+    List<FundInfo> getFundInfoForSearchIndex();
+
+    // 搜索索引所用列的校验和：行数不变的更新（如改名）也会改变它，作为索引是否需要重建的版本号
+    @Select("SELECT md5(string_agg(concat_ws('|', ts_code, name, management, fund_type, found_date, benchmark, market), " +
+            "E'\\n' ORDER BY ts_code)) FROM alphafrog_fund_info")
+    String getFundInfoSearchChecksum();
+
 
 }
@@ -22,4 +22,14 @@ public interface FundNavDao {
                                                   @Param("startDateTimestamp") long startDateTimestamp,
                                                   @Param("endDateTimestamp") long endDateTimestamp);
 
+    /**
+     * 单条 SQL 批量读取多只基金在日期区间内的净值，按 (ts_code, nav_date) 排序
+     */
+    @Select("select * from alphafrog_fund_nav " +
+            "where ts_code = ANY(#{tsCodes,typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) " +
+            "and nav_date >= #{startDateTimestamp} and nav_date <= #{endDateTimestamp} order by ts_code, nav_date")
+    List<FundNav> getFundNavsByTsCodesAndDateRange(@Param("tsCodes") String[] tsCodes,
+                                                   @Param("startDateTimestamp") long startDateTimestamp,
+                                                   @Param("endDateTimestamp") long endDateTimestamp);
+
 }
\ No newline at end of file
@@ -44,10 +44,23 @@ public interface IndexInfoDao {
             "LIMIT #{limit} OFFSET #{offset}")
     List<IndexInfo> searchIndexInfo(@Param("query") String query, @Param("limit") int limit, @Param("offset") int offset);
 
+    // 构建进程内搜索索引用，只取检索与展示需要的列
+    @Select("SELECT ts_code, name, fullname, market FROM alphafrog_index_info ORDER BY ts_code")
+    List<IndexInfo> getIndexInfoForSearchIndex();
+
     @Select("SELECT count(*) FROM alphafrog_index_info")
     int getIndexInfoCount();
 
+    // 搜索索引所用列的校验和：行数不变的更新（如改名）也会改变它，作为索引是否需要重建的版本号
+    @Select("SELECT md5(string_agg(concat_ws('|', ts_code, name, fullname, market), E'\\n' ORDER BY ts_code)) " +
+            "FROM alphafrog_index_info")
+    String getIndexInfoSearchChecksum();
+
     @Select("SELECT (ts_code) from alphafrog_index_info limit #{limit} offset #{offset}")
     List<String> getAllIndexInfoTsCodes(@Param("offset") int offset,@Param("limit") int limit);
 
+    // 与 getAllIndexInfoTsCodes 相同的分页，附带基期/发布/终止日，供区间抓取规划缺口
+    @Select("SELECT ts_code, base_date, list_date, exp_date from alphafrog_index_info limit #{limit} offset #{offset}")
+    List<IndexInfo> getIndexListingDates(@Param("offset") int offset, @Param("limit") int limit);
+
 }
\ No newline at end of file
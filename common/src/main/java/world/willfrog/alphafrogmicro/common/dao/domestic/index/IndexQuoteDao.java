@@ -19,7 +19,7 @@ public interface IndexQuoteDao {
                                      @Param("endDate") Long endDate);
 
     @Select("SELECT * FROM alphafrog_index_daily WHERE ts_code = #{tsCode} AND trade_date BETWEEN #{startDate} AND #{endDate}")
-    @Results({
+    @Results(id = "indexDailyResult", value = {
             @Result(column = "ts_code", property = "tsCode"),
             @Result(column = "trade_date", property = "tradeDate"),
             @Result(column = "close", property = "close"),
@@ -33,4 +33,15 @@ public interface IndexQuoteDao {
             @Result(column = "amount", property = "amount")
     })
     List<IndexDaily> getIndexDailiesByTsCodeAndDateRange(@Param("tsCode") String tsCode, @Param("startDate") Long startDate, @Param("endDate") Long endDate);
+
+    /**
+     * 单条 SQL 批量读取多个指数在日期区间内的日线，按 (ts_code, trade_date) 排序
+     */
+    @Select("SELECT * FROM alphafrog_index_daily " +
+            "WHERE ts_code = ANY(#{tsCodes,typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) " +
+            "AND trade_date BETWEEN #{startDate} AND #{endDate} ORDER BY ts_code, trade_date")
+    @ResultMap("indexDailyResult")
+    List<IndexDaily> getIndexDailiesByTsCodesAndDateRange(@Param("tsCodes") String[] tsCodes,
+                                                          @Param("startDate") Long startDate,
+                                                          @Param("endDate") Long endDate);
 }
@@ -0,0 +1,27 @@
+package world.willfrog.alphafrogmicro.common.dao.domestic.stock;
+
+import org.apache.ibatis.annotations.*;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockAdjFactor;
+
+import java.util.List;
+
+@Mapper
+public interface StockAdjFactorDao {
+
+    @Insert("INSERT INTO alphafrog_stock_adj_factor (ts_code, trade_date, adj_factor) " +
+            "VALUES (#{tsCode}, #{tradeDate}, #{adjFactor}) " +
+            "ON CONFLICT(ts_code, trade_date) DO UPDATE SET adj_factor = EXCLUDED.adj_factor")
+    int insertStockAdjFactor(StockAdjFactor stockAdjFactor);
+
+    /**
+     * 按交易日升序读取单一股票的全部复权因子
+     */
+    @Select("SELECT * FROM alphafrog_stock_adj_factor WHERE ts_code = #{tsCode} ORDER BY trade_date")
+    @Results(id = "stockAdjFactorResult", value = {
+            @Result(property = "stockAdjFactorId", column = "id", id = true),
+            @Result(property = "tsCode", column = "ts_code"),
+            @Result(property = "tradeDate", column = "trade_date"),
+            @Result(property = "adjFactor", column = "adj_factor")
+    })
+    List<StockAdjFactor> getStockAdjFactorByTsCode(@Param("tsCode") String tsCode);
+}
@@ -1,7 +1,6 @@
 package world.willfrog.alphafrogmicro.common.dao.domestic.stock;
 
 import org.apache.ibatis.annotations.*;
-import org.springframework.cache.annotation.Cacheable;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
 
 import java.util.List;
@@ -37,7 +36,8 @@ public interface StockInfoDao {
             @Result(column = "act_name", property = "actName"),
             @Result(column = "act_ent_type", property = "actEntType")
     })
-    @Cacheable(value = "stockInfoCache", key = "'stock:info:' + #tsCode + ':' + #limit + ':' + #offset", cacheManager = "stockInfoCacheManager")
+    // 不加 @Cacheable：唯一调用方 DomesticStockServiceImpl 通过 StockCacheService 的两级缓存（domestic:stock_info:*）读取，
+    // 再叠一层 Spring Redis 缓存会重复访问 Redis，且不会随 stock_info 刷新通知失效
     List<StockInfo> getStockInfoByTsCode(@Param("tsCode") String tsCode, @Param("limit") int limit, @Param("offset") int offset);
 
     @Select("SELECT * FROM alphafrog_stock_info WHERE fullname like CONCAT('%', #{fullName}, '%') LIMIT #{limit} OFFSET #{offset}")
@@ -50,4 +50,20 @@ public interface StockInfoDao {
     @Select("SELECT ts_code FROM alphafrog_stock_info OFFSET #{offset} LIMIT #{limit}")
     List<String> getStockTsCode(@Param("offset") int offset, @Param("limit") int limit);
 
+    // 与 getStockTsCode 相同的分页，附带上市/退市日，供区间抓取规划缺口
+    @Select("SELECT ts_code, list_date, delist_date FROM alphafrog_stock_info OFFSET #{offset} LIMIT #{limit}")
+    List<StockInfo> getStockListingDates(@Param("offset") int offset, @Param("limit") int limit);
+
+    // 构建进程内搜索索引及同步 ES 用，只取检索与展示需要的列
+    @Select("SELECT ts_code, symbol, name, area, industry, fullname, enname, cnspell, market FROM alphafrog_stock_info ORDER BY ts_code")
+    List<StockInfo> getStockInfoForSearchIndex();
+
+    @Select("SELECT count(*) FROM alphafrog_stock_info")
+    int getStockInfoCount();
+
+    // 搜索索引及 ES 同步所用列的校验和：行数不变的更新（如改名）也会改变它，作为是否需要重建的版本号
+    @Select("SELECT md5(string_agg(concat_ws('|', ts_code, symbol, name, area, industry, fullname, enname, cnspell, market), " +
+            "E'\\n' ORDER BY ts_code)) FROM alphafrog_stock_info")
+    String getStockInfoSearchChecksum();
+
 }
@@ -1,6 +1,8 @@
 package world.willfrog.alphafrogmicro.common.dao.domestic.stock;
 
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.cache.annotation.Cacheable;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
 
@@ -18,7 +20,7 @@ public interface StockQuoteDao {
     int insertStockDaily(StockDaily stockDaily);
 
     @Select("SELECT * FROM alphafrog_stock_daily WHERE ts_code = #{tsCode} AND trade_date between #{startDate} and #{endDate}")
-    @Results({
+    @Results(id = "stockDailyResult", value = {
             @Result(property = "stockDailyId", column = "id", id = true),
             @Result(property = "tsCode", column = "ts_code"),
             @Result(property = "tradeDate", column = "trade_date"),
@@ -36,6 +38,43 @@ public interface StockQuoteDao {
     List<StockDaily> getStockDailyByTsCodeAndDateRange(@Param("tsCode") String tsCode,
                                                        @Param("startDate") long startDate, @Param("endDate") long endDate);
 
+    /**
+     * 单条 SQL 批量读取多只股票在日期区间内的日线，按 (ts_code, trade_date) 排序，便于调用方按股票分组
+     */
+    @Select("SELECT * FROM alphafrog_stock_daily " +
+            "WHERE ts_code = ANY(#{tsCodes,typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) " +
+            "AND trade_date BETWEEN #{startDate} AND #{endDate} ORDER BY ts_code, trade_date")
+    @ResultMap("stockDailyResult")
+    List<StockDaily> getStockDailyByTsCodesAndDateRange(@Param("tsCodes") String[] tsCodes,
+                                                        @Param("startDate") long startDate,
+                                                        @Param("endDate") long endDate);
+
     @Select("SELECT * FROM alphafrog_stock_daily WHERE trade_date = #{tradeDateTimestamp}")
     List<StockDaily> getStockDailyByTradeDate(@Param("tradeDateTimestamp") long tradeDateTimestamp);
+
+    /**
+     * 按 ts_code 键集分页读取某交易日的全市场日线：返回 ts_code 大于 afterTsCode 的前 limit 行，每页是一次独立查询
+     */
+    @Select("SELECT * FROM alphafrog_stock_daily WHERE trade_date = #{tradeDateTimestamp} AND ts_code > #{afterTsCode} " +
+            "ORDER BY ts_code LIMIT #{limit}")
+    @ResultMap("stockDailyResult")
+    List<StockDaily> getStockDailyByTradeDateAfterTsCode(@Param("tradeDateTimestamp") long tradeDateTimestamp,
+                                                         @Param("afterTsCode") String afterTsCode,
+                                                         @Param("limit") int limit);
+
+    /**
+     * 按交易日升序读取单一股票在 afterDate（不含）之后的全部日线，用于列式内存存储的整段加载与增量追加
+     */
+    @Select("SELECT * FROM alphafrog_stock_daily WHERE ts_code = #{tsCode} AND trade_date > #{afterDate} ORDER BY trade_date")
+    @ResultMap("stockDailyResult")
+    List<StockDaily> getStockDailyByTsCodeAfter(@Param("tsCode") String tsCode, @Param("afterDate") long afterDate);
+
+    /**
+     * 流式扫描 startDate 及之后的全市场日线，按 (ts_code, trade_date) 排序逐行回调，避免一次性物化整张结果集
+     * 注意：PostgreSQL 只有在非自动提交的事务中才会按 fetchSize 分批拉取
+     */
+    @Select("SELECT * FROM alphafrog_stock_daily WHERE trade_date >= #{startDate} ORDER BY ts_code, trade_date")
+    @ResultMap("stockDailyResult")
+    @Options(fetchSize = 5000)
+    void scanStockDailySince(@Param("startDate") long startDate, ResultHandler<StockDaily> handler);
 }
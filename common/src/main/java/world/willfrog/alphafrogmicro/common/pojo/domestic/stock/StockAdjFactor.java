@@ -0,0 +1,31 @@
+package world.willfrog.alphafrogmicro.common.pojo.domestic.stock;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "alphafrog_stock_adj_factor",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"ts_code", "trade_date"})
+        })
+public class StockAdjFactor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long stockAdjFactorId;
+
+    @Column(name = "ts_code", nullable = false)
+    String tsCode;
+
+    @Column(name = "trade_date", nullable = false)
+    Long tradeDate;
+
+    // 复权因子（TuShare adj_factor，后复权价 = 原始价 * 因子）
+    @Column(name = "adj_factor", nullable = false)
+    Double adjFactor;
+}
@@ -0,0 +1,151 @@
+package world.willfrog.alphafrogmicro.common.utils;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * 将按交易日升序排列的日线聚合为周/月/季线。
+ * <p>
+ * 日线本身只存在于交易日，因此按自然周（周一起始）、自然月、自然季度分桶即与交易日历对齐：
+ * 每根聚合 K 线的 trade_date 为桶内最后一个交易日，open 取首个交易日开盘，close 取最后一个交易日收盘，
+ * high/low 取极值，vol/amount 求和；pre_close 取上一根聚合 K 线的收盘（第一根沿用首日的 pre_close），
+ * change/pct_chg 据此重算。整个过程只对输入数组做一次顺序遍历，NaN 表示缺失值。
+ */
+public final class DailyBarResampler {
+
+    private static final ZoneId SHANGHAI = ZoneId.of("Asia/Shanghai");
+
+    public enum Period {
+        DAILY, WEEKLY, MONTHLY, QUARTERLY;
+
+        public static Period parse(String raw) {
+            if (raw == null || raw.isBlank()) {
+                return DAILY;
+            }
+            return switch (raw.trim().toLowerCase(Locale.ROOT)) {
+                case "d", "daily", "day" -> DAILY;
+                case "w", "weekly", "week" -> WEEKLY;
+                case "m", "monthly", "month" -> MONTHLY;
+                case "q", "quarterly", "quarter" -> QUARTERLY;
+                default -> throw new IllegalArgumentException("Unsupported resample period: " + raw);
+            };
+        }
+    }
+
+    private DailyBarResampler() {
+    }
+
+    public static Bars resample(Bars daily, Period period) {
+        if (period == Period.DAILY || daily.size == 0) {
+            return daily;
+        }
+
+        Bars out = Bars.allocate(daily.size);
+        int n = -1;
+        long currentKey = Long.MIN_VALUE;
+        double previousClose = Double.NaN;
+
+        for (int i = 0; i < daily.size; i++) {
+            long key = periodKey(daily.tradeDates[i], period);
+            if (n < 0 || key != currentKey) {
+                if (n >= 0) {
+                    previousClose = out.close[n];
+                }
+                n++;
+                currentKey = key;
+                out.open[n] = daily.open[i];
+                out.high[n] = daily.high[i];
+                out.low[n] = daily.low[i];
+                out.close[n] = daily.close[i];
+                out.vol[n] = 0.0;
+                out.amount[n] = 0.0;
+                out.preClose[n] = n == 0 ? daily.preClose[i] : previousClose;
+            } else {
+                if (Double.isNaN(out.open[n])) {
+                    out.open[n] = daily.open[i];
+                }
+                out.high[n] = nanMax(out.high[n], daily.high[i]);
+                out.low[n] = nanMin(out.low[n], daily.low[i]);
+                if (!Double.isNaN(daily.close[i])) {
+                    out.close[n] = daily.close[i];
+                }
+            }
+            out.tradeDates[n] = daily.tradeDates[i];
+            out.vol[n] = nanSum(out.vol[n], daily.vol[i]);
+            out.amount[n] = nanSum(out.amount[n], daily.amount[i]);
+        }
+
+        out.size = n + 1;
+        for (int i = 0; i < out.size; i++) {
+            out.change[i] = out.close[i] - out.preClose[i];
+            out.pctChg[i] = out.preClose[i] == 0.0 ? Double.NaN : out.change[i] / out.preClose[i] * 100.0;
+        }
+        return out;
+    }
+
+    private static long periodKey(long tradeDateMs, Period period) {
+        LocalDate date = Instant.ofEpochMilli(tradeDateMs).atZone(SHANGHAI).toLocalDate();
+        return switch (period) {
+            case WEEKLY -> date.with(DayOfWeek.MONDAY).toEpochDay();
+            case MONTHLY -> date.getYear() * 12L + date.getMonthValue();
+            case QUARTERLY -> date.getYear() * 4L + (date.getMonthValue() - 1) / 3;
+            case DAILY -> date.toEpochDay();
+        };
+    }
+
+    private static double nanMax(double a, double b) {
+        if (Double.isNaN(a)) {
+            return b;
+        }
+        return Double.isNaN(b) ? a : Math.max(a, b);
+    }
+
+    private static double nanMin(double a, double b) {
+        if (Double.isNaN(a)) {
+            return b;
+        }
+        return Double.isNaN(b) ? a : Math.min(a, b);
+    }
+
+    private static double nanSum(double a, double b) {
+        return Double.isNaN(b) ? a : a + b;
+    }
+
+    /**
+     * 列式 K 线容器，各列按交易日升序存放，有效长度为 size
+     */
+    public static final class Bars {
+        public final long[] tradeDates;
+        public final double[] open;
+        public final double[] high;
+        public final double[] low;
+        public final double[] close;
+        public final double[] preClose;
+        public final double[] change;
+        public final double[] pctChg;
+        public final double[] vol;
+        public final double[] amount;
+        public int size;
+
+        private Bars(int capacity) {
+            this.tradeDates = new long[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.preClose = new double[capacity];
+            this.change = new double[capacity];
+            this.pctChg = new double[capacity];
+            this.vol = new double[capacity];
+            this.amount = new double[capacity];
+            this.size = capacity;
+        }
+
+        public static Bars allocate(int capacity) {
+            return new Bars(capacity);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package world.willfrog.alphafrogmicro.common.utils.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 带版本头的紧凑 Redis 值序列化器。
+ * <p>
+ * 写入格式为 4 字节头（魔数 0xAF 0xC0、格式版本、编码类型）加负载：
+ * <ul>
+ *     <li>{@link #ENCODING_DAILY_COLUMNS}：日线列表，走 {@link DailyBarColumnCodec} 的列式差分编码；</li>
+ *     <li>{@link #ENCODING_JSON}：其余对象，由传入的 JSON 序列化器生成负载；</li>
+ *     <li>{@link #ENCODING_JSON_DEFLATE}：JSON 负载超过阈值时再做一次 Deflate 压缩。</li>
+ * </ul>
+ * 读取时没有版本头的值按旧版 JSON 交给同一个 JSON 序列化器解析，因此新实例可以直接读取升级前写入的缓存；
+ * 滚动升级期间若仍有旧实例读取同一批 key，可先以 binaryWrites=false 部署（只读新格式、仍写 JSON），全部实例升级后再打开。
+ * 版本号不认识的值视为未命中（返回 null），由调用方回源后覆盖。
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public static final byte MAGIC_0 = (byte) 0xAF;
+    public static final byte MAGIC_1 = (byte) 0xC0;
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte ENCODING_JSON = 1;
+    public static final byte ENCODING_JSON_DEFLATE = 2;
+    public static final byte ENCODING_DAILY_COLUMNS = 3;
+    private static final int HEADER_LENGTH = 4;
+
+    private final RedisSerializer<Object> jsonSerializer;
+    private final boolean binaryWrites;
+    private final int deflateThreshold;
+
+    /**
+     * @param jsonSerializer   非日线对象的 JSON 序列化器，同时用于解析旧版无头的值
+     * @param binaryWrites     false 时只写旧版 JSON，用于滚动升级的第一阶段
+     * @param deflateThreshold JSON 负载达到该字节数才压缩；小于等于 0 表示不压缩
+     */
+    public CompactRedisSerializer(RedisSerializer<Object> jsonSerializer, boolean binaryWrites, int deflateThreshold) {
+        this.jsonSerializer = jsonSerializer;
+        this.binaryWrites = binaryWrites;
+        this.deflateThreshold = deflateThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!binaryWrites) {
+            return jsonSerializer.serialize(value);
+        }
+        if (DailyBarColumnCodec.supports(value)) {
+            return frame(ENCODING_DAILY_COLUMNS, DailyBarColumnCodec.encode(value));
+        }
+        byte[] json = jsonSerializer.serialize(value);
+        if (json == null) {
+            return new byte[0];
+        }
+        if (deflateThreshold > 0 && json.length >= deflateThreshold) {
+            byte[] compressed = deflate(json);
+            if (compressed.length < json.length) {
+                return frame(ENCODING_JSON_DEFLATE, compressed);
+            }
+        }
+        return frame(ENCODING_JSON, json);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (!isFramed(bytes)) {
+            return jsonSerializer.deserialize(bytes);
+        }
+        if (bytes[2] != FORMAT_VERSION) {
+            return null;
+        }
+        try {
+            return switch (bytes[3]) {
+                case ENCODING_JSON -> jsonSerializer.deserialize(Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length));
+                case ENCODING_JSON_DEFLATE -> jsonSerializer.deserialize(inflate(bytes, HEADER_LENGTH));
+                case ENCODING_DAILY_COLUMNS ->
+                        DailyBarColumnCodec.decode(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+                default -> null;
+            };
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("Could not read compact cache value", e);
+        }
+    }
+
+    /**
+     * 是否为带版本头的新格式；旧版 JSON 以 '{'、'[' 或 '"' 开头，不会与魔数冲突
+     */
+    public static boolean isFramed(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    private static byte[] frame(byte encoding, byte[] payload) {
+        byte[] framed = new byte[HEADER_LENGTH + payload.length];
+        framed[0] = MAGIC_0;
+        framed[1] = MAGIC_1;
+        framed[2] = FORMAT_VERSION;
+        framed[3] = encoding;
+        System.arraycopy(payload, 0, framed, HEADER_LENGTH, payload.length);
+        return framed;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int offset) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, offset, input.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated deflate payload");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
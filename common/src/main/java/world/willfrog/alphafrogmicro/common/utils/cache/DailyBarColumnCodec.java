@@ -0,0 +1,320 @@
+package world.willfrog.alphafrogmicro.common.utils.cache;
+
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 将日线列表按列编码为紧凑的二进制格式，供 Redis 缓存使用。
+ * <p>
+ * 布局：行数，ts_code 字典及每行的字典下标（单只股票时省略下标），
+ * trade_date 与 id 以 zigzag varint 差分存储，九个价格/量列逐列编码：
+ * 若该列所有值乘以 10^k（k ∈ {0, 2, 3, 4}）后均为整数，则以定点整数差分 varint 存储，否则存原始 double。
+ * 任一列出现 null 时额外写入一个位图。日线的交易日间隔与价格变动都很小，差分后大多只占 1–3 个字节。
+ */
+public final class DailyBarColumnCodec {
+
+    private static final int[] SCALE_DIGITS = {0, 2, 3, 4};
+    private static final byte COLUMN_RAW = 0;
+    private static final byte COLUMN_FIXED = 1;
+    private static final byte COLUMN_HAS_NULLS = (byte) 0x80;
+
+    private static final List<Function<StockDaily, Double>> GETTERS = List.of(
+            StockDaily::getClose, StockDaily::getOpen, StockDaily::getHigh, StockDaily::getLow,
+            StockDaily::getPreClose, StockDaily::getChange, StockDaily::getPctChg,
+            StockDaily::getVol, StockDaily::getAmount);
+
+    private static final List<BiConsumer<StockDaily, Double>> SETTERS = List.of(
+            StockDaily::setClose, StockDaily::setOpen, StockDaily::setHigh, StockDaily::setLow,
+            StockDaily::setPreClose, StockDaily::setChange, StockDaily::setPctChg,
+            StockDaily::setVol, StockDaily::setAmount);
+
+    private DailyBarColumnCodec() {
+    }
+
+    /**
+     * 判断一个缓存值能否走列式编码：非空且元素全部为 {@link StockDaily}
+     */
+    public static boolean supports(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            return false;
+        }
+        for (Object item : list) {
+            if (!(item instanceof StockDaily)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(Object value) {
+        List<StockDaily> rows = (List<StockDaily>) value;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(32 + rows.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            int size = rows.size();
+            writeVarInt(out, size);
+
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> codes = new ArrayList<>();
+            int[] codeIndexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                String tsCode = rows.get(i).getTsCode();
+                String dictKey = tsCode == null ? "" : tsCode;
+                Integer index = dictionary.get(dictKey);
+                if (index == null) {
+                    index = codes.size();
+                    dictionary.put(dictKey, index);
+                    codes.add(dictKey);
+                }
+                codeIndexes[i] = index;
+            }
+            writeVarInt(out, codes.size());
+            for (String code : codes) {
+                out.writeUTF(code);
+            }
+            if (codes.size() > 1) {
+                for (int index : codeIndexes) {
+                    writeVarInt(out, index);
+                }
+            }
+
+            writeLongColumn(out, rows, StockDaily::getTradeDate);
+            writeLongColumn(out, rows, StockDaily::getStockDailyId);
+            for (Function<StockDaily, Double> getter : GETTERS) {
+                writeDoubleColumn(out, rows, getter);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream 不会抛出 IOException
+            throw new IllegalStateException("Encode daily bar columns failed", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static List<StockDaily> decode(byte[] bytes, int offset, int length) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            int size = readVarInt(in);
+            int codeCount = readVarInt(in);
+            String[] codes = new String[codeCount];
+            for (int i = 0; i < codeCount; i++) {
+                String code = in.readUTF();
+                codes[i] = code.isEmpty() ? null : code;
+            }
+
+            List<StockDaily> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                StockDaily row = new StockDaily();
+                row.setTsCode(codeCount == 1 ? codes[0] : null);
+                rows.add(row);
+            }
+            if (codeCount > 1) {
+                for (StockDaily row : rows) {
+                    row.setTsCode(codes[readVarInt(in)]);
+                }
+            }
+
+            readLongColumn(in, rows, StockDaily::setTradeDate);
+            readLongColumn(in, rows, StockDaily::setStockDailyId);
+            for (BiConsumer<StockDaily, Double> setter : SETTERS) {
+                readDoubleColumn(in, rows, setter);
+            }
+            return rows;
+        }
+    }
+
+    private static void writeLongColumn(DataOutputStream out, List<StockDaily> rows,
+                                        Function<StockDaily, Long> getter) throws IOException {
+        boolean[] nulls = new boolean[rows.size()];
+        boolean hasNulls = false;
+        for (int i = 0; i < rows.size(); i++) {
+            nulls[i] = getter.apply(rows.get(i)) == null;
+            hasNulls |= nulls[i];
+        }
+        out.writeByte(hasNulls ? COLUMN_HAS_NULLS : 0);
+        if (hasNulls) {
+            writeBitmap(out, nulls);
+        }
+        long previous = 0L;
+        for (StockDaily row : rows) {
+            Long value = getter.apply(row);
+            if (value != null) {
+                writeVarLong(out, zigzag(value - previous));
+                previous = value;
+            }
+        }
+    }
+
+    private static void readLongColumn(DataInputStream in, List<StockDaily> rows,
+                                       BiConsumer<StockDaily, Long> setter) throws IOException {
+        boolean hasNulls = (in.readByte() & COLUMN_HAS_NULLS) != 0;
+        boolean[] nulls = hasNulls ? readBitmap(in, rows.size()) : null;
+        long previous = 0L;
+        for (int i = 0; i < rows.size(); i++) {
+            if (nulls != null && nulls[i]) {
+                continue;
+            }
+            previous += unzigzag(readVarLong(in));
+            setter.accept(rows.get(i), previous);
+        }
+    }
+
+    private static void writeDoubleColumn(DataOutputStream out, List<StockDaily> rows,
+                                          Function<StockDaily, Double> getter) throws IOException {
+        int size = rows.size();
+        boolean[] nulls = new boolean[size];
+        boolean hasNulls = false;
+        for (int i = 0; i < size; i++) {
+            nulls[i] = getter.apply(rows.get(i)) == null;
+            hasNulls |= nulls[i];
+        }
+
+        int digits = -1;
+        for (int candidate : SCALE_DIGITS) {
+            if (fitsFixedPoint(rows, getter, candidate)) {
+                digits = candidate;
+                break;
+            }
+        }
+
+        out.writeByte((digits >= 0 ? COLUMN_FIXED : COLUMN_RAW) | (hasNulls ? COLUMN_HAS_NULLS : 0));
+        if (hasNulls) {
+            writeBitmap(out, nulls);
+        }
+        if (digits < 0) {
+            for (StockDaily row : rows) {
+                Double value = getter.apply(row);
+                if (value != null) {
+                    out.writeDouble(value);
+                }
+            }
+            return;
+        }
+
+        out.writeByte(digits);
+        double scale = Math.pow(10, digits);
+        long previous = 0L;
+        for (StockDaily row : rows) {
+            Double value = getter.apply(row);
+            if (value != null) {
+                long scaled = Math.round(value * scale);
+                writeVarLong(out, zigzag(scaled - previous));
+                previous = scaled;
+            }
+        }
+    }
+
+    private static void readDoubleColumn(DataInputStream in, List<StockDaily> rows,
+                                         BiConsumer<StockDaily, Double> setter) throws IOException {
+        byte flags = in.readByte();
+        boolean[] nulls = (flags & COLUMN_HAS_NULLS) != 0 ? readBitmap(in, rows.size()) : null;
+        if ((flags & COLUMN_FIXED) == 0) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (nulls == null || !nulls[i]) {
+                    setter.accept(rows.get(i), in.readDouble());
+                }
+            }
+            return;
+        }
+
+        double scale = Math.pow(10, in.readByte());
+        long previous = 0L;
+        for (int i = 0; i < rows.size(); i++) {
+            if (nulls != null && nulls[i]) {
+                continue;
+            }
+            previous += unzigzag(readVarLong(in));
+            setter.accept(rows.get(i), previous / scale);
+        }
+    }
+
+    /**
+     * 只有当缩放后再除回去能得到完全相同的 double 时才采用定点编码，保证解码结果逐位一致
+     */
+    private static boolean fitsFixedPoint(List<StockDaily> rows, Function<StockDaily, Double> getter, int digits) {
+        double scale = Math.pow(10, digits);
+        for (StockDaily row : rows) {
+            Double value = getter.apply(row);
+            if (value == null) {
+                continue;
+            }
+            double scaled = value * scale;
+            if (Double.isNaN(scaled) || Double.isInfinite(scaled) || Math.abs(scaled) > 1e15) {
+                return false;
+            }
+            long rounded = Math.round(scaled);
+            if (Double.doubleToLongBits(rounded / scale) != Double.doubleToLongBits(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeBitmap(DataOutputStream out, boolean[] bits) throws IOException {
+        for (int i = 0; i < bits.length; i += 8) {
+            int b = 0;
+            for (int j = 0; j < 8 && i + j < bits.length; j++) {
+                if (bits[i + j]) {
+                    b |= 1 << j;
+                }
+            }
+            out.writeByte(b);
+        }
+    }
+
+    private static boolean[] readBitmap(DataInputStream in, int size) throws IOException {
+        boolean[] bits = new boolean[size];
+        for (int i = 0; i < size; i += 8) {
+            int b = in.readUnsignedByte();
+            for (int j = 0; j < 8 && i + j < size; j++) {
+                bits[i + j] = (b & (1 << j)) != 0;
+            }
+        }
+        return bits;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,69 @@
+package world.willfrog.alphafrogmicro.common.utils.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 数据刷新通知：抓取服务完成一批数据入库后，通过 Redis pub/sub 广播刷新了哪些数据集，
+ * 股票、指数、基金服务收到后清理各自受影响的缓存。消息体为逗号分隔的数据集名称，
+ * 首项为 {@code id=<通知 ID>}，多实例共享的缓存（Redis）据此只由一个实例清理；不带 ID 的旧消息照常解析。
+ */
+public final class DataRefreshNotice {
+
+    public static final String DEFAULT_CHANNEL = "alphafrog:data-refresh";
+
+    private static final String ID_PREFIX = "id=";
+
+    public static final String TRADE_CALENDAR = "trade_calendar";
+    public static final String STOCK_INFO = "stock_info";
+    public static final String STOCK_DAILY = "stock_daily";
+    /**
+     * 补录了最新交易日之前的股票日线（区间回补或历史交易日重抓），已加载的历史序列需要整体失效
+     */
+    public static final String STOCK_DAILY_BACKFILL = "stock_daily_backfill";
+    public static final String STOCK_ADJ_FACTOR = "stock_adj_factor";
+    public static final String INDEX_INFO = "index_info";
+    public static final String INDEX_DAILY = "index_daily";
+    public static final String INDEX_WEIGHT = "index_weight";
+    public static final String FUND_INFO = "fund_info";
+    public static final String FUND_NAV = "fund_nav";
+
+    private DataRefreshNotice() {
+    }
+
+    public static String encode(Collection<String> datasets) {
+        return ID_PREFIX + UUID.randomUUID() + "," + String.join(",", datasets);
+    }
+
+    public static Set<String> decode(byte[] body) {
+        Set<String> datasets = new LinkedHashSet<>();
+        if (body == null) {
+            return datasets;
+        }
+        for (String dataset : new String(body, StandardCharsets.UTF_8).split(",")) {
+            if (!dataset.isBlank() && !dataset.trim().startsWith(ID_PREFIX)) {
+                datasets.add(dataset.trim());
+            }
+        }
+        return datasets;
+    }
+
+    /**
+     * 通知 ID；旧版发布方不带 ID 时返回 null
+     */
+    public static String decodeId(byte[] body) {
+        if (body == null) {
+            return null;
+        }
+        for (String item : new String(body, StandardCharsets.UTF_8).split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.startsWith(ID_PREFIX) && trimmed.length() > ID_PREFIX.length()) {
+                return trimmed.substring(ID_PREFIX.length());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package world.willfrog.alphafrogmicro.common.utils.calendar;
+
+import java.util.Arrays;
+
+/**
+ * 单个交易所的交易日历快照：所有交易日（上海时区零点毫秒时间戳）按升序存放在一个 long[] 中，
+ * 数组下标即交易日序号。前一/后一/偏移 N 个交易日、区间计数与区间列表都只需一次二分查找加下标运算。
+ * 快照不可变，可以在线程间自由共享。
+ */
+public final class TradingCalendar {
+
+    private final String exchange;
+    private final long[] tradingDates;
+
+    public TradingCalendar(String exchange, long[] tradingDates) {
+        this.exchange = exchange;
+        this.tradingDates = Arrays.stream(tradingDates).sorted().distinct().toArray();
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public int size() {
+        return tradingDates.length;
+    }
+
+    public boolean isTradingDay(long date) {
+        return Arrays.binarySearch(tradingDates, date) >= 0;
+    }
+
+    /**
+     * 交易日序号；非交易日返回 -1
+     */
+    public int ordinalOf(long date) {
+        int index = Arrays.binarySearch(tradingDates, date);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * 序号对应的交易日；越界返回 null
+     */
+    public Long dateAt(int ordinal) {
+        return ordinal >= 0 && ordinal < tradingDates.length ? tradingDates[ordinal] : null;
+    }
+
+    /**
+     * 严格早于 date 的最近一个交易日
+     */
+    public Long previous(long date) {
+        return dateAt(lowerBound(date) - 1);
+    }
+
+    /**
+     * 严格晚于 date 的最近一个交易日
+     */
+    public Long next(long date) {
+        return dateAt(upperBound(date));
+    }
+
+    /**
+     * date 当天（若为交易日）或之前最近的交易日
+     */
+    public Long floor(long date) {
+        return dateAt(upperBound(date) - 1);
+    }
+
+    /**
+     * date 当天（若为交易日）或之后最近的交易日
+     */
+    public Long ceiling(long date) {
+        return dateAt(lowerBound(date));
+    }
+
+    /**
+     * 相对 date 偏移 offset 个交易日：offset 为负时从严格早于 date 的交易日往前数，为正时从严格晚于 date 的交易日往后数，
+     * 为 0 时返回 {@link #floor(long)}。例如 offset=-1 等价于 {@link #previous(long)}。
+     */
+    public Long offset(long date, int offset) {
+        if (offset == 0) {
+            return floor(date);
+        }
+        if (offset < 0) {
+            return dateAt(lowerBound(date) + offset);
+        }
+        return dateAt(upperBound(date) + offset - 1);
+    }
+
+    /**
+     * [start, end] 闭区间内的交易日数
+     */
+    public int count(long start, long end) {
+        if (start > end) {
+            return 0;
+        }
+        return upperBound(end) - lowerBound(start);
+    }
+
+    /**
+     * [start, end] 闭区间内的交易日（升序副本）
+     */
+    public long[] range(long start, long end) {
+        if (start > end) {
+            return new long[0];
+        }
+        return Arrays.copyOfRange(tradingDates, lowerBound(start), upperBound(end));
+    }
+
+    /**
+     * 第一个 >= date 的下标
+     */
+    private int lowerBound(long date) {
+        int index = Arrays.binarySearch(tradingDates, date);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 第一个 > date 的下标
+     */
+    private int upperBound(long date) {
+        int index = Arrays.binarySearch(tradingDates, date);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
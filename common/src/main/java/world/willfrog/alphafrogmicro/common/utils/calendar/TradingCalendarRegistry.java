@@ -0,0 +1,88 @@
+package world.willfrog.alphafrogmicro.common.utils.calendar;
+
+import lombok.extern.slf4j.Slf4j;
+import world.willfrog.alphafrogmicro.common.dao.domestic.calendar.TradeCalendarDao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按交易所持有 {@link TradingCalendar} 快照，供各服务共享。
+ * <p>
+ * 首次访问某个交易所时同步从 alphafrog_trade_calendar 全量加载；之后距离上次检查超过刷新间隔时，
+ * 由一个调用线程执行轻量的版本探测（该交易所日历的行数与最大 updated_at），只有版本变化
+ * （抓取服务写入了新日历或更正了已有日期）才重新加载，
+ * 其余线程继续使用旧快照。探测或加载失败时保留旧快照并记录日志。
+ */
+@Slf4j
+public class TradingCalendarRegistry {
+
+    private final TradeCalendarDao tradeCalendarDao;
+    private final long refreshIntervalMs;
+    private final Map<String, Holder> holders = new ConcurrentHashMap<>();
+
+    public TradingCalendarRegistry(TradeCalendarDao tradeCalendarDao, long refreshIntervalMs) {
+        this.tradeCalendarDao = tradeCalendarDao;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * 返回交易所当前的日历快照；首次加载失败时抛出异常，由调用方按原有方式处理
+     */
+    public TradingCalendar calendar(String exchange) {
+        Holder holder = holders.computeIfAbsent(exchange, this::load);
+        long now = System.currentTimeMillis();
+        if (now - holder.checkedAtMs >= refreshIntervalMs && holder.refreshing.compareAndSet(false, true)) {
+            try {
+                holder.checkedAtMs = now;
+                String probed = tradeCalendarDao.getCalendarVersion(exchange);
+                if (!Objects.equals(probed, holder.version)) {
+                    Holder reloaded = load(exchange);
+                    holders.put(exchange, reloaded);
+                    return reloaded.calendar;
+                }
+            } catch (Exception e) {
+                log.error("Failed to refresh trading calendar, keep current snapshot: exchange={}", exchange, e);
+            } finally {
+                holder.refreshing.set(false);
+            }
+        }
+        return holder.calendar;
+    }
+
+    /**
+     * 丢弃快照，下次访问时重新加载；用于本进程刚写入日历之后
+     */
+    public void invalidate(String exchange) {
+        holders.remove(exchange);
+    }
+
+    private Holder load(String exchange) {
+        long startMs = System.currentTimeMillis();
+        // 先取版本再取数据：加载期间若有新行写入，下一次探测会发现版本变化
+        String version = tradeCalendarDao.getCalendarVersion(exchange);
+        List<Long> dates = tradeCalendarDao.getTradingDatesByRange(exchange, Long.MIN_VALUE, Long.MAX_VALUE);
+        long[] tradingDates = dates == null ? new long[0]
+                : dates.stream().filter(Objects::nonNull).mapToLong(Long::longValue).toArray();
+        TradingCalendar calendar = new TradingCalendar(exchange, tradingDates);
+        log.info("Trading calendar loaded: exchange={}, tradingDays={}, cost_ms={}",
+                exchange, calendar.size(), System.currentTimeMillis() - startMs);
+        return new Holder(calendar, version, System.currentTimeMillis());
+    }
+
+    private static final class Holder {
+        private final TradingCalendar calendar;
+        private final String version;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+        private volatile long checkedAtMs;
+
+        private Holder(TradingCalendar calendar, String version, long checkedAtMs) {
+            this.calendar = calendar;
+            this.version = version;
+            this.checkedAtMs = checkedAtMs;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package world.willfrog.alphafrogmicro.common.utils.completeness;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 每个代码一张“哪些日期已入库”的位图，位序号为自 {@link #BASE_DATE} 起的自然日序号。
+ * <p>
+ * 选用自然日而不是交易日序号，是为了让位的位置与交易日历解耦：日历补录更早的历史时已有位图无需重排，
+ * 写入方（抓取服务）也不需要加载日历。代价是位图比交易日序号大约 1.5 倍，三十多年的数据仍不足 2KB。
+ * 位的字节序与 Redis SETBIT/GETBIT 一致（每个字节的最高位对应最小的序号），因此可以直接 GET 整个 key 后在本地判断。
+ * 序号 0（1990-01-01，元旦休市）不对应任何交易日，用作“已按数据库全量初始化”的标记位。
+ */
+public final class TradeDateBitmap {
+
+    public static final LocalDate BASE_DATE = LocalDate.of(1990, 1, 1);
+    public static final long SEEDED_BIT = 0L;
+    private static final ZoneId SHANGHAI = ZoneId.of("Asia/Shanghai");
+    private static final long BASE_EPOCH_DAY = BASE_DATE.toEpochDay();
+    private static final String KEY_PREFIX = "completeness:bitmap:";
+    private static final String ABSENT_KEY_PREFIX = "completeness:absent:";
+
+    /**
+     * 支持位图的日频数据表
+     */
+    public enum Dataset {
+        STOCK_DAILY("alphafrog_stock_daily", "ts_code", "trade_date"),
+        INDEX_DAILY("alphafrog_index_daily", "ts_code", "trade_date"),
+        FUND_NAV("alphafrog_fund_nav", "ts_code", "nav_date");
+
+        private final String tableName;
+        private final String codeColumn;
+        private final String dateColumn;
+
+        Dataset(String tableName, String codeColumn, String dateColumn) {
+            this.tableName = tableName;
+            this.codeColumn = codeColumn;
+            this.dateColumn = dateColumn;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getCodeColumn() {
+            return codeColumn;
+        }
+
+        public String getDateColumn() {
+            return dateColumn;
+        }
+    }
+
+    private TradeDateBitmap() {
+    }
+
+    public static String key(Dataset dataset, String code) {
+        return KEY_PREFIX + dataset.getTableName() + ":" + code;
+    }
+
+    /**
+     * “已到数据库核对过、确认未入库”的日期位图，位序号与 {@link #key} 相同，带过期时间
+     */
+    public static String absentKey(Dataset dataset, String code) {
+        return ABSENT_KEY_PREFIX + dataset.getTableName() + ":" + code;
+    }
+
+    /**
+     * 上海时区零点毫秒时间戳对应的位序号；早于 {@link #BASE_DATE} 的日期返回 -1
+     */
+    public static long ordinalOf(long dateTimestamp) {
+        long epochDay = Instant.ofEpochMilli(dateTimestamp).atZone(SHANGHAI).toLocalDate().toEpochDay();
+        long ordinal = epochDay - BASE_EPOCH_DAY;
+        return ordinal <= SEEDED_BIT ? -1L : ordinal;
+    }
+
+    public static boolean isSet(byte[] bitmap, long ordinal) {
+        if (bitmap == null || ordinal < 0) {
+            return false;
+        }
+        long byteIndex = ordinal >>> 3;
+        if (byteIndex >= bitmap.length) {
+            return false;
+        }
+        return (bitmap[(int) byteIndex] & (0x80 >>> (int) (ordinal & 7))) != 0;
+    }
+
+    public static boolean isSeeded(byte[] bitmap) {
+        return isSet(bitmap, SEEDED_BIT);
+    }
+
+    /**
+     * 在交易日升序数组上与位图逐位相与，返回位图中缺失的交易日（保持升序）
+     */
+    public static List<Long> missingDates(byte[] bitmap, long[] tradingDates) {
+        List<Long> missing = new ArrayList<>();
+        for (long tradingDate : tradingDates) {
+            if (!isSet(bitmap, ordinalOf(tradingDate))) {
+                missing.add(tradingDate);
+            }
+        }
+        return missing;
+    }
+}
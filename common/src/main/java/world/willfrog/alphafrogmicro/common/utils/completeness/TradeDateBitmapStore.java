@@ -0,0 +1,203 @@
+package world.willfrog.alphafrogmicro.common.utils.completeness;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import world.willfrog.alphafrogmicro.common.dao.domestic.common.DataCompletenessDao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 读写 Redis 中的 {@link TradeDateBitmap}。
+ * <ul>
+ *     <li>抓取服务在每批日线/净值提交后调用 {@link #markPresent}，以流水线 SETBIT 增量置位；</li>
+ *     <li>查询方调用 {@link #missingDates}：位图尚未初始化时先按数据库全量置位一次，
+ *     之后只需一次 GET 与本地按位判断；若仍有缺失，再到数据库核对缺失区间并补位，
+ *     兼容不经过抓取服务写入的数据。</li>
+ *     <li>核对后仍缺失的日期（停牌等正常缺口）记入带过期时间的“确认缺失”位图，过期前不再重复查库；
+ *     这些日期之后入库时 {@link #markPresent} 同时清除对应的确认缺失位。</li>
+ * </ul>
+ * 已入库位只会被置 1，SETBIT 幂等，因此初始化与增量写入并发执行也不会丢位。
+ */
+@Slf4j
+public class TradeDateBitmapStore {
+
+    private static final long FULL_RANGE_START = 0L;
+    private static final long FULL_RANGE_END = Long.MAX_VALUE;
+
+    private static final long DEFAULT_ABSENT_TTL_SECONDS = 6 * 3600L;
+
+    private final RedisOperations<String, ?> redisOperations;
+    private final DataCompletenessDao dataCompletenessDao;
+    private final long absentTtlSeconds;
+
+    /**
+     * @param dataCompletenessDao 只写入位图的一方可以传 null
+     */
+    public TradeDateBitmapStore(RedisOperations<String, ?> redisOperations, DataCompletenessDao dataCompletenessDao) {
+        this(redisOperations, dataCompletenessDao, DEFAULT_ABSENT_TTL_SECONDS);
+    }
+
+    /**
+     * @param absentTtlSeconds 确认缺失标记的有效期，过期后重新到数据库核对，兼容不经过抓取服务补录的数据
+     */
+    public TradeDateBitmapStore(RedisOperations<String, ?> redisOperations, DataCompletenessDao dataCompletenessDao,
+                                long absentTtlSeconds) {
+        this.redisOperations = redisOperations;
+        this.dataCompletenessDao = dataCompletenessDao;
+        this.absentTtlSeconds = Math.max(1L, absentTtlSeconds);
+    }
+
+    /**
+     * 将已入库的日期置位；失败只记录日志，不影响入库结果
+     */
+    public void markPresent(TradeDateBitmap.Dataset dataset, Map<String, ? extends Collection<Long>> datesByCode) {
+        if (datesByCode == null || datesByCode.isEmpty()) {
+            return;
+        }
+        try {
+            redisOperations.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStringCommands commands = connection.stringCommands();
+                datesByCode.forEach((code, dates) -> {
+                    if (code == null || dates == null) {
+                        return;
+                    }
+                    byte[] rawKey = rawKey(dataset, code);
+                    byte[] rawAbsentKey = rawAbsentKey(dataset, code);
+                    for (Long date : dates) {
+                        long ordinal = date == null ? -1L : TradeDateBitmap.ordinalOf(date);
+                        if (ordinal > 0) {
+                            commands.setBit(rawKey, ordinal, true);
+                            // 重新入库的日期不再视为确认缺失
+                            commands.setBit(rawAbsentKey, ordinal, false);
+                        }
+                    }
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Mark trade date bitmap failed, dataset={}, codes={}", dataset, datesByCode.size(), e);
+        }
+    }
+
+    /**
+     * 返回给定交易日（升序）中尚未入库的部分
+     */
+    public List<Long> missingDates(TradeDateBitmap.Dataset dataset, String code, long[] tradingDates) {
+        if (tradingDates.length == 0) {
+            return List.of();
+        }
+        byte[] bitmap = read(rawKey(dataset, code));
+        if (!TradeDateBitmap.isSeeded(bitmap)) {
+            seed(dataset, code, dataCompletenessDao.getExistingDates(dataset.getTableName(), dataset.getCodeColumn(),
+                    dataset.getDateColumn(), code, FULL_RANGE_START, FULL_RANGE_END));
+            bitmap = read(rawKey(dataset, code));
+        }
+
+        List<Long> missing = TradeDateBitmap.missingDates(bitmap, tradingDates);
+        if (missing.isEmpty()) {
+            return missing;
+        }
+
+        // 已确认缺失且未过期的日期不再查库，只核对其余缺失日期
+        byte[] absent = read(rawAbsentKey(dataset, code));
+        List<Long> unchecked = new ArrayList<>();
+        for (Long date : missing) {
+            if (!TradeDateBitmap.isSet(absent, TradeDateBitmap.ordinalOf(date))) {
+                unchecked.add(date);
+            }
+        }
+        if (unchecked.isEmpty()) {
+            return missing;
+        }
+
+        // 核对缺失区间，补上不经过抓取服务写入的行，其余记为确认缺失
+        List<Long> existing = dataCompletenessDao.getExistingDates(dataset.getTableName(), dataset.getCodeColumn(),
+                dataset.getDateColumn(), code, unchecked.get(0), unchecked.get(unchecked.size() - 1));
+        Set<Long> existingOrdinals = new HashSet<>();
+        if (existing != null) {
+            for (Long date : existing) {
+                if (date != null) {
+                    existingOrdinals.add(TradeDateBitmap.ordinalOf(date));
+                }
+            }
+        }
+        List<Long> confirmedAbsent = new ArrayList<>();
+        for (Long date : unchecked) {
+            if (!existingOrdinals.contains(TradeDateBitmap.ordinalOf(date))) {
+                confirmedAbsent.add(date);
+            }
+        }
+        markAbsent(dataset, code, confirmedAbsent, absent == null);
+        if (existing == null || existing.isEmpty()) {
+            return missing;
+        }
+        markPresent(dataset, Map.of(code, existing));
+        return TradeDateBitmap.missingDates(read(rawKey(dataset, code)), tradingDates);
+    }
+
+    /**
+     * 记录确认缺失的日期；过期时间只在 key 新建时设置，避免持续写入使标记永不过期。失败只记录日志
+     */
+    private void markAbsent(TradeDateBitmap.Dataset dataset, String code, List<Long> dates, boolean newKey) {
+        if (dates.isEmpty()) {
+            return;
+        }
+        byte[] rawAbsentKey = rawAbsentKey(dataset, code);
+        try {
+            redisOperations.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStringCommands commands = connection.stringCommands();
+                for (Long date : dates) {
+                    long ordinal = TradeDateBitmap.ordinalOf(date);
+                    if (ordinal > 0) {
+                        commands.setBit(rawAbsentKey, ordinal, true);
+                    }
+                }
+                if (newKey) {
+                    connection.keyCommands().expire(rawAbsentKey, absentTtlSeconds);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Mark absent trade dates failed, dataset={}, code={}", dataset, code, e);
+        }
+    }
+
+    private void seed(TradeDateBitmap.Dataset dataset, String code, List<Long> existingDates) {
+        byte[] rawKey = rawKey(dataset, code);
+        redisOperations.executePipelined((RedisCallback<Object>) connection -> {
+            RedisStringCommands commands = connection.stringCommands();
+            if (existingDates != null) {
+                for (Long date : existingDates) {
+                    long ordinal = date == null ? -1L : TradeDateBitmap.ordinalOf(date);
+                    if (ordinal > 0) {
+                        commands.setBit(rawKey, ordinal, true);
+                    }
+                }
+            }
+            commands.setBit(rawKey, TradeDateBitmap.SEEDED_BIT, true);
+            return null;
+        });
+        log.info("Seeded trade date bitmap from database, dataset={}, code={}, dates={}",
+                dataset, code, existingDates == null ? 0 : existingDates.size());
+    }
+
+    private byte[] read(byte[] rawKey) {
+        return redisOperations.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+    }
+
+    private static byte[] rawKey(TradeDateBitmap.Dataset dataset, String code) {
+        return TradeDateBitmap.key(dataset, code).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] rawAbsentKey(TradeDateBitmap.Dataset dataset, String code) {
+        return TradeDateBitmap.absentKey(dataset, code).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,202 @@
+package world.willfrog.alphafrogmicro.common.utils.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 基础信息（股票/基金/指数）的进程内 n-gram 倒排索引。
+ * <p>
+ * 每条记录的各检索字段统一转小写后拆成单字与双字 gram 建立倒排表；查询时对查询串的双字 gram 求交得到候选，
+ * 再逐条校验子串匹配并打分，语义等价于 {@code LIKE '%query%'}，但不需要扫描整张表。
+ * <p>
+ * 排序与 {@code IndexInfoDao.searchIndexInfo} 一致：完全相等 &gt; 前缀 &gt; 子串，同一档内按字段顺序，
+ * 再按名称长度、首字段（代码）升序。实例不可变，刷新时整体替换。
+ */
+public final class InfoSearchIndex<T> {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final List<T> docs;
+    private final String[][] fields;
+    private final int nameField;
+    private final Map<String, int[]> postings;
+
+    private InfoSearchIndex(List<T> docs, String[][] fields, int nameField, Map<String, int[]> postings) {
+        this.docs = docs;
+        this.fields = fields;
+        this.nameField = nameField;
+        this.postings = postings;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param docs      待索引记录
+     * @param nameField 名称字段在 fieldsOf 返回数组中的下标，用于同分时按名称长度排序
+     * @param fieldsOf  按相关性优先级返回检索字段，第 0 个字段应为代码，可以包含 null
+     */
+    public static <T> InfoSearchIndex<T> build(List<T> docs, int nameField, Function<T, String[]> fieldsOf) {
+        List<T> snapshot = List.copyOf(docs);
+        String[][] fields = new String[snapshot.size()][];
+        Map<String, IntBuffer> buffers = new HashMap<>();
+        for (int doc = 0; doc < snapshot.size(); doc++) {
+            String[] raw = fieldsOf.apply(snapshot.get(doc));
+            String[] normalized = new String[raw.length];
+            for (int f = 0; f < raw.length; f++) {
+                String value = normalize(raw[f]);
+                normalized[f] = value;
+                for (int i = 0; i < value.length(); i++) {
+                    addPosting(buffers, value.substring(i, i + 1), doc);
+                    if (i + 1 < value.length()) {
+                        addPosting(buffers, value.substring(i, i + 2), doc);
+                    }
+                }
+            }
+            fields[doc] = normalized;
+        }
+        Map<String, int[]> postings = new HashMap<>(buffers.size() * 2);
+        buffers.forEach((gram, buffer) -> postings.put(gram, buffer.toArray()));
+        return new InfoSearchIndex<>(snapshot, fields, nameField, postings);
+    }
+
+    /**
+     * 按相关性返回包含 query 的前 limit 条记录
+     */
+    public List<T> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int doc : candidates(q)) {
+            int score = score(fields[doc], q);
+            if (score >= 0) {
+                hits.add(new Hit(doc, score));
+            }
+        }
+        hits.sort(Comparator.<Hit>comparingInt(Hit::score)
+                .thenComparingInt(hit -> fields[hit.doc()][nameField].length())
+                .thenComparing(hit -> fields[hit.doc()][0]));
+
+        List<T> result = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            result.add(docs.get(hits.get(i).doc()));
+        }
+        return result;
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    private int[] candidates(String q) {
+        if (q.length() == 1) {
+            return postings.getOrDefault(q, EMPTY);
+        }
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 1 < q.length(); i++) {
+            grams.add(q.substring(i, i + 2));
+        }
+        List<int[]> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            int[] list = postings.get(gram);
+            if (list == null) {
+                return EMPTY;
+            }
+            lists.add(list);
+        }
+        // 从最短的倒排表开始求交，候选集只会越来越小
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 返回 匹配档位 * 字段数 + 字段下标，越小越相关；没有任何字段包含 q 时返回 -1
+     */
+    private static int score(String[] docFields, String q) {
+        int best = -1;
+        for (int f = 0; f < docFields.length; f++) {
+            String value = docFields[f];
+            int kind;
+            if (value.equals(q)) {
+                kind = 0;
+            } else if (value.startsWith(q)) {
+                kind = 1;
+            } else if (value.contains(q)) {
+                kind = 2;
+            } else {
+                continue;
+            }
+            int score = kind * docFields.length + f;
+            if (best < 0 || score < best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static void addPosting(Map<String, IntBuffer> buffers, String gram, int doc) {
+        buffers.computeIfAbsent(gram, key -> new IntBuffer()).addIfAbsent(doc);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Hit(int doc, int score) {
+    }
+
+    /**
+     * 按文档顺序追加的倒排表，文档号单调递增，只需和末尾比较即可去重
+     */
+    private static final class IntBuffer {
+        private int[] values = new int[4];
+        private int size;
+
+        private void addIfAbsent(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package world.willfrog.alphafrogmicro.common.utils.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 持有当前生效的 {@link InfoSearchIndex}，并在后台线程中按需重建。
+ * <p>
+ * 查询线程只读取 volatile 快照，不会被建索引阻塞；距离上次检查超过刷新间隔时，后台先执行版本探测
+ * （通常是索引所用列的校验和），只有版本变化（*_info 抓取新增、删除或原地更新了行）才重新全量加载并替换快照。
+ * 首次构建完成前 {@link #current(long)} 返回 null，调用方应回退到原有的数据库查询。
+ */
+@Slf4j
+public final class InfoSearchIndexHolder<T> {
+
+    private final String name;
+    private final Supplier<List<T>> loader;
+    private final Supplier<String> versionProbe;
+    private final Function<List<T>, InfoSearchIndex<T>> builder;
+    private final ExecutorService executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    private volatile InfoSearchIndex<T> index;
+    private volatile String version;
+    private volatile long checkedAtMs;
+
+    public InfoSearchIndexHolder(String name,
+                                 Supplier<List<T>> loader,
+                                 Supplier<String> versionProbe,
+                                 Function<List<T>, InfoSearchIndex<T>> builder) {
+        this.name = name;
+        this.loader = loader;
+        this.versionProbe = versionProbe;
+        this.builder = builder;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "info-search-index-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 返回当前索引快照，必要时在后台触发一次刷新检查
+     */
+    public InfoSearchIndex<T> current(long refreshIntervalMs) {
+        long now = System.currentTimeMillis();
+        if ((index == null || now - checkedAtMs >= refreshIntervalMs) && refreshing.compareAndSet(false, true)) {
+            checkedAtMs = now;
+            executor.execute(this::refresh);
+        }
+        return index;
+    }
+
+    /**
+     * 在后台立即触发一次刷新检查，用于启动预热
+     */
+    public void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            checkedAtMs = System.currentTimeMillis();
+            executor.execute(this::refresh);
+        }
+    }
+
+    /**
+     * 忽略版本探测，在后台强制重建一次；用于收到基础信息刷新通知后立即生效，不等待下一次探测
+     */
+    public void rebuildAsync() {
+        version = null;
+        refreshAsync();
+    }
+
+    private void refresh() {
+        long startMs = System.currentTimeMillis();
+        try {
+            String probed = versionProbe.get();
+            if (index != null && version != null && Objects.equals(probed, version)) {
+                return;
+            }
+            InfoSearchIndex<T> rebuilt = builder.apply(loader.get());
+            index = rebuilt;
+            version = probed;
+            log.info("Info search index rebuilt: name={}, docs={}, cost_ms={}",
+                    name, rebuilt.size(), System.currentTimeMillis() - startMs);
+        } catch (Exception e) {
+            log.error("Failed to rebuild info search index: {}", name, e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+}
@@ -11,6 +11,9 @@ CREATE INDEX IF NOT EXISTS idx_stock_info_symbol ON alphafrog_stock_info(symbol)
 CREATE INDEX IF NOT EXISTS idx_stock_daily_ts_code_trade_date ON alphafrog_stock_daily(ts_code, trade_date);
 CREATE INDEX IF NOT EXISTS idx_stock_daily_trade_date ON alphafrog_stock_daily(trade_date);
 
+-- 股票复权因子表索引优化 (唯一约束已覆盖 ts_code, trade_date)
+CREATE INDEX IF NOT EXISTS idx_stock_adj_factor_trade_date ON alphafrog_stock_adj_factor(trade_date);
+
 -- 指数信息表索引优化
 CREATE INDEX IF NOT EXISTS idx_index_info_ts_code ON alphafrog_index_info(ts_code);
 CREATE INDEX IF NOT EXISTS idx_index_info_name ON alphafrog_index_info(name);
@@ -0,0 +1,66 @@
+package world.willfrog.alphafrogmicro.common.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DailyBarResamplerTest {
+
+    @Test
+    public void weeklyBarsAlignToNaturalWeeks() {
+        // 2024-01-04(周四) 2024-01-05(周五) | 2024-01-08(周一) 2024-01-09(周二)
+        DailyBarResampler.Bars daily = bars(
+                new String[]{"20240104", "20240105", "20240108", "20240109"},
+                new double[]{10.0, 11.0, 12.0, 9.0});
+
+        DailyBarResampler.Bars weekly = DailyBarResampler.resample(daily, DailyBarResampler.Period.WEEKLY);
+
+        assertEquals(2, weekly.size);
+        assertEquals((long) DateConvertUtils.convertDateStrToLong("20240105", "yyyyMMdd"), weekly.tradeDates[0]);
+        assertEquals(10.0, weekly.open[0], 1e-9);
+        assertEquals(11.0, weekly.close[0], 1e-9);
+        assertEquals(11.5, weekly.high[0], 1e-9);
+        assertEquals(200.0, weekly.vol[0], 1e-9);
+        assertEquals(11.0, weekly.preClose[1], 1e-9);
+        assertEquals(9.0, weekly.close[1], 1e-9);
+        assertEquals(8.5, weekly.low[1], 1e-9);
+        assertEquals(-2.0, weekly.change[1], 1e-9);
+    }
+
+    @Test
+    public void monthlyAndQuarterlyBuckets() {
+        DailyBarResampler.Bars daily = bars(
+                new String[]{"20240130", "20240131", "20240201", "20240329", "20240401"},
+                new double[]{1.0, 2.0, 3.0, 4.0, 5.0});
+
+        assertEquals(4, DailyBarResampler.resample(daily, DailyBarResampler.Period.MONTHLY).size);
+        DailyBarResampler.Bars quarterly = DailyBarResampler.resample(daily, DailyBarResampler.Period.QUARTERLY);
+        assertEquals(2, quarterly.size);
+        assertEquals(4.0, quarterly.close[0], 1e-9);
+        assertEquals(400.0, quarterly.vol[0], 1e-9);
+    }
+
+    @Test
+    public void dailyPeriodReturnsInput() {
+        DailyBarResampler.Bars daily = bars(new String[]{"20240104"}, new double[]{10.0});
+
+        assertSame(daily, DailyBarResampler.resample(daily, DailyBarResampler.Period.parse("")));
+        assertEquals(DailyBarResampler.Period.MONTHLY, DailyBarResampler.Period.parse("Monthly"));
+    }
+
+    private DailyBarResampler.Bars bars(String[] dates, double[] closes) {
+        DailyBarResampler.Bars bars = DailyBarResampler.Bars.allocate(dates.length);
+        for (int i = 0; i < dates.length; i++) {
+            bars.tradeDates[i] = DateConvertUtils.convertDateStrToLong(dates[i], "yyyyMMdd");
+            bars.open[i] = closes[i];
+            bars.high[i] = closes[i] + 0.5;
+            bars.low[i] = closes[i] - 0.5;
+            bars.close[i] = closes[i];
+            bars.preClose[i] = closes[i];
+            bars.vol[i] = 100.0;
+            bars.amount[i] = 1000.0;
+        }
+        return bars;
+    }
+}
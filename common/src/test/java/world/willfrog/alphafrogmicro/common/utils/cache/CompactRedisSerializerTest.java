@@ -0,0 +1,111 @@
+package world.willfrog.alphafrogmicro.common.utils.cache;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactRedisSerializerTest {
+
+    private final RedisSerializer<Object> legacy = RedisSerializer.java();
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(legacy, true, 256);
+
+    @Test
+    public void dailyBarsRoundTripThroughColumns() {
+        List<StockDaily> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            rows.add(daily("000001.SZ", 1704297600000L + i * 86_400_000L, 10.0 + i * 0.01, 12345.678 + i));
+        }
+        rows.get(3).setVol(null);
+        rows.get(7).setPctChg(1.0 / 3.0);
+
+        byte[] bytes = serializer.serialize(rows);
+        assertEquals(CompactRedisSerializer.ENCODING_DAILY_COLUMNS, bytes[3]);
+
+        @SuppressWarnings("unchecked")
+        List<StockDaily> decoded = (List<StockDaily>) serializer.deserialize(bytes);
+        assertEquals(rows.size(), decoded.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).toString(), decoded.get(i).toString());
+            assertEquals(rows.get(i).getPctChg(), decoded.get(i).getPctChg());
+        }
+        assertNull(decoded.get(3).getVol());
+    }
+
+    @Test
+    public void columnsAreMuchSmallerThanGenericEncoding() {
+        List<StockDaily> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            rows.add(daily("600000.SH", 1704297600000L + i * 86_400_000L, 7.5 + (i % 9) * 0.01, 98765.4));
+        }
+
+        int compact = serializer.serialize(rows).length;
+
+        assertTrue("compact=" + compact, compact < 250 * 16);
+    }
+
+    @Test
+    public void largeGenericPayloadIsDeflated() {
+        String value = "x".repeat(4096);
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertEquals(CompactRedisSerializer.ENCODING_JSON_DEFLATE, bytes[3]);
+        assertTrue(bytes.length < 1024);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void legacyValuesAreStillReadable() {
+        byte[] legacyBytes = legacy.serialize("written-before-upgrade");
+
+        assertFalse(CompactRedisSerializer.isFramed(legacyBytes));
+        assertEquals("written-before-upgrade", serializer.deserialize(legacyBytes));
+    }
+
+    @Test
+    public void binaryWritesCanBeDisabledForRollout() {
+        CompactRedisSerializer jsonOnly = new CompactRedisSerializer(legacy, false, 256);
+
+        byte[] bytes = jsonOnly.serialize("v");
+
+        assertFalse(CompactRedisSerializer.isFramed(bytes));
+        assertEquals("v", serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void unknownVersionIsTreatedAsMiss() {
+        byte[] bytes = serializer.serialize("v");
+        bytes[2] = (byte) (CompactRedisSerializer.FORMAT_VERSION + 1);
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    private static StockDaily daily(String tsCode, long tradeDate, double close, double amount) {
+        StockDaily daily = new StockDaily();
+        daily.setTsCode(tsCode);
+        daily.setTradeDate(tradeDate);
+        // 数据库中的价格是定点小数，这里同样先按分取整
+        daily.setClose(cents(close));
+        daily.setOpen(cents(close - 0.05));
+        daily.setHigh(cents(close + 0.1));
+        daily.setLow(cents(close - 0.1));
+        daily.setPreClose(cents(close - 0.01));
+        daily.setChange(0.01);
+        daily.setPctChg(0.1);
+        daily.setVol(100000.0);
+        daily.setAmount(amount);
+        return daily;
+    }
+
+    private static double cents(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
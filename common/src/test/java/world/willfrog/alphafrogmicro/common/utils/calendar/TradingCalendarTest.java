@@ -0,0 +1,64 @@
+package world.willfrog.alphafrogmicro.common.utils.calendar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TradingCalendarTest {
+
+    // 用小整数代替时间戳：交易日 10, 20, 30, 40, 50
+    private final TradingCalendar calendar = new TradingCalendar("SSE", new long[]{30, 10, 50, 20, 40, 20});
+
+    @Test
+    public void previousAndNextAreStrict() {
+        assertEquals(Long.valueOf(20), calendar.previous(30));
+        assertEquals(Long.valueOf(30), calendar.previous(35));
+        assertNull(calendar.previous(10));
+        assertEquals(Long.valueOf(40), calendar.next(30));
+        assertEquals(Long.valueOf(40), calendar.next(35));
+        assertNull(calendar.next(50));
+    }
+
+    @Test
+    public void floorAndCeilingIncludeTheDayItself() {
+        assertEquals(Long.valueOf(30), calendar.floor(30));
+        assertEquals(Long.valueOf(30), calendar.floor(39));
+        assertEquals(Long.valueOf(30), calendar.ceiling(30));
+        assertEquals(Long.valueOf(40), calendar.ceiling(31));
+        assertNull(calendar.floor(5));
+        assertNull(calendar.ceiling(55));
+    }
+
+    @Test
+    public void offsetMatchesRepeatedPreviousAndNext() {
+        assertEquals(calendar.previous(calendar.previous(calendar.previous(50))), calendar.offset(50, -3));
+        assertEquals(Long.valueOf(10), calendar.offset(45, -4));
+        assertNull(calendar.offset(45, -5));
+        assertEquals(Long.valueOf(40), calendar.offset(25, 2));
+        assertEquals(Long.valueOf(20), calendar.offset(25, 0));
+    }
+
+    @Test
+    public void countAndRangeAreInclusive() {
+        assertEquals(3, calendar.count(20, 40));
+        assertEquals(2, calendar.count(15, 35));
+        assertEquals(0, calendar.count(41, 49));
+        assertEquals(0, calendar.count(40, 20));
+        assertArrayEquals(new long[]{20, 30}, calendar.range(15, 35));
+        assertEquals(5, calendar.size());
+    }
+
+    @Test
+    public void ordinalIsTheArrayIndex() {
+        assertTrue(calendar.isTradingDay(40));
+        assertFalse(calendar.isTradingDay(41));
+        assertEquals(3, calendar.ordinalOf(40));
+        assertEquals(-1, calendar.ordinalOf(41));
+        assertEquals(Long.valueOf(40), calendar.dateAt(3));
+        assertNull(calendar.dateAt(5));
+    }
+}
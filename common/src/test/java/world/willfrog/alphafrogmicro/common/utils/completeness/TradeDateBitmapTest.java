@@ -0,0 +1,57 @@
+package world.willfrog.alphafrogmicro.common.utils.completeness;
+
+import org.junit.Test;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TradeDateBitmapTest {
+
+    @Test
+    public void ordinalCountsNaturalDaysInShanghai() {
+        assertEquals(1L, TradeDateBitmap.ordinalOf(ts("1990-01-02")));
+        assertEquals(LocalDate.of(2024, 1, 2).toEpochDay() - LocalDate.of(1990, 1, 1).toEpochDay(),
+                TradeDateBitmap.ordinalOf(ts("2024-01-02")));
+        // 早于基准日与基准日本身（标记位）都不参与
+        assertEquals(-1L, TradeDateBitmap.ordinalOf(ts("1990-01-01")));
+        assertEquals(-1L, TradeDateBitmap.ordinalOf(ts("1989-12-29")));
+    }
+
+    @Test
+    public void bitOrderMatchesRedisSetbit() {
+        // SETBIT key 0 1 与 SETBIT key 9 1 之后 GET 得到 0x80 0x40
+        byte[] bitmap = {(byte) 0x80, (byte) 0x40};
+
+        assertTrue(TradeDateBitmap.isSeeded(bitmap));
+        assertTrue(TradeDateBitmap.isSet(bitmap, 9));
+        assertFalse(TradeDateBitmap.isSet(bitmap, 8));
+        assertFalse(TradeDateBitmap.isSet(bitmap, 1000));
+        assertFalse(TradeDateBitmap.isSeeded(null));
+    }
+
+    @Test
+    public void missingDatesAreTradingDaysWithoutBits() {
+        long d1 = ts("2024-01-02");
+        long d2 = ts("2024-01-03");
+        long d3 = ts("2024-01-04");
+        byte[] bitmap = new byte[(int) (TradeDateBitmap.ordinalOf(d3) / 8) + 1];
+        set(bitmap, TradeDateBitmap.SEEDED_BIT);
+        set(bitmap, TradeDateBitmap.ordinalOf(d1));
+        set(bitmap, TradeDateBitmap.ordinalOf(d3));
+
+        assertEquals(List.of(d2), TradeDateBitmap.missingDates(bitmap, new long[]{d1, d2, d3}));
+    }
+
+    private static void set(byte[] bitmap, long ordinal) {
+        bitmap[(int) (ordinal >>> 3)] |= (byte) (0x80 >>> (int) (ordinal & 7));
+    }
+
+    private static long ts(String isoDate) {
+        return DateConvertUtils.convertLocalDateToMsTimestamp(LocalDate.parse(isoDate));
+    }
+}
@@ -0,0 +1,52 @@
+package world.willfrog.alphafrogmicro.common.utils.search;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InfoSearchIndexTest {
+
+    private final InfoSearchIndex<String[]> index = InfoSearchIndex.build(List.of(
+            new String[]{"000300.SH", "沪深300", "沪深300指数"},
+            new String[]{"000903.SH", "中证100", "中证100指数"},
+            new String[]{"399300.SZ", "沪深300", "沪深300指数"},
+            new String[]{"000905.SH", "中证500", "中证小盘500指数"},
+            new String[]{"H30455.CSI", "中证500等权", null}
+    ), 1, row -> row);
+
+    @Test
+    public void exactBeforePrefixBeforeSubstring() {
+        List<String[]> hits = index.search("中证500", 10);
+
+        assertEquals(2, hits.size());
+        assertEquals("000905.SH", hits.get(0)[0]);
+        assertEquals("H30455.CSI", hits.get(1)[0]);
+    }
+
+    @Test
+    public void tiesBreakByNameLengthThenCode() {
+        List<String[]> hits = index.search("300", 10);
+
+        assertEquals("000300.SH", hits.get(0)[0]);
+        assertEquals("399300.SZ", hits.get(1)[0]);
+        assertEquals(2, hits.size());
+    }
+
+    @Test
+    public void caseInsensitiveAndLimited() {
+        assertEquals("H30455.CSI", index.search("h304", 10).get(0)[0]);
+        assertEquals(1, index.search("中", 1).size());
+        assertEquals(3, index.search("中", 10).size());
+    }
+
+    @Test
+    public void gramIntersectionIsVerified() {
+        // 各双字 gram 都出现在 000905.SH 的名称或全称中，但不构成连续子串
+        assertTrue(index.search("证500指", 10).isEmpty());
+        assertTrue(index.search("不存在", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 import world.willfrog.alphafrogmicro.common.dao.domestic.fund.FundInfoDao;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
 import world.willfrog.alphafrogmicro.domestic.fetch.utils.DomesticFundStoreUtils;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.SymbolFetchExecutor;
 import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareRequestUtils;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DubboDomesticFundFetchServiceTriple.DomesticFundFetchServiceImplBase;
@@ -25,13 +26,16 @@ public class DomesticFundFetchServiceImpl extends DomesticFundFetchServiceImplBa
     private final DomesticFundStoreUtils domesticFundStoreUtils;
 
     private final FundInfoDao fundInfoDao;
+    private final SymbolFetchExecutor symbolFetchExecutor;
 
     public DomesticFundFetchServiceImpl(TuShareRequestUtils tuShareRequestUtils,
                                         DomesticFundStoreUtils domesticFundStoreUtils,
-                                        FundInfoDao fundInfoDao) {
+                                        FundInfoDao fundInfoDao,
+                                        SymbolFetchExecutor symbolFetchExecutor) {
         this.tuShareRequestUtils = tuShareRequestUtils;
         this.domesticFundStoreUtils = domesticFundStoreUtils;
         this.fundInfoDao = fundInfoDao;
+        this.symbolFetchExecutor = symbolFetchExecutor;
     }
 
 
@@ -63,7 +67,7 @@ public class DomesticFundFetchServiceImpl extends DomesticFundFetchServiceImplBa
         if(response == null) {
             return DomesticFundInfoFetchByMarketResponse.newBuilder()
                     .setStatus("failure")
-                    .setFetchedItemsCount(0)
+                    .setFetchedItemsCount(-1)
                     .build();
         }
 
@@ -113,7 +117,7 @@ public class DomesticFundFetchServiceImpl extends DomesticFundFetchServiceImplBa
         if(response == null) {
             return DomesticFundNavFetchByTradeDateResponse.newBuilder()
                     .setStatus("failure")
-                    .setFetchedItemsCount(0)
+                    .setFetchedItemsCount(-1)
                     .build();
         }
 
@@ -154,55 +158,31 @@ public class DomesticFundFetchServiceImpl extends DomesticFundFetchServiceImplBa
 
         List<String> fundTsCodeList = fundInfoDao.getFundTsCode(offset, limit);
 
-        int totalFetchedItems = 0;
-
-        for (String fundTsCode : fundTsCodeList) {
-            try {
-                Map<String, Object> params = new HashMap<>();
-                Map<String, Object> queryParams = new HashMap<>();
-
-                params.put("api_name", "fund_portfolio");
-                queryParams.put("ts_code", fundTsCode);
-                queryParams.put("start_date", startDate);
-                queryParams.put("end_date", endDate);
-                params.put("params", queryParams);
-                params.put("fields", "ts_code,ann_date,end_date,symbol,mkv,amount,stk_mkv_ratio,stk_float_ratio");
-
-                JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
-
-                if(response == null) {
-                    return DomesticFundPortfolioFetchByDateRangeResponse.newBuilder()
-                            .setStatus("failure")
-                            .setFetchedItemsCount(totalFetchedItems)
-                            .build();
-                }
-
-                JSONArray data = response.getJSONObject("data").getJSONArray("items");
-
-                int affectedRows = domesticFundStoreUtils.storeFundPortfoliosByRawTuShareOutput(data);
-
-                if(affectedRows < 0) {
-                    return DomesticFundPortfolioFetchByDateRangeResponse.newBuilder()
-                            .setStatus("failure")
-                            .setFetchedItemsCount(totalFetchedItems)
-                            .build();
-                } else {
-                    totalFetchedItems += affectedRows;
-                }
-            } catch (Exception e) {
-                log.error("Error fetching portfolio for fund: " + fundTsCode, e);
-            }
+        SymbolFetchExecutor.Report report = symbolFetchExecutor.run("fund_portfolio_by_date_range", fundTsCodeList, fundTsCode -> {
+            Map<String, Object> params = new HashMap<>();
+            Map<String, Object> queryParams = new HashMap<>();
+
+            params.put("api_name", "fund_portfolio");
+            queryParams.put("ts_code", fundTsCode);
+            queryParams.put("start_date", startDate);
+            queryParams.put("end_date", endDate);
+            params.put("params", queryParams);
+            params.put("fields", "ts_code,ann_date,end_date,symbol,mkv,amount,stk_mkv_ratio,stk_float_ratio");
+
+            JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
 
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                log.error("Thread sleep interrupted");
+            if(response == null) {
+                return -1;
             }
-        }
+
+            JSONArray data = response.getJSONObject("data").getJSONArray("items");
+
+            return domesticFundStoreUtils.storeFundPortfoliosByRawTuShareOutput(data);
+        });
 
         return DomesticFundPortfolioFetchByDateRangeResponse.newBuilder()
-                .setStatus("success")
-                .setFetchedItemsCount(totalFetchedItems)
+                .setStatus(report.status())
+                .setFetchedItemsCount(report.fetchedItemsCount())
                 .build();
 
     }
@@ -6,13 +6,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboService;
 import org.springframework.stereotype.Service;
 import world.willfrog.alphafrogmicro.common.dao.domestic.index.IndexInfoDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexInfo;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
 import world.willfrog.alphafrogmicro.domestic.fetch.utils.DomesticIndexStoreUtils;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.FetchGapPlanner;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.SymbolFetchExecutor;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareColumns;
 import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareRequestUtils;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareRowBatch;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DubboDomesticIndexFetchServiceTriple.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,13 +32,19 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
     private final TuShareRequestUtils tuShareRequestUtils;
     private final DomesticIndexStoreUtils domesticIndexStoreUtils;
     private final IndexInfoDao indexInfoDao;
+    private final SymbolFetchExecutor symbolFetchExecutor;
+    private final FetchGapPlanner fetchGapPlanner;
 
     public DomesticIndexFetchServiceImpl(TuShareRequestUtils tuShareRequestUtils,
                                          DomesticIndexStoreUtils domesticIndexStoreUtils,
-                                         IndexInfoDao indexInfoDao) {
+                                         IndexInfoDao indexInfoDao,
+                                         SymbolFetchExecutor symbolFetchExecutor,
+                                         FetchGapPlanner fetchGapPlanner) {
         this.tuShareRequestUtils = tuShareRequestUtils;
         this.domesticIndexStoreUtils = domesticIndexStoreUtils;
         this.indexInfoDao = indexInfoDao;
+        this.symbolFetchExecutor = symbolFetchExecutor;
+        this.fetchGapPlanner = fetchGapPlanner;
     }
 
 
@@ -96,27 +110,22 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
         queryParams.put("end_date", DateConvertUtils.convertTimestampToString(endDateTimestamp, "yyyyMMdd"));
         queryParams.put("limit", limit);
         queryParams.put("offset", offset);
-        params.put("fields", "ts_code,trade_date,close,open,high,low,pre_close,change,pct_chg,vol,amount");
         params.put("params", queryParams);
 
         log.debug("Sending Tushare request for Index Daily: {}", params);
 
-        JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
+        TuShareRowBatch batch = tuShareRequestUtils.fetchRowBatch(params, TuShareColumns.DAILY_BAR);
 
-        if (response == null) {
-            log.error("Tushare request returned null response. Params: {}", params);
+        if (batch == null || !batch.isSuccess()) {
+            log.error("Tushare request for Index Daily failed. Params: {}, msg: {}",
+                    params, batch == null ? null : batch.getMsg());
             return DomesticIndexDailyFetchByDateRangeResponse.newBuilder().setStatus("failure")
                     .setFetchedItemsCount(-1).build();
         }
 
-        if (log.isDebugEnabled()) {
-            log.debug("Received Tushare response: {}", response.toJSONString());
-        }
-
-        JSONArray data = response.getJSONObject("data").getJSONArray("items");
-        JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
+        log.debug("Received Tushare response for Index Daily: rows={}", batch.size());
 
-        int result = domesticIndexStoreUtils.storeIndexDailyByRawTuShareOutput(data, fields);
+        int result = domesticIndexStoreUtils.storeIndexDaily(batch);
 
         if (result < 0) {
             log.error("Store index daily data failed! Result code: {}, TS Code: {}", result, tsCode);
@@ -138,6 +147,11 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
         List<String> allTsCode = indexInfoDao.getAllIndexInfoTsCodes(request.getOffset(), request.getLimit());
 
         if (allTsCode.isEmpty()) {
+            // 按代码分页越过末尾不是错误：该页没有需要抓取的指数
+            if (request.getOffset() > 0) {
+                return DomesticIndexDailyFetchByTradeDateResponse.newBuilder()
+                        .setStatus(FetchTaskDispatcher.STATUS_EXHAUSTED).setFetchedItemsCount(0).build();
+            }
             log.error("No index info found in the database.");
             return DomesticIndexDailyFetchByTradeDateResponse.newBuilder().setStatus("failure")
                     .setFetchedItemsCount(-1).build();
@@ -145,66 +159,59 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
 
         long tradeDateTimestamp = request.getTradeDate();
 
-        int _counter = 0;
-
-        for (String tsCode : allTsCode) {
-
-            // 对每个指数代码，爬取并储存指定日期的行情数据
+        // 对每个指数代码，并行爬取并储存指定日期的行情数据
+        SymbolFetchExecutor.Report report = symbolFetchExecutor.run("index_daily_by_trade_date", allTsCode, tsCode -> {
             Map<String, Object> params = new HashMap<>();
             Map<String, Object> queryParams = new HashMap<>();
 
             params.put("api_name", "index_daily");
             queryParams.put("ts_code", tsCode);
             queryParams.put("trade_date", DateConvertUtils.convertTimestampToString(tradeDateTimestamp, "yyyyMMdd"));
-            params.put("fields", "ts_code,trade_date,close,open,high,low,pre_close,change,pct_chg,vol,amount");
             params.put("params", queryParams);
 
-            // 爬取
-            JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
-
-            if (response == null) {
-                return DomesticIndexDailyFetchByTradeDateResponse.newBuilder().setStatus("failure")
-                        .setFetchedItemsCount(-1).build();
+            TuShareRowBatch batch = tuShareRequestUtils.fetchRowBatch(params, TuShareColumns.DAILY_BAR);
+            if (batch == null || !batch.isSuccess()) {
+                return -1;
             }
 
-            JSONArray data = response.getJSONObject("data").getJSONArray("items");
-            JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
-
-
-            // 储存
-            int _result = domesticIndexStoreUtils.storeIndexDailyByRawTuShareOutput(data, fields);
-
+            int _result = domesticIndexStoreUtils.storeIndexDaily(batch);
             if (_result < 0) {
                 log.error("Failed to store index daily data for ts_code {} on trade date {}", tsCode, tradeDateTimestamp);
-                return DomesticIndexDailyFetchByTradeDateResponse.newBuilder().setStatus("failure")
-                        .setFetchedItemsCount(_result).build();
-            }
-
-            _counter += _result;
-
-
-            try{
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                log.error("Thread sleep interrupted.");
             }
-        }
+            return _result;
+        });
 
-        return DomesticIndexDailyFetchByTradeDateResponse.newBuilder().setStatus("success")
-                .setFetchedItemsCount(_counter).build();
+        return DomesticIndexDailyFetchByTradeDateResponse.newBuilder().setStatus(report.status())
+                .setFetchedItemsCount(report.fetchedItemsCount()).build();
 
     }
 
     @Override
     public DomesticIndexDailyFetchAllByDateRangeResponse fetchDomesticIndexDailyAllByDateRange(
             DomesticindexDailyFetchAllByDateRangeRequest request) {
+        return fetchDomesticIndexDailyAllByDateRange(request, false);
+    }
+
+    /**
+     * 批量抓取指数区间行情。启用缺口规划且非 fullRefresh 时，每个指数只请求区间内尚未入库的交易日
+     */
+    public DomesticIndexDailyFetchAllByDateRangeResponse fetchDomesticIndexDailyAllByDateRange(
+            DomesticindexDailyFetchAllByDateRangeRequest request, boolean fullRefresh) {
 
         long startDateTimestamp = request.getStartDate();
         long endDateTimestamp = request.getEndDate();
         int limit = request.getLimit();
         int offset = request.getOffset();
 
-        List<String> allTsCode = indexInfoDao.getAllIndexInfoTsCodes(offset, limit);
+        boolean gapAware = !fullRefresh && fetchGapPlanner.isEnabled();
+        Map<String, IndexInfo> listings = new LinkedHashMap<>();
+        if (gapAware) {
+            for (IndexInfo indexInfo : indexInfoDao.getIndexListingDates(offset, limit)) {
+                listings.put(indexInfo.getTsCode(), indexInfo);
+            }
+        }
+        List<String> allTsCode = gapAware ? new ArrayList<>(listings.keySet())
+                : indexInfoDao.getAllIndexInfoTsCodes(offset, limit);
 
         if (allTsCode.isEmpty()) {
             log.error("No index info found in the database.");
@@ -212,50 +219,53 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
                     .setFetchedItemsCount(-1).build();
         }
 
-        int _counter = 0;
-
-        for (String tsCode : allTsCode) {
-
-            Map<String, Object> params = new HashMap<>();
-            Map<String, Object> queryParams = new HashMap<>();
-
-            params.put("api_name", "index_daily");
-            queryParams.put("ts_code", tsCode);
-            queryParams.put("start_date", DateConvertUtils.convertTimestampToString(startDateTimestamp, "yyyyMMdd"));
-            queryParams.put("end_date", DateConvertUtils.convertTimestampToString(endDateTimestamp, "yyyyMMdd"));
-            params.put("fields", "ts_code,trade_date,close,open,high,low,pre_close,change,pct_chg,vol,amount");
-            params.put("params", queryParams);
-
-            JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
-
-            if (response == null) {
-                return DomesticIndexDailyFetchAllByDateRangeResponse.newBuilder().setStatus("failure")
-                        .setFetchedItemsCount(-1).build();
+        SymbolFetchExecutor.Report report = symbolFetchExecutor.run("index_daily_all_by_date_range", allTsCode, tsCode -> {
+            List<FetchGapPlanner.DateSegment> segments;
+            if (gapAware) {
+                IndexInfo indexInfo = listings.get(tsCode);
+                // 基期早于发布日时行情从基期开始
+                Long firstDate = indexInfo.getBaseDate() != null ? indexInfo.getBaseDate() : indexInfo.getListDate();
+                segments = fetchGapPlanner.plan(TradeDateBitmap.Dataset.INDEX_DAILY, tsCode,
+                        startDateTimestamp, endDateTimestamp, firstDate, indexInfo.getExpDate());
+            } else {
+                segments = List.of(new FetchGapPlanner.DateSegment(startDateTimestamp, endDateTimestamp));
             }
 
-            JSONArray data = response.getJSONObject("data").getJSONArray("items");
-            JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
+            int stored = 0;
+            for (FetchGapPlanner.DateSegment segment : segments) {
+                int _result = fetchAndStoreIndexDaily(tsCode, segment.startDate(), segment.endDate());
+                if (_result < 0) {
+                    log.error("Failed to store index daily data for ts_code {} between trade date {} and {}",
+                            tsCode, segment.startDate(), segment.endDate());
+                    return _result;
+                }
+                stored += _result;
+            }
+            return stored;
+        });
 
-            int _result = domesticIndexStoreUtils.storeIndexDailyByRawTuShareOutput(data, fields);
+        return DomesticIndexDailyFetchAllByDateRangeResponse.newBuilder()
+                .setStatus(report.status()).setFetchedItemsCount(report.fetchedItemsCount()).build();
+    }
 
-            if (_result < 0) {
-                log.error("Failed to store index daily data for ts_code {} between trade date {} and {}",
-                        tsCode, startDateTimestamp, endDateTimestamp);
-                return DomesticIndexDailyFetchAllByDateRangeResponse.newBuilder().setStatus("failure")
-                        .setFetchedItemsCount(_result).build();
-            }
+    private int fetchAndStoreIndexDaily(String tsCode, long startDateTimestamp, long endDateTimestamp) {
+        Map<String, Object> params = new HashMap<>();
+        Map<String, Object> queryParams = new HashMap<>();
 
-            _counter += _result;
+        params.put("api_name", "index_daily");
+        queryParams.put("ts_code", tsCode);
+        queryParams.put("start_date", DateConvertUtils.convertTimestampToString(startDateTimestamp, "yyyyMMdd"));
+        queryParams.put("end_date", DateConvertUtils.convertTimestampToString(endDateTimestamp, "yyyyMMdd"));
+        params.put("params", queryParams);
 
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                log.error("Thread sleep interrupted.");
-            }
+        TuShareRowBatch batch = tuShareRequestUtils.fetchRowBatch(params, TuShareColumns.DAILY_BAR);
+        if (batch == null || !batch.isSuccess()) {
+            log.error("TuShare index daily request failed: ts_code={}, msg={}",
+                    tsCode, batch == null ? null : batch.getMsg());
+            return -1;
         }
 
-        return DomesticIndexDailyFetchAllByDateRangeResponse.newBuilder()
-                .setStatus("success").setFetchedItemsCount(_counter).build();
+        return domesticIndexStoreUtils.storeIndexDaily(batch);
     }
 
     @Override
@@ -267,14 +277,12 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
         int limit = request.getLimit();
         int offset = request.getOffset();
 
-        int _counter = 0;
-
         String startDate = DateConvertUtils.convertTimestampToString(startDateTimestamp, "yyyyMMdd");
         String endDate = DateConvertUtils.convertTimestampToString(endDateTimestamp, "yyyyMMdd");
 
         List<String> allTsCode = indexInfoDao.getAllIndexInfoTsCodes(offset, limit);
 
-        for (String tsCode : allTsCode) {
+        SymbolFetchExecutor.Report report = symbolFetchExecutor.run("index_weight_by_date_range", allTsCode, tsCode -> {
             Map<String, Object> params = new HashMap<>();
             Map<String, Object> queryParams = new HashMap<>();
 
@@ -286,35 +294,23 @@ public class DomesticIndexFetchServiceImpl extends DomesticIndexFetchServiceImpl
             params.put("params", queryParams);
 
             JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
-
             if (response == null) {
-                return DomesticIndexWeightFetchByDateRangeResponse.newBuilder().setStatus("failure")
-                        .setFetchedItemsCount(-1).build();
+                return -1;
             }
 
             JSONArray data = response.getJSONObject("data").getJSONArray("items");
             JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
 
             int _result = domesticIndexStoreUtils.storeIndexWeightByRawTuShareOutput(data, fields);
-
             if (_result < 0) {
                 log.error("Failed to store index weight data for ts_code {} between trade date {} and {}",
                         tsCode, startDate, endDate);
-                return DomesticIndexWeightFetchByDateRangeResponse.newBuilder().setStatus("failure")
-                        .setFetchedItemsCount(_result).build();
             }
+            return _result;
+        });
 
-            _counter += _result;
-
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                log.error("Thread sleep interrupted.");
-            }
-        }
-
-        return DomesticIndexWeightFetchByDateRangeResponse.newBuilder().setStatus("success")
-                .setFetchedItemsCount(_counter).build();
+        return DomesticIndexWeightFetchByDateRangeResponse.newBuilder().setStatus(report.status())
+                .setFetchedItemsCount(report.fetchedItemsCount()).build();
     }
 
 
@@ -6,13 +6,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboService;
 import org.springframework.stereotype.Service;
 import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockInfoDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
 import world.willfrog.alphafrogmicro.domestic.fetch.utils.DomesticStockStoreUtils;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.FetchGapPlanner;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.SymbolFetchExecutor;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareColumns;
 import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareRequestUtils;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareRowBatch;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DubboDomesticStockFetchServiceTriple.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,13 +32,19 @@ public class DomesticStockFetchServiceImpl extends DomesticStockFetchServiceImpl
     private final TuShareRequestUtils tuShareRequestUtils;
     private final DomesticStockStoreUtils domesticStockStoreUtils;
     private final StockInfoDao stockInfoDao;
+    private final SymbolFetchExecutor symbolFetchExecutor;
+    private final FetchGapPlanner fetchGapPlanner;
 
     public DomesticStockFetchServiceImpl(TuShareRequestUtils tuShareRequestUtils,
                                          DomesticStockStoreUtils domesticStockStoreUtils,
-                                         StockInfoDao stockInfoDao) {
+                                         StockInfoDao stockInfoDao,
+                                         SymbolFetchExecutor symbolFetchExecutor,
+                                         FetchGapPlanner fetchGapPlanner) {
         this.tuShareRequestUtils = tuShareRequestUtils;
         this.domesticStockStoreUtils = domesticStockStoreUtils;
         this.stockInfoDao = stockInfoDao;
+        this.symbolFetchExecutor = symbolFetchExecutor;
+        this.fetchGapPlanner = fetchGapPlanner;
     }
 
     @Override
@@ -54,25 +68,18 @@ public class DomesticStockFetchServiceImpl extends DomesticStockFetchServiceImpl
         queryParams.put("trade_date", tradeDate);
         queryParams.put("limit", limit);
         queryParams.put("offset", offset);
-        params.put("fields", "ts_code,trade_date,open,high,low,close,pre_close,change,pct_chg," +
-                "vol,amount");
         params.put("params", queryParams);
 
-        JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
+        TuShareRowBatch batch = tuShareRequestUtils.fetchRowBatch(params, TuShareColumns.DAILY_BAR);
 
-        if (response == null) {
+        if (batch == null || !batch.isSuccess()) {
+            log.error("TuShare stock daily request failed: trade_date={}, msg={}",
+                    tradeDate, batch == null ? null : batch.getMsg());
             return DomesticStockDailyFetchByTradeDateResponse.newBuilder().setStatus("failure")
                     .setFetchedItemsCount(-1).build();
         }
 
-        JSONArray data = response.getJSONObject("data").getJSONArray("items");
-        JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
-//        if (log.isDebugEnabled()) {
-//            log.debug("stock_daily response items={} fields={}", data == null ? 0 : data.size(),
-//                    fields == null ? 0 : fields.size());
-//        }
-
-        int result = domesticStockStoreUtils.storeStockDailyByRawTuShareOutput(data, fields);
+        int result = domesticStockStoreUtils.storeStockDaily(batch);
 
         if (result < 0) {
             return DomesticStockDailyFetchByTradeDateResponse.newBuilder().setStatus("failure")
@@ -86,6 +93,47 @@ public class DomesticStockFetchServiceImpl extends DomesticStockFetchServiceImpl
         }
     }
 
+    @Override
+    public DomesticStockAdjFactorFetchByTradeDateResponse fetchStockAdjFactorByTradeDate(
+            DomesticStockAdjFactorFetchByTradeDateRequest request
+    ) {
+        long tradeDateTimestamp = request.getTradeDate();
+        int offset = request.getOffset();
+        int limit = request.getLimit();
+
+        String tradeDate = DateConvertUtils.convertTimestampToString(tradeDateTimestamp, "yyyyMMdd");
+
+        Map<String, Object> params = new HashMap<>();
+        Map<String, Object> queryParams = new HashMap<>();
+
+        params.put("api_name", "adj_factor");
+        queryParams.put("trade_date", tradeDate);
+        queryParams.put("limit", limit);
+        queryParams.put("offset", offset);
+        params.put("fields", "ts_code,trade_date,adj_factor");
+        params.put("params", queryParams);
+
+        JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
+
+        if (response == null) {
+            return DomesticStockAdjFactorFetchByTradeDateResponse.newBuilder().setStatus("failure")
+                    .setFetchedItemsCount(-1).build();
+        }
+
+        JSONArray data = response.getJSONObject("data").getJSONArray("items");
+        JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
+
+        int result = domesticStockStoreUtils.storeStockAdjFactorByRawTuShareOutput(data, fields);
+
+        if (result < 0) {
+            return DomesticStockAdjFactorFetchByTradeDateResponse.newBuilder().setStatus("failure")
+                    .setFetchedItemsCount(-1).build();
+        } else {
+            return DomesticStockAdjFactorFetchByTradeDateResponse.newBuilder().setStatus("success")
+                    .setFetchedItemsCount(result).build();
+        }
+    }
+
     @Override
     public DomesticStockInfoFetchByMarketResponse fetchStockInfoByMarket(
             DomesticStockInfoFetchByMarketRequest request
@@ -129,55 +177,68 @@ public class DomesticStockFetchServiceImpl extends DomesticStockFetchServiceImpl
     }
 
     public int fetchStockDailyByDateRange(long startDateTimestamp, long endDateTimestamp, int offset, int limit) {
-        int affectedRows = 0;
-
-        String startDate = DateConvertUtils.convertTimestampToString(startDateTimestamp, "yyyyMMdd");
-        String endDate = DateConvertUtils.convertTimestampToString(endDateTimestamp, "yyyyMMdd");
-
-        List<String> stockTsCodeList = stockInfoDao.getStockTsCode(offset, limit);
-
-        try {
-            for (String stockTsCode : stockTsCodeList) {
-                Map<String, Object> params = new HashMap<>();
-                Map<String, Object> queryParams = new HashMap<>();
-
-                params.put("api_name", "daily");
-                queryParams.put("ts_code", stockTsCode);
-                queryParams.put("start_date", startDate);
-                queryParams.put("end_date", endDate);
-                params.put("fields", "ts_code,trade_date,open,high,low,close,pre_close,change,pct_chg," +
-                        "vol,amount");
-                params.put("params", queryParams);
+        return fetchStockDailyByDateRange(startDateTimestamp, endDateTimestamp, offset, limit, false);
+    }
 
-                JSONObject response = tuShareRequestUtils.createTusharePostRequest(params);
+    /**
+     * 并行抓取一批股票在日期区间内的日线；全部失败时返回 -1，否则返回入库行数（个别代码失败只记录日志）。
+     * 启用缺口规划且非 fullRefresh 时，每只股票只请求区间内（上市至退市之间）尚未入库的交易日
+     */
+    public int fetchStockDailyByDateRange(long startDateTimestamp, long endDateTimestamp, int offset, int limit,
+                                          boolean fullRefresh) {
+        boolean gapAware = !fullRefresh && fetchGapPlanner.isEnabled();
+        Map<String, StockInfo> listings = new LinkedHashMap<>();
+        if (gapAware) {
+            for (StockInfo stockInfo : stockInfoDao.getStockListingDates(offset, limit)) {
+                listings.put(stockInfo.getTsCode(), stockInfo);
+            }
+        }
+        List<String> stockTsCodeList = gapAware ? new ArrayList<>(listings.keySet())
+                : stockInfoDao.getStockTsCode(offset, limit);
+
+        SymbolFetchExecutor.Report report = symbolFetchExecutor.run("stock_daily_by_date_range", stockTsCodeList, stockTsCode -> {
+            List<FetchGapPlanner.DateSegment> segments;
+            if (gapAware) {
+                StockInfo stockInfo = listings.get(stockTsCode);
+                segments = fetchGapPlanner.plan(TradeDateBitmap.Dataset.STOCK_DAILY, stockTsCode,
+                        startDateTimestamp, endDateTimestamp, stockInfo.getListDate(), stockInfo.getDelistDate());
+            } else {
+                segments = List.of(new FetchGapPlanner.DateSegment(startDateTimestamp, endDateTimestamp));
+            }
 
-                if (response == null) {
-                    continue;
+            int stored = 0;
+            for (FetchGapPlanner.DateSegment segment : segments) {
+                int result = fetchAndStoreStockDaily(stockTsCode, segment.startDate(), segment.endDate());
+                if (result < 0) {
+                    log.error("Failed to store stock daily data for ts_code: {}", stockTsCode);
+                    return result;
                 }
+                stored += result;
+            }
+            return stored;
+        });
 
-                JSONArray data = response.getJSONObject("data").getJSONArray("items");
-                JSONArray fields = response.getJSONObject("data").getJSONArray("fields");
+        return report.fetchedItemsCount();
+    }
 
-                int result = domesticStockStoreUtils.storeStockDailyByRawTuShareOutput(data, fields);
+    private int fetchAndStoreStockDaily(String stockTsCode, long startDateTimestamp, long endDateTimestamp) {
+        Map<String, Object> params = new HashMap<>();
+        Map<String, Object> queryParams = new HashMap<>();
 
-                if (result < 0) {
-                    log.error("Failed to store stock daily data for ts_code: {}", stockTsCode);
-                    return -2;
-                } else {
-                    affectedRows += result;
-                }
+        params.put("api_name", "daily");
+        queryParams.put("ts_code", stockTsCode);
+        queryParams.put("start_date", DateConvertUtils.convertTimestampToString(startDateTimestamp, "yyyyMMdd"));
+        queryParams.put("end_date", DateConvertUtils.convertTimestampToString(endDateTimestamp, "yyyyMMdd"));
+        params.put("params", queryParams);
 
-                try {
-                    Thread.sleep(200);
-                } catch (InterruptedException e) {
-                    log.error("Thread sleep interrupted", e);
-                }
-            }
-        } catch (Exception e) {
-            log.error("Failed to fetch stock daily data by date range", e);
+        TuShareRowBatch batch = tuShareRequestUtils.fetchRowBatch(params, TuShareColumns.DAILY_BAR);
+
+        if (batch == null || !batch.isSuccess()) {
+            log.error("TuShare stock daily request failed: ts_code={}, msg={}",
+                    stockTsCode, batch == null ? null : batch.getMsg());
             return -1;
         }
 
-        return affectedRows;
+        return domesticStockStoreUtils.storeStockDaily(batch);
     }
 }
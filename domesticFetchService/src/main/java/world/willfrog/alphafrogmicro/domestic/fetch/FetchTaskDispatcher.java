@@ -0,0 +1,288 @@
+package world.willfrog.alphafrogmicro.domestic.fetch;
+
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.DataRefreshPublisher;
+import world.willfrog.alphafrogmicro.domestic.idl.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 抓取任务的分发：把 Kafka 消息或定时流水线中的任务参数转换为各抓取服务的请求
+ */
+@Service
+public class FetchTaskDispatcher {
+
+    /**
+     * 按本地代码列表分页的任务，offset 已越过列表末尾；该页没有可抓取的代码，翻页到此结束
+     */
+    public static final int EXHAUSTED = -3;
+
+    /**
+     * 抓取服务在代码分页越界时返回的状态
+     */
+    public static final String STATUS_EXHAUSTED = "exhausted";
+
+    private final DomesticIndexFetchServiceImpl domesticIndexFetchService;
+    private final DomesticFundFetchServiceImpl domesticFundFetchService;
+    private final DomesticStockFetchServiceImpl domesticStockFetchService;
+    private final DomesticTradeCalendarFetchService domesticTradeCalendarFetchService;
+    private final DataRefreshPublisher dataRefreshPublisher;
+
+    public FetchTaskDispatcher(DomesticIndexFetchServiceImpl domesticIndexFetchService,
+                               DomesticFundFetchServiceImpl domesticFundFetchService,
+                               DomesticStockFetchServiceImpl domesticStockFetchService,
+                               DomesticTradeCalendarFetchService domesticTradeCalendarFetchService,
+                               DataRefreshPublisher dataRefreshPublisher) {
+        this.domesticIndexFetchService = domesticIndexFetchService;
+        this.domesticFundFetchService = domesticFundFetchService;
+        this.domesticStockFetchService = domesticStockFetchService;
+        this.domesticTradeCalendarFetchService = domesticTradeCalendarFetchService;
+        this.dataRefreshPublisher = dataRefreshPublisher;
+    }
+
+    /**
+     * 按 task_name / task_sub_type 执行一个抓取任务，返回入库条数；负数表示失败，-2 表示未知任务。
+     * 代码分页越界按入库 0 条处理
+     */
+    public int dispatch(JSONObject rawMessageJSON) {
+        int result = dispatchPage(rawMessageJSON);
+        return result == EXHAUSTED ? 0 : result;
+    }
+
+    /**
+     * 与 {@link #dispatch} 相同，但按代码分页的任务越界时返回 {@link #EXHAUSTED}，供调用方判断翻页结束
+     */
+    public int dispatchPage(JSONObject rawMessageJSON) {
+        String taskName = rawMessageJSON.getString("task_name");
+        int taskSubType = rawMessageJSON.getIntValue("task_sub_type");
+        JSONObject taskParams = rawMessageJSON.getJSONObject("task_params");
+        if (taskParams == null) {
+            taskParams = new JSONObject();
+        }
+        if (taskName == null) {
+            return -2;
+        }
+
+        int result;
+        switch (taskName) {
+            case "index_info":
+                if (taskSubType == 1) {
+                    String market = taskParams.getString("market");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticIndexInfoFetchByMarketRequest.Builder builder =
+                            DomesticIndexInfoFetchByMarketRequest.newBuilder()
+                                    .setOffset(offset).setLimit(limit);
+                    if (market != null && !market.isBlank()) {
+                        builder.setMarket(market);
+                    }
+                    DomesticIndexInfoFetchByMarketRequest request = builder.build();
+                    result = domesticIndexFetchService.fetchDomesticIndexInfoByMarket(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            case "index_quote":
+                if (taskSubType == 1) {
+                    long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticIndexDailyFetchByTradeDateRequest request =
+                            DomesticIndexDailyFetchByTradeDateRequest.newBuilder()
+                                    .setTradeDate(tradeDateTimestamp).setOffset(offset).setLimit(limit).build();
+                    DomesticIndexDailyFetchByTradeDateResponse response =
+                            domesticIndexFetchService.fetchDomesticIndexDailyByTradeDate(request);
+                    result = STATUS_EXHAUSTED.equals(response.getStatus()) ? EXHAUSTED : response.getFetchedItemsCount();
+                } else if (taskSubType == 2){
+                    long startDateTimestamp = taskParams.getLong("start_date_timestamp");
+                    long endDateTimestamp = taskParams.getLong("end_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticindexDailyFetchAllByDateRangeRequest request =
+                            DomesticindexDailyFetchAllByDateRangeRequest.newBuilder()
+                                    .setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
+                                    .setOffset(offset).setLimit(limit).build();
+                    // full_refresh=true 时跳过缺口规划，重新下载整个区间
+                    boolean fullRefresh = taskParams.getBooleanValue("full_refresh");
+                    result = domesticIndexFetchService.fetchDomesticIndexDailyAllByDateRange(request, fullRefresh)
+                            .getFetchedItemsCount();
+                } else if (taskSubType == 3) {
+                    String tsCode = taskParams.getString("ts_code");
+                    long startDateTimestamp = taskParams.getLong("start_date_timestamp");
+                    long endDateTimestamp = taskParams.getLong("end_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticIndexDailyFetchByDateRangeRequest request =
+                            DomesticIndexDailyFetchByDateRangeRequest.newBuilder()
+                                    .setTsCode(tsCode).setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
+                                    .setOffset(offset).setLimit(limit).build();
+                    result = domesticIndexFetchService.fetchDomesticIndexDailyByDateRange(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+
+            case "index_weight":
+                if (taskSubType == 1) {
+                    long startDateTimestamp = taskParams.getLong("start_date_timestamp");
+                    long endDateTimestamp = taskParams.getLong("end_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticIndexWeightFetchByDateRangeRequest request =
+                            DomesticIndexWeightFetchByDateRangeRequest.newBuilder()
+                                    .setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
+                                    .setOffset(offset).setLimit(limit)
+                                    .build();
+                    result = domesticIndexFetchService.fetchDomesticIndexWeightByDateRange(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            case "fund_info":
+                if (taskSubType == 1) {
+                    String market = taskParams.getString("market");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticFundInfoFetchByMarketRequest.Builder builder =
+                            DomesticFundInfoFetchByMarketRequest.newBuilder()
+                                    .setOffset(offset).setLimit(limit);
+                    if (market != null && !market.isBlank()) {
+                        builder.setMarket(market);
+                    }
+                    DomesticFundInfoFetchByMarketRequest request = builder.build();
+                    result = domesticFundFetchService.fetchDomesticFundInfoByMarket(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            case "fund_nav":
+                // 0: 爬取指定交易日范围内的所有基金净值
+                if (taskSubType == 1) {
+                    long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticFundNavFetchByTradeDateRequest request =
+                            DomesticFundNavFetchByTradeDateRequest.newBuilder()
+                                    .setTradeDateTimestamp(tradeDateTimestamp)
+                                    .setOffset(offset).setLimit(limit)
+                                    .build();
+                    result = domesticFundFetchService.fetchDomesticFundNavByTradeDate(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            case "fund_portfolio":
+                if (taskSubType == 1){
+                    long startDateTimestamp = taskParams.getLong("start_date_timestamp");
+                    long endDateTimestamp = taskParams.getLong("end_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticFundPortfolioFetchByDateRangeRequest request =
+                            DomesticFundPortfolioFetchByDateRangeRequest.newBuilder()
+                                    .setStartDateTimestamp(startDateTimestamp).setEndDateTimestamp(endDateTimestamp)
+                                    .setOffset(offset).setLimit(limit)
+                                    .build();
+                    result = domesticFundFetchService.fetchDomesticFundPortfolioByDateRange(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+
+            case "stock_info":
+                if (taskSubType == 1) {
+                    String market = taskParams.getString("market");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticStockInfoFetchByMarketRequest.Builder builder =
+                            DomesticStockInfoFetchByMarketRequest.newBuilder()
+                                    .setOffset(offset).setLimit(limit);
+                    if (market != null && !market.isBlank()) {
+                        builder.setMarket(market);
+                    }
+                    DomesticStockInfoFetchByMarketRequest request = builder.build();
+                    result = domesticStockFetchService.fetchStockInfoByMarket(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            case "stock_daily":
+                if (taskSubType == 1) {
+                    long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticStockDailyFetchByTradeDateRequest request =
+                            DomesticStockDailyFetchByTradeDateRequest.newBuilder()
+                                    .setTradeDate(tradeDateTimestamp).setOffset(offset).setLimit(limit).build();
+                    result = domesticStockFetchService.fetchStockDailyByTradeDate(request).getFetchedItemsCount();
+                    // 重抓历史交易日可能补上股票服务已加载序列中间的缺口
+                    if (result > 0 && tradeDateTimestamp < todayTimestamp()) {
+                        dataRefreshPublisher.publish(List.of(DataRefreshNotice.STOCK_DAILY_BACKFILL));
+                    }
+                } else {
+                    result = -1;
+                }
+                break;
+            case "stock_adj_factor":
+                if (taskSubType == 1) {
+                    long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticStockAdjFactorFetchByTradeDateRequest request =
+                            DomesticStockAdjFactorFetchByTradeDateRequest.newBuilder()
+                                    .setTradeDate(tradeDateTimestamp).setOffset(offset).setLimit(limit).build();
+                    result = domesticStockFetchService.fetchStockAdjFactorByTradeDate(request).getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            case "stock_quote":
+                if (taskSubType == 1) {
+                    long startDateTimestamp = taskParams.getLong("start_date_timestamp");
+                    long endDateTimestamp = taskParams.getLong("end_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+
+                    boolean fullRefresh = taskParams.getBooleanValue("full_refresh");
+
+                    result = domesticStockFetchService.fetchStockDailyByDateRange(startDateTimestamp, endDateTimestamp,
+                            offset, limit, fullRefresh);
+                    if (result > 0) {
+                        dataRefreshPublisher.publish(List.of(DataRefreshNotice.STOCK_DAILY_BACKFILL));
+                    }
+                } else {
+                    result = -1;
+                }
+                break;
+            case "trade_calendar":
+                if (taskSubType == 1) {
+                    long startDateTimestamp = taskParams.getLong("start_date_timestamp");
+                    long endDateTimestamp = taskParams.getLong("end_date_timestamp");
+                    int offset = taskParams.getIntValue("offset");
+                    int limit = taskParams.getIntValue("limit");
+                    DomesticTradeCalendarFetchByDateRangeRequest request =
+                            DomesticTradeCalendarFetchByDateRangeRequest.newBuilder()
+                                    .setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
+                                    .setOffset(offset).setLimit(limit)
+                                    .build();
+                    result = domesticTradeCalendarFetchService.fetchDomesticTradeCalendarByDateRange(request)
+                            .getFetchedItemsCount();
+                } else {
+                    result = -1;
+                }
+                break;
+            default:
+                result = -2;
+                break;
+        }
+        return result;
+    }
+
+    private static long todayTimestamp() {
+        return DateConvertUtils.convertLocalDateToMsTimestamp(LocalDate.now(ZoneId.of("Asia/Shanghai")));
+    }
+}
@@ -2,261 +2,226 @@ package world.willfrog.alphafrogmicro.domestic.fetch;
 
 import com.alibaba.fastjson.JSONObject;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
-import world.willfrog.alphafrogmicro.domestic.idl.*;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.FetchTaskCheckpointStore;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.FetchTaskChunker;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.FetchTaskLanes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class FetchTopicConsumer {
 
-    private final DomesticIndexFetchServiceImpl domesticIndexFetchService;
-    private final DomesticFundFetchServiceImpl domesticFundFetchService;
-    private final DomesticStockFetchServiceImpl domesticStockFetchService;
-    private final DomesticTradeCalendarFetchService domesticTradeCalendarFetchService;
+    private final FetchTaskDispatcher fetchTaskDispatcher;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final FetchTaskLanes fetchTaskLanes;
+    private final FetchTaskChunker fetchTaskChunker;
+    private final FetchTaskCheckpointStore fetchTaskCheckpointStore;
 
     private static final String FETCH_TASK_RESULT_TOPIC = "fetch_task_result";
+    private static final long FORWARD_TIMEOUT_SECONDS = 10;
+    private static final long FORWARD_RETRY_SECONDS = 5;
 
-    public FetchTopicConsumer(DomesticIndexFetchServiceImpl domesticIndexFetchService,
-                              DomesticFundFetchServiceImpl domesticFundFetchService,
-                              DomesticStockFetchServiceImpl domesticStockFetchService,
-                              DomesticTradeCalendarFetchService domesticTradeCalendarFetchService,
-                              KafkaTemplate<String, String> kafkaTemplate) {
-        this.domesticIndexFetchService = domesticIndexFetchService;
-        this.domesticFundFetchService = domesticFundFetchService;
-        this.domesticStockFetchService = domesticStockFetchService;
-        this.domesticTradeCalendarFetchService = domesticTradeCalendarFetchService;
+    public FetchTopicConsumer(FetchTaskDispatcher fetchTaskDispatcher,
+                              KafkaTemplate<String, String> kafkaTemplate,
+                              FetchTaskLanes fetchTaskLanes,
+                              FetchTaskChunker fetchTaskChunker,
+                              FetchTaskCheckpointStore fetchTaskCheckpointStore) {
+        this.fetchTaskDispatcher = fetchTaskDispatcher;
         this.kafkaTemplate = kafkaTemplate;
+        this.fetchTaskLanes = fetchTaskLanes;
+        this.fetchTaskChunker = fetchTaskChunker;
+        this.fetchTaskCheckpointStore = fetchTaskCheckpointStore;
     }
 
 
-    @KafkaListener(topics = "fetch_topic", groupId = "alphafrog-micro")
-    public void listenFetchTask(String message, Acknowledgment acknowledgment){
-        log.info("Received fetch task [V2-DEBUG]: {}", message);
-        JSONObject rawMessageJSON;
-        try{
-            rawMessageJSON = JSONObject.parseObject(message);
+    /**
+     * 快通道：可拆分的大任务拆成分片发布到批量 topic；属于批量通道的任务转发到批量 topic 后确认，其余任务就地执行
+     */
+    @KafkaListener(topics = "${advanced.fetch-consumer.quick.topic:fetch_topic}", groupId = "alphafrog-micro")
+    public void listenFetchTask(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Received fetch task: {}", record.value());
+        JSONObject rawMessageJSON = parseTask(record.value());
+        if (rawMessageJSON == null) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        if (FetchTaskChunker.isChunk(rawMessageJSON)) {
+            executeChunk(rawMessageJSON, acknowledgment);
+            return;
+        }
+        if (fetchTaskChunker.isChunkable(rawMessageJSON)) {
+            splitIntoChunks(rawMessageJSON, acknowledgment);
+            return;
+        }
+        if (fetchTaskLanes.isBulk(rawMessageJSON)) {
+            forwardToBulkLane(record, rawMessageJSON, acknowledgment);
+            return;
+        }
+        executeTask(rawMessageJSON, acknowledgment);
+    }
+
+    /**
+     * 批量通道：独立的监听容器与并发度，长任务不阻塞快通道
+     */
+    @KafkaListener(topics = "${advanced.fetch-consumer.bulk.topic:fetch_topic_bulk}", groupId = "alphafrog-micro",
+            containerFactory = "bulkKafkaListenerContainerFactory")
+    public void listenBulkFetchTask(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Received bulk fetch task: {}", record.value());
+        JSONObject rawMessageJSON = parseTask(record.value());
+        if (rawMessageJSON == null) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        if (FetchTaskChunker.isChunk(rawMessageJSON)) {
+            executeChunk(rawMessageJSON, acknowledgment);
+            return;
+        }
+        if (fetchTaskChunker.isChunkable(rawMessageJSON)) {
+            splitIntoChunks(rawMessageJSON, acknowledgment);
+            return;
+        }
+        executeTask(rawMessageJSON, acknowledgment);
+    }
+
+    private JSONObject parseTask(String message) {
+        try {
+            return JSONObject.parseObject(message);
         } catch (Exception e) {
             log.error("Failed to parse message: {}", message);
+            return null;
+        }
+    }
+
+    /**
+     * 沿用原消息的 key（无 key 时用 task_uuid），同一 key 的任务进入同一分区、按顺序执行；
+     * 转发成功后才确认，失败则稍后重新投递
+     */
+    private void forwardToBulkLane(ConsumerRecord<String, String> record, JSONObject rawMessageJSON,
+                                   Acknowledgment acknowledgment) {
+        String key = record.key() != null ? record.key() : rawMessageJSON.getString("task_uuid");
+        try {
+            kafkaTemplate.send(fetchTaskLanes.getBulkTopic(), key, record.value())
+                    .get(FORWARD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             acknowledgment.acknowledge();
-            return;
+            log.info("Forwarded fetch task to bulk lane: task_uuid={}, task_name={}",
+                    rawMessageJSON.getString("task_uuid"), rawMessageJSON.getString("task_name"));
+        } catch (Exception e) {
+            log.error("Failed to forward fetch task to bulk lane, will retry: {}", record.value(), e);
+            acknowledgment.nack(Duration.ofSeconds(FORWARD_RETRY_SECONDS));
         }
+    }
 
+    /**
+     * 执行任务并发送结果，完成后才确认位移：执行中进程退出时任务会被重新投递
+     */
+    private void executeTask(JSONObject rawMessageJSON, Acknowledgment acknowledgment) {
         String taskUuid = rawMessageJSON.getString("task_uuid");
         String taskName = rawMessageJSON.getString("task_name");
         Integer taskSubTypeValue = rawMessageJSON.getInteger("task_sub_type");
 
+        if (taskName == null) {
+            sendTaskResult(taskUuid, null, taskSubTypeValue, -2, "Missing task_name");
+            acknowledgment.acknowledge();
+            return;
+        }
+
         try{
-            int taskSubType = rawMessageJSON.getIntValue("task_sub_type");
-            JSONObject taskParams = rawMessageJSON.getJSONObject("task_params");
-            if (taskParams == null) {
-                taskParams = new JSONObject();
-            }
+            int result = fetchTaskDispatcher.dispatch(rawMessageJSON);
+            log.info("Task result : {}", result);
+            sendTaskResult(taskUuid, taskName, taskSubTypeValue, result, null);
+            acknowledgment.acknowledge();
+        } catch (Exception e){
+            log.error("Failed to start task: {}", rawMessageJSON.toJSONString());
+            log.error("Stack trace", e);
+            sendTaskResult(taskUuid, taskName, taskSubTypeValue, -1, e.getMessage());
+            acknowledgment.acknowledge();
+        }
+    }
 
-            int result;
+    /**
+     * 拆分父任务并把未完成的分片发布到批量 topic；分片 key 各不相同，可分散到各分区、由多个副本并行执行
+     */
+    private void splitIntoChunks(JSONObject rawMessageJSON, Acknowledgment acknowledgment) {
+        String taskUuid = rawMessageJSON.getString("task_uuid");
+        String taskName = rawMessageJSON.getString("task_name");
+        Integer taskSubTypeValue = rawMessageJSON.getInteger("task_sub_type");
+        try {
+            List<JSONObject> chunks = fetchTaskChunker.split(rawMessageJSON);
+            Set<Integer> completed = fetchTaskCheckpointStore.start(taskUuid, chunks.size());
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            for (JSONObject chunk : chunks) {
+                int chunkIndex = chunk.getIntValue(FetchTaskChunker.CHUNK_INDEX);
+                if (!completed.contains(chunkIndex)) {
+                    sends.add(kafkaTemplate.send(fetchTaskLanes.getBulkTopic(), taskUuid + "#" + chunkIndex,
+                            chunk.toJSONString()));
+                }
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]))
+                    .get(FORWARD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            acknowledgment.acknowledge();
+            log.info("Split fetch task into chunks: task_uuid={}, task_name={}, chunks={}, resumed_completed={}",
+                    taskUuid, taskName, chunks.size(), completed.size());
+            sendTaskProgress(taskUuid, taskName, taskSubTypeValue, fetchTaskCheckpointStore.progress(taskUuid));
+        } catch (Exception e) {
+            log.error("Failed to split fetch task into chunks, will retry: {}", rawMessageJSON.toJSONString(), e);
+            acknowledgment.nack(Duration.ofSeconds(FORWARD_RETRY_SECONDS));
+        }
+    }
 
-            if (taskName == null) {
-                result = -2;
+    /**
+     * 执行一个分片：已完成的分片（重复投递）直接确认；执行完成后先写检查点再确认，随后上报父任务进度
+     */
+    private void executeChunk(JSONObject rawMessageJSON, Acknowledgment acknowledgment) {
+        String taskUuid = rawMessageJSON.getString("task_uuid");
+        String taskName = rawMessageJSON.getString("task_name");
+        Integer taskSubTypeValue = rawMessageJSON.getInteger("task_sub_type");
+        int chunkIndex = rawMessageJSON.getIntValue(FetchTaskChunker.CHUNK_INDEX);
+        try {
+            if (fetchTaskCheckpointStore.isDone(taskUuid, chunkIndex)) {
+                log.info("Skip completed chunk: task_uuid={}, chunk_index={}", taskUuid, chunkIndex);
                 acknowledgment.acknowledge();
-                sendTaskResult(taskUuid, null, taskSubTypeValue, result, "Missing task_name");
                 return;
             }
+        } catch (Exception e) {
+            log.warn("Failed to read chunk checkpoint, execute anyway: task_uuid={}, chunk_index={}",
+                    taskUuid, chunkIndex, e);
+        }
 
-            switch (taskName) {
-                case "index_info":
-                    if (taskSubType == 1) {
-                        String market = taskParams.getString("market");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticIndexInfoFetchByMarketRequest.Builder builder =
-                                DomesticIndexInfoFetchByMarketRequest.newBuilder()
-                                        .setOffset(offset).setLimit(limit);
-                        if (market != null && !market.isBlank()) {
-                            builder.setMarket(market);
-                        }
-                        DomesticIndexInfoFetchByMarketRequest request = builder.build();
-                        result = domesticIndexFetchService.fetchDomesticIndexInfoByMarket(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "index_quote":
-                    if (taskSubType == 1) {
-                        long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticIndexDailyFetchByTradeDateRequest request =
-                                DomesticIndexDailyFetchByTradeDateRequest.newBuilder()
-                                        .setTradeDate(tradeDateTimestamp).setOffset(offset).setLimit(limit).build();
-                        result = domesticIndexFetchService.fetchDomesticIndexDailyByTradeDate(request).getFetchedItemsCount();
-                    } else if (taskSubType == 2){
-                        long startDateTimestamp = taskParams.getLong("start_date_timestamp");
-                        long endDateTimestamp = taskParams.getLong("end_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticindexDailyFetchAllByDateRangeRequest request =
-                                DomesticindexDailyFetchAllByDateRangeRequest.newBuilder()
-                                        .setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
-                                        .setOffset(offset).setLimit(limit).build();
-                        result = domesticIndexFetchService.fetchDomesticIndexDailyAllByDateRange(request).getFetchedItemsCount();
-                    } else if (taskSubType == 3) {
-                        String tsCode = taskParams.getString("ts_code");
-                        long startDateTimestamp = taskParams.getLong("start_date_timestamp");
-                        long endDateTimestamp = taskParams.getLong("end_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticIndexDailyFetchByDateRangeRequest request =
-                                DomesticIndexDailyFetchByDateRangeRequest.newBuilder()
-                                        .setTsCode(tsCode).setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
-                                        .setOffset(offset).setLimit(limit).build();
-                        result = domesticIndexFetchService.fetchDomesticIndexDailyByDateRange(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-
-                case "index_weight":
-                    if (taskSubType == 1) {
-                        long startDateTimestamp = taskParams.getLong("start_date_timestamp");
-                        long endDateTimestamp = taskParams.getLong("end_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticIndexWeightFetchByDateRangeRequest request =
-                                DomesticIndexWeightFetchByDateRangeRequest.newBuilder()
-                                        .setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
-                                        .setOffset(offset).setLimit(limit)
-                                        .build();
-                        result = domesticIndexFetchService.fetchDomesticIndexWeightByDateRange(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "fund_info":
-                    if (taskSubType == 1) {
-                        String market = taskParams.getString("market");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticFundInfoFetchByMarketRequest.Builder builder =
-                                DomesticFundInfoFetchByMarketRequest.newBuilder()
-                                        .setOffset(offset).setLimit(limit);
-                        if (market != null && !market.isBlank()) {
-                            builder.setMarket(market);
-                        }
-                        DomesticFundInfoFetchByMarketRequest request = builder.build();
-                        result = domesticFundFetchService.fetchDomesticFundInfoByMarket(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "fund_nav":
-                    // 0: 爬取指定交易日范围内的所有基金净值
-                    if (taskSubType == 1) {
-                        long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticFundNavFetchByTradeDateRequest request =
-                                DomesticFundNavFetchByTradeDateRequest.newBuilder()
-                                        .setTradeDateTimestamp(tradeDateTimestamp)
-                                        .setOffset(offset).setLimit(limit)
-                                        .build();
-                        result = domesticFundFetchService.fetchDomesticFundNavByTradeDate(request).getFetchedItemsCount();
-                        Thread.sleep(200);
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "fund_portfolio":
-                    if (taskSubType == 1){
-                        long startDateTimestamp = taskParams.getLong("start_date_timestamp");
-                        long endDateTimestamp = taskParams.getLong("end_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticFundPortfolioFetchByDateRangeRequest request =
-                                DomesticFundPortfolioFetchByDateRangeRequest.newBuilder()
-                                        .setStartDateTimestamp(startDateTimestamp).setEndDateTimestamp(endDateTimestamp)
-                                        .setOffset(offset).setLimit(limit)
-                                        .build();
-                        result = domesticFundFetchService.fetchDomesticFundPortfolioByDateRange(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-
-                case "stock_info":
-                    if (taskSubType == 1) {
-                        String market = taskParams.getString("market");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticStockInfoFetchByMarketRequest.Builder builder =
-                                DomesticStockInfoFetchByMarketRequest.newBuilder()
-                                        .setOffset(offset).setLimit(limit);
-                        if (market != null && !market.isBlank()) {
-                            builder.setMarket(market);
-                        }
-                        DomesticStockInfoFetchByMarketRequest request = builder.build();
-                        result = domesticStockFetchService.fetchStockInfoByMarket(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "stock_daily":
-                    if (taskSubType == 1) {
-                        long tradeDateTimestamp = taskParams.getLong("trade_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticStockDailyFetchByTradeDateRequest request =
-                                DomesticStockDailyFetchByTradeDateRequest.newBuilder()
-                                        .setTradeDate(tradeDateTimestamp).setOffset(offset).setLimit(limit).build();
-                        result = domesticStockFetchService.fetchStockDailyByTradeDate(request).getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "stock_quote":
-                    if (taskSubType == 1) {
-                        long startDateTimestamp = taskParams.getLong("start_date_timestamp");
-                        long endDateTimestamp = taskParams.getLong("end_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
+        int result;
+        try {
+            result = fetchTaskDispatcher.dispatch(rawMessageJSON);
+        } catch (Exception e) {
+            log.error("Failed to run chunk: {}", rawMessageJSON.toJSONString(), e);
+            result = -1;
+        }
+        log.info("Chunk result: task_uuid={}, chunk_index={}/{}, result={}", taskUuid, chunkIndex,
+                rawMessageJSON.getIntValue(FetchTaskChunker.CHUNK_TOTAL), result);
 
-                        result = domesticStockFetchService.fetchStockDailyByDateRange(startDateTimestamp, endDateTimestamp, offset, limit);
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                case "trade_calendar":
-                    if (taskSubType == 1) {
-                        long startDateTimestamp = taskParams.getLong("start_date_timestamp");
-                        long endDateTimestamp = taskParams.getLong("end_date_timestamp");
-                        int offset = taskParams.getIntValue("offset");
-                        int limit = taskParams.getIntValue("limit");
-                        DomesticTradeCalendarFetchByDateRangeRequest request =
-                                DomesticTradeCalendarFetchByDateRangeRequest.newBuilder()
-                                        .setStartDate(startDateTimestamp).setEndDate(endDateTimestamp)
-                                        .setOffset(offset).setLimit(limit)
-                                        .build();
-                        result = domesticTradeCalendarFetchService.fetchDomesticTradeCalendarByDateRange(request)
-                                .getFetchedItemsCount();
-                    } else {
-                        result = -1;
-                    }
-                    break;
-                default:
-                    result = -2;
-                    break;
-            }
-            acknowledgment.acknowledge();
-            log.info("Task result : {}", result);
-            sendTaskResult(taskUuid, taskName, taskSubTypeValue, result, null);
-        } catch (Exception e){
-            log.error("Failed to start task: {}", message);
-            log.error("Stack trace", e);
-            acknowledgment.acknowledge();
-            sendTaskResult(taskUuid, taskName, taskSubTypeValue, -1, e.getMessage());
+        FetchTaskCheckpointStore.Progress progress;
+        try {
+            progress = result >= 0
+                    ? fetchTaskCheckpointStore.complete(taskUuid, chunkIndex, result)
+                    : fetchTaskCheckpointStore.fail(taskUuid, chunkIndex);
+        } catch (Exception e) {
+            // 检查点写入失败时不确认，分片稍后重新执行（入库幂等）
+            log.error("Failed to write chunk checkpoint, will retry: task_uuid={}, chunk_index={}",
+                    taskUuid, chunkIndex, e);
+            acknowledgment.nack(Duration.ofSeconds(FORWARD_RETRY_SECONDS));
+            return;
         }
+        acknowledgment.acknowledge();
+        sendTaskProgress(taskUuid, taskName, taskSubTypeValue, progress);
     }
 
     private void sendTaskResult(String taskUuid,
@@ -264,12 +229,6 @@ public class FetchTopicConsumer {
                                 Integer taskSubType,
                                 int fetchedItemsCount,
                                 String message) {
-        if (taskUuid == null || taskUuid.isBlank()) {
-            if (log.isDebugEnabled()) {
-                log.debug("Skip sending task result because task_uuid is blank");
-            }
-            return;
-        }
         JSONObject payload = new JSONObject();
         payload.put("task_uuid", taskUuid);
         payload.put("task_name", taskName);
@@ -279,12 +238,44 @@ public class FetchTopicConsumer {
         if (message != null && !message.isBlank()) {
             payload.put("message", message);
         }
+        publishTaskResult(taskUuid, payload);
+    }
+
+    /**
+     * 上报分片任务的进度：全部分片结束前 status 为 running，fetched_items_count 为已入库行数
+     */
+    private void sendTaskProgress(String taskUuid,
+                                  String taskName,
+                                  Integer taskSubType,
+                                  FetchTaskCheckpointStore.Progress progress) {
+        JSONObject payload = new JSONObject();
+        payload.put("task_uuid", taskUuid);
+        payload.put("task_name", taskName);
+        payload.put("task_sub_type", taskSubType);
+        payload.put("fetched_items_count", progress.fetchedItemsCount());
+        payload.put("status", progress.status());
+        payload.put("chunks_total", progress.total());
+        payload.put("chunks_done", progress.done());
+        payload.put("chunks_failed", progress.failed());
+        payload.put("message", String.format("chunks %d/%d done, %d failed",
+                progress.done(), progress.total(), progress.failed()));
+        publishTaskResult(taskUuid, payload);
+    }
+
+    private void publishTaskResult(String taskUuid, JSONObject payload) {
+        if (taskUuid == null || taskUuid.isBlank()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skip sending task result because task_uuid is blank");
+            }
+            return;
+        }
         payload.put("updated_at", System.currentTimeMillis());
         try {
             if (log.isDebugEnabled()) {
                 log.debug("Sending fetch task result topic={} payload={}", FETCH_TASK_RESULT_TOPIC, payload.toJSONString());
             }
-            kafkaTemplate.send(FETCH_TASK_RESULT_TOPIC, payload.toJSONString());
+            // 以 task_uuid 为 key，同一任务的结果与进度落在同一分区，按发送顺序被消费
+            kafkaTemplate.send(FETCH_TASK_RESULT_TOPIC, taskUuid, payload.toJSONString());
         } catch (Exception e) {
             log.error("Failed to send fetch task result for {}", taskUuid, e);
         }
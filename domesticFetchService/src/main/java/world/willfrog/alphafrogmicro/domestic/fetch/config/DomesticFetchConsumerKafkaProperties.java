@@ -1,12 +1,16 @@
 package world.willfrog.alphafrogmicro.domestic.fetch.config;
 
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -21,6 +25,27 @@ public class DomesticFetchConsumerKafkaProperties {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    /**
+     * 快通道（fetch_topic）监听线程数；同一分区内的消息始终由一个线程按顺序处理
+     */
+    @Value("${advanced.fetch-consumer.quick.concurrency:${spring.kafka.listener.concurrency:3}}")
+    private int quickConcurrency;
+
+    @Value("${advanced.fetch-consumer.bulk.topic:fetch_topic_bulk}")
+    private String bulkTopic;
+
+    @Value("${advanced.fetch-consumer.bulk.partitions:4}")
+    private int bulkPartitions;
+
+    @Value("${advanced.fetch-consumer.bulk.concurrency:2}")
+    private int bulkConcurrency;
+
+    /**
+     * 批量任务可能运行数小时，且在完成后才提交位移，拉取间隔上限需覆盖单个任务的最长耗时
+     */
+    @Value("${advanced.fetch-consumer.bulk.max-poll-interval-ms:21600000}")
+    private int bulkMaxPollIntervalMs;
+
     @Bean
     public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
         return new KafkaTemplate<>(producerFactory);
@@ -41,8 +66,30 @@ public class DomesticFetchConsumerKafkaProperties {
             ConsumerFactory<String, String> consumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(quickConcurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         return factory;
     }
 
+    /**
+     * 批量通道：每次只拉取一条，长任务执行期间不会因超过拉取间隔被踢出消费组
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> bulkKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        Map<String, Object> props = new HashMap<>(consumerFactory.getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, bulkMaxPollIntervalMs);
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setConcurrency(bulkConcurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    @Bean
+    public NewTopic fetchBulkTopic() {
+        return TopicBuilder.name(bulkTopic).partitions(bulkPartitions).build();
+    }
+
 }
@@ -0,0 +1,22 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import world.willfrog.alphafrogmicro.common.dao.domestic.common.DataCompletenessDao;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
+
+@Configuration
+public class TradeDateBitmapConfig {
+
+    /**
+     * 入库后增量维护日频数据的已入库日期位图，供各查询服务判断完整性
+     */
+    @Bean
+    public TradeDateBitmapStore tradeDateBitmapStore(StringRedisTemplate stringRedisTemplate,
+                                                     DataCompletenessDao dataCompletenessDao,
+                                                     @Value("${advanced.completeness.absent-ttl-seconds:21600}") long absentTtlSeconds) {
+        return new TradeDateBitmapStore(stringRedisTemplate, dataCompletenessDao, absentTtlSeconds);
+    }
+}
@@ -0,0 +1,22 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import world.willfrog.alphafrogmicro.common.dao.domestic.calendar.TradeCalendarDao;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendarRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TradingCalendarConfig {
+
+    /**
+     * 进程内交易日历，供区间抓取的缺口规划使用
+     */
+    @Bean
+    public TradingCalendarRegistry tradingCalendarRegistry(TradeCalendarDao tradeCalendarDao,
+                                                           @Value("${advanced.trading-calendar.refresh-interval-seconds:60}") long refreshIntervalSeconds) {
+        return new TradingCalendarRegistry(tradeCalendarDao, TimeUnit.SECONDS.toMillis(refreshIntervalSeconds));
+    }
+}
@@ -0,0 +1,49 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TuShareHttpClientConfig {
+
+    /**
+     * 所有 TuShare 请求共享的连接池客户端：长连接复用，空闲连接定期回收；
+     * HttpClient 默认开启内容压缩（Accept-Encoding: gzip, deflate 并自动解压响应）
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient tuShareHttpClient(
+            @Value("${advanced.tushare-http.max-connections:16}") int maxConnections,
+            @Value("${advanced.tushare-http.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${advanced.tushare-http.response-timeout-ms:60000}") long responseTimeoutMs,
+            @Value("${advanced.tushare-http.keep-alive-seconds:30}") long keepAliveSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                // 只访问 api.tushare.pro 一个路由，单路由上限与总数一致
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.TuShareRateGovernor;
+
+@Configuration
+@EnableConfigurationProperties(TuShareRateLimitProperties.class)
+public class TuShareRateLimitConfig {
+
+    @Bean
+    public TuShareRateGovernor tuShareRateGovernor(TuShareRateLimitProperties properties) {
+        return new TuShareRateGovernor(properties);
+    }
+}
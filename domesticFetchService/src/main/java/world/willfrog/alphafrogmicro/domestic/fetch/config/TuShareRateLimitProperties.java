@@ -0,0 +1,55 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "advanced.tushare-rate")
+public class TuShareRateLimitProperties {
+    /**
+     * 账号积分；未配置 defaultPerMinute 时按积分档位推算单接口每分钟上限
+     */
+    private int points = 2000;
+    /**
+     * 单接口每分钟调用上限，大于 0 时覆盖积分档位
+     */
+    private int defaultPerMinute = 0;
+    /**
+     * 个别接口的每分钟上限（key 为 api_name），例如 fund_nav: 80
+     */
+    private Map<String, Integer> perMinute = new HashMap<>();
+    /**
+     * 实际使用的比例，留出余量避免贴着配额被限流
+     */
+    private double safetyRatio = 0.9;
+    /**
+     * 视为“超出频率限制”的 TuShare 返回码
+     */
+    private List<Integer> limitExceededCodes = List.of(40203);
+    private long initialBackoffMs = 1000;
+    private long maxBackoffMs = 60000;
+    /**
+     * 被限流后在同一次调用内的最大重试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 积分档位对应的单接口每分钟上限
+     */
+    public int resolveDefaultPerMinute() {
+        if (defaultPerMinute > 0) {
+            return defaultPerMinute;
+        }
+        if (points >= 5000) {
+            return 500;
+        }
+        if (points >= 2000) {
+            return 200;
+        }
+        return 50;
+    }
+}
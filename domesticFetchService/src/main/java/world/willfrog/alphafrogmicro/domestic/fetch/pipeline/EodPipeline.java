@@ -0,0 +1,315 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.pipeline;
+
+import com.alibaba.fastjson.JSONObject;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendar;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendarRegistry;
+import world.willfrog.alphafrogmicro.domestic.fetch.FetchTaskDispatcher;
+import world.willfrog.alphafrogmicro.domestic.fetch.utils.DataRefreshPublisher;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 收盘后的数据抓取流水线，按依赖关系执行：
+ * <pre>
+ * trade_calendar ─┬─ stock_info ─┬─ stock_daily
+ *                 │              └─ stock_adj_factor
+ *                 ├─ index_info ─── index_daily ─── index_weight
+ *                 └─ fund_info ──── fund_nav
+ * </pre>
+ * 各分支并行执行，每个阶段按 page-limit 分页抓取直到返回不足一页（按代码分页的阶段翻到代码列表末尾为止）；
+ * 单页失败时按配置重试，仍失败则跳过其下游。
+ * 抓取到 0 行的阶段（数据尚未发布）不算完成，除非阶段声明允许为空。完成的阶段记录在 Redis 中，
+ * 同一交易日的后续触发（cron 可配置多个时间点）只执行未完成的阶段；同一时刻只有一个实例在执行。
+ * 流水线结束后通过 {@link DataRefreshNotice} 广播本次刷新的数据集，由股票、指数、基金服务清理各自的缓存。
+ */
+@Component
+@Slf4j
+public class EodPipeline {
+
+    private static final String PREFIX = "fetch:eod-pipeline:";
+    private static final String EXCHANGE_SSE = "SSE";
+    private static final String STATE_DONE = "done";
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final FetchTaskDispatcher fetchTaskDispatcher;
+    private final TradingCalendarRegistry tradingCalendarRegistry;
+    private final StringRedisTemplate redisTemplate;
+    private final DataRefreshPublisher dataRefreshPublisher;
+    private final ExecutorService executor;
+    private final List<EodPipelineStage> stages;
+    private final int pageLimit;
+
+    @Value("${advanced.eod-pipeline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${advanced.eod-pipeline.stage-retries:2}")
+    private int stageRetries;
+
+    @Value("${advanced.eod-pipeline.retry-delay-seconds:120}")
+    private long retryDelaySeconds;
+
+    /**
+     * 单个阶段最多抓取的页数，防止接口异常时无限翻页
+     */
+    @Value("${advanced.eod-pipeline.max-pages:50}")
+    private int maxPages;
+
+    @Value("${advanced.eod-pipeline.lock-ttl-hours:6}")
+    private long lockTtlHours;
+
+    /**
+     * 期望数据就绪的时间，超过时输出告警日志
+     */
+    @Value("${advanced.eod-pipeline.target-time:20:00}")
+    private String targetTime;
+
+    public EodPipeline(FetchTaskDispatcher fetchTaskDispatcher,
+                       TradingCalendarRegistry tradingCalendarRegistry,
+                       StringRedisTemplate redisTemplate,
+                       DataRefreshPublisher dataRefreshPublisher,
+                       @Value("${advanced.eod-pipeline.parallelism:3}") int parallelism,
+                       @Value("${advanced.eod-pipeline.page-limit:5000}") int pageLimit) {
+        this.fetchTaskDispatcher = fetchTaskDispatcher;
+        this.tradingCalendarRegistry = tradingCalendarRegistry;
+        this.redisTemplate = redisTemplate;
+        this.dataRefreshPublisher = dataRefreshPublisher;
+        this.stages = defaultStages();
+        this.pageLimit = Math.max(1, pageLimit);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "eod-pipeline-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(cron = "${advanced.eod-pipeline.cron:0 30 17,19,21 * * MON-FRI}", zone = "Asia/Shanghai")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        long tradeDate = DateConvertUtils.convertLocalDateToMsTimestamp(LocalDate.now(ZONE));
+        if (!isTradingDay(tradeDate)) {
+            log.info("Skip EOD pipeline on non-trading day {}", DateConvertUtils.convertTimestampToString(tradeDate, "yyyyMMdd"));
+            return;
+        }
+        run(tradeDate);
+    }
+
+    /**
+     * 执行某个交易日的流水线；已完成或其他实例正在执行时直接返回
+     */
+    public void run(long tradeDate) {
+        String day = DateConvertUtils.convertTimestampToString(tradeDate, "yyyyMMdd");
+        String lockKey = PREFIX + day;
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "running", Duration.ofHours(lockTtlHours));
+        if (!Boolean.TRUE.equals(acquired)) {
+            log.info("EOD pipeline for {} is done or running elsewhere, state={}", day,
+                    redisTemplate.opsForValue().get(lockKey));
+            return;
+        }
+
+        long startMs = System.currentTimeMillis();
+        String doneKey = lockKey + ":stages";
+        Set<String> doneStages = ConcurrentHashMap.newKeySet();
+        Set<String> previouslyDone = redisTemplate.opsForSet().members(doneKey);
+        if (previouslyDone != null) {
+            doneStages.addAll(previouslyDone);
+        }
+        List<String> refreshed = new ArrayList<>();
+        log.info("EOD pipeline started: trade_date={}, resumed_stages={}", day, doneStages);
+
+        Map<String, EodStageGraph.StageStatus> statuses;
+        try {
+            statuses = EodStageGraph.execute(stages, stage -> {
+                if (doneStages.contains(stage.name())) {
+                    return true;
+                }
+                boolean success = runStage(stage, tradeDate, day);
+                if (success) {
+                    doneStages.add(stage.name());
+                    redisTemplate.opsForSet().add(doneKey, stage.name());
+                    redisTemplate.expire(doneKey, Duration.ofDays(2));
+                    synchronized (refreshed) {
+                        refreshed.add(stage.name());
+                    }
+                }
+                return success;
+            }, executor);
+        } catch (Exception e) {
+            log.error("EOD pipeline aborted: trade_date={}", day, e);
+            redisTemplate.delete(lockKey);
+            return;
+        }
+
+        if (!refreshed.isEmpty()) {
+            dataRefreshPublisher.publish(refreshed);
+        }
+        boolean allSucceeded = statuses.values().stream().allMatch(status -> status == EodStageGraph.StageStatus.SUCCESS);
+        if (allSucceeded) {
+            redisTemplate.opsForValue().set(lockKey, STATE_DONE, Duration.ofDays(2));
+        } else {
+            // 释放锁，下一个触发时间点继续执行未完成的阶段
+            redisTemplate.delete(lockKey);
+        }
+
+        long costMs = System.currentTimeMillis() - startMs;
+        if (allSucceeded) {
+            log.info("EOD pipeline finished: trade_date={}, cost_ms={}, stages={}", day, costMs, statuses);
+        } else {
+            log.warn("EOD pipeline finished with failures: trade_date={}, cost_ms={}, stages={}", day, costMs, statuses);
+        }
+        if (LocalTime.now(ZONE).isAfter(LocalTime.parse(targetTime))) {
+            log.warn("EOD pipeline for {} missed target time {}, all_succeeded={}", day, targetTime, allSucceeded);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean runStage(EodPipelineStage stage, long tradeDate, String day) {
+        long startMs = System.currentTimeMillis();
+        long rows = 0;
+        int pages = 0;
+        while (true) {
+            if (pages >= maxPages) {
+                log.warn("EOD stage exceeded max pages: trade_date={}, stage={}, rows={}, max_pages={}",
+                        day, stage.name(), rows, maxPages);
+                return false;
+            }
+            int result = runPage(stage, tradeDate, day, pages * pageLimit);
+            // 代码列表已翻完时本页为空，不算失败
+            if (result == FetchTaskDispatcher.EXHAUSTED) {
+                break;
+            }
+            if (result < 0) {
+                return false;
+            }
+            rows += result;
+            pages++;
+            // 按代码分页时每页入库行数与页大小无关，只能以越界作为结束
+            if (!stage.pagedBySymbol() && result < pageLimit) {
+                break;
+            }
+        }
+        if (rows == 0 && !stage.emptyAllowed()) {
+            log.warn("EOD stage fetched no rows, retry at next trigger: trade_date={}, stage={}", day, stage.name());
+            return false;
+        }
+        log.info("EOD stage finished: trade_date={}, stage={}, rows={}, pages={}, cost_ms={}",
+                day, stage.name(), rows, pages, System.currentTimeMillis() - startMs);
+        if (DataRefreshNotice.TRADE_CALENDAR.equals(stage.name())) {
+            tradingCalendarRegistry.invalidate(EXCHANGE_SSE);
+        }
+        return true;
+    }
+
+    /**
+     * 抓取一页，失败时按配置重试；返回本页行数，代码分页越界返回 {@link FetchTaskDispatcher#EXHAUSTED}，重试耗尽返回 -1
+     */
+    private int runPage(EodPipelineStage stage, long tradeDate, String day, int offset) {
+        JSONObject task = stage.toTask(tradeDate, offset, pageLimit);
+        for (int attempt = 0; attempt <= stageRetries; attempt++) {
+            if (attempt > 0) {
+                try {
+                    TimeUnit.SECONDS.sleep(retryDelaySeconds);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+            try {
+                int result = fetchTaskDispatcher.dispatchPage(task);
+                if (result >= 0 || result == FetchTaskDispatcher.EXHAUSTED) {
+                    return result;
+                }
+                log.warn("EOD stage failed: trade_date={}, stage={}, offset={}, result={}, attempt={}/{}",
+                        day, stage.name(), offset, result, attempt + 1, stageRetries + 1);
+            } catch (Exception e) {
+                log.error("EOD stage failed: trade_date={}, stage={}, offset={}, attempt={}/{}",
+                        day, stage.name(), offset, attempt + 1, stageRetries + 1, e);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 日历尚未覆盖该日期时（例如日历数据过期）仍然执行，由 trade_calendar 阶段补齐
+     */
+    private boolean isTradingDay(long date) {
+        try {
+            TradingCalendar calendar = tradingCalendarRegistry.calendar(EXCHANGE_SSE);
+            Long last = calendar.size() == 0 ? null : calendar.dateAt(calendar.size() - 1);
+            return last == null || date > last || calendar.isTradingDay(date);
+        } catch (Exception e) {
+            log.warn("Failed to read trading calendar, run EOD pipeline anyway", e);
+            return true;
+        }
+    }
+
+    static List<EodPipelineStage> defaultStages() {
+        return List.of(
+                new EodPipelineStage(DataRefreshNotice.TRADE_CALENDAR, "trade_calendar", 1, List.of(),
+                        tradeDate -> range(tradeDate, tradeDate + 366 * DAY_MS)),
+                new EodPipelineStage(DataRefreshNotice.STOCK_INFO, "stock_info", 1,
+                        List.of(DataRefreshNotice.TRADE_CALENDAR), tradeDate -> new JSONObject()),
+                new EodPipelineStage(DataRefreshNotice.INDEX_INFO, "index_info", 1,
+                        List.of(DataRefreshNotice.TRADE_CALENDAR), tradeDate -> new JSONObject()),
+                new EodPipelineStage(DataRefreshNotice.FUND_INFO, "fund_info", 1,
+                        List.of(DataRefreshNotice.TRADE_CALENDAR), tradeDate -> new JSONObject()),
+                new EodPipelineStage(DataRefreshNotice.STOCK_DAILY, "stock_daily", 1,
+                        List.of(DataRefreshNotice.STOCK_INFO), EodPipeline::tradeDateParams),
+                new EodPipelineStage(DataRefreshNotice.STOCK_ADJ_FACTOR, "stock_adj_factor", 1,
+                        List.of(DataRefreshNotice.STOCK_INFO), EodPipeline::tradeDateParams),
+                // 指数日线逐个指数请求，分页的是本地指数代码列表
+                new EodPipelineStage(DataRefreshNotice.INDEX_DAILY, "index_quote", 1,
+                        List.of(DataRefreshNotice.INDEX_INFO), false, true, EodPipeline::tradeDateParams),
+                new EodPipelineStage(DataRefreshNotice.FUND_NAV, "fund_nav", 1,
+                        List.of(DataRefreshNotice.FUND_INFO), EodPipeline::tradeDateParams),
+                // 指数权重按月披露，每次刷新当月；月初尚未披露时允许为空
+                new EodPipelineStage(DataRefreshNotice.INDEX_WEIGHT, "index_weight", 1,
+                        List.of(DataRefreshNotice.INDEX_DAILY), true, tradeDate -> range(monthStart(tradeDate), tradeDate))
+        );
+    }
+
+    private static JSONObject tradeDateParams(long tradeDate) {
+        JSONObject params = new JSONObject();
+        params.put("trade_date_timestamp", tradeDate);
+        return params;
+    }
+
+    private static JSONObject range(long startDate, long endDate) {
+        JSONObject params = new JSONObject();
+        params.put("start_date_timestamp", startDate);
+        params.put("end_date_timestamp", endDate);
+        return params;
+    }
+
+    private static long monthStart(long tradeDate) {
+        return DateConvertUtils.convertLocalDateToMsTimestamp(
+                DateConvertUtils.convertTimestampToLocalDate(tradeDate).withDayOfMonth(1));
+    }
+}
@@ -0,0 +1,41 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.pipeline;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * 收盘流水线中的一个阶段：对应一个抓取任务（task_name / task_sub_type），所有上游阶段成功后才执行。
+ * name 同时作为数据刷新通知中的数据集名称。
+ *
+ * @param emptyAllowed  为 true 时抓取到 0 行也视为完成（例如月初尚未披露的指数权重）；
+ *                      否则 0 行视为数据未发布，留给后续触发时间点重试
+ * @param pagedBySymbol 为 true 时 offset / limit 分页的是本地代码列表而不是接口返回的行，
+ *                      每页入库行数与页大小无关，一直翻页到抓取服务报告代码列表越界
+ * @param taskParams    由交易日生成任务参数，分页参数 offset / limit 由流水线追加
+ */
+public record EodPipelineStage(String name, String taskName, int taskSubType, List<String> dependsOn,
+                               boolean emptyAllowed, boolean pagedBySymbol, LongFunction<JSONObject> taskParams) {
+
+    public EodPipelineStage(String name, String taskName, int taskSubType, List<String> dependsOn,
+                            LongFunction<JSONObject> taskParams) {
+        this(name, taskName, taskSubType, dependsOn, false, false, taskParams);
+    }
+
+    public EodPipelineStage(String name, String taskName, int taskSubType, List<String> dependsOn,
+                            boolean emptyAllowed, LongFunction<JSONObject> taskParams) {
+        this(name, taskName, taskSubType, dependsOn, emptyAllowed, false, taskParams);
+    }
+
+    public JSONObject toTask(long tradeDate, int offset, int limit) {
+        JSONObject params = taskParams.apply(tradeDate);
+        params.put("offset", offset);
+        params.put("limit", limit);
+        JSONObject task = new JSONObject();
+        task.put("task_name", taskName);
+        task.put("task_sub_type", taskSubType);
+        task.put("task_params", params);
+        return task;
+    }
+}
@@ -0,0 +1,59 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.pipeline;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * 按依赖关系执行流水线阶段：没有依赖关系的阶段并行执行，阶段在全部上游成功后才开始，
+ * 任一上游失败或被跳过时该阶段被跳过。
+ */
+final class EodStageGraph {
+
+    enum StageStatus {
+        SUCCESS, FAILED, SKIPPED
+    }
+
+    private EodStageGraph() {
+    }
+
+    /**
+     * @param stages 须按拓扑顺序排列，依赖只能指向排在前面的阶段
+     * @param runner 执行一个阶段，返回是否成功
+     * @return 各阶段的最终状态，顺序与 stages 一致
+     */
+    static Map<String, StageStatus> execute(List<EodPipelineStage> stages, Predicate<EodPipelineStage> runner,
+                                            Executor executor) {
+        Map<String, CompletableFuture<StageStatus>> futures = new LinkedHashMap<>();
+        for (EodPipelineStage stage : stages) {
+            if (futures.containsKey(stage.name())) {
+                throw new IllegalArgumentException("Duplicate pipeline stage: " + stage.name());
+            }
+            CompletableFuture<?>[] upstream = stage.dependsOn().stream()
+                    .map(dependency -> {
+                        CompletableFuture<StageStatus> future = futures.get(dependency);
+                        if (future == null) {
+                            throw new IllegalArgumentException("Stage " + stage.name()
+                                    + " depends on unknown or later stage " + dependency);
+                        }
+                        return future;
+                    })
+                    .toArray(CompletableFuture[]::new);
+            futures.put(stage.name(), CompletableFuture.allOf(upstream).thenApplyAsync(ignored -> {
+                for (CompletableFuture<?> future : upstream) {
+                    if (future.join() != StageStatus.SUCCESS) {
+                        return StageStatus.SKIPPED;
+                    }
+                }
+                return runner.test(stage) ? StageStatus.SUCCESS : StageStatus.FAILED;
+            }, executor).exceptionally(e -> StageStatus.FAILED));
+        }
+
+        Map<String, StageStatus> statuses = new LinkedHashMap<>();
+        futures.forEach((name, future) -> statuses.put(name, future.join()));
+        return statuses;
+    }
+}
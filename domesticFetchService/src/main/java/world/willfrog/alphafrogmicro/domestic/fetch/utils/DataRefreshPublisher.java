@@ -0,0 +1,35 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+
+import java.util.Collection;
+
+/**
+ * 通过 Redis pub/sub 广播 {@link DataRefreshNotice}，发布失败只记录日志，不影响入库结果
+ */
+@Component
+@Slf4j
+public class DataRefreshPublisher {
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+
+    public DataRefreshPublisher(StringRedisTemplate redisTemplate,
+                                @Value("${advanced.data-refresh.channel:" + DataRefreshNotice.DEFAULT_CHANNEL + "}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public void publish(Collection<String> datasets) {
+        try {
+            redisTemplate.convertAndSend(channel, DataRefreshNotice.encode(datasets));
+            log.info("Published data refresh notice: channel={}, datasets={}", channel, datasets);
+        } catch (Exception e) {
+            log.error("Failed to publish data refresh notice: datasets={}", datasets, e);
+        }
+    }
+}
@@ -13,18 +13,26 @@ import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundInfo;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundNav;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundPortfolio;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class DomesticFundStoreUtils {
 
     private final SqlSessionFactory sqlSessionFactory;
+    private final TradeDateBitmapStore tradeDateBitmapStore;
+    private final PgCopyBulkLoader pgCopyBulkLoader;
 
-    public DomesticFundStoreUtils(SqlSessionFactory sqlSessionFactory){
+    public DomesticFundStoreUtils(SqlSessionFactory sqlSessionFactory, TradeDateBitmapStore tradeDateBitmapStore,
+                                  PgCopyBulkLoader pgCopyBulkLoader){
         this.sqlSessionFactory = sqlSessionFactory;
+        this.tradeDateBitmapStore = tradeDateBitmapStore;
+        this.pgCopyBulkLoader = pgCopyBulkLoader;
     }
 
     /**
@@ -33,6 +41,9 @@ public class DomesticFundStoreUtils {
      * 见 <a href="https://tushare.pro/document/2?doc_id=119">TuShare文档</a> 中的表格
      */
     public int storeFundNavsByRawFullTuShareOutput(JSONArray data) {
+        if (pgCopyBulkLoader.isEnabled(TradeDateBitmap.Dataset.FUND_NAV)) {
+            return pgCopyBulkLoader.load(TradeDateBitmap.Dataset.FUND_NAV, data, null);
+        }
 
         List<FundNav> fundNavList = new ArrayList<>();
 
@@ -79,6 +90,11 @@ public class DomesticFundStoreUtils {
                 return -2;
             }
 
+            tradeDateBitmapStore.markPresent(TradeDateBitmap.Dataset.FUND_NAV, fundNavList.stream()
+                    .filter(nav -> nav.getTsCode() != null && nav.getNavDate() != null)
+                    .collect(Collectors.groupingBy(FundNav::getTsCode,
+                            Collectors.mapping(FundNav::getNavDate, Collectors.toList()))));
+
         } catch (Exception e) {
             log.error("Error occurred while converting fund nav raw data");
             log.error("Error trace", e);
@@ -13,20 +13,28 @@ import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexDaily;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexInfo;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexWeight;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class DomesticIndexStoreUtils {
 
     private final SqlSessionFactory sqlSessionFactory;
+    private final TradeDateBitmapStore tradeDateBitmapStore;
+    private final PgCopyBulkLoader pgCopyBulkLoader;
 
 
-    public DomesticIndexStoreUtils(SqlSessionFactory sqlSessionFactory) {
+    public DomesticIndexStoreUtils(SqlSessionFactory sqlSessionFactory, TradeDateBitmapStore tradeDateBitmapStore,
+                                   PgCopyBulkLoader pgCopyBulkLoader) {
         this.sqlSessionFactory = sqlSessionFactory;
+        this.tradeDateBitmapStore = tradeDateBitmapStore;
+        this.pgCopyBulkLoader = pgCopyBulkLoader;
     }
 
 
@@ -132,104 +140,36 @@ public class DomesticIndexStoreUtils {
     }
 
 
-    public int storeIndexDailyByRawTuShareOutput(JSONArray data, JSONArray fields) {
-        List<IndexDaily> indexDailyList = new ArrayList<>();
-
-        try {
-            for(int i = 0; i < data.size(); i++) {
-                JSONArray item = data.getJSONArray(i);
-                IndexDaily indexDaily = new IndexDaily();
-                for (int j = 0; j < fields.size(); j++) {
-                    String field = fields.getString(j);
-                    switch (field) {
-                        case "ts_code":
-                            indexDaily.setTsCode(item.getString(j));
-                            break;
-                        case "trade_date":
-                            String tradeDateStr = item.getString(j);
-                            Long tradeDate = DateConvertUtils.convertDateStrToLong(tradeDateStr, "yyyyMMdd");
-                            indexDaily.setTradeDate(tradeDate);
-                            break;
-                        case "close":
-                            indexDaily.setClose(item.getBigDecimal(j).doubleValue());
-                            break;
-                        case "open":
-                            if (item.getBigDecimal(j) == null) {
-                                indexDaily.setOpen(null);
-                            } else {
-                                indexDaily.setOpen(item.getBigDecimal(j).doubleValue());
-                            }
-                            break;
-                        case "high":
-                            if (item.getBigDecimal(j) == null) {
-                                indexDaily.setHigh(null);
-                            } else {
-                                indexDaily.setHigh(item.getBigDecimal(j).doubleValue());
-                            }
-                            break;
-                        case "low":
-                            if (item.getBigDecimal(j) == null) {
-                                indexDaily.setLow(null);
-                            } else {
-                                indexDaily.setLow(item.getBigDecimal(j).doubleValue());
-                            }
-                            break;
-                        case "pre_close":
-                            indexDaily.setPreClose(item.getBigDecimal(j).doubleValue());
-                            break;
-                        case "change":
-                            indexDaily.setChange(item.getBigDecimal(j).doubleValue());
-                            break;
-                        case "pct_chg":
-                            indexDaily.setPctChg(item.getBigDecimal(j).doubleValue());
-                            break;
-                        case "vol":
-                            if (item.getBigDecimal(j) == null) {
-                                indexDaily.setVol(null);
-                            } else {
-                                indexDaily.setVol(item.getBigDecimal(j).doubleValue());
-                            }
-                            break;
-                        case "amount":
-                            if (item.getBigDecimal(j) == null) {
-                                indexDaily.setAmount(null);
-                            } else {
-                                indexDaily.setAmount(item.getBigDecimal(j).doubleValue());
-                            }
-                            break;
-                        default:
-                            break;
-                    }
-                }
-                indexDailyList.add(indexDaily);
-            }
-        } catch (Exception e){
-            log.error("Error occurred while converting raw TuShare data to IndexDaily", e);
+    /**
+     * 存储已解码的日线批次（列为 {@link TuShareColumns#DAILY_BAR}）；启用 COPY 时直接从列缓冲写出，
+     * 否则按列下标组装 IndexDaily 走 MyBatis 批量插入
+     */
+    public int storeIndexDaily(TuShareRowBatch batch) {
+        if (batch.columns() != TuShareColumns.DAILY_BAR) {
+            log.error("Index daily batch must use DAILY_BAR columns, got {}", batch.columns().names());
             return -1;
         }
-        int totalAffected = 0;
-        int batchSize = 50;
-//        String[] tsCodes = new String[indexDailyList.size()];
-        try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
-            IndexQuoteDao dao = sqlSession.getMapper(IndexQuoteDao.class);
-            for (IndexDaily daily : indexDailyList) {
-//                tsCodes[totalAffected] = daily.getTsCode();
-                totalAffected++;
-                dao.insertIndexDaily(daily);
-                if (totalAffected % batchSize == 0 || totalAffected == indexDailyList.size()) {
-                    sqlSession.commit();
-                }
-            }
-            sqlSession.commit();
-//            log.info("All TsCodes: {}", tsCodes);
-        } catch ( Exception e ){
-            log.error("Error occurred while inserting index daily data", e);
-            return -2;
+        if (pgCopyBulkLoader.isEnabled(TradeDateBitmap.Dataset.INDEX_DAILY)) {
+            return pgCopyBulkLoader.load(TradeDateBitmap.Dataset.INDEX_DAILY, batch);
         }
 
-
-
-        return totalAffected;
+        List<IndexDaily> indexDailyList = new ArrayList<>(batch.size());
+        for (int row = 0; row < batch.size(); row++) {
+            IndexDaily indexDaily = new IndexDaily();
+            indexDaily.setTsCode(batch.getString(0, row));
+            indexDaily.setTradeDate(batch.getDateOrNull(1, row));
+            indexDaily.setClose(batch.getDoubleOrNull(2, row));
+            indexDaily.setOpen(batch.getDoubleOrNull(3, row));
+            indexDaily.setHigh(batch.getDoubleOrNull(4, row));
+            indexDaily.setLow(batch.getDoubleOrNull(5, row));
+            indexDaily.setPreClose(batch.getDoubleOrNull(6, row));
+            indexDaily.setChange(batch.getDoubleOrNull(7, row));
+            indexDaily.setPctChg(batch.getDoubleOrNull(8, row));
+            indexDaily.setVol(batch.getDoubleOrNull(9, row));
+            indexDaily.setAmount(batch.getDoubleOrNull(10, row));
+            indexDailyList.add(indexDaily);
+        }
+        return insertIndexDaily(indexDailyList);
     }
 
     public int storeIndexWeightByRawTuShareOutput(JSONArray data, JSONArray fields) {
@@ -282,6 +222,33 @@ public class DomesticIndexStoreUtils {
         return indexWeightList.size();
     }
 
+    private int insertIndexDaily(List<IndexDaily> indexDailyList) {
+        int totalAffected = 0;
+        int batchSize = 50;
+//        String[] tsCodes = new String[indexDailyList.size()];
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            IndexQuoteDao dao = sqlSession.getMapper(IndexQuoteDao.class);
+            for (IndexDaily daily : indexDailyList) {
+//                tsCodes[totalAffected] = daily.getTsCode();
+                totalAffected++;
+                dao.insertIndexDaily(daily);
+                if (totalAffected % batchSize == 0 || totalAffected == indexDailyList.size()) {
+                    sqlSession.commit();
+                }
+            }
+            sqlSession.commit();
+//            log.info("All TsCodes: {}", tsCodes);
+        } catch ( Exception e ){
+            log.error("Error occurred while inserting index daily data", e);
+            return -2;
+        }
+
+        tradeDateBitmapStore.markPresent(TradeDateBitmap.Dataset.INDEX_DAILY, indexDailyList.stream()
+                .filter(daily -> daily.getTsCode() != null && daily.getTradeDate() != null)
+                .collect(Collectors.groupingBy(IndexDaily::getTsCode,
+                        Collectors.mapping(IndexDaily::getTradeDate, Collectors.toList()))));
 
 
+        return totalAffected;
+    }
 }
@@ -6,22 +6,32 @@ import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.stereotype.Component;
+import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockAdjFactorDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockInfoDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockQuoteDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockAdjFactor;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class DomesticStockStoreUtils {
     private final SqlSessionFactory sqlSessionFactory;
+    private final TradeDateBitmapStore tradeDateBitmapStore;
+    private final PgCopyBulkLoader pgCopyBulkLoader;
 
-    public DomesticStockStoreUtils(SqlSessionFactory sqlSessionFactory) {
+    public DomesticStockStoreUtils(SqlSessionFactory sqlSessionFactory, TradeDateBitmapStore tradeDateBitmapStore,
+                                   PgCopyBulkLoader pgCopyBulkLoader) {
         this.sqlSessionFactory = sqlSessionFactory;
+        this.tradeDateBitmapStore = tradeDateBitmapStore;
+        this.pgCopyBulkLoader = pgCopyBulkLoader;
     }
 
 
@@ -119,62 +129,89 @@ public class DomesticStockStoreUtils {
         return stockInfoList.size();
     }
 
-    public int storeStockDailyByRawTuShareOutput(JSONArray data, JSONArray fields) {
-        List<StockDaily> stockDailyList = new ArrayList<>();
+    /**
+     * 存储已解码的日线批次（列为 {@link TuShareColumns#DAILY_BAR}）；启用 COPY 时直接从列缓冲写出，
+     * 否则按列下标组装 StockDaily 走 MyBatis 批量插入
+     */
+    public int storeStockDaily(TuShareRowBatch batch) {
+        if (batch.columns() != TuShareColumns.DAILY_BAR) {
+            log.error("Stock daily batch must use DAILY_BAR columns, got {}", batch.columns().names());
+            return -1;
+        }
+        if (pgCopyBulkLoader.isEnabled(TradeDateBitmap.Dataset.STOCK_DAILY)) {
+            return pgCopyBulkLoader.load(TradeDateBitmap.Dataset.STOCK_DAILY, batch);
+        }
+
+        List<StockDaily> stockDailyList = new ArrayList<>(batch.size());
+        for (int row = 0; row < batch.size(); row++) {
+            StockDaily stockDaily = new StockDaily();
+            stockDaily.setTsCode(batch.getString(0, row));
+            stockDaily.setTradeDate(batch.getDateOrNull(1, row));
+            stockDaily.setClose(batch.getDoubleOrNull(2, row));
+            stockDaily.setOpen(batch.getDoubleOrNull(3, row));
+            stockDaily.setHigh(batch.getDoubleOrNull(4, row));
+            stockDaily.setLow(batch.getDoubleOrNull(5, row));
+            stockDaily.setPreClose(batch.getDoubleOrNull(6, row));
+            stockDaily.setChange(batch.getDoubleOrNull(7, row));
+            stockDaily.setPctChg(batch.getDoubleOrNull(8, row));
+            stockDaily.setVol(batch.getDoubleOrNull(9, row));
+            stockDaily.setAmount(batch.getDoubleOrNull(10, row));
+            stockDailyList.add(stockDaily);
+        }
+        return insertStockDaily(stockDailyList);
+    }
+
+    public int storeStockAdjFactorByRawTuShareOutput(JSONArray data, JSONArray fields) {
+        List<StockAdjFactor> stockAdjFactorList = new ArrayList<>();
 
         try {
             for (int i = 0; i < data.size(); i++) {
-                StockDaily stockDaily = new StockDaily();
+                StockAdjFactor stockAdjFactor = new StockAdjFactor();
                 JSONArray item = data.getJSONArray(i);
                 for (int j = 0; j < fields.size(); j++) {
                     String field = fields.getString(j);
                     switch (field) {
                         case "ts_code":
-                            stockDaily.setTsCode(item.getString(j));
+                            stockAdjFactor.setTsCode(item.getString(j));
                             break;
                         case "trade_date":
                             long tradeDateTimestamp = DateConvertUtils.convertDateStrToLong(item.getString(j), "yyyyMMdd");
-                            stockDaily.setTradeDate(tradeDateTimestamp);
-                            break;
-                        case "close":
-                            stockDaily.setClose(item.getDouble(j));
-                            break;
-                        case "open":
-                            stockDaily.setOpen(item.getDouble(j));
-                            break;
-                        case "high":
-                            stockDaily.setHigh(item.getDouble(j));
-                            break;
-                        case "low":
-                            stockDaily.setLow(item.getDouble(j));
-                            break;
-                        case "pre_close":
-                            stockDaily.setPreClose(item.getDouble(j));
-                            break;
-                        case "change":
-                            stockDaily.setChange(item.getDouble(j));
+                            stockAdjFactor.setTradeDate(tradeDateTimestamp);
                             break;
-                        case "pct_chg":
-                            stockDaily.setPctChg(item.getDouble(j));
-                            break;
-                        case "vol":
-                            stockDaily.setVol(item.getDouble(j));
-                            break;
-                        case "amount":
-                            stockDaily.setAmount(item.getDouble(j));
+                        case "adj_factor":
+                            stockAdjFactor.setAdjFactor(item.getDouble(j));
                             break;
                         default:
                             // Handle unknown fields if necessary
                             break;
                     }
                 }
-                stockDailyList.add(stockDaily);
+                // 因子缺失的行无法参与复权计算，直接跳过
+                if (stockAdjFactor.getAdjFactor() == null) {
+                    continue;
+                }
+                stockAdjFactorList.add(stockAdjFactor);
             }
         } catch (Exception e) {
             log.error("Error occurred while converting raw TuShare data", e);
             return -1;
         }
 
+        try ( SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH) ) {
+            StockAdjFactorDao stockAdjFactorDao = sqlSession.getMapper(StockAdjFactorDao.class);
+            for (StockAdjFactor stockAdjFactor : stockAdjFactorList) {
+                stockAdjFactorDao.insertStockAdjFactor(stockAdjFactor);
+            }
+            sqlSession.commit();
+        } catch (Exception e) {
+            log.error("Error occurred while storing stock adj factor data", e);
+            return -2;
+        }
+
+        return stockAdjFactorList.size();
+    }
+
+    private int insertStockDaily(List<StockDaily> stockDailyList) {
         try ( SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH) ) {
             StockQuoteDao stockQuoteDao = sqlSession.getMapper(StockQuoteDao.class);
             for (StockDaily stockDaily : stockDailyList) {
@@ -186,6 +223,11 @@ public class DomesticStockStoreUtils {
             return -2;
         }
 
+        tradeDateBitmapStore.markPresent(TradeDateBitmap.Dataset.STOCK_DAILY, stockDailyList.stream()
+                .filter(daily -> daily.getTsCode() != null && daily.getTradeDate() != null)
+                .collect(Collectors.groupingBy(StockDaily::getTsCode,
+                        Collectors.mapping(StockDaily::getTradeDate, Collectors.toList()))));
+
         return stockDailyList.size();
     }
 }
@@ -0,0 +1,109 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendarRegistry;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 区间抓取的缺口规划：只请求某个代码在区间内尚未入库的交易日。
+ * <p>
+ * 先按交易日历取出区间内的交易日，再用 {@link TradeDateBitmapStore} 找出缺失的交易日，
+ * 最后把缺失日合并成尽量少的连续区间：两段缺口之间相隔不超过 merge-gap-trading-days 个已入库交易日时合并为一次请求
+ * （重复的行由 ON CONFLICT 丢弃，比多一次 TuShare 调用便宜），单段长度不超过 max-segment-trading-days 以免超出接口单次行数上限。
+ * 规划失败（例如 Redis 不可用）时退回整段抓取。
+ */
+@Component
+@Slf4j
+public class FetchGapPlanner {
+
+    private static final String EXCHANGE_SSE = "SSE";
+
+    /**
+     * 一次 TuShare 请求覆盖的闭区间
+     */
+    public record DateSegment(long startDate, long endDate) {
+    }
+
+    private final TradingCalendarRegistry tradingCalendarRegistry;
+    private final TradeDateBitmapStore tradeDateBitmapStore;
+    private final boolean enabled;
+    private final int mergeGapTradingDays;
+    private final int maxSegmentTradingDays;
+
+    public FetchGapPlanner(TradingCalendarRegistry tradingCalendarRegistry,
+                           TradeDateBitmapStore tradeDateBitmapStore,
+                           @Value("${advanced.fetch-planner.enabled:true}") boolean enabled,
+                           @Value("${advanced.fetch-planner.merge-gap-trading-days:5}") int mergeGapTradingDays,
+                           @Value("${advanced.fetch-planner.max-segment-trading-days:4000}") int maxSegmentTradingDays) {
+        this.tradingCalendarRegistry = tradingCalendarRegistry;
+        this.tradeDateBitmapStore = tradeDateBitmapStore;
+        this.enabled = enabled;
+        this.mergeGapTradingDays = Math.max(0, mergeGapTradingDays);
+        this.maxSegmentTradingDays = Math.max(1, maxSegmentTradingDays);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 规划 code 在 [startDate, endDate] 内需要抓取的区间。
+     *
+     * @param listDate   上市（发布）日，早于该日的交易日不视为缺失；未知时传 null
+     * @param delistDate 退市（终止）日，晚于该日的交易日不视为缺失；未知时传 null
+     */
+    public List<DateSegment> plan(TradeDateBitmap.Dataset dataset, String code, long startDate, long endDate,
+                                  Long listDate, Long delistDate) {
+        long from = listDate == null ? startDate : Math.max(startDate, listDate);
+        long to = delistDate == null ? endDate : Math.min(endDate, delistDate);
+        if (from > to) {
+            return List.of();
+        }
+        try {
+            long[] tradingDates = tradingCalendarRegistry.calendar(EXCHANGE_SSE).range(from, to);
+            List<Long> missing = tradeDateBitmapStore.missingDates(dataset, code, tradingDates);
+            return mergeSegments(tradingDates, missing, mergeGapTradingDays, maxSegmentTradingDays);
+        } catch (Exception e) {
+            log.warn("Gap planning failed, fall back to full range: dataset={}, code={}", dataset, code, e);
+            return List.of(new DateSegment(from, to));
+        }
+    }
+
+    /**
+     * 把缺失交易日（升序，均属于 tradingDates）合并为连续区间
+     */
+    static List<DateSegment> mergeSegments(long[] tradingDates, List<Long> missingDates,
+                                           int mergeGapTradingDays, int maxSegmentTradingDays) {
+        List<DateSegment> segments = new ArrayList<>();
+        int segmentStart = -1;
+        int segmentEnd = -1;
+        for (Long missingDate : missingDates) {
+            int index = Arrays.binarySearch(tradingDates, missingDate);
+            if (index < 0) {
+                continue;
+            }
+            if (segmentStart >= 0
+                    && index - segmentEnd - 1 <= mergeGapTradingDays
+                    && index - segmentStart + 1 <= maxSegmentTradingDays) {
+                segmentEnd = index;
+                continue;
+            }
+            if (segmentStart >= 0) {
+                segments.add(new DateSegment(tradingDates[segmentStart], tradingDates[segmentEnd]));
+            }
+            segmentStart = index;
+            segmentEnd = index;
+        }
+        if (segmentStart >= 0) {
+            segments.add(new DateSegment(tradingDates[segmentStart], tradingDates[segmentEnd]));
+        }
+        return segments;
+    }
+}
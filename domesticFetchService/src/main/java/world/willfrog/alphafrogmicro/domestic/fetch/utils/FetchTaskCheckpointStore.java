@@ -0,0 +1,138 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分片任务的检查点，保存在 Redis 中：
+ * <ul>
+ *     <li>fetch:task:{uuid}:meta —— 分片总数等元信息</li>
+ *     <li>fetch:task:{uuid}:done / :failed —— 已完成、失败的分片序号</li>
+ *     <li>fetch:task:{uuid}:rows —— 已入库行数</li>
+ * </ul>
+ * 分片在执行完成后才写入 done 并确认消息，进程重启后 Kafka 重新投递未确认的分片，已完成的分片直接跳过；
+ * 同一 task_uuid 的任务再次提交时只重新发布未完成的分片。
+ */
+@Component
+public class FetchTaskCheckpointStore {
+
+    private static final String PREFIX = "fetch:task:";
+
+    /**
+     * 父任务的执行进度；分片全部结束前为 running
+     */
+    public record Progress(int total, int done, int failed, long rows) {
+
+        public boolean finished() {
+            return done + failed >= total;
+        }
+
+        public String status() {
+            if (!finished()) {
+                return "running";
+            }
+            if (failed == 0) {
+                return "success";
+            }
+            return done > 0 ? "partial" : "failure";
+        }
+
+        public int fetchedItemsCount() {
+            return finished() && done == 0 ? -1 : (int) Math.min(Integer.MAX_VALUE, rows);
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public FetchTaskCheckpointStore(StringRedisTemplate redisTemplate,
+                                    @Value("${advanced.fetch-chunk.checkpoint-ttl-hours:168}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+    }
+
+    /**
+     * 登记父任务，返回已完成的分片序号；分片数与已有检查点不一致（参数被修改）时重新开始
+     */
+    public Set<Integer> start(String taskUuid, int chunkTotal) {
+        String metaKey = metaKey(taskUuid);
+        Object existingTotal = redisTemplate.opsForHash().get(metaKey, "chunk_total");
+        if (existingTotal != null && Integer.parseInt(existingTotal.toString()) != chunkTotal) {
+            redisTemplate.delete(Set.of(metaKey, doneKey(taskUuid), failedKey(taskUuid), rowsKey(taskUuid)));
+        }
+        redisTemplate.opsForHash().putAll(metaKey, Map.of("chunk_total", String.valueOf(chunkTotal),
+                "started_at", String.valueOf(System.currentTimeMillis())));
+        // 重新提交时失败的分片会再次执行
+        redisTemplate.delete(failedKey(taskUuid));
+        touch(taskUuid);
+
+        Set<Integer> completed = new HashSet<>();
+        Set<String> members = redisTemplate.opsForSet().members(doneKey(taskUuid));
+        if (members != null) {
+            members.forEach(member -> completed.add(Integer.parseInt(member)));
+        }
+        return completed;
+    }
+
+    public boolean isDone(String taskUuid, int chunkIndex) {
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(doneKey(taskUuid), String.valueOf(chunkIndex)));
+    }
+
+    public Progress complete(String taskUuid, int chunkIndex, int rows) {
+        Long added = redisTemplate.opsForSet().add(doneKey(taskUuid), String.valueOf(chunkIndex));
+        redisTemplate.opsForSet().remove(failedKey(taskUuid), String.valueOf(chunkIndex));
+        // 重复投递的分片不重复计行数
+        if (added != null && added > 0 && rows > 0) {
+            redisTemplate.opsForValue().increment(rowsKey(taskUuid), rows);
+        }
+        touch(taskUuid);
+        return progress(taskUuid);
+    }
+
+    public Progress fail(String taskUuid, int chunkIndex) {
+        if (!isDone(taskUuid, chunkIndex)) {
+            redisTemplate.opsForSet().add(failedKey(taskUuid), String.valueOf(chunkIndex));
+        }
+        touch(taskUuid);
+        return progress(taskUuid);
+    }
+
+    public Progress progress(String taskUuid) {
+        Object total = redisTemplate.opsForHash().get(metaKey(taskUuid), "chunk_total");
+        Long done = redisTemplate.opsForSet().size(doneKey(taskUuid));
+        Long failed = redisTemplate.opsForSet().size(failedKey(taskUuid));
+        String rows = redisTemplate.opsForValue().get(rowsKey(taskUuid));
+        return new Progress(total == null ? 0 : Integer.parseInt(total.toString()),
+                done == null ? 0 : done.intValue(),
+                failed == null ? 0 : failed.intValue(),
+                rows == null ? 0 : Long.parseLong(rows));
+    }
+
+    private void touch(String taskUuid) {
+        for (String key : new String[]{metaKey(taskUuid), doneKey(taskUuid), failedKey(taskUuid), rowsKey(taskUuid)}) {
+            redisTemplate.expire(key, ttl);
+        }
+    }
+
+    private static String metaKey(String taskUuid) {
+        return PREFIX + taskUuid + ":meta";
+    }
+
+    private static String doneKey(String taskUuid) {
+        return PREFIX + taskUuid + ":done";
+    }
+
+    private static String failedKey(String taskUuid) {
+        return PREFIX + taskUuid + ":failed";
+    }
+
+    private static String rowsKey(String taskUuid) {
+        return PREFIX + taskUuid + ":rows";
+    }
+}
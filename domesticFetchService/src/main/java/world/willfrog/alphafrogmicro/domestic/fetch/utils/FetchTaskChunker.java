@@ -0,0 +1,115 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 把大区间抓取任务拆成（代码批次 × 日期窗口）的分片。
+ * <p>
+ * 代码批次沿用任务原有的 offset/limit 语义，日期窗口按自然日切分 start/end_date_timestamp。
+ * 分片沿用父任务的 task_uuid，另带 chunk_index / chunk_total，执行结果记在 {@link FetchTaskCheckpointStore} 中。
+ */
+@Component
+public class FetchTaskChunker {
+
+    public static final String CHUNK_INDEX = "chunk_index";
+    public static final String CHUNK_TOTAL = "chunk_total";
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final boolean enabled;
+    private final Set<String> chunkTasks = new HashSet<>();
+    private final int symbolBatchSize;
+    private final int dateWindowDays;
+
+    public FetchTaskChunker(@Value("${advanced.fetch-chunk.enabled:true}") boolean enabled,
+                            @Value("${advanced.fetch-chunk.tasks:index_quote:2,index_weight:1,stock_quote:1,fund_portfolio:1}")
+                            List<String> chunkTasks,
+                            @Value("${advanced.fetch-chunk.symbol-batch-size:200}") int symbolBatchSize,
+                            @Value("${advanced.fetch-chunk.date-window-days:366}") int dateWindowDays) {
+        this.enabled = enabled;
+        for (String task : chunkTasks) {
+            if (task != null && !task.isBlank()) {
+                this.chunkTasks.add(task.trim());
+            }
+        }
+        this.symbolBatchSize = Math.max(1, symbolBatchSize);
+        this.dateWindowDays = Math.max(1, dateWindowDays);
+    }
+
+    public static boolean isChunk(JSONObject task) {
+        return task.containsKey(CHUNK_INDEX);
+    }
+
+    /**
+     * 需要拆分的父任务：已启用、属于配置的任务类型、带 task_uuid 且本身不是分片
+     */
+    public boolean isChunkable(JSONObject task) {
+        if (!enabled || isChunk(task)) {
+            return false;
+        }
+        String taskUuid = task.getString("task_uuid");
+        return taskUuid != null && !taskUuid.isBlank()
+                && chunkTasks.contains(task.getString("task_name") + ":" + task.getIntValue("task_sub_type"));
+    }
+
+    public List<JSONObject> split(JSONObject task) {
+        return split(task, symbolBatchSize, dateWindowDays);
+    }
+
+    static List<JSONObject> split(JSONObject task, int symbolBatchSize, int dateWindowDays) {
+        JSONObject taskParams = task.getJSONObject("task_params");
+        if (taskParams == null) {
+            taskParams = new JSONObject();
+        }
+        long startDate = taskParams.getLongValue("start_date_timestamp");
+        long endDate = taskParams.getLongValue("end_date_timestamp");
+        int offset = taskParams.getIntValue("offset");
+        int limit = taskParams.getIntValue("limit");
+
+        List<long[]> windows = new ArrayList<>();
+        long windowMs = dateWindowDays * DAY_MS;
+        for (long windowStart = startDate; ; windowStart += windowMs) {
+            long windowEnd = Math.min(endDate, windowStart + windowMs - DAY_MS);
+            windows.add(new long[]{windowStart, windowEnd});
+            if (windowEnd >= endDate) {
+                break;
+            }
+        }
+
+        List<int[]> batches = new ArrayList<>();
+        if (limit <= 0) {
+            batches.add(new int[]{offset, limit});
+        } else {
+            for (int i = 0; i < limit; i += symbolBatchSize) {
+                batches.add(new int[]{offset + i, Math.min(symbolBatchSize, limit - i)});
+            }
+        }
+
+        int total = windows.size() * batches.size();
+        List<JSONObject> chunks = new ArrayList<>(total);
+        for (long[] window : windows) {
+            for (int[] batch : batches) {
+                JSONObject chunkParams = new JSONObject(new LinkedHashMap<>(taskParams));
+                chunkParams.put("start_date_timestamp", window[0]);
+                chunkParams.put("end_date_timestamp", window[1]);
+                chunkParams.put("offset", batch[0]);
+                chunkParams.put("limit", batch[1]);
+
+                JSONObject chunk = new JSONObject(new LinkedHashMap<>(task));
+                chunk.put("task_params", chunkParams);
+                chunk.put(CHUNK_INDEX, chunks.size());
+                chunk.put(CHUNK_TOTAL, total);
+                chunks.add(chunk);
+            }
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,53 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 抓取任务的优先级通道划分。
+ * <p>
+ * 生产方仍只向 fetch_topic 投递；快通道消费者收到属于批量通道的任务（按 task_name:task_sub_type 配置，
+ * 例如多年指数权重、全市场区间行情回补）后转发到批量 topic，由独立的监听容器执行，
+ * 避免长任务阻塞单日行情、基础信息等短任务。
+ */
+@Component
+public class FetchTaskLanes {
+
+    private final String quickTopic;
+    private final String bulkTopic;
+    private final Set<String> bulkTasks = new HashSet<>();
+
+    public FetchTaskLanes(@Value("${advanced.fetch-consumer.quick.topic:fetch_topic}") String quickTopic,
+                          @Value("${advanced.fetch-consumer.bulk.topic:fetch_topic_bulk}") String bulkTopic,
+                          @Value("${advanced.fetch-consumer.bulk.tasks:index_quote:2,index_weight:1,stock_quote:1,fund_portfolio:1}")
+                          List<String> bulkTasks) {
+        this.quickTopic = quickTopic;
+        this.bulkTopic = bulkTopic;
+        for (String task : bulkTasks) {
+            if (task != null && !task.isBlank()) {
+                this.bulkTasks.add(task.trim());
+            }
+        }
+    }
+
+    public String getQuickTopic() {
+        return quickTopic;
+    }
+
+    public String getBulkTopic() {
+        return bulkTopic;
+    }
+
+    public boolean isBulk(JSONObject task) {
+        return isBulk(task.getString("task_name"), task.getIntValue("task_sub_type"));
+    }
+
+    public boolean isBulk(String taskName, int taskSubType) {
+        return taskName != null && bulkTasks.contains(taskName + ":" + taskSubType);
+    }
+}
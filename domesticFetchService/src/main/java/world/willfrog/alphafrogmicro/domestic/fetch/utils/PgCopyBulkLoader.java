@@ -0,0 +1,271 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson.JSONArray;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 日频行情/净值的 COPY 批量入库通道。
+ * <p>
+ * 直接把 TuShare 返回的 items 逐行编码为 CSV，经 PgJDBC COPY 流式写入事务内的临时暂存表
+ * （临时表不写 WAL，与 UNLOGGED 表同样免日志，且各消费线程互不干扰），再以一条
+ * INSERT ... SELECT ... ON CONFLICT DO NOTHING 合并进目标表，语义与逐行 INSERT 一致。
+ * 是否启用按数据集配置（advanced.bulk-load.copy-datasets），未启用的数据集仍走 MyBatis 批量插入。
+ */
+@Component
+@Slf4j
+public class PgCopyBulkLoader {
+
+    /**
+     * 数据集对应的目标列；列名与 TuShare 字段名一致，DATE_COLUMNS 中的列需要由 yyyyMMdd 转为毫秒时间戳
+     */
+    private static final Map<TradeDateBitmap.Dataset, List<String>> COLUMNS = new EnumMap<>(Map.of(
+            TradeDateBitmap.Dataset.STOCK_DAILY, List.of("ts_code", "trade_date", "close", "open", "high", "low",
+                    "pre_close", "change", "pct_chg", "vol", "amount"),
+            TradeDateBitmap.Dataset.INDEX_DAILY, List.of("ts_code", "trade_date", "close", "open", "high", "low",
+                    "pre_close", "change", "pct_chg", "vol", "amount"),
+            TradeDateBitmap.Dataset.FUND_NAV, List.of("ts_code", "ann_date", "nav_date", "unit_nav", "accum_nav",
+                    "accum_div", "net_asset", "total_net_asset", "adj_nav")
+    ));
+    private static final Set<String> DATE_COLUMNS = Set.of("trade_date", "ann_date", "nav_date");
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final TradeDateBitmapStore tradeDateBitmapStore;
+    private final Set<TradeDateBitmap.Dataset> enabledDatasets = EnumSet.noneOf(TradeDateBitmap.Dataset.class);
+
+    public PgCopyBulkLoader(DataSource dataSource,
+                            TradeDateBitmapStore tradeDateBitmapStore,
+                            @Value("${advanced.bulk-load.copy-datasets:STOCK_DAILY,INDEX_DAILY,FUND_NAV}") List<String> copyDatasets) {
+        this.dataSource = dataSource;
+        this.tradeDateBitmapStore = tradeDateBitmapStore;
+        for (String name : copyDatasets) {
+            if (name != null && !name.isBlank()) {
+                enabledDatasets.add(TradeDateBitmap.Dataset.valueOf(name.trim().toUpperCase()));
+            }
+        }
+        log.info("COPY bulk load enabled for datasets: {}", enabledDatasets);
+    }
+
+    public boolean isEnabled(TradeDateBitmap.Dataset dataset) {
+        return enabledDatasets.contains(dataset);
+    }
+
+    /**
+     * 将 TuShare 原始输出批量写入数据集对应的表，提交后更新已入库日期位图。
+     *
+     * @param fields TuShare 返回的字段名；为 null 时按目标列顺序逐位对应（基金净值的全列输出）
+     * @return 写入暂存表的行数；-1 表示原始数据转换失败，-2 表示入库失败
+     */
+    public int load(TradeDateBitmap.Dataset dataset, JSONArray data, JSONArray fields) {
+        if (data == null || data.isEmpty()) {
+            return 0;
+        }
+        List<String> columns = COLUMNS.get(dataset);
+        int[] sourceIndexes = sourceIndexes(columns, fields);
+        int codeIndex = columns.indexOf(dataset.getCodeColumn());
+        int dateIndex = columns.indexOf(dataset.getDateColumn());
+        return copy(dataset, data.size(), (writer, presentDates) -> {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < data.size(); i++) {
+                convertRow(columns, sourceIndexes, data.getJSONArray(i), row);
+                writeCsvRow(writer, row);
+                if (row[codeIndex] != null && row[dateIndex] != null) {
+                    presentDates.computeIfAbsent((String) row[codeIndex], k -> new ArrayList<>())
+                            .add((Long) row[dateIndex]);
+                }
+            }
+        });
+    }
+
+    /**
+     * 将已解码的列批次写入数据集对应的表；批次的列必须与数据集的目标列一致（同名同序）。
+     * 数值直接从原始类型列缓冲编码为 CSV，不经过逐行的 Object[] 转换。
+     *
+     * @return 写入暂存表的行数；-1 表示批次的列与数据集不符，-2 表示入库失败
+     */
+    public int load(TradeDateBitmap.Dataset dataset, TuShareRowBatch batch) {
+        if (batch == null || batch.size() == 0) {
+            return 0;
+        }
+        TuShareColumns columns = batch.columns();
+        if (!columns.names().equals(COLUMNS.get(dataset))) {
+            log.error("Row batch columns {} do not match dataset {}", columns.names(), dataset);
+            return -1;
+        }
+        int codeIndex = columns.indexOf(dataset.getCodeColumn());
+        int dateIndex = columns.indexOf(dataset.getDateColumn());
+        return copy(dataset, batch.size(), (writer, presentDates) -> {
+            for (int row = 0; row < batch.size(); row++) {
+                writeCsvRow(writer, batch, row);
+                if (!batch.isNull(codeIndex, row) && !batch.isNull(dateIndex, row)) {
+                    presentDates.computeIfAbsent(batch.getString(codeIndex, row), k -> new ArrayList<>())
+                            .add(batch.getDate(dateIndex, row));
+                }
+            }
+        });
+    }
+
+    /**
+     * 向 COPY 流写入全部行，同时收集各代码已写入的日期
+     */
+    @FunctionalInterface
+    private interface CopyRowsWriter {
+        void write(Writer writer, Map<String, List<Long>> presentDates) throws IOException;
+    }
+
+    private int copy(TradeDateBitmap.Dataset dataset, int rowCount, CopyRowsWriter rowsWriter) {
+        String columnList = String.join(", ", COLUMNS.get(dataset));
+        String stagingTable = "staging_" + dataset.getTableName();
+        Map<String, List<Long>> presentDates = new HashMap<>();
+
+        long startMs = System.currentTimeMillis();
+        int inserted;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE " + stagingTable + " ON COMMIT DROP AS " +
+                        "SELECT " + columnList + " FROM " + dataset.getTableName() + " WITH NO DATA");
+
+                String copySql = "COPY " + stagingTable + " (" + columnList + ") FROM STDIN WITH (FORMAT csv)";
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(
+                        connection.unwrap(PGConnection.class), copySql, COPY_BUFFER_BYTES), StandardCharsets.UTF_8))) {
+                    rowsWriter.write(writer, presentDates);
+                }
+
+                inserted = statement.executeUpdate("INSERT INTO " + dataset.getTableName() + " (" + columnList + ") " +
+                        "SELECT " + columnList + " FROM " + stagingTable + " ON CONFLICT DO NOTHING");
+                connection.commit();
+            } catch (RowConversionException e) {
+                connection.rollback();
+                log.error("Error occurred while converting raw TuShare data for COPY, dataset={}", dataset, e);
+                return -1;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (Exception e) {
+            log.error("Error occurred while bulk loading data with COPY, dataset={}", dataset, e);
+            return -2;
+        }
+
+        log.info("COPY bulk load finished: dataset={}, rows={}, inserted={}, cost_ms={}",
+                dataset, rowCount, inserted, System.currentTimeMillis() - startMs);
+        tradeDateBitmapStore.markPresent(dataset, presentDates);
+        return rowCount;
+    }
+
+    /**
+     * 目标列在 TuShare 字段中的下标，缺失的列为 -1（写入 NULL）
+     */
+    static int[] sourceIndexes(List<String> columns, JSONArray fields) {
+        int[] indexes = new int[columns.size()];
+        for (int c = 0; c < columns.size(); c++) {
+            indexes[c] = fields == null ? c : fields.indexOf(columns.get(c));
+        }
+        return indexes;
+    }
+
+    static void convertRow(List<String> columns, int[] sourceIndexes, JSONArray item, Object[] row) {
+        for (int c = 0; c < columns.size(); c++) {
+            int index = sourceIndexes[c];
+            Object value = index < 0 || index >= item.size() ? null : item.get(index);
+            if (value != null && DATE_COLUMNS.contains(columns.get(c))) {
+                Long timestamp = DateConvertUtils.convertDateStrToLong(value.toString(), "yyyyMMdd");
+                if (timestamp == null || timestamp == -1L) {
+                    throw new RowConversionException("Invalid date " + value + " for column " + columns.get(c));
+                }
+                value = timestamp;
+            }
+            row[c] = value;
+        }
+    }
+
+    /**
+     * 按 PostgreSQL CSV 格式写一行：未加引号的空字段为 NULL，字符串一律加引号以区分空串
+     */
+    static void writeCsvRow(Writer writer, Object[] row) throws IOException {
+        for (int c = 0; c < row.length; c++) {
+            if (c > 0) {
+                writer.write(',');
+            }
+            Object value = row[c];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof BigDecimal decimal) {
+                writer.write(decimal.toPlainString());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else {
+                writeQuoted(writer, value.toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * 按 PostgreSQL CSV 格式写批次中的一行；日期列写毫秒时间戳，数值列按 double 的最短表示写出
+     */
+    static void writeCsvRow(Writer writer, TuShareRowBatch batch, int row) throws IOException {
+        TuShareColumns columns = batch.columns();
+        for (int c = 0; c < columns.size(); c++) {
+            if (c > 0) {
+                writer.write(',');
+            }
+            if (batch.isNull(c, row)) {
+                continue;
+            }
+            switch (columns.type(c)) {
+                case STRING -> writeQuoted(writer, batch.getString(c, row));
+                case DATE -> writer.write(Long.toString(batch.getDate(c, row)));
+                case DOUBLE -> writer.write(Double.toString(batch.getDouble(c, row)));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void writeQuoted(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') {
+                writer.write('"');
+            }
+            writer.write(ch);
+        }
+        writer.write('"');
+    }
+
+    private static class RowConversionException extends RuntimeException {
+        private RowConversionException(String message) {
+            super(message);
+        }
+    }
+}
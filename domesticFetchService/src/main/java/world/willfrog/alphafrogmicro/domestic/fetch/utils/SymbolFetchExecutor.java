@@ -0,0 +1,142 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按代码并行执行“请求 TuShare + 入库”的抓取任务。
+ * <p>
+ * 所有抓取任务共享一个有界线程池，并发度由 advanced.symbol-fetch.parallelism 控制，
+ * 实际请求速率仍由 {@link TuShareRateGovernor} 约束。每个代码在同一线程内先请求后入库，
+ * 因此一个代码入库时其他代码的请求仍在进行。单个代码失败只记录下来，不会中断整批，
+ * 执行过程中按约 10% 的步长输出进度。
+ */
+@Component
+@Slf4j
+public class SymbolFetchExecutor {
+
+    /**
+     * 单个代码的抓取与入库，返回入库行数；负数表示失败
+     */
+    @FunctionalInterface
+    public interface SymbolTask {
+        int fetchAndStore(String symbol) throws Exception;
+    }
+
+    /**
+     * 一批代码的执行结果；被中断时未完成的代码也计为失败，但不出现在 failedSymbols 中
+     */
+    public record Report(int total, int succeeded, int storedRows, List<String> failedSymbols) {
+
+        public boolean hasFailures() {
+            return succeeded < total;
+        }
+
+        /**
+         * success：全部成功；partial：部分成功；failure：全部失败
+         */
+        public String status() {
+            if (!hasFailures()) {
+                return "success";
+            }
+            return succeeded > 0 ? "partial" : "failure";
+        }
+
+        /**
+         * 沿用原有约定：全部失败时返回 -1，否则返回已入库行数
+         */
+        public int fetchedItemsCount() {
+            return total > 0 && succeeded == 0 ? -1 : storedRows;
+        }
+    }
+
+    private final ExecutorService executor;
+
+    public SymbolFetchExecutor(@Value("${advanced.symbol-fetch.parallelism:4}") int parallelism) {
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "symbol-fetch-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Report run(String taskName, List<String> symbols, SymbolTask task) {
+        int total = symbols.size();
+        if (total == 0) {
+            return new Report(0, 0, 0, List.of());
+        }
+        long startMs = System.currentTimeMillis();
+        CompletionService<SymbolResult> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<SymbolResult>> futures = new ArrayList<>(total);
+        for (String symbol : symbols) {
+            futures.add(completionService.submit(() -> runOne(taskName, symbol, task)));
+        }
+
+        int succeeded = 0;
+        int storedRows = 0;
+        List<String> failedSymbols = new ArrayList<>();
+        int progressStep = Math.max(1, total / 10);
+        int completed = 0;
+        try {
+            for (; completed < total; completed++) {
+                SymbolResult result = completionService.take().get();
+                if (result.rows() >= 0) {
+                    succeeded++;
+                    storedRows += result.rows();
+                } else {
+                    failedSymbols.add(result.symbol());
+                }
+                if ((completed + 1) % progressStep == 0 && completed + 1 < total) {
+                    log.info("Symbol fetch progress: task={}, completed={}/{}, failed={}, stored_rows={}",
+                            taskName, completed + 1, total, failedSymbols.size(), storedRows);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            log.warn("Symbol fetch interrupted: task={}, completed={}/{}", taskName, completed, total);
+        } catch (Exception e) {
+            // runOne 已捕获任务异常，这里只会是取消等意外情况
+            futures.forEach(future -> future.cancel(true));
+            log.error("Symbol fetch aborted: task={}", taskName, e);
+        }
+        Report report = new Report(total, succeeded, storedRows, failedSymbols);
+        if (report.hasFailures()) {
+            log.warn("Symbol fetch finished with failures: task={}, succeeded={}/{}, stored_rows={}, cost_ms={}, failed={}",
+                    taskName, succeeded, total, storedRows, System.currentTimeMillis() - startMs, failedSymbols);
+        } else {
+            log.info("Symbol fetch finished: task={}, symbols={}, stored_rows={}, cost_ms={}",
+                    taskName, total, storedRows, System.currentTimeMillis() - startMs);
+        }
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static SymbolResult runOne(String taskName, String symbol, SymbolTask task) {
+        try {
+            return new SymbolResult(symbol, task.fetchAndStore(symbol));
+        } catch (Exception e) {
+            log.error("Symbol fetch failed: task={}, symbol={}", taskName, symbol, e);
+            return new SymbolResult(symbol, -1);
+        }
+    }
+
+    private record SymbolResult(String symbol, int rows) {
+    }
+}
@@ -0,0 +1,71 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解码 TuShare 响应时的目标列：列名与 TuShare 字段名一致，类型决定写入哪种列缓冲
+ */
+public final class TuShareColumns {
+
+    public enum Type {
+        STRING,
+        /**
+         * yyyyMMdd 字符串，解码为毫秒时间戳
+         */
+        DATE,
+        DOUBLE
+    }
+
+    /**
+     * 日线行情（股票、指数），列顺序与 alphafrog_stock_daily / alphafrog_index_daily 的 COPY 列一致
+     */
+    public static final TuShareColumns DAILY_BAR = new TuShareColumns(
+            new String[]{"ts_code", "trade_date", "close", "open", "high", "low", "pre_close", "change", "pct_chg",
+                    "vol", "amount"},
+            new Type[]{Type.STRING, Type.DATE, Type.DOUBLE, Type.DOUBLE, Type.DOUBLE, Type.DOUBLE, Type.DOUBLE,
+                    Type.DOUBLE, Type.DOUBLE, Type.DOUBLE, Type.DOUBLE});
+
+    private final String[] names;
+    private final Type[] types;
+
+    public TuShareColumns(String[] names, Type[] types) {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("Column names and types differ in length");
+        }
+        this.names = names.clone();
+        this.types = types.clone();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int column) {
+        return names[column];
+    }
+
+    public Type type(int column) {
+        return types[column];
+    }
+
+    public int indexOf(String name) {
+        for (int c = 0; c < names.length; c++) {
+            if (names[c].equals(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(List.of(names));
+    }
+
+    /**
+     * 请求参数中的 fields
+     */
+    public String fieldList() {
+        return String.join(",", names);
+    }
+}
@@ -0,0 +1,149 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import world.willfrog.alphafrogmicro.domestic.fetch.config.TuShareRateLimitProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 按 api_name 划分的令牌桶限速器，所有抓取线程共享。
+ * <p>
+ * 每个接口的速率取配置的每分钟上限乘以安全系数，桶容量为一秒的令牌量，允许小幅突发。
+ * 令牌不足时调用方按预约的时间等待，因此多个并发线程合计也不会超过速率。
+ * 收到“超出频率限制”的返回码时：该接口暂停一段指数增长的退避时间，速率减半；
+ * 之后每次成功调用恢复 5% 的配置速率，直到回到配置值（加性增、乘性减）。
+ */
+@Slf4j
+public class TuShareRateGovernor {
+
+    private static final double MIN_RATE_RATIO = 0.1;
+    private static final double RECOVER_RATIO = 0.05;
+
+    private final TuShareRateLimitProperties properties;
+    private final LongSupplier nanoClock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public TuShareRateGovernor(TuShareRateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    TuShareRateGovernor(TuShareRateLimitProperties properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 取得一个调用许可，必要时阻塞等待；线程被中断时恢复中断标记并立即返回
+     */
+    public void acquire(String apiName) {
+        long waitNanos = reserveNanos(apiName);
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for TuShare rate limit, api_name={}", apiName);
+        }
+    }
+
+    /**
+     * 预约一个令牌，返回需要等待的纳秒数
+     */
+    long reserveNanos(String apiName) {
+        return bucket(apiName).reserve(nanoClock.getAsLong());
+    }
+
+    public boolean isLimitExceeded(Integer code, String msg) {
+        if (code != null && properties.getLimitExceededCodes().contains(code)) {
+            return true;
+        }
+        return msg != null && msg.contains("最多访问该接口");
+    }
+
+    /**
+     * 记录一次被限流，返回该接口的暂停时长（毫秒）
+     */
+    public long onLimitExceeded(String apiName) {
+        long backoffMs = bucket(apiName).penalize(nanoClock.getAsLong(),
+                properties.getInitialBackoffMs(), properties.getMaxBackoffMs());
+        log.warn("TuShare rate limit exceeded, api_name={}, backoff_ms={}, rate_per_minute={}",
+                apiName, backoffMs, Math.round(bucket(apiName).ratePerSecond() * 60));
+        return backoffMs;
+    }
+
+    public void onSuccess(String apiName) {
+        bucket(apiName).recover();
+    }
+
+    public int getMaxRetries() {
+        return properties.getMaxRetries();
+    }
+
+    double ratePerSecond(String apiName) {
+        return bucket(apiName).ratePerSecond();
+    }
+
+    private Bucket bucket(String apiName) {
+        return buckets.computeIfAbsent(apiName, name -> {
+            int perMinute = properties.getPerMinute().getOrDefault(name, properties.resolveDefaultPerMinute());
+            double ratePerSecond = Math.max(perMinute * properties.getSafetyRatio(), 1) / 60.0;
+            return new Bucket(ratePerSecond, nanoClock.getAsLong());
+        });
+    }
+
+    private static final class Bucket {
+        private final double baseRatePerSecond;
+        private final double capacity;
+        private double ratePerSecond;
+        private double tokens;
+        // 令牌结算到的时刻；限流暂停期间被推到未来，暂停结束前不产生令牌
+        private long refilledAtNanos;
+        private int consecutiveLimits;
+
+        private Bucket(double ratePerSecond, long nowNanos) {
+            this.baseRatePerSecond = ratePerSecond;
+            this.ratePerSecond = ratePerSecond;
+            this.capacity = Math.max(1.0, ratePerSecond);
+            this.tokens = capacity;
+            this.refilledAtNanos = nowNanos;
+        }
+
+        private synchronized long reserve(long nowNanos) {
+            refill(nowNanos);
+            tokens -= 1;
+            long pauseNanos = Math.max(0, refilledAtNanos - nowNanos);
+            long deficitNanos = tokens < 0 ? (long) Math.ceil(-tokens / ratePerSecond * 1e9) : 0;
+            return pauseNanos + deficitNanos;
+        }
+
+        private synchronized long penalize(long nowNanos, long initialBackoffMs, long maxBackoffMs) {
+            long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(consecutiveLimits, 16));
+            consecutiveLimits++;
+            ratePerSecond = Math.max(baseRatePerSecond * MIN_RATE_RATIO, ratePerSecond / 2);
+            tokens = 0;
+            refilledAtNanos = Math.max(refilledAtNanos, nowNanos + TimeUnit.MILLISECONDS.toNanos(backoffMs));
+            return backoffMs;
+        }
+
+        private synchronized void recover() {
+            consecutiveLimits = 0;
+            ratePerSecond = Math.min(baseRatePerSecond, ratePerSecond + baseRatePerSecond * RECOVER_RATIO);
+        }
+
+        private synchronized double ratePerSecond() {
+            return ratePerSecond;
+        }
+
+        private void refill(long nowNanos) {
+            if (nowNanos > refilledAtNanos) {
+                tokens = Math.min(capacity, tokens + (nowNanos - refilledAtNanos) / 1e9 * ratePerSecond);
+                refilledAtNanos = nowNanos;
+            }
+        }
+    }
+}
@@ -1,111 +1,143 @@
 package world.willfrog.alphafrogmicro.domestic.fetch.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.HttpEntity;
 
 
+import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.alibaba.fastjson.JSONArray;
 
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * TuShare HTTP 接口调用。
+ * 共享 {@link world.willfrog.alphafrogmicro.domestic.fetch.config.TuShareHttpClientConfig} 中的连接池客户端。
+ * {@link #fetchRowBatch} 从（自动解压的）输入流边读边解码为列批次；{@link #createTusharePostRequest} 返回 JSONObject，
+ * fastjson 解析时仍会把整个响应体读入内存，只是省去了先转成字符串的一次拷贝。
+ */
 @Component
 @Slf4j
 //@PropertySource("classpath:application.yml")
 public class TuShareRequestUtils {
 
+    private static final String TUSHARE_API_URL = "http://api.tushare.pro";
+
     @Value("${tushare.token}")
     private String tushareToken;
 
     private static final int MAX_LOG_BODY_LENGTH = 8000;
 
+    private final CloseableHttpClient tuShareHttpClient;
+    private final TuShareRateGovernor tuShareRateGovernor;
+
+    public TuShareRequestUtils(CloseableHttpClient tuShareHttpClient,
+                               TuShareRateGovernor tuShareRateGovernor) {
+        this.tuShareHttpClient = tuShareHttpClient;
+        this.tuShareRateGovernor = tuShareRateGovernor;
+    }
+
+    /**
+     * 发起请求前按 api_name 取得限速许可；返回“超出频率限制”时退避后重试，重试用尽则原样返回该响应
+     */
     public JSONObject createTusharePostRequest(Map<String, Object> params) {
-        try ( CloseableHttpClient httpClient = HttpClients.createDefault() ) {
-            HttpPost request = new HttpPost("http://api.tushare.pro");
-            request.setHeader("Content-Type", "application/json");
-
-            JSONObject jsonParams = new JSONObject();
-            jsonParams.put("token", tushareToken);
-            jsonParams.putAll(params);
-            String jsonParamsString = jsonParams.toString();
-//            if (log.isDebugEnabled()) {
-//                JSONObject safeParams = new JSONObject(jsonParams);
-//                safeParams.put("token", maskToken(tushareToken));
-//                log.debug("TuShare raw request payload: {}", safeParams.toString());
-//                log.debug("TuShare request payload length: {}", jsonParamsString.length());
-//                if (tushareToken == null || tushareToken.isBlank()) {
-//                    log.debug("TuShare token is empty");
-//                }
-//            }
-            StringEntity entity = new StringEntity(jsonParamsString, ContentType.APPLICATION_JSON);
-            request.setEntity(entity);
-
-            long startMs = System.currentTimeMillis();
-            try ( ClassicHttpResponse response = httpClient.execute(request) ) {
-                HttpEntity responseEntity = response.getEntity();
-                if (responseEntity != null) {
-                    String responseBody = EntityUtils.toString(responseEntity);
-                    long costMs = System.currentTimeMillis() - startMs;
-//                    if (log.isDebugEnabled()) {
-//                        log.debug("TuShare response status={} cost_ms={} body_len={}",
-//                                response.getCode(), costMs, responseBody.length());
-//                        log.debug("TuShare raw response body: {}", trimBody(responseBody));
-//                    }
-//                    if (response.getCode() != 200) {
-//                        log.warn("TuShare HTTP status not OK: {}", response.getCode());
-//                    }
-                    JSONObject responseJson = JSONObject.parseObject(responseBody);
-                    if (responseJson == null) {
-                        log.warn("TuShare response is not JSON");
-                        return null;
-                    }
-
-                    Integer code = responseJson.getInteger("code");
-                    String msg = responseJson.getString("msg");
-                    JSONObject dataObject = responseJson.getJSONObject("data");
-                    JSONArray fetchedFields = dataObject == null ? null : dataObject.getJSONArray("fields");
-                    JSONArray fetchedData = dataObject == null ? null : dataObject.getJSONArray("items");
-                    int fieldsSize = fetchedFields == null ? 0 : fetchedFields.size();
-                    int dataSize = fetchedData == null ? 0 : fetchedData.size();
-//                    if (log.isDebugEnabled()) {
-//                        log.debug("TuShare response parsed code={} msg={} fields_size={} items_size={}",
-//                                code, msg, fieldsSize, dataSize);
-//                    }
-//                    if (code != null && code != 0) {
-//                        log.warn("TuShare response code not zero: code={} msg={}", code, msg);
-//                    }
-
-                    return responseJson;
-                } else {
-                    log.warn("TuShare response entity is empty, status={}", response.getCode());
-                    return null;
-                }
-            } catch (Exception e) {
-                log.error("Error occurred while fetching data from TuShare!");
-                log.error("jsonParamString: " + jsonParamsString);
-                log.error("Error stack trace", e);
-//                e.printStackTrace();
+        return execute(params, content -> JSON.parseObject(content, StandardCharsets.UTF_8, JSONObject.class),
+                responseJson -> responseJson.getInteger("code"), responseJson -> responseJson.getString("msg"));
+    }
+
+    /**
+     * 与 {@link #createTusharePostRequest(Map)} 相同的限速与重试，但响应体由 {@link TuShareResponseDecoder}
+     * 直接解码为按列存放的批次；params 中未指定 fields 时按 columns 补上。HTTP 或解码失败时返回 null
+     */
+    public TuShareRowBatch fetchRowBatch(Map<String, Object> params, TuShareColumns columns) {
+        Map<String, Object> request = params;
+        if (!params.containsKey("fields")) {
+            request = new HashMap<>(params);
+            request.put("fields", columns.fieldList());
+        }
+        return execute(request, content -> TuShareResponseDecoder.decode(content, columns),
+                TuShareRowBatch::getCode, TuShareRowBatch::getMsg);
+    }
+
+    private <T> T execute(Map<String, Object> params, ResponseReader<T> reader,
+                          Function<T, Integer> codeOf, Function<T, String> msgOf) {
+        String apiName = String.valueOf(params.get("api_name"));
+        JSONObject jsonParams = new JSONObject();
+        jsonParams.put("token", tushareToken);
+        jsonParams.putAll(params);
+        String jsonParamsString = jsonParams.toString();
+        // 出错日志只打印脱敏后的请求参数，不输出完整 token
+        jsonParams.put("token", maskToken(tushareToken));
+        String loggableParams = trimBody(jsonParams.toString());
+
+        for (int attempt = 0; ; attempt++) {
+            tuShareRateGovernor.acquire(apiName);
+            T response = post(jsonParamsString, loggableParams, reader);
+            if (response == null) {
                 return null;
             }
+            if (!tuShareRateGovernor.isLimitExceeded(codeOf.apply(response), msgOf.apply(response))) {
+                tuShareRateGovernor.onSuccess(apiName);
+                return response;
+            }
+            tuShareRateGovernor.onLimitExceeded(apiName);
+            if (attempt >= tuShareRateGovernor.getMaxRetries()) {
+                log.warn("TuShare rate limit retries exhausted, api_name={}, msg={}",
+                        apiName, msgOf.apply(response));
+                return response;
+            }
+        }
+    }
 
+    private <T> T post(String jsonParamsString, String loggableParams, ResponseReader<T> reader) {
+        HttpPost request = new HttpPost(TUSHARE_API_URL);
+        request.setHeader("Content-Type", "application/json");
+        StringEntity entity = new StringEntity(jsonParamsString, ContentType.APPLICATION_JSON);
+        request.setEntity(entity);
 
+        try {
+            // 响应处理器返回后连接自动归还连接池
+            return tuShareHttpClient.execute(request, response -> {
+                HttpEntity responseEntity = response.getEntity();
+                if (responseEntity == null) {
+                    log.warn("TuShare response entity is empty, status={}", response.getCode());
+                    return null;
+                }
+                T decoded;
+                try (InputStream content = responseEntity.getContent()) {
+                    decoded = reader.read(content);
+                }
+                if (decoded == null) {
+                    log.warn("TuShare response is not JSON, status={}", response.getCode());
+                    return null;
+                }
+                return decoded;
+            });
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Error occurred while fetching data from TuShare!");
+            log.error("jsonParamString: " + loggableParams);
+            log.error("Error stack trace", e);
             return null;
         }
     }
 
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(InputStream content) throws IOException;
+    }
+
     private String maskToken(String token) {
         if (token == null || token.isBlank()) {
             return "";
@@ -0,0 +1,150 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONReader;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TuShare 响应 {"code", "msg", "data": {"fields", "items"}} 的流式解码器。
+ * <p>
+ * 读到 fields 时一次性算出每个源字段对应的目标列（未请求的字段记为 -1 并跳过），
+ * 之后逐个 token 读取 items，把值直接写入 {@link TuShareRowBatch} 的原始类型列缓冲，
+ * 不构造 JSONArray/JSONObject，也不对每个单元格按字段名分支或装箱。
+ * 同一批内日期字符串重复率很高（单日全市场行情的 trade_date 全部相同），按批缓存转换结果。
+ */
+public final class TuShareResponseDecoder {
+
+    private TuShareResponseDecoder() {
+    }
+
+    public static TuShareRowBatch decode(InputStream content, TuShareColumns columns) throws IOException {
+        try (JSONReader reader = JSONReader.of(content, StandardCharsets.UTF_8)) {
+            return decode(reader, columns);
+        }
+    }
+
+    public static TuShareRowBatch decode(String content, TuShareColumns columns) throws IOException {
+        try (JSONReader reader = JSONReader.of(content)) {
+            return decode(reader, columns);
+        }
+    }
+
+    static TuShareRowBatch decode(JSONReader reader, TuShareColumns columns) throws IOException {
+        TuShareRowBatch batch = new TuShareRowBatch(columns);
+        Integer code = null;
+        String msg = null;
+        try {
+            if (!reader.nextIfObjectStart()) {
+                throw new IOException("TuShare response is not a JSON object");
+            }
+            while (!reader.nextIfObjectEnd()) {
+                String name = reader.readFieldName();
+                switch (name) {
+                    case "code" -> code = reader.nextIfNull() ? null : reader.readInt32Value();
+                    case "msg" -> msg = reader.nextIfNull() ? null : reader.readString();
+                    case "data" -> readData(reader, batch);
+                    default -> reader.skipValue();
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Malformed TuShare response", e);
+        }
+        batch.setStatus(code, msg);
+        return batch;
+    }
+
+    private static void readData(JSONReader reader, TuShareRowBatch batch) throws IOException {
+        if (reader.nextIfNull()) {
+            return;
+        }
+        if (!reader.nextIfObjectStart()) {
+            throw new IOException("TuShare response data is not a JSON object");
+        }
+        int[] targets = null;
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            if ("fields".equals(name)) {
+                targets = readFields(reader, batch.columns());
+            } else if ("items".equals(name)) {
+                if (targets == null) {
+                    throw new IOException("TuShare response items precede fields");
+                }
+                readItems(reader, batch, targets);
+            } else {
+                reader.skipValue();
+            }
+        }
+    }
+
+    /**
+     * 源字段下标到目标列下标的映射，未请求的字段为 -1
+     */
+    private static int[] readFields(JSONReader reader, TuShareColumns columns) throws IOException {
+        if (reader.nextIfNull()) {
+            return new int[0];
+        }
+        if (!reader.nextIfArrayStart()) {
+            throw new IOException("TuShare response fields is not a JSON array");
+        }
+        int[] targets = new int[Math.max(8, columns.size())];
+        int count = 0;
+        while (!reader.nextIfArrayEnd()) {
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, count * 2);
+            }
+            targets[count++] = columns.indexOf(reader.readString());
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    private static void readItems(JSONReader reader, TuShareRowBatch batch, int[] targets) throws IOException {
+        if (reader.nextIfNull()) {
+            return;
+        }
+        if (!reader.nextIfArrayStart()) {
+            throw new IOException("TuShare response items is not a JSON array");
+        }
+        TuShareColumns columns = batch.columns();
+        Map<String, Long> dateCache = new HashMap<>();
+        while (!reader.nextIfArrayEnd()) {
+            if (!reader.nextIfArrayStart()) {
+                throw new IOException("TuShare response item is not a JSON array");
+            }
+            int row = batch.appendRow();
+            int source = 0;
+            while (!reader.nextIfArrayEnd()) {
+                int column = source < targets.length ? targets[source] : -1;
+                source++;
+                if (column < 0) {
+                    reader.skipValue();
+                } else if (!reader.nextIfNull()) {
+                    readCell(reader, batch, columns, column, row, dateCache);
+                }
+            }
+        }
+    }
+
+    private static void readCell(JSONReader reader, TuShareRowBatch batch, TuShareColumns columns,
+                                 int column, int row, Map<String, Long> dateCache) throws IOException {
+        switch (columns.type(column)) {
+            case STRING -> batch.setString(column, row, reader.readString());
+            case DOUBLE -> batch.setDouble(column, row, reader.readDoubleValue());
+            case DATE -> {
+                String value = reader.readString();
+                Long timestamp = dateCache.computeIfAbsent(value,
+                        key -> DateConvertUtils.convertDateStrToLong(key, "yyyyMMdd"));
+                if (timestamp == null || timestamp == -1L) {
+                    throw new IOException("Invalid date " + value + " for column " + columns.name(column));
+                }
+                batch.setDate(column, row, timestamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 按列存放的一批 TuShare 行：字符串列为 String[]，日期列为 long[]（毫秒时间戳），数值列为 double[]，
+ * 空值记在每列的位图中。由 {@link TuShareResponseDecoder} 直接从响应流填充，不经过 JSONArray，数值也不装箱。
+ */
+public final class TuShareRowBatch {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final TuShareColumns columns;
+    private final Object[] buffers;
+    private final BitSet[] nulls;
+    private int size;
+    private int capacity;
+
+    private Integer code;
+    private String msg;
+
+    public TuShareRowBatch(TuShareColumns columns) {
+        this.columns = columns;
+        this.buffers = new Object[columns.size()];
+        this.nulls = new BitSet[columns.size()];
+        this.capacity = INITIAL_CAPACITY;
+        for (int c = 0; c < columns.size(); c++) {
+            buffers[c] = switch (columns.type(c)) {
+                case STRING -> new String[capacity];
+                case DATE -> new long[capacity];
+                case DOUBLE -> new double[capacity];
+            };
+            nulls[c] = new BitSet();
+        }
+    }
+
+    public TuShareColumns columns() {
+        return columns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * TuShare 返回码，0 表示成功
+     */
+    public Integer getCode() {
+        return code;
+    }
+
+    public String getMsg() {
+        return msg;
+    }
+
+    public boolean isSuccess() {
+        return code != null && code == 0;
+    }
+
+    public boolean isNull(int column, int row) {
+        return nulls[column].get(row);
+    }
+
+    public String getString(int column, int row) {
+        return ((String[]) buffers[column])[row];
+    }
+
+    /**
+     * 日期列的毫秒时间戳；空值时为 0，调用前应先用 {@link #isNull(int, int)} 判断
+     */
+    public long getDate(int column, int row) {
+        return ((long[]) buffers[column])[row];
+    }
+
+    /**
+     * 数值列；空值时为 NaN
+     */
+    public double getDouble(int column, int row) {
+        return ((double[]) buffers[column])[row];
+    }
+
+    public Long getDateOrNull(int column, int row) {
+        return isNull(column, row) ? null : getDate(column, row);
+    }
+
+    public Double getDoubleOrNull(int column, int row) {
+        return isNull(column, row) ? null : getDouble(column, row);
+    }
+
+    void setStatus(Integer code, String msg) {
+        this.code = code;
+        this.msg = msg;
+    }
+
+    /**
+     * 追加一行并返回其下标，各列初始为空值，由解码器逐列填写
+     */
+    int appendRow() {
+        if (size == capacity) {
+            grow();
+        }
+        int row = size++;
+        for (int c = 0; c < buffers.length; c++) {
+            nulls[c].set(row);
+            if (buffers[c] instanceof double[] values) {
+                values[row] = Double.NaN;
+            }
+        }
+        return row;
+    }
+
+    void setString(int column, int row, String value) {
+        ((String[]) buffers[column])[row] = value;
+        nulls[column].set(row, value == null);
+    }
+
+    void setDate(int column, int row, long value) {
+        ((long[]) buffers[column])[row] = value;
+        nulls[column].clear(row);
+    }
+
+    void setDouble(int column, int row, double value) {
+        ((double[]) buffers[column])[row] = value;
+        nulls[column].clear(row);
+    }
+
+    private void grow() {
+        capacity = capacity * 2;
+        for (int c = 0; c < buffers.length; c++) {
+            Object buffer = buffers[c];
+            if (buffer instanceof String[] values) {
+                buffers[c] = Arrays.copyOf(values, capacity);
+            } else if (buffer instanceof long[] values) {
+                buffers[c] = Arrays.copyOf(values, capacity);
+            } else {
+                buffers[c] = Arrays.copyOf((double[]) buffer, capacity);
+            }
+        }
+    }
+}
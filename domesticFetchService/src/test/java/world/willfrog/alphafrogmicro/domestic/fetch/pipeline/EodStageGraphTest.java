@@ -0,0 +1,72 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.pipeline;
+
+import com.alibaba.fastjson.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EodStageGraphTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static EodPipelineStage stage(String name, String... dependsOn) {
+        return new EodPipelineStage(name, name, 1, List.of(dependsOn), tradeDate -> new JSONObject());
+    }
+
+    @Test
+    public void runsStagesAfterTheirUpstream() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Map<String, EodStageGraph.StageStatus> statuses = EodStageGraph.execute(List.of(
+                stage("calendar"), stage("info", "calendar"), stage("daily", "info"), stage("nav", "calendar")
+        ), stage -> order.add(stage.name()), executor);
+
+        assertEquals(EodStageGraph.StageStatus.SUCCESS, statuses.get("nav"));
+        assertEquals("calendar", order.get(0));
+        assertTrue(order.indexOf("info") < order.indexOf("daily"));
+    }
+
+    @Test
+    public void skipsDownstreamOfFailedStage() {
+        Set<String> ran = ConcurrentHashMap.newKeySet();
+        Map<String, EodStageGraph.StageStatus> statuses = EodStageGraph.execute(List.of(
+                stage("calendar"), stage("info", "calendar"), stage("daily", "info"), stage("nav", "calendar")
+        ), stage -> {
+            ran.add(stage.name());
+            return !stage.name().equals("info");
+        }, executor);
+
+        assertEquals(EodStageGraph.StageStatus.FAILED, statuses.get("info"));
+        assertEquals(EodStageGraph.StageStatus.SKIPPED, statuses.get("daily"));
+        assertEquals(EodStageGraph.StageStatus.SUCCESS, statuses.get("nav"));
+        assertEquals(Set.of("calendar", "info", "nav"), ran);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDependencyOnLaterStage() {
+        EodStageGraph.execute(List.of(stage("daily", "info"), stage("info")), stage -> true, executor);
+    }
+
+    @Test
+    public void defaultStagesFormValidGraph() {
+        Map<String, EodStageGraph.StageStatus> statuses =
+                EodStageGraph.execute(EodPipeline.defaultStages(), stage -> true, executor);
+
+        assertEquals(9, statuses.size());
+        assertTrue(statuses.values().stream().allMatch(status -> status == EodStageGraph.StageStatus.SUCCESS));
+    }
+}
@@ -0,0 +1,35 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FetchGapPlannerTest {
+
+    // 用交易日序号代替时间戳即可验证合并逻辑
+    private static final long[] TRADING_DATES = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+
+    @Test
+    public void mergesGapsSeparatedByFewPresentDays() {
+        List<FetchGapPlanner.DateSegment> segments =
+                FetchGapPlanner.mergeSegments(TRADING_DATES, List.of(2L, 3L, 5L, 11L, 12L), 1, 100);
+
+        assertEquals(List.of(new FetchGapPlanner.DateSegment(2, 5), new FetchGapPlanner.DateSegment(11, 12)), segments);
+    }
+
+    @Test
+    public void splitsSegmentsLongerThanLimit() {
+        List<FetchGapPlanner.DateSegment> segments =
+                FetchGapPlanner.mergeSegments(TRADING_DATES, List.of(1L, 2L, 3L, 4L, 5L), 0, 2);
+
+        assertEquals(List.of(new FetchGapPlanner.DateSegment(1, 2), new FetchGapPlanner.DateSegment(3, 4),
+                new FetchGapPlanner.DateSegment(5, 5)), segments);
+    }
+
+    @Test
+    public void noMissingDatesMeansNoRequests() {
+        assertEquals(List.of(), FetchGapPlanner.mergeSegments(TRADING_DATES, List.of(), 5, 100));
+    }
+}
@@ -0,0 +1,78 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FetchTaskChunkerTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static JSONObject task(long startDate, long endDate, int offset, int limit) {
+        JSONObject params = new JSONObject();
+        params.put("start_date_timestamp", startDate);
+        params.put("end_date_timestamp", endDate);
+        params.put("offset", offset);
+        params.put("limit", limit);
+        JSONObject task = new JSONObject();
+        task.put("task_uuid", "uuid-1");
+        task.put("task_name", "stock_quote");
+        task.put("task_sub_type", 1);
+        task.put("task_params", params);
+        return task;
+    }
+
+    @Test
+    public void splitsIntoSymbolBatchesTimesDateWindows() {
+        List<JSONObject> chunks = FetchTaskChunker.split(task(0, 24 * DAY_MS, 100, 250), 100, 10);
+
+        // 3 个日期窗口 × 3 个代码批次
+        assertEquals(9, chunks.size());
+        JSONObject first = chunks.get(0).getJSONObject("task_params");
+        assertEquals(0L, first.getLongValue("start_date_timestamp"));
+        assertEquals(9 * DAY_MS, first.getLongValue("end_date_timestamp"));
+        assertEquals(100, first.getIntValue("offset"));
+        assertEquals(100, first.getIntValue("limit"));
+
+        JSONObject last = chunks.get(8).getJSONObject("task_params");
+        assertEquals(20 * DAY_MS, last.getLongValue("start_date_timestamp"));
+        assertEquals(24 * DAY_MS, last.getLongValue("end_date_timestamp"));
+        assertEquals(300, last.getIntValue("offset"));
+        assertEquals(50, last.getIntValue("limit"));
+
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(i, chunks.get(i).getIntValue(FetchTaskChunker.CHUNK_INDEX));
+            assertEquals(9, chunks.get(i).getIntValue(FetchTaskChunker.CHUNK_TOTAL));
+            assertEquals("uuid-1", chunks.get(i).getString("task_uuid"));
+        }
+    }
+
+    @Test
+    public void keepsShortTaskAsSingleChunk() {
+        List<JSONObject> chunks = FetchTaskChunker.split(task(0, 5 * DAY_MS, 0, 50), 100, 366);
+
+        assertEquals(1, chunks.size());
+        assertEquals(5 * DAY_MS, chunks.get(0).getJSONObject("task_params").getLongValue("end_date_timestamp"));
+    }
+
+    @Test
+    public void doesNotSplitChunksAgain() {
+        FetchTaskChunker chunker = new FetchTaskChunker(true, List.of("stock_quote:1"), 100, 366);
+        JSONObject parent = task(0, DAY_MS, 0, 10);
+
+        assertTrue(chunker.isChunkable(parent));
+        assertFalse(chunker.isChunkable(chunker.split(parent).get(0)));
+    }
+
+    @Test
+    public void reportsProgressStatus() {
+        assertEquals("running", new FetchTaskCheckpointStore.Progress(4, 2, 1, 10).status());
+        assertEquals("partial", new FetchTaskCheckpointStore.Progress(4, 3, 1, 10).status());
+        assertEquals(-1, new FetchTaskCheckpointStore.Progress(2, 0, 2, 0).fetchedItemsCount());
+    }
+}
@@ -0,0 +1,41 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FetchTaskLanesTest {
+
+    private final FetchTaskLanes lanes = new FetchTaskLanes("fetch_topic", "fetch_topic_bulk",
+            List.of("index_quote:2", " index_weight:1 ", ""));
+
+    @Test
+    public void routesConfiguredTasksToBulkLane() {
+        assertTrue(lanes.isBulk("index_quote", 2));
+        assertTrue(lanes.isBulk("index_weight", 1));
+        assertEquals("fetch_topic_bulk", lanes.getBulkTopic());
+    }
+
+    @Test
+    public void keepsOtherTasksOnQuickLane() {
+        assertFalse(lanes.isBulk("index_quote", 1));
+        assertFalse(lanes.isBulk("stock_info", 1));
+        assertFalse(lanes.isBulk(null, 2));
+    }
+
+    @Test
+    public void readsTaskNameAndSubTypeFromMessage() {
+        JSONObject task = new JSONObject();
+        task.put("task_name", "index_quote");
+        task.put("task_sub_type", 2);
+        assertTrue(lanes.isBulk(task));
+
+        task.remove("task_sub_type");
+        assertFalse(lanes.isBulk(task));
+    }
+}
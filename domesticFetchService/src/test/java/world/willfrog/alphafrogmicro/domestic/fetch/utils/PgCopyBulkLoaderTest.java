@@ -0,0 +1,47 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import com.alibaba.fastjson.JSONArray;
+import org.junit.Test;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PgCopyBulkLoaderTest {
+
+    private static final List<String> COLUMNS = List.of("ts_code", "trade_date", "close", "vol");
+
+    @Test
+    public void mapsColumnsByTuShareFieldName() {
+        JSONArray fields = JSONArray.parseArray("[\"trade_date\",\"ts_code\",\"close\"]");
+
+        assertArrayEquals(new int[]{1, 0, 2, -1}, PgCopyBulkLoader.sourceIndexes(COLUMNS, fields));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, PgCopyBulkLoader.sourceIndexes(COLUMNS, null));
+    }
+
+    @Test
+    public void convertsDatesAndWritesCsvWithNulls() throws Exception {
+        JSONArray fields = JSONArray.parseArray("[\"trade_date\",\"ts_code\",\"close\"]");
+        JSONArray item = JSONArray.parseArray("[\"20240102\",\"000001.SZ\",9.21]");
+        Object[] row = new Object[COLUMNS.size()];
+
+        PgCopyBulkLoader.convertRow(COLUMNS, PgCopyBulkLoader.sourceIndexes(COLUMNS, fields), item, row);
+        StringWriter writer = new StringWriter();
+        PgCopyBulkLoader.writeCsvRow(writer, row);
+
+        long tradeDate = DateConvertUtils.convertDateStrToLong("20240102", "yyyyMMdd");
+        assertEquals("\"000001.SZ\"," + tradeDate + ",9.21,\n", writer.toString());
+    }
+
+    @Test
+    public void quotesStringsAndKeepsDecimalsPlain() throws Exception {
+        StringWriter writer = new StringWriter();
+        PgCopyBulkLoader.writeCsvRow(writer, new Object[]{"a\"b,c", "", new BigDecimal("1E+3"), null});
+
+        assertEquals("\"a\"\"b,c\",\"\",1000,\n", writer.toString());
+    }
+}
@@ -0,0 +1,46 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SymbolFetchExecutorTest {
+
+    private final SymbolFetchExecutor executor = new SymbolFetchExecutor(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void collectsFailuresWithoutAbortingBatch() {
+        SymbolFetchExecutor.Report report = executor.run("test", List.of("A", "B", "C", "D"), symbol -> {
+            if ("B".equals(symbol)) {
+                return -2;
+            }
+            if ("C".equals(symbol)) {
+                throw new IllegalStateException("boom");
+            }
+            return 10;
+        });
+
+        assertEquals(2, report.succeeded());
+        assertEquals(20, report.storedRows());
+        assertEquals(List.of("B", "C"), report.failedSymbols().stream().sorted().toList());
+        assertEquals("partial", report.status());
+        assertEquals(20, report.fetchedItemsCount());
+    }
+
+    @Test
+    public void allFailedKeepsNegativeCount() {
+        SymbolFetchExecutor.Report report = executor.run("test", List.of("A"), symbol -> -1);
+
+        assertEquals("failure", report.status());
+        assertEquals(-1, report.fetchedItemsCount());
+        assertEquals("success", executor.run("test", List.of(), symbol -> 1).status());
+    }
+}
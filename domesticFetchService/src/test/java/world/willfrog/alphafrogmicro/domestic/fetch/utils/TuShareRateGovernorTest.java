@@ -0,0 +1,62 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import org.junit.Test;
+import world.willfrog.alphafrogmicro.domestic.fetch.config.TuShareRateLimitProperties;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TuShareRateGovernorTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    @Test
+    public void reservationsQueueAtConfiguredRate() {
+        TuShareRateLimitProperties properties = new TuShareRateLimitProperties();
+        properties.setDefaultPerMinute(120);
+        properties.setSafetyRatio(1.0);
+        TuShareRateGovernor governor = new TuShareRateGovernor(properties, clock::get);
+
+        // 2 次/秒，桶容量 2：前两次立即放行，之后每次多排 0.5 秒
+        assertEquals(0, governor.reserveNanos("daily"));
+        assertEquals(0, governor.reserveNanos("daily"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), governor.reserveNanos("daily"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), governor.reserveNanos("daily"));
+        // 不同接口互不影响
+        assertEquals(0, governor.reserveNanos("index_daily"));
+    }
+
+    @Test
+    public void limitExceededPausesAndHalvesRateUntilRecovered() {
+        TuShareRateLimitProperties properties = new TuShareRateLimitProperties();
+        properties.setPerMinute(Map.of("fund_nav", 60));
+        properties.setSafetyRatio(1.0);
+        properties.setInitialBackoffMs(1000);
+        TuShareRateGovernor governor = new TuShareRateGovernor(properties, clock::get);
+
+        assertEquals(1000, governor.onLimitExceeded("fund_nav"));
+        assertEquals(0.5, governor.ratePerSecond("fund_nav"), 1e-9);
+        // 暂停 1 秒后再按减半后的速率发放
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(3000), governor.reserveNanos("fund_nav"));
+        assertEquals(2000, governor.onLimitExceeded("fund_nav"));
+
+        for (int i = 0; i < 100; i++) {
+            governor.onSuccess("fund_nav");
+        }
+        assertEquals(1.0, governor.ratePerSecond("fund_nav"), 1e-9);
+    }
+
+    @Test
+    public void detectsLimitExceededResponses() {
+        TuShareRateGovernor governor = new TuShareRateGovernor(new TuShareRateLimitProperties(), clock::get);
+
+        assertTrue(governor.isLimitExceeded(40203, null));
+        assertTrue(governor.isLimitExceeded(-1, "抱歉，您每分钟最多访问该接口200次"));
+        assertFalse(governor.isLimitExceeded(0, ""));
+    }
+}
@@ -0,0 +1,77 @@
+package world.willfrog.alphafrogmicro.domestic.fetch.utils;
+
+import org.junit.Test;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TuShareResponseDecoderTest {
+
+    private static final TuShareColumns COLUMNS = new TuShareColumns(
+            new String[]{"ts_code", "trade_date", "close", "vol"},
+            new TuShareColumns.Type[]{TuShareColumns.Type.STRING, TuShareColumns.Type.DATE,
+                    TuShareColumns.Type.DOUBLE, TuShareColumns.Type.DOUBLE});
+
+    @Test
+    public void decodesItemsByFieldNameAndSkipsUnknownFields() throws Exception {
+        String body = "{\"request_id\":\"r1\",\"code\":0,\"msg\":\"\",\"data\":{"
+                + "\"fields\":[\"trade_date\",\"ts_code\",\"open\",\"close\"],"
+                + "\"items\":[[\"20240102\",\"000001.SZ\",9.3,9.21],[\"20240103\",\"000002.SZ\",{\"x\":1},null]],"
+                + "\"has_more\":false}}";
+
+        TuShareRowBatch batch = TuShareResponseDecoder.decode(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), COLUMNS);
+
+        assertTrue(batch.isSuccess());
+        assertEquals(2, batch.size());
+        assertEquals("000001.SZ", batch.getString(0, 0));
+        assertEquals((long) DateConvertUtils.convertDateStrToLong("20240102", "yyyyMMdd"), batch.getDate(1, 0));
+        assertEquals(9.21, batch.getDouble(2, 0), 0.0);
+        assertTrue(batch.isNull(3, 0));
+        assertEquals("000002.SZ", batch.getString(0, 1));
+        assertNull(batch.getDoubleOrNull(2, 1));
+    }
+
+    @Test
+    public void keepsErrorCodeAndMessage() throws Exception {
+        TuShareRowBatch batch = TuShareResponseDecoder.decode(
+                "{\"code\":40203,\"msg\":\"抱歉，您每分钟最多访问该接口500次\",\"data\":null}", COLUMNS);
+
+        assertFalse(batch.isSuccess());
+        assertEquals(Integer.valueOf(40203), batch.getCode());
+        assertEquals(0, batch.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsItemsBeforeFields() throws Exception {
+        TuShareResponseDecoder.decode("{\"code\":0,\"data\":{\"items\":[[\"000001.SZ\"]],\"fields\":[\"ts_code\"]}}",
+                COLUMNS);
+    }
+
+    @Test
+    public void growsBeyondInitialCapacityAndWritesCsv() throws Exception {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            items.append(i == 0 ? "" : ",").append("[\"A").append(i).append("\",\"20240102\",").append(i).append(",1.5]");
+        }
+        TuShareRowBatch batch = TuShareResponseDecoder.decode("{\"code\":0,\"data\":{"
+                + "\"fields\":[\"ts_code\",\"trade_date\",\"close\",\"vol\"],\"items\":[" + items + "]}}", COLUMNS);
+
+        assertEquals(1000, batch.size());
+        assertEquals("A999", batch.getString(0, 999));
+        assertEquals(999.0, batch.getDouble(2, 999), 0.0);
+
+        StringWriter writer = new StringWriter();
+        PgCopyBulkLoader.writeCsvRow(writer, batch, 999);
+        long tradeDate = DateConvertUtils.convertDateStrToLong("20240102", "yyyyMMdd");
+        assertEquals("\"A999\"," + tradeDate + ",999.0,1.5\n", writer.toString());
+    }
+}
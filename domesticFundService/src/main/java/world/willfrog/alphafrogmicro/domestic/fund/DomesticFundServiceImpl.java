@@ -9,25 +9,35 @@ import world.willfrog.alphafrogmicro.common.dao.domestic.fund.FundPortfolioDao;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundInfo;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundNav;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundPortfolio;
+import world.willfrog.alphafrogmicro.domestic.fund.service.FundInfoSearchService;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DubboDomesticFundServiceTriple.DomesticFundServiceImplBase;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 @DubboService
 @Service
 @Slf4j
 public class DomesticFundServiceImpl extends DomesticFundServiceImplBase {
 
+    private static final int MAX_BATCH_TS_CODES = 500;
+
     private final FundNavDao fundNavDao;
     private final FundInfoDao fundInfoDao;
     private final FundPortfolioDao fundPortfolioDao;
+    private final FundInfoSearchService fundInfoSearchService;
 
-    public DomesticFundServiceImpl(FundNavDao fundNavDao, FundInfoDao fundInfoDao, FundPortfolioDao fundPortfolioDao) {
+    public DomesticFundServiceImpl(FundNavDao fundNavDao, FundInfoDao fundInfoDao, FundPortfolioDao fundPortfolioDao,
+                                   FundInfoSearchService fundInfoSearchService) {
         this.fundNavDao = fundNavDao;
         this.fundInfoDao = fundInfoDao;
         this.fundPortfolioDao = fundPortfolioDao;
+        this.fundInfoSearchService = fundInfoSearchService;
     }
 
 
@@ -58,24 +68,7 @@ public class DomesticFundServiceImpl extends DomesticFundServiceImplBase {
         if(fundNavList != null) {
             try {
                 for (FundNav fundNav : fundNavList) {
-                    DomesticFundNavItem.Builder itemBuilder = DomesticFundNavItem.newBuilder()
-                            .setTsCode(fundNav.getTsCode()).setAnnDate(fundNav.getAnnDate())
-                            .setNavDate(fundNav.getNavDate()).setUnitNav(fundNav.getUnitNav())
-                            .setAdjNav(fundNav.getAdjNav());
-
-                    if(fundNav.getAccumNav() != null){
-                        itemBuilder.setAccumNav(fundNav.getAccumNav());
-                    }
-                    if(fundNav.getNetAsset() != null){
-                        itemBuilder.setNetAsset(fundNav.getNetAsset());
-                    }
-                    if(fundNav.getTotalNetAsset() != null) {
-                        itemBuilder.setTotalNetAsset(fundNav.getTotalNetAsset());
-                    }
-                    if(fundNav.getAccumDiv() != null) {
-                        itemBuilder.setAccumDiv(fundNav.getAccumDiv());
-                    }
-                    responseBuilder.addItems(itemBuilder.build());
+                    responseBuilder.addItems(toFundNavItem(fundNav));
                 }
                 return responseBuilder.build();
             } catch (Exception e) {
@@ -91,6 +84,86 @@ public class DomesticFundServiceImpl extends DomesticFundServiceImplBase {
         }
     }
 
+    @Override
+    public DomesticFundNavsByTsCodesAndDateRangeResponse getDomesticFundNavsByTsCodesAndDateRange(
+            DomesticFundNavsByTsCodesAndDateRangeRequest request
+    ) {
+        long startDateTimestamp = request.getStartDateTimestamp();
+        long endDateTimestamp = request.getEndDateTimestamp();
+
+        Set<String> tsCodes = new LinkedHashSet<>();
+        for (String tsCode : request.getTsCodesList()) {
+            if (tsCode != null && !tsCode.isBlank()) {
+                tsCodes.add(tsCode.trim());
+            }
+        }
+
+        DomesticFundNavsByTsCodesAndDateRangeResponse.Builder responseBuilder =
+                DomesticFundNavsByTsCodesAndDateRangeResponse.newBuilder();
+        if (tsCodes.isEmpty()) {
+            return responseBuilder.build();
+        }
+        // 超限与查询失败都以异常返回，调用方据此拆分或逐只重试，不会把空序列误当作无数据
+        if (tsCodes.size() > MAX_BATCH_TS_CODES) {
+            log.warn("Too many tsCodes in batch fund nav request: {}, max: {}", tsCodes.size(), MAX_BATCH_TS_CODES);
+            throw new IllegalArgumentException("Too many tsCodes in batch fund nav request: " + tsCodes.size()
+                    + ", max: " + MAX_BATCH_TS_CODES);
+        }
+
+        List<FundNav> fundNavList;
+        try {
+            fundNavList = fundNavDao.getFundNavsByTsCodesAndDateRange(tsCodes.toArray(new String[0]),
+                    startDateTimestamp, endDateTimestamp);
+        } catch (Exception e) {
+            log.error("Error occurred while getting batch fund navs, tsCodeCount: {}, dateRange: {}-{}",
+                    tsCodes.size(), startDateTimestamp, endDateTimestamp, e);
+            throw new IllegalStateException("Failed to load batch fund navs: " + e.getMessage());
+        }
+
+        // 按请求顺序分组返回，无数据的基金返回空序列
+        Map<String, DomesticFundNavSeries.Builder> seriesByTsCode = new LinkedHashMap<>();
+        for (String tsCode : tsCodes) {
+            seriesByTsCode.put(tsCode, DomesticFundNavSeries.newBuilder().setTsCode(tsCode));
+        }
+        try {
+            for (FundNav fundNav : fundNavList) {
+                DomesticFundNavSeries.Builder seriesBuilder = seriesByTsCode.get(fundNav.getTsCode());
+                if (seriesBuilder != null) {
+                    seriesBuilder.addItems(toFundNavItem(fundNav));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error occurred while converting batch fund nav data to protobuf", e);
+            throw new IllegalStateException("Failed to convert batch fund navs: " + e.getMessage());
+        }
+        for (DomesticFundNavSeries.Builder seriesBuilder : seriesByTsCode.values()) {
+            responseBuilder.addSeries(seriesBuilder.build());
+        }
+
+        return responseBuilder.build();
+    }
+
+    private DomesticFundNavItem toFundNavItem(FundNav fundNav) {
+        DomesticFundNavItem.Builder itemBuilder = DomesticFundNavItem.newBuilder()
+                .setTsCode(fundNav.getTsCode()).setAnnDate(fundNav.getAnnDate())
+                .setNavDate(fundNav.getNavDate()).setUnitNav(fundNav.getUnitNav())
+                .setAdjNav(fundNav.getAdjNav());
+
+        if(fundNav.getAccumNav() != null){
+            itemBuilder.setAccumNav(fundNav.getAccumNav());
+        }
+        if(fundNav.getNetAsset() != null){
+            itemBuilder.setNetAsset(fundNav.getNetAsset());
+        }
+        if(fundNav.getTotalNetAsset() != null) {
+            itemBuilder.setTotalNetAsset(fundNav.getTotalNetAsset());
+        }
+        if(fundNav.getAccumDiv() != null) {
+            itemBuilder.setAccumDiv(fundNav.getAccumDiv());
+        }
+        return itemBuilder.build();
+    }
+
     @Override
     public DomesticFundInfoByTsCodeResponse getDomesticFundInfoByTsCode(DomesticFundInfoByTsCodeRequest request) {
 
@@ -200,13 +273,19 @@ public class DomesticFundServiceImpl extends DomesticFundServiceImplBase {
         List<DomesticFundInfoSimpleItem> items = new ArrayList<>();
 
         try{
-            // 使用合理的分页参数，避免返回过多数据
-            fundInfoList = fundInfoDao.getFundInfoByTsCode(query, 50, 0);
-            fundInfoList.addAll(fundInfoDao.getFundInfoByName(query, 50, 0));
-            // 去重
-            fundInfoList = fundInfoList.stream()
-                    .distinct()
-                    .toList();
+            // 优先走进程内索引，索引尚未就绪时回退到 LIKE 查询
+            List<FundInfo> indexed = fundInfoSearchService.search(query, 100);
+            if (indexed != null) {
+                fundInfoList = indexed;
+            } else {
+                // 使用合理的分页参数，避免返回过多数据
+                fundInfoList = fundInfoDao.getFundInfoByTsCode(query, 50, 0);
+                fundInfoList.addAll(fundInfoDao.getFundInfoByName(query, 50, 0));
+                // 去重
+                fundInfoList = fundInfoList.stream()
+                        .distinct()
+                        .toList();
+            }
         } catch (Exception e) {
             log.error("Error occurred while searching fund info with query: {}", query, e);
             // 搜索异常时返回空响应而不是null
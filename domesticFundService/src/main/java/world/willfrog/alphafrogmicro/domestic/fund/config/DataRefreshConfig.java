@@ -0,0 +1,31 @@
+package world.willfrog.alphafrogmicro.domestic.fund.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+import world.willfrog.alphafrogmicro.domestic.fund.service.FundDataRefreshHandler;
+
+@Configuration
+public class DataRefreshConfig {
+
+    @Value("${advanced.data-refresh.channel:" + DataRefreshNotice.DEFAULT_CHANNEL + "}")
+    private String dataRefreshChannel;
+
+    /**
+     * 订阅抓取服务的数据刷新通知
+     */
+    @Bean
+    public RedisMessageListenerContainer dataRefreshListenerContainer(RedisConnectionFactory factory,
+                                                                      FundDataRefreshHandler fundDataRefreshHandler) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) ->
+                fundDataRefreshHandler.onRefresh(DataRefreshNotice.decode(message.getBody())),
+                new ChannelTopic(dataRefreshChannel));
+        return container;
+    }
+}
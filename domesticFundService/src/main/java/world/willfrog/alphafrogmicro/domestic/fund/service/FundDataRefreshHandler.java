@@ -0,0 +1,28 @@
+package world.willfrog.alphafrogmicro.domestic.fund.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+
+import java.util.Set;
+
+/**
+ * 处理抓取服务广播的数据刷新通知，清理本实例中受影响的缓存
+ */
+@Service
+@Slf4j
+public class FundDataRefreshHandler {
+
+    private final FundInfoSearchService fundInfoSearchService;
+
+    public FundDataRefreshHandler(FundInfoSearchService fundInfoSearchService) {
+        this.fundInfoSearchService = fundInfoSearchService;
+    }
+
+    public void onRefresh(Set<String> datasets) {
+        log.info("Received data refresh notice: datasets={}", datasets);
+        if (datasets.contains(DataRefreshNotice.FUND_INFO)) {
+            fundInfoSearchService.refresh();
+        }
+    }
+}
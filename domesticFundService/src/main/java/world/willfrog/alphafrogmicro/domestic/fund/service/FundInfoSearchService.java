@@ -0,0 +1,68 @@
+package world.willfrog.alphafrogmicro.domestic.fund.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.dao.domestic.fund.FundInfoDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.fund.FundInfo;
+import world.willfrog.alphafrogmicro.common.utils.search.InfoSearchIndex;
+import world.willfrog.alphafrogmicro.common.utils.search.InfoSearchIndexHolder;
+
+import java.util.List;
+
+/**
+ * 基金基础信息的进程内搜索，检索 ts_code / name。
+ * 索引启动后在后台构建，alphafrog_fund_info 检索列的内容（校验和）变化时自动重建。
+ * <p>
+ * 与股票不同，基金检索没有接入 ES：本服务没有 ES 客户端与索引同步链路，alphafrog_fund_info 规模（数万行）下进程内 n-gram 索引
+ * 已经把文本检索从 Postgres 卸下，查询不经过网络；若日后需要跨实例共享或更复杂的分词，再参照 StockInfoEsIndexer 接入。
+ */
+@Service
+public class FundInfoSearchService {
+
+    private static final int NAME_FIELD = 1;
+
+    private final InfoSearchIndexHolder<FundInfo> holder;
+
+    @Value("${advanced.info-search-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${advanced.info-search-index.refresh-interval-seconds:300}")
+    private long refreshIntervalSeconds;
+
+    public FundInfoSearchService(FundInfoDao fundInfoDao) {
+        this.holder = new InfoSearchIndexHolder<>("fund",
+                fundInfoDao::getFundInfoForSearchIndex,
+                fundInfoDao::getFundInfoSearchChecksum,
+                rows -> InfoSearchIndex.build(rows, NAME_FIELD, row -> new String[]{
+                        row.getTsCode(), row.getName()}));
+    }
+
+    /**
+     * 按相关性返回匹配的基金；索引未启用或尚未构建完成时返回 null，调用方应回退到数据库查询
+     */
+    public List<FundInfo> search(String query, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        InfoSearchIndex<FundInfo> index = holder.current(refreshIntervalSeconds * 1000L);
+        return index == null ? null : index.search(query, limit);
+    }
+
+    /**
+     * 基础信息刷新后在后台重建索引，构建期间继续使用旧索引
+     */
+    public void refresh() {
+        if (enabled) {
+            holder.rebuildAsync();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            holder.refreshAsync();
+        }
+    }
+}
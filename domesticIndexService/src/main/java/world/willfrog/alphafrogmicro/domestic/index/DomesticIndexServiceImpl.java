@@ -3,41 +3,54 @@ package world.willfrog.alphafrogmicro.domestic.index;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboService;
 import org.springframework.stereotype.Service;
-import world.willfrog.alphafrogmicro.common.dao.domestic.calendar.TradeCalendarDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.index.IndexInfoDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.index.IndexQuoteDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.index.IndexWeightDao;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexDaily;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexInfo;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.index.IndexWeight;
+import world.willfrog.alphafrogmicro.common.utils.DailyBarResampler;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendarRegistry;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DubboDomesticIndexServiceTriple.DomesticIndexServiceImplBase;
 import world.willfrog.alphafrogmicro.domestic.index.service.IndexDataCompletenessService;
+import world.willfrog.alphafrogmicro.domestic.index.service.IndexInfoSearchService;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @DubboService
 @Service
 @Slf4j
 public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
 
+    private static final int MAX_BATCH_TS_CODES = 500;
+
     private final IndexInfoDao indexInfoDao;
     private final IndexQuoteDao indexQuoteDao;
     private final IndexWeightDao indexWeightDao;
     private final IndexDataCompletenessService indexDataCompletenessService;
-    private final TradeCalendarDao tradeCalendarDao;
+    private final IndexInfoSearchService indexInfoSearchService;
+    private final TradingCalendarRegistry tradingCalendarRegistry;
 
 
     public DomesticIndexServiceImpl(IndexInfoDao indexInfoDao,
                                     IndexQuoteDao indexQuoteDao,
                                     IndexWeightDao indexWeightDao,
                                     IndexDataCompletenessService indexDataCompletenessService,
-                                    TradeCalendarDao tradeCalendarDao) {
+                                    IndexInfoSearchService indexInfoSearchService,
+                                    TradingCalendarRegistry tradingCalendarRegistry) {
         this.indexInfoDao = indexInfoDao;
         this.indexQuoteDao = indexQuoteDao;
         this.indexWeightDao = indexWeightDao;
         this.indexDataCompletenessService = indexDataCompletenessService;
-        this.tradeCalendarDao = tradeCalendarDao;
+        this.indexInfoSearchService = indexInfoSearchService;
+        this.tradingCalendarRegistry = tradingCalendarRegistry;
     }
 
 
@@ -109,8 +122,11 @@ public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
         List<IndexInfo> indexInfoList;
 
         try {
-            // 单条 SQL + 相关性排序，避免高热度关键词下“随机截断”导致基础指数缺失
-            indexInfoList = indexInfoDao.searchIndexInfo(normalizedQuery, 200, 0);
+            // 优先走进程内索引（排序规则与 SQL 一致），索引尚未就绪时回退到单条 SQL + 相关性排序
+            indexInfoList = indexInfoSearchService.search(normalizedQuery, 200);
+            if (indexInfoList == null) {
+                indexInfoList = indexInfoDao.searchIndexInfo(normalizedQuery, 200, 0);
+            }
         } catch (Exception e) {
             log.error("Error occurred while searching index info with query: {}", normalizedQuery, e);
             // 搜索异常时返回空响应
@@ -134,6 +150,15 @@ public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
     public DomesticIndexDailyByTsCodeAndDateRangeResponse getDomesticIndexDailyByTsCodeAndDateRange(
             DomesticIndexDailyByTsCodeAndDateRangeRequest request) {
 
+        // 非法的重采样周期以 IllegalArgumentException 返回，调用方不会把空响应误当作无数据
+        DailyBarResampler.Period period;
+        try {
+            period = DailyBarResampler.Period.parse(request.getResample());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid resample period: {}, tsCode: {}", request.getResample(), request.getTsCode());
+            throw e;
+        }
+
         List<IndexDaily> indexDailyList;
         try {
             indexDailyList = indexQuoteDao.getIndexDailiesByTsCodeAndDateRange(
@@ -142,7 +167,10 @@ public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
         } catch (Exception e) {
             log.error("Error occurred while getting index daily data for tsCode: {}, dateRange: {}-{}", 
                      request.getTsCode(), request.getStartDate(), request.getEndDate(), e);
-            // 数据库异常时返回空响应
+            // 重采样请求以异常返回；日线请求保持原有行为，数据库异常时返回空响应
+            if (period != DailyBarResampler.Period.DAILY) {
+                throw new IllegalStateException("Failed to load index daily for resample: " + e.getMessage());
+            }
             return DomesticIndexDailyByTsCodeAndDateRangeResponse.newBuilder().build();
         }
 
@@ -155,16 +183,20 @@ public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
         DomesticIndexDailyByTsCodeAndDateRangeResponse.Builder responseBuilder =
                 DomesticIndexDailyByTsCodeAndDateRangeResponse.newBuilder();
 
-        for (IndexDaily indexDaily : indexDailyList) {
-            DomesticIndexDailyItem.Builder itemBuilder = DomesticIndexDailyItem.newBuilder()
-                    .setTsCode(indexDaily.getTsCode()).setTradeDate(indexDaily.getTradeDate())
-                    .setClose(indexDaily.getClose()).setOpen(indexDaily.getOpen())
-                    .setHigh(indexDaily.getHigh()).setLow(indexDaily.getLow())
-                    .setPreClose(indexDaily.getPreClose()).setChange(indexDaily.getChange())
-                    .setPctChg(indexDaily.getPctChg()).setVol(indexDaily.getVol())
-                    .setAmount(indexDaily.getAmount());
+        if (period != DailyBarResampler.Period.DAILY) {
+            // 完整性元数据按交易日口径统计，对周/月/季线没有意义，重采样结果不附带
+            try {
+                addResampledItems(responseBuilder, request.getTsCode(), indexDailyList, period);
+            } catch (Exception e) {
+                log.error("Error occurred while resampling index daily for tsCode: {}, resample: {}",
+                        request.getTsCode(), period, e);
+                throw new IllegalStateException("Failed to resample index daily: " + e.getMessage());
+            }
+            return responseBuilder.build();
+        }
 
-            responseBuilder.addItems(itemBuilder.build());
+        for (IndexDaily indexDaily : indexDailyList) {
+            responseBuilder.addItems(toIndexDailyItem(indexDaily));
         }
 
         IndexDataCompletenessService.IndexCompletenessResult completeness =
@@ -187,6 +219,106 @@ public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
         return responseBuilder.build();
     }
 
+    @Override
+    public DomesticIndexDailyByTsCodesAndDateRangeResponse getDomesticIndexDailyByTsCodesAndDateRange(
+            DomesticIndexDailyByTsCodesAndDateRangeRequest request) {
+
+        Set<String> tsCodes = new LinkedHashSet<>();
+        for (String tsCode : request.getTsCodesList()) {
+            if (tsCode != null && !tsCode.isBlank()) {
+                tsCodes.add(tsCode.trim());
+            }
+        }
+
+        DomesticIndexDailyByTsCodesAndDateRangeResponse.Builder responseBuilder =
+                DomesticIndexDailyByTsCodesAndDateRangeResponse.newBuilder();
+        if (tsCodes.isEmpty()) {
+            return responseBuilder.build();
+        }
+        // 超限与查询失败都以异常返回，调用方据此拆分或逐只重试，不会把空序列误当作无数据
+        if (tsCodes.size() > MAX_BATCH_TS_CODES) {
+            log.warn("Too many tsCodes in batch index daily request: {}, max: {}", tsCodes.size(), MAX_BATCH_TS_CODES);
+            throw new IllegalArgumentException("Too many tsCodes in batch index daily request: " + tsCodes.size()
+                    + ", max: " + MAX_BATCH_TS_CODES);
+        }
+
+        List<IndexDaily> indexDailyList;
+        try {
+            indexDailyList = indexQuoteDao.getIndexDailiesByTsCodesAndDateRange(
+                    tsCodes.toArray(new String[0]), request.getStartDate(), request.getEndDate()
+            );
+        } catch (Exception e) {
+            log.error("Error occurred while getting batch index daily data, tsCodeCount: {}, dateRange: {}-{}",
+                    tsCodes.size(), request.getStartDate(), request.getEndDate(), e);
+            throw new IllegalStateException("Failed to load batch index daily: " + e.getMessage());
+        }
+
+        Map<String, DomesticIndexDailySeries.Builder> seriesByTsCode = new LinkedHashMap<>();
+        for (String tsCode : tsCodes) {
+            seriesByTsCode.put(tsCode, DomesticIndexDailySeries.newBuilder().setTsCode(tsCode));
+        }
+        for (IndexDaily indexDaily : indexDailyList) {
+            DomesticIndexDailySeries.Builder seriesBuilder = seriesByTsCode.get(indexDaily.getTsCode());
+            if (seriesBuilder != null) {
+                seriesBuilder.addItems(toIndexDailyItem(indexDaily));
+            }
+        }
+        for (DomesticIndexDailySeries.Builder seriesBuilder : seriesByTsCode.values()) {
+            responseBuilder.addSeries(seriesBuilder.build());
+        }
+
+        return responseBuilder.build();
+    }
+
+    private void addResampledItems(DomesticIndexDailyByTsCodeAndDateRangeResponse.Builder responseBuilder,
+                                   String tsCode,
+                                   List<IndexDaily> indexDailyList,
+                                   DailyBarResampler.Period period) {
+        List<IndexDaily> sorted = new ArrayList<>(indexDailyList);
+        sorted.removeIf(indexDaily -> indexDaily == null || indexDaily.getTradeDate() == null);
+        sorted.sort(Comparator.comparing(IndexDaily::getTradeDate, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        DailyBarResampler.Bars daily = DailyBarResampler.Bars.allocate(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            IndexDaily indexDaily = sorted.get(i);
+            daily.tradeDates[i] = indexDaily.getTradeDate();
+            daily.open[i] = valueOf(indexDaily.getOpen());
+            daily.high[i] = valueOf(indexDaily.getHigh());
+            daily.low[i] = valueOf(indexDaily.getLow());
+            daily.close[i] = valueOf(indexDaily.getClose());
+            daily.preClose[i] = valueOf(indexDaily.getPreClose());
+            daily.vol[i] = valueOf(indexDaily.getVol());
+            daily.amount[i] = valueOf(indexDaily.getAmount());
+        }
+
+        DailyBarResampler.Bars bars = DailyBarResampler.resample(daily, period);
+        for (int i = 0; i < bars.size; i++) {
+            responseBuilder.addItems(DomesticIndexDailyItem.newBuilder()
+                    .setTsCode(tsCode).setTradeDate(bars.tradeDates[i])
+                    .setClose(bars.close[i]).setOpen(bars.open[i])
+                    .setHigh(bars.high[i]).setLow(bars.low[i])
+                    .setPreClose(bars.preClose[i]).setChange(bars.change[i])
+                    .setPctChg(bars.pctChg[i]).setVol(bars.vol[i])
+                    .setAmount(bars.amount[i])
+                    .build());
+        }
+    }
+
+    private static double valueOf(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    private DomesticIndexDailyItem toIndexDailyItem(IndexDaily indexDaily) {
+        return DomesticIndexDailyItem.newBuilder()
+                .setTsCode(indexDaily.getTsCode()).setTradeDate(indexDaily.getTradeDate())
+                .setClose(indexDaily.getClose()).setOpen(indexDaily.getOpen())
+                .setHigh(indexDaily.getHigh()).setLow(indexDaily.getLow())
+                .setPreClose(indexDaily.getPreClose()).setChange(indexDaily.getChange())
+                .setPctChg(indexDaily.getPctChg()).setVol(indexDaily.getVol())
+                .setAmount(indexDaily.getAmount())
+                .build();
+    }
+
     @Override
     public DomesticTradingDaysCountResponse getTradingDaysCountByDateRange(
             DomesticTradingDaysCountRequest request) {
@@ -205,7 +337,7 @@ public class DomesticIndexServiceImpl extends DomesticIndexServiceImplBase {
 
         int count;
         try {
-            count = tradeCalendarDao.countTradingDaysByRange(exchange, startDate, endDate);
+            count = tradingCalendarRegistry.calendar(exchange).count(startDate, endDate);
         } catch (Exception e) {
             log.error("Error occurred while counting trading days: exchange={}, dateRange={}-{}",
                     exchange, startDate, endDate, e);
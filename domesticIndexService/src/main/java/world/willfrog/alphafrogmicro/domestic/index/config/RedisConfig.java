@@ -7,8 +7,15 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import world.willfrog.alphafrogmicro.common.dao.domestic.common.DataCompletenessDao;
+import world.willfrog.alphafrogmicro.common.utils.cache.CompactRedisSerializer;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
+import world.willfrog.alphafrogmicro.domestic.index.service.IndexDataRefreshHandler;
 
 @Configuration
 public class RedisConfig {
@@ -22,6 +29,15 @@ public class RedisConfig {
     @Value("${spring.data.redis.password}")
     private String redisPassword;
 
+    @Value("${advanced.data-refresh.channel:" + DataRefreshNotice.DEFAULT_CHANNEL + "}")
+    private String dataRefreshChannel;
+
+    @Value("${advanced.redis-codec.binary-writes:false}")
+    private boolean binaryWrites;
+
+    @Value("${advanced.redis-codec.deflate-threshold-bytes:1024}")
+    private int deflateThreshold;
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(redisHost, redisPort);
@@ -34,7 +50,32 @@ public class RedisConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(factory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        // 带版本头的紧凑编码，兼容读取升级前写入的 JSON 值
+        template.setValueSerializer(new CompactRedisSerializer(new GenericJackson2JsonRedisSerializer(), binaryWrites, deflateThreshold));
         return template;
     }
+
+    /**
+     * 指数日线的已入库日期位图，与抓取服务共用同一批 Redis key
+     */
+    @Bean
+    public TradeDateBitmapStore tradeDateBitmapStore(RedisTemplate<String, Object> redisTemplate,
+                                                     DataCompletenessDao dataCompletenessDao,
+                                                     @Value("${advanced.completeness.absent-ttl-seconds:21600}") long absentTtlSeconds) {
+        return new TradeDateBitmapStore(redisTemplate, dataCompletenessDao, absentTtlSeconds);
+    }
+
+    /**
+     * 订阅抓取服务的数据刷新通知
+     */
+    @Bean
+    public RedisMessageListenerContainer dataRefreshListenerContainer(RedisConnectionFactory factory,
+                                                                      IndexDataRefreshHandler indexDataRefreshHandler) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) ->
+                indexDataRefreshHandler.onRefresh(DataRefreshNotice.decode(message.getBody())),
+                new ChannelTopic(dataRefreshChannel));
+        return container;
+    }
 }
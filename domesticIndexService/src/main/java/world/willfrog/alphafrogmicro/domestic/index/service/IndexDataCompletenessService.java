@@ -4,10 +4,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.stereotype.Service;
-import world.willfrog.alphafrogmicro.common.dao.domestic.calendar.TradeCalendarDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.common.DataCompletenessDao;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendarRegistry;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmap;
+import world.willfrog.alphafrogmicro.common.utils.completeness.TradeDateBitmapStore;
 
 import java.io.Serializable;
 import java.time.Duration;
@@ -23,19 +28,23 @@ public class IndexDataCompletenessService {
 
     private static final String EXCHANGE_SSE = "SSE";
     private static final String CACHE_KEY_PATTERN = "index:completeness:%s:%d:%d";
+    private static final String CACHE_KEY_PREFIX = "index:completeness:";
     private static final Duration TTL_COMPLETE = Duration.ofDays(1);
     private static final Duration TTL_INCOMPLETE = Duration.ofMinutes(5);
     private static final Duration TTL_UPSTREAM_GAP = Duration.ofDays(1);
 
-    private final TradeCalendarDao tradeCalendarDao;
+    private final TradingCalendarRegistry tradingCalendarRegistry;
     private final DataCompletenessDao dataCompletenessDao;
+    private final TradeDateBitmapStore tradeDateBitmapStore;
     private final RedisTemplate<String, Object> redisTemplate;
 
-    public IndexDataCompletenessService(TradeCalendarDao tradeCalendarDao,
+    public IndexDataCompletenessService(TradingCalendarRegistry tradingCalendarRegistry,
                                         DataCompletenessDao dataCompletenessDao,
+                                        TradeDateBitmapStore tradeDateBitmapStore,
                                         RedisTemplate<String, Object> redisTemplate) {
-        this.tradeCalendarDao = tradeCalendarDao;
+        this.tradingCalendarRegistry = tradingCalendarRegistry;
         this.dataCompletenessDao = dataCompletenessDao;
+        this.tradeDateBitmapStore = tradeDateBitmapStore;
         this.redisTemplate = redisTemplate;
     }
 
@@ -51,23 +60,18 @@ public class IndexDataCompletenessService {
             return cached;
         }
 
-        // 计算交易日与已存数据
-        List<Long> tradingDates = safeList(tradeCalendarDao.getTradingDatesByRange(EXCHANGE_SSE, startDateTimestamp, endDateTimestamp));
-        Set<Long> tradingDateSet = new HashSet<>(tradingDates);
-        List<Long> existingDates = safeList(dataCompletenessDao.getExistingDates("alphafrog_index_daily", "ts_code", "trade_date", tsCode, startDateTimestamp, endDateTimestamp));
-        Set<Long> existingDateSet = new HashSet<>(existingDates);
-
-        Set<Long> missing = new HashSet<>(tradingDateSet);
-        missing.removeAll(existingDateSet);
+        // 交易日与已入库日期的位图逐位比对
+        long[] tradingDates = tradingCalendarRegistry.calendar(EXCHANGE_SSE).range(startDateTimestamp, endDateTimestamp);
+        List<Long> missing = findMissingDates(tsCode, tradingDates, startDateTimestamp, endDateTimestamp);
 
         IndexCompletenessResult result = new IndexCompletenessResult();
         result.setTsCode(tsCode);
         result.setStartDate(startDateTimestamp);
         result.setEndDate(endDateTimestamp);
-        result.setExpectedTradingDays(tradingDateSet.size());
-        result.setActualTradingDays(existingDateSet.size());
+        result.setExpectedTradingDays(tradingDates.length);
+        result.setActualTradingDays(tradingDates.length - missing.size());
         result.setMissingCount(missing.size());
-        result.setMissingDates(missing.stream().sorted().toList());
+        result.setMissingDates(missing);
         result.setFromCache(false);
 
         boolean complete = missing.isEmpty();
@@ -99,6 +103,39 @@ public class IndexDataCompletenessService {
         return result;
     }
 
+    /**
+     * 删除全部缓存的判定结果；指数日线刷新后调用，处于上游缺口冷却中的区间因此会立即重新比对
+     */
+    public long evictCachedResults() {
+        List<byte[]> keys = new ArrayList<>();
+        Long deleted = redisTemplate.execute((RedisCallback<Long>) connection -> {
+            ScanOptions options = ScanOptions.scanOptions().match(CACHE_KEY_PREFIX + "*").count(1000).build();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                cursor.forEachRemaining(keys::add);
+            }
+            return keys.isEmpty() ? 0L : connection.keyCommands().del(keys.toArray(new byte[0][]));
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private List<Long> findMissingDates(String tsCode, long[] tradingDates, long startDateTimestamp, long endDateTimestamp) {
+        try {
+            return tradeDateBitmapStore.missingDates(TradeDateBitmap.Dataset.INDEX_DAILY, tsCode, tradingDates);
+        } catch (Exception e) {
+            log.warn("Trade date bitmap unavailable, fall back to database diff, tsCode={}", tsCode, e);
+        }
+        Set<Long> existingDateSet = new HashSet<>(safeList(dataCompletenessDao.getExistingDates(
+                TradeDateBitmap.Dataset.INDEX_DAILY.getTableName(), "ts_code", "trade_date",
+                tsCode, startDateTimestamp, endDateTimestamp)));
+        List<Long> missing = new ArrayList<>();
+        for (long tradingDate : tradingDates) {
+            if (!existingDateSet.contains(tradingDate)) {
+                missing.add(tradingDate);
+            }
+        }
+        return missing;
+    }
+
     private IndexCompletenessResult readFromCache(String cacheKey) {
         try {
             Object cached = redisTemplate.opsForValue().get(cacheKey);
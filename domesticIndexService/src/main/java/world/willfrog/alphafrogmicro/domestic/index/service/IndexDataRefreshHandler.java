@@ -0,0 +1,48 @@
+package world.willfrog.alphafrogmicro.domestic.index.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+import world.willfrog.alphafrogmicro.common.utils.calendar.TradingCalendarRegistry;
+
+import java.util.Set;
+
+/**
+ * 处理抓取服务广播的数据刷新通知，清理本实例中受影响的缓存
+ */
+@Service
+@Slf4j
+public class IndexDataRefreshHandler {
+
+    private static final String EXCHANGE_SSE = "SSE";
+
+    private final IndexInfoSearchService indexInfoSearchService;
+    private final IndexDataCompletenessService indexDataCompletenessService;
+    private final TradingCalendarRegistry tradingCalendarRegistry;
+
+    public IndexDataRefreshHandler(IndexInfoSearchService indexInfoSearchService,
+                                   IndexDataCompletenessService indexDataCompletenessService,
+                                   TradingCalendarRegistry tradingCalendarRegistry) {
+        this.indexInfoSearchService = indexInfoSearchService;
+        this.indexDataCompletenessService = indexDataCompletenessService;
+        this.tradingCalendarRegistry = tradingCalendarRegistry;
+    }
+
+    public void onRefresh(Set<String> datasets) {
+        log.info("Received data refresh notice: datasets={}", datasets);
+        if (datasets.contains(DataRefreshNotice.TRADE_CALENDAR)) {
+            tradingCalendarRegistry.invalidate(EXCHANGE_SSE);
+        }
+        if (datasets.contains(DataRefreshNotice.INDEX_INFO)) {
+            indexInfoSearchService.refresh();
+        }
+        if (datasets.contains(DataRefreshNotice.INDEX_DAILY)) {
+            try {
+                long evicted = indexDataCompletenessService.evictCachedResults();
+                log.info("Evicted index completeness cache entries: {}", evicted);
+            } catch (Exception e) {
+                log.error("Failed to evict index completeness cache", e);
+            }
+        }
+    }
+}
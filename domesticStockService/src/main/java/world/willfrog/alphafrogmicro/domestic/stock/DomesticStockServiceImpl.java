@@ -1,30 +1,58 @@
 package world.willfrog.alphafrogmicro.domestic.stock;
 
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.common.stream.StreamObserver;
 import org.apache.dubbo.config.annotation.DubboService;
+import org.apache.dubbo.rpc.CancellationContext;
+import org.apache.dubbo.rpc.RpcContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.StringQuery;
 import org.springframework.stereotype.Service;
 import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockInfoDao;
 import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockQuoteDao;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
 import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
+import world.willfrog.alphafrogmicro.common.utils.DailyBarResampler;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DubboDomesticStockServiceTriple.*;
 import world.willfrog.alphafrogmicro.domestic.stock.doc.StockInfoES;
-
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockCacheService;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockDailyColumnStore;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockDailySeries;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockInfoEsIndexer;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockInfoSearchService;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockPriceAdjuster;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @DubboService
 @Slf4j
 public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
 
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 500;
+    private static final int MAX_STREAM_CHUNK_SIZE = 5000;
+    private static final int MAX_BATCH_TS_CODES = 500;
+
     private final StockInfoDao stockInfoDao;
     private final StockQuoteDao stockQuoteDao;
+    private final StockCacheService stockCacheService;
+    private final StockDailyColumnStore stockDailyColumnStore;
+    private final StockPriceAdjuster stockPriceAdjuster;
+    private final StockInfoSearchService stockInfoSearchService;
+    private final StockInfoEsIndexer stockInfoEsIndexer;
 
     @Autowired(required = false)
     private final ElasticsearchOperations elasticsearchOperations;
@@ -34,9 +62,19 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
 
     public DomesticStockServiceImpl(StockInfoDao stockInfoDao,
                                     StockQuoteDao stockQuoteDao,
+                                    StockCacheService stockCacheService,
+                                    StockDailyColumnStore stockDailyColumnStore,
+                                    StockPriceAdjuster stockPriceAdjuster,
+                                    StockInfoSearchService stockInfoSearchService,
+                                    StockInfoEsIndexer stockInfoEsIndexer,
                                     ElasticsearchOperations elasticsearchOperations) {
         this.stockInfoDao = stockInfoDao;
         this.stockQuoteDao = stockQuoteDao;
+        this.stockCacheService = stockCacheService;
+        this.stockDailyColumnStore = stockDailyColumnStore;
+        this.stockPriceAdjuster = stockPriceAdjuster;
+        this.stockInfoSearchService = stockInfoSearchService;
+        this.stockInfoEsIndexer = stockInfoEsIndexer;
 
         this.elasticsearchOperations = elasticsearchOperations;
     }
@@ -45,7 +83,8 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
     public DomesticStockInfoByTsCodeResponse getStockInfoByTsCode(DomesticStockInfoByTsCodeRequest request) {
         String tsCode = request.getTsCode();
 
-        List<StockInfo> stockInfoList = stockInfoDao.getStockInfoByTsCode(tsCode, 10, 0);
+        List<StockInfo> stockInfoList = stockCacheService.getListWithCache(StockCacheService.STOCK_INFO_KEY_PREFIX + tsCode,
+                () -> stockInfoDao.getStockInfoByTsCode(tsCode, 10, 0), 24, TimeUnit.HOURS, StockInfo.class);
 
         if (stockInfoList == null || stockInfoList.isEmpty()) {
             log.warn("StockInfo not found for tsCode: {}", tsCode);
@@ -123,7 +162,11 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
     public DomesticStockSearchResponse searchStock(DomesticStockSearchRequest request) {
         String query = request.getQuery();
 
-        List<StockInfo> stockInfoList = stockInfoDao.getStockInfoByName(query, 10, 0);
+        // 优先走进程内索引，索引尚未就绪时回退到 LIKE 查询
+        List<StockInfo> stockInfoList = stockInfoSearchService.search(query, 10);
+        if (stockInfoList == null) {
+            stockInfoList = stockInfoDao.getStockInfoByName(query, 10, 0);
+        }
 
         DomesticStockSearchResponse.Builder responseBuilder = DomesticStockSearchResponse.newBuilder();
 
@@ -149,13 +192,20 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
             return DomesticStockSearchESResponse.newBuilder().build();
         }
 
-        String query = request.getQuery();
-
-        String queryString = String.format("{\"bool\": {\"should\": [{\"match\": {\"ts_code\": \"%s\"}}, {\"match\": {\"name\": \"%s\"}}, {\"match\": {\"fullname\": \"%s\"}}]}}", query, query, query);
+        String query = request.getQuery() == null ? "" : request.getQuery().trim();
+        if (query.isEmpty()) {
+            return DomesticStockSearchESResponse.newBuilder().build();
+        }
 
-        StringQuery stringQuery = new StringQuery(queryString);
+        stockInfoEsIndexer.syncIfDue();
 
-        SearchHits<StockInfoES> searchHits = elasticsearchOperations.search(stringQuery, StockInfoES.class);
+        SearchHits<StockInfoES> searchHits;
+        try {
+            searchHits = elasticsearchOperations.search(buildStockSearchQuery(query, 10), StockInfoES.class);
+        } catch (Exception e) {
+            log.error("Error occurred while searching stock info in ES with query: {}", query, e);
+            return DomesticStockSearchESResponse.newBuilder().build();
+        }
 
         DomesticStockSearchESResponse.Builder responseBuilder = DomesticStockSearchESResponse.newBuilder();
 
@@ -164,8 +214,8 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
 
             DomesticStockInfoESItem.Builder itemBuilder = DomesticStockInfoESItem.newBuilder();
             itemBuilder.setTsCode(stockInfoES.getTsCode())
-                    .setSymbol(stockInfoES.getSymbol())
-                    .setName(stockInfoES.getName())
+                    .setSymbol(stockInfoES.getSymbol() != null ? stockInfoES.getSymbol() : "")
+                    .setName(stockInfoES.getName() != null ? stockInfoES.getName() : "")
                     .setArea(stockInfoES.getArea() != null ? stockInfoES.getArea() : "")
                     .setIndustry(stockInfoES.getIndustry() != null ? stockInfoES.getIndustry() : "");
 
@@ -175,6 +225,25 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
         return responseBuilder.build();
     }
 
+    /**
+     * 精确匹配代码/名称权重最高，其次代码与拼音首字母前缀，最后是名称/全称的 ngram 子串匹配
+     */
+    private NativeQuery buildStockSearchQuery(String query, int limit) {
+        Query boolQuery = Query.of(q -> q.bool(b -> b
+                .should(s -> s.term(t -> t.field("ts_code.keyword").value(query).boost(10f)))
+                .should(s -> s.term(t -> t.field("name.keyword").value(query).boost(8f)))
+                .should(s -> s.term(t -> t.field("symbol").value(query).boost(6f)))
+                .should(s -> s.match(m -> m.field("ts_code").query(query).boost(5f)))
+                .should(s -> s.match(m -> m.field("cnspell").query(query).boost(4f)))
+                .should(s -> s.match(m -> m.field("name").query(query).operator(Operator.And).boost(3f)))
+                .should(s -> s.match(m -> m.field("fullname").query(query).operator(Operator.And)))
+                .minimumShouldMatch("1")));
+        return NativeQuery.builder()
+                .withQuery(boolQuery)
+                .withMaxResults(limit)
+                .build();
+    }
+
 
     @Override
     public DomesticStockTsCodeResponse getStockTsCode(DomesticStockTsCodeRequest request) {
@@ -200,6 +269,31 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
         long startDate = request.getStartDate();
         long endDate = request.getEndDate();
 
+        // 非法的复权或重采样参数以 IllegalArgumentException 返回，调用方不会把空响应误当作无数据
+        StockPriceAdjuster.AdjustType adjustType;
+        DailyBarResampler.Period period;
+        try {
+            adjustType = StockPriceAdjuster.AdjustType.parse(request.getAdjust());
+            period = DailyBarResampler.Period.parse(request.getResample());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid daily request option, tsCode: {}, adjust: {}, resample: {}",
+                    tsCode, request.getAdjust(), request.getResample());
+            throw e;
+        }
+        if (adjustType != StockPriceAdjuster.AdjustType.NONE || period != DailyBarResampler.Period.DAILY) {
+            return getDerivedStockDaily(tsCode, startDate, endDate, adjustType, period);
+        }
+
+        if (stockDailyColumnStore.isEnabled()) {
+            try {
+                StockDailySeries series = stockDailyColumnStore.getSeries(tsCode, startDate, endDate);
+                return buildDailyRangeResponse(series, startDate, endDate);
+            } catch (Exception e) {
+                log.warn("Column store lookup failed, fallback to database. tsCode: {}, startDate: {}, endDate: {}",
+                        tsCode, startDate, endDate, e);
+            }
+        }
+
         List<StockDaily> stockDailyList = stockQuoteDao.getStockDailyByTsCodeAndDateRange(tsCode, startDate, endDate);
 
         if (stockDailyList == null) {
@@ -210,21 +304,114 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
         DomesticStockDailyByTsCodeAndDateRangeResponse.Builder responseBuilder = DomesticStockDailyByTsCodeAndDateRangeResponse.newBuilder();
 
         for (StockDaily stockDaily : stockDailyList) {
-            DomesticStockDailyItem.Builder itemBuilder = DomesticStockDailyItem.newBuilder();
-            itemBuilder.setStockDailyId(-1)
-                    .setTsCode(stockDaily.getTsCode())
-                    .setTradeDate(stockDaily.getTradeDate())
-                    .setClose(stockDaily.getClose())
-                    .setOpen(stockDaily.getOpen())
-                    .setHigh(stockDaily.getHigh())
-                    .setLow(stockDaily.getLow())
-                    .setPreClose(stockDaily.getPreClose())
-                    .setChange(stockDaily.getChange())
-                    .setPctChg(stockDaily.getPctChg())
-                    .setVol(stockDaily.getVol())
-                    .setAmount(stockDaily.getAmount());
+            responseBuilder.addItems(toDailyItem(stockDaily));
+        }
 
-            responseBuilder.addItems(itemBuilder.build());
+        return responseBuilder.build();
+    }
+
+    /**
+     * 复权与重采样都在列式数组上完成：先按复权比例缩放，再单次遍历聚合为周/月/季线
+     */
+    private DomesticStockDailyByTsCodeAndDateRangeResponse getDerivedStockDaily(String tsCode, long startDate, long endDate,
+                                                                               StockPriceAdjuster.AdjustType adjustType,
+                                                                               DailyBarResampler.Period period) {
+        try {
+            StockDailySeries series;
+            if (stockDailyColumnStore.isEnabled()) {
+                series = stockDailyColumnStore.getSeries(tsCode, startDate, endDate);
+            } else {
+                List<StockDaily> rows = new ArrayList<>(stockQuoteDao.getStockDailyByTsCodeAndDateRange(tsCode, startDate, endDate));
+                rows.sort(Comparator.nullsLast(Comparator.comparing(StockDaily::getTradeDate, Comparator.nullsLast(Comparator.naturalOrder()))));
+                series = StockDailySeries.fromSortedRows(tsCode, rows);
+            }
+            int from = series.lowerBound(startDate);
+            int to = series.upperBound(endDate);
+            if (adjustType != StockPriceAdjuster.AdjustType.NONE) {
+                series = stockPriceAdjuster.adjust(series, from, to, adjustType);
+                from = 0;
+                to = series.size();
+            }
+            if (period == DailyBarResampler.Period.DAILY) {
+                return buildDailyRangeResponse(series, startDate, endDate);
+            }
+
+            DailyBarResampler.Bars bars = DailyBarResampler.resample(series.toBars(from, to), period);
+            DomesticStockDailyByTsCodeAndDateRangeResponse.Builder responseBuilder = DomesticStockDailyByTsCodeAndDateRangeResponse.newBuilder();
+            for (int i = 0; i < bars.size; i++) {
+                responseBuilder.addItems(DomesticStockDailyItem.newBuilder()
+                        .setStockDailyId(-1)
+                        .setTsCode(tsCode)
+                        .setTradeDate(bars.tradeDates[i])
+                        .setClose(bars.close[i])
+                        .setOpen(bars.open[i])
+                        .setHigh(bars.high[i])
+                        .setLow(bars.low[i])
+                        .setPreClose(bars.preClose[i])
+                        .setChange(bars.change[i])
+                        .setPctChg(bars.pctChg[i])
+                        .setVol(bars.vol[i])
+                        .setAmount(bars.amount[i])
+                        .build());
+            }
+            return responseBuilder.build();
+        } catch (Exception e) {
+            log.error("Error occurred while getting derived stock daily, tsCode: {}, startDate: {}, endDate: {}, adjust: {}, resample: {}",
+                    tsCode, startDate, endDate, adjustType, period, e);
+            throw new IllegalStateException("Failed to load derived stock daily: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public DomesticStockDailyByTsCodesAndDateRangeResponse getStockDailyByTsCodesAndDateRange(DomesticStockDailyByTsCodesAndDateRangeRequest request) {
+        long startDate = request.getStartDate();
+        long endDate = request.getEndDate();
+        Set<String> tsCodes = normalizeTsCodes(request.getTsCodesList());
+
+        DomesticStockDailyByTsCodesAndDateRangeResponse.Builder responseBuilder = DomesticStockDailyByTsCodesAndDateRangeResponse.newBuilder();
+        if (tsCodes.isEmpty()) {
+            return responseBuilder.build();
+        }
+        // 超限与查询失败都以异常返回，调用方据此拆分或逐只重试，不会把空序列误当作无数据
+        if (tsCodes.size() > MAX_BATCH_TS_CODES) {
+            log.warn("Too many tsCodes in batch daily request: {}, max: {}", tsCodes.size(), MAX_BATCH_TS_CODES);
+            throw new IllegalArgumentException("Too many tsCodes in batch daily request: " + tsCodes.size()
+                    + ", max: " + MAX_BATCH_TS_CODES);
+        }
+
+        // 列式存储中已覆盖该区间的股票直接切片，其余股票合并为一条 ANY 查询
+        Map<String, List<DomesticStockDailyItem>> itemsByTsCode = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String tsCode : tsCodes) {
+            StockDailySeries series = stockDailyColumnStore.isEnabled()
+                    ? stockDailyColumnStore.getSeriesIfCovered(tsCode, startDate, endDate) : null;
+            if (series != null) {
+                itemsByTsCode.put(tsCode, sliceDailyItems(series, startDate, endDate));
+            } else {
+                missing.add(tsCode);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<StockDaily> stockDailyList;
+            try {
+                stockDailyList = stockQuoteDao.getStockDailyByTsCodesAndDateRange(missing.toArray(new String[0]), startDate, endDate);
+            } catch (Exception e) {
+                log.error("Error occurred while getting batch stock daily, tsCodeCount: {}, startDate: {}, endDate: {}",
+                        missing.size(), startDate, endDate, e);
+                throw new IllegalStateException("Failed to load batch stock daily: " + e.getMessage());
+            }
+            for (StockDaily stockDaily : stockDailyList) {
+                itemsByTsCode.computeIfAbsent(stockDaily.getTsCode(), key -> new ArrayList<>()).add(toDailyItem(stockDaily));
+            }
+        }
+
+        // 按请求顺序返回，无数据的股票返回空序列
+        for (String tsCode : tsCodes) {
+            responseBuilder.addSeries(DomesticStockDailySeries.newBuilder()
+                    .setTsCode(tsCode)
+                    .addAllItems(itemsByTsCode.getOrDefault(tsCode, List.of()))
+                    .build());
         }
 
         return responseBuilder.build();
@@ -239,23 +426,109 @@ public class DomesticStockServiceImpl extends DomesticStockServiceImplBase {
         DomesticStockDailyByTradeDateResponse.Builder responseBuilder = DomesticStockDailyByTradeDateResponse.newBuilder();
 
         for (StockDaily stockDaily : stockDailyList) {
-            DomesticStockDailyItem.Builder itemBuilder = DomesticStockDailyItem.newBuilder();
-            itemBuilder.setStockDailyId(-1)
-                    .setTsCode(stockDaily.getTsCode())
-                    .setTradeDate(stockDaily.getTradeDate())
-                    .setClose(stockDaily.getClose())
-                    .setOpen(stockDaily.getOpen())
-                    .setHigh(stockDaily.getHigh())
-                    .setLow(stockDaily.getLow())
-                    .setPreClose(stockDaily.getPreClose())
-                    .setChange(stockDaily.getChange())
-                    .setPctChg(stockDaily.getPctChg())
-                    .setVol(stockDaily.getVol())
-                    .setAmount(stockDaily.getAmount());
-
-            responseBuilder.addItems(itemBuilder.build());
+            responseBuilder.addItems(toDailyItem(stockDaily));
         }
 
         return responseBuilder.build();
     }
+
+    @Override
+    public void streamStockDailyByTradeDate(DomesticStockDailyByTradeDateStreamRequest request,
+                                            StreamObserver<DomesticStockDailyChunk> responseObserver) {
+        long tradeDate = request.getTradeDate();
+        int chunkSize = request.getChunkSize() > 0
+                ? Math.min(request.getChunkSize(), MAX_STREAM_CHUNK_SIZE) : DEFAULT_STREAM_CHUNK_SIZE;
+
+        // 按 ts_code 键集分页，每页一次独立查询，推送期间不占用数据库连接和事务；客户端取消后停止读取
+        CancellationContext cancellation = RpcContext.getCancellationContext();
+        try {
+            int count = 0;
+            int chunkIndex = 0;
+            String afterTsCode = "";
+            while (true) {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    log.info("Stock daily stream cancelled by client, tradeDate: {}, rows: {}", tradeDate, count);
+                    return;
+                }
+                List<StockDaily> page = stockQuoteDao.getStockDailyByTradeDateAfterTsCode(tradeDate, afterTsCode, chunkSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                DomesticStockDailyChunk.Builder chunkBuilder = DomesticStockDailyChunk.newBuilder().setChunkIndex(chunkIndex++);
+                for (StockDaily stockDaily : page) {
+                    chunkBuilder.addItems(toDailyItem(stockDaily));
+                }
+                responseObserver.onNext(chunkBuilder.build());
+                count += page.size();
+                if (page.size() < chunkSize) {
+                    break;
+                }
+                afterTsCode = page.get(page.size() - 1).getTsCode();
+            }
+            log.info("Streamed stock daily cross section, tradeDate: {}, rows: {}, chunkSize: {}", tradeDate, count, chunkSize);
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Error occurred while streaming stock daily by trade date: {}", tradeDate, e);
+            responseObserver.onError(e);
+        }
+    }
+
+    private Set<String> normalizeTsCodes(List<String> rawTsCodes) {
+        Set<String> tsCodes = new LinkedHashSet<>();
+        for (String raw : rawTsCodes) {
+            if (raw != null && !raw.isBlank()) {
+                tsCodes.add(raw.trim());
+            }
+        }
+        return tsCodes;
+    }
+
+    private DomesticStockDailyItem toDailyItem(StockDaily stockDaily) {
+        return DomesticStockDailyItem.newBuilder()
+                .setStockDailyId(-1)
+                .setTsCode(stockDaily.getTsCode())
+                .setTradeDate(stockDaily.getTradeDate())
+                .setClose(stockDaily.getClose())
+                .setOpen(stockDaily.getOpen())
+                .setHigh(stockDaily.getHigh())
+                .setLow(stockDaily.getLow())
+                .setPreClose(stockDaily.getPreClose())
+                .setChange(stockDaily.getChange())
+                .setPctChg(stockDaily.getPctChg())
+                .setVol(stockDaily.getVol())
+                .setAmount(stockDaily.getAmount())
+                .build();
+    }
+
+    private DomesticStockDailyByTsCodeAndDateRangeResponse buildDailyRangeResponse(StockDailySeries series,
+                                                                                  long startDate, long endDate) {
+        return DomesticStockDailyByTsCodeAndDateRangeResponse.newBuilder()
+                .addAllItems(sliceDailyItems(series, startDate, endDate))
+                .build();
+    }
+
+    private List<DomesticStockDailyItem> sliceDailyItems(StockDailySeries series, long startDate, long endDate) {
+        int from = series.lowerBound(startDate);
+        int to = series.upperBound(endDate);
+        List<DomesticStockDailyItem> items = new ArrayList<>(Math.max(0, to - from));
+
+        for (int i = from; i < to; i++) {
+            items.add(DomesticStockDailyItem.newBuilder()
+                    .setStockDailyId(-1)
+                    .setTsCode(series.getTsCode())
+                    .setTradeDate(series.tradeDate(i))
+                    .setClose(series.close(i))
+                    .setOpen(series.open(i))
+                    .setHigh(series.high(i))
+                    .setLow(series.low(i))
+                    .setPreClose(series.preClose(i))
+                    .setChange(series.change(i))
+                    .setPctChg(series.pctChg(i))
+                    .setVol(series.vol(i))
+                    .setAmount(series.amount(i))
+                    .build());
+        }
+
+        return items;
+    }
 }
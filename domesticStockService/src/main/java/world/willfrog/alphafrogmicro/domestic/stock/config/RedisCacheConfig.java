@@ -3,17 +3,21 @@ package world.willfrog.alphafrogmicro.domestic.stock.config;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import world.willfrog.alphafrogmicro.common.utils.cache.CompactRedisSerializer;
 
 import java.time.Duration;
 
@@ -23,6 +27,12 @@ public class RedisCacheConfig {
 
     private final ObjectMapper objectMapper;
 
+    @Value("${advanced.redis-codec.binary-writes:false}")
+    private boolean binaryWrites;
+
+    @Value("${advanced.redis-codec.deflate-threshold-bytes:1024}")
+    private int deflateThreshold;
+
     public RedisCacheConfig(ObjectMapper objectMapper) {
         // Spring Boot 会自动配置一个 ObjectMapper，我们可以注入它
         // 如果需要更细致的 ObjectMapper 配置，可以在这里定制
@@ -37,15 +47,30 @@ public class RedisCacheConfig {
         return RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(ttl)
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer(objectMapper)))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(compactValueSerializer()))
                 .disableCachingNullValues(); // 根据需要决定是否缓存null值
     }
 
+    /**
+     * 清空缓存时用 SCAN 分批删除，默认写入器使用 KEYS 会阻塞 Redis
+     */
+    private RedisCacheWriter cacheWriter(RedisConnectionFactory redisConnectionFactory) {
+        return RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory, BatchStrategies.scan(1000));
+    }
+
+    /**
+     * 日线列表走列式二进制编码，其余值仍用带类型信息的 JSON；旧版 JSON 值可以直接读取。
+     * binary-writes=false 时写出的就是升级前 GenericJackson2JsonRedisSerializer 的字节，旧实例可以读取
+     */
+    private CompactRedisSerializer compactValueSerializer() {
+        return new CompactRedisSerializer(new GenericJackson2JsonRedisSerializer(objectMapper), binaryWrites, deflateThreshold);
+    }
+
     @Primary
     @Bean
     public CacheManager stockInfoCacheManager(RedisConnectionFactory redisConnectionFactory) {
         RedisCacheConfiguration cacheConfiguration = createCacheConfiguration(Duration.ofHours(24));
-        return RedisCacheManager.builder(redisConnectionFactory)
+        return RedisCacheManager.builder(cacheWriter(redisConnectionFactory))
                 .cacheDefaults(cacheConfiguration)
                 .transactionAware() // 如果你的操作在事务中，这会很有用
                 .build();
@@ -54,7 +79,7 @@ public class RedisCacheConfig {
     @Bean
     public CacheManager stockDailyCacheManager(RedisConnectionFactory redisConnectionFactory) {
         RedisCacheConfiguration cacheConfiguration = createCacheConfiguration(Duration.ofMinutes(24 * 60));
-        return RedisCacheManager.builder(redisConnectionFactory)
+        return RedisCacheManager.builder(cacheWriter(redisConnectionFactory))
                 .cacheDefaults(cacheConfiguration)
                 .transactionAware()
                 .build();
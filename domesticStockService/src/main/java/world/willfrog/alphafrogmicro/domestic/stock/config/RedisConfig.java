@@ -10,8 +10,16 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockCacheService;
+import world.willfrog.alphafrogmicro.domestic.stock.service.StockDataRefreshHandler;
+
+import java.nio.charset.StandardCharsets;
 
 @Configuration
 public class RedisConfig {
@@ -25,6 +33,9 @@ public class RedisConfig {
     @Value("${spring.data.redis.password}")
     private String redisPassword;
 
+    @Value("${advanced.data-refresh.channel:" + DataRefreshNotice.DEFAULT_CHANNEL + "}")
+    private String dataRefreshChannel;
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(redisHost, redisPort);
@@ -48,6 +59,42 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * 值按原始字节读写，由 StockCacheService 自行编解码
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory factory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
+
+    /**
+     * 订阅两级缓存的失效广播，收到后清理本实例的 L1；同时订阅抓取服务的数据刷新通知
+     */
+    @Bean
+    public RedisMessageListenerContainer stockCacheInvalidationListenerContainer(RedisConnectionFactory factory,
+                                                                                 StockCacheService stockCacheService,
+                                                                                 StockDataRefreshHandler stockDataRefreshHandler) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) -> {
+            String key = new String(message.getBody(), StandardCharsets.UTF_8);
+            // 升级前的实例以 JSON 字符串发布 key
+            if (key.length() >= 2 && key.startsWith("\"") && key.endsWith("\"")) {
+                key = key.substring(1, key.length() - 1);
+            }
+            stockCacheService.onInvalidation(key);
+        }, new ChannelTopic(stockCacheService.getInvalidationChannel()));
+        container.addMessageListener((message, pattern) ->
+                stockDataRefreshHandler.onRefresh(DataRefreshNotice.decode(message.getBody()),
+                        DataRefreshNotice.decodeId(message.getBody())),
+                new ChannelTopic(dataRefreshChannel));
+        return container;
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -7,37 +7,66 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Setting;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
 
+/**
+ * 股票基础信息的 ES 文档，以 ts_code 作为文档 id，重复写入即覆盖。
+ * <p>
+ * 分词器定义在 es/stock-info-settings.json：name/fullname 使用 1~2 字 ngram，ts_code/cnspell 使用前缀 edge_ngram，
+ * keyword 子字段使用小写 normalizer 做精确匹配。
+ */
 @Document(indexName = "alphafrog_stock_info_index")
+@Setting(settingPath = "es/stock-info-settings.json")
 @Getter
 @Setter
 @ToString
 public class StockInfoES {
 
     @Id
-    private Long stock_info_id;
+    private String id;
 
-    @Field(type = FieldType.Text, fielddata = true)
-    private String symbol;
-
-    @Field(type = FieldType.Text, fielddata = true, name = "ts_code")
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, name = "ts_code", analyzer = "af_prefix", searchAnalyzer = "af_prefix_search"),
+            otherFields = @InnerField(suffix = "keyword", type = FieldType.Keyword, normalizer = "af_lowercase"))
     private String tsCode;
 
-    @Field(type = FieldType.Text, fielddata = true)
+    @Field(type = FieldType.Keyword)
+    private String symbol;
+
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, analyzer = "af_ngram", searchAnalyzer = "af_ngram"),
+            otherFields = @InnerField(suffix = "keyword", type = FieldType.Keyword, normalizer = "af_lowercase"))
     private String name;
 
-    @Field(type = FieldType.Text, fielddata = true)
+    @Field(type = FieldType.Text)
     private String enname;
 
-    @Field(type = FieldType.Text, fielddata = true)
+    @Field(type = FieldType.Text, analyzer = "af_ngram", searchAnalyzer = "af_ngram")
     private String fullname;
 
-    @Field(type = FieldType.Text, fielddata = true)
+    @Field(type = FieldType.Text, analyzer = "af_prefix", searchAnalyzer = "af_prefix_search")
     private String cnspell;
 
-    @Field(type = FieldType.Text, fielddata = true)
+    @Field(type = FieldType.Keyword)
     private String area;
 
-    @Field(type = FieldType.Text, fielddata = true)
+    @Field(type = FieldType.Keyword)
     private String industry;
+
+    public static StockInfoES fromStockInfo(StockInfo stockInfo) {
+        StockInfoES doc = new StockInfoES();
+        doc.setId(stockInfo.getTsCode());
+        doc.setTsCode(stockInfo.getTsCode());
+        doc.setSymbol(stockInfo.getSymbol());
+        doc.setName(stockInfo.getName());
+        doc.setEnname(stockInfo.getEnName());
+        doc.setFullname(stockInfo.getFullName());
+        doc.setCnspell(stockInfo.getCnspell());
+        doc.setArea(stockInfo.getArea());
+        doc.setIndustry(stockInfo.getIndustry());
+        return doc;
+    }
 }
@@ -7,5 +7,5 @@ import world.willfrog.alphafrogmicro.domestic.stock.doc.StockInfoES;
 
 @Repository
 @ConditionalOnProperty(name = "advanced.es-enabled", havingValue = "true")
-public interface StockInfoRepository extends ElasticsearchRepository<StockInfoES, Long> {
+public interface StockInfoRepository extends ElasticsearchRepository<StockInfoES, String> {
 }
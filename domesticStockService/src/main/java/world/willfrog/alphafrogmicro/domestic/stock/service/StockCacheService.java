@@ -1,29 +1,109 @@
 package world.willfrog.alphafrogmicro.domestic.stock.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.utils.cache.CompactRedisSerializer;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * 两级缓存：进程内 Caffeine（L1，存放反序列化后的对象）+ Redis（L2，存放 {@link CompactRedisSerializer} 编码的二进制）。
+ * <ul>
+ *     <li>L1 命中直接返回对象，不再访问 Redis、不再反序列化；按 L2 编码后的字节数计权重，总量受 l1-max-weight 限制；</li>
+ *     <li>同一个 key 的并发未命中合并为一次加载（single-flight），其余调用方等待同一结果；加载在独立线程池上执行，
+ *     Caffeine 只在锁内登记加载中的 future，Redis / 数据库的阻塞调用不会占住缓存的哈希桶锁；</li>
+ *     <li>L1 条目超过 l1-refresh-after 后继续返回旧值，同时在后台重新加载（stale-while-revalidate），
+ *     超过 l1-ttl 或 L2 的过期时间后才真正失效；后台刷新只替换发起刷新时的那个条目，期间被失效或替换过则丢弃结果；</li>
+ *     <li>读取 L2 时 GET 与 PTTL 在同一个 pipeline 中发送，一次往返同时拿到值与剩余过期时间；</li>
+ *     <li>{@link #evict(String)} 删除 Redis 中的值并通过 Redis pub/sub 广播，各实例收到后清理自己的 L1。</li>
+ * </ul>
+ * 升级前写入的 L2 值是被再包了一层 JSON 字符串的 JSON 文本，读取时仍可识别。
+ * advanced.redis-codec.binary-writes=false 时按升级前的格式写入 L2（JSON 字符串）并以 JSON 字符串发布失效消息，
+ * 旧实例可以照常读取；全部实例升级后再打开。
+ */
 @Service
 @Slf4j
 public class StockCacheService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    public static final String STOCK_INFO_KEY_PREFIX = "domestic:stock_info:";
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
     private final ObjectMapper objectMapper;
+    private final boolean binaryWrites;
+    private final int deflateThreshold;
+    private final AsyncCache<String, L1Entry> l1Cache;
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+    private final Map<JavaType, CompactRedisSerializer> codecs = new ConcurrentHashMap<>();
+    private final ExecutorService loadExecutor;
+    private final ExecutorService refreshExecutor;
+    private final long l1TtlMs;
+    private final long l1RefreshAfterMs;
+    private final String invalidationChannel;
 
-    public StockCacheService(RedisTemplate<String, Object> redisTemplate,
-                             ObjectMapper objectMapper) {
+    public StockCacheService(@Qualifier("binaryRedisTemplate") RedisTemplate<String, byte[]> redisTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${advanced.stock-cache.l1-max-weight:33554432}") long l1MaxWeight,
+                             @Value("${advanced.stock-cache.l1-ttl-seconds:600}") long l1TtlSeconds,
+                             @Value("${advanced.stock-cache.l1-refresh-after-seconds:60}") long l1RefreshAfterSeconds,
+                             @Value("${advanced.stock-cache.invalidation-channel:alphafrog:stock-cache:invalidate}") String invalidationChannel,
+                             @Value("${advanced.stock-cache.load-threads:16}") int loadThreads,
+                             @Value("${advanced.redis-codec.binary-writes:false}") boolean binaryWrites,
+                             @Value("${advanced.redis-codec.deflate-threshold-bytes:1024}") int deflateThreshold) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.binaryWrites = binaryWrites;
+        this.deflateThreshold = deflateThreshold;
+        this.l1TtlMs = TimeUnit.SECONDS.toMillis(l1TtlSeconds);
+        this.l1RefreshAfterMs = TimeUnit.SECONDS.toMillis(l1RefreshAfterSeconds);
+        this.invalidationChannel = invalidationChannel;
+        AtomicInteger sequence = new AtomicInteger();
+        this.loadExecutor = Executors.newFixedThreadPool(Math.max(1, loadThreads), runnable -> {
+            Thread thread = new Thread(runnable, "stock-cache-load-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.l1Cache = Caffeine.newBuilder()
+                .maximumWeight(l1MaxWeight)
+                .weigher((String key, L1Entry entry) -> entry.weight)
+                .expireAfter(new L1Expiry())
+                .executor(loadExecutor)
+                .buildAsync();
+        this.refreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "stock-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -34,77 +114,273 @@ public class StockCacheService {
      * @param timeUnit 时间单位
      * @return 查询结果
      */
+    @SuppressWarnings("unchecked")
     public <T> T getWithCache(String key, Supplier<T> dbFallback, long expireTimestamp, TimeUnit timeUnit,
                               TypeReference<T> typeRef) {
-        // 从缓存获取 JSON 字符串
-        String cachedJson = (String) redisTemplate.opsForValue().get(key);
-        if (cachedJson != null) {
-            // 使用 TypeReference 反序列化
-            return deserializeFromJson(cachedJson, typeRef);
+        long l2TtlMs = timeUnit.toMillis(expireTimestamp);
+        JavaType type = objectMapper.getTypeFactory().constructType(typeRef);
+        Function<String, L1Entry> loader = k -> load(k, dbFallback, type, l2TtlMs);
+        return (T) getFromL1(key, loader);
+    }
+
+
+    /**
+     * 从缓存获取列表数据
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getListWithCache(String key, Supplier<List<T>> dbFallback, long expireTimestamp, TimeUnit timeUnit, Class<T> elementType) {
+        // 随机抖动几秒，避免同一批 key 在 Redis 中同时过期
+        long l2TtlMs = timeUnit.toMillis(expireTimestamp) + TimeUnit.SECONDS.toMillis(ThreadLocalRandom.current().nextInt(0, 10));
+        // 使用TypeFactory指定具体的集合类型
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+        Function<String, L1Entry> loader = k -> load(k, dbFallback, listType, l2TtlMs);
+        return (List<T>) getFromL1(key, loader);
+    }
+
+    /**
+     * 删除 key 在 Redis 与本地 L1 中的值，并通知其他实例清理各自的 L1
+     */
+    public void evict(String key) {
+        l1Cache.synchronous().invalidate(key);
+        try {
+            redisTemplate.delete(key);
+            redisTemplate.convertAndSend(invalidationChannel, encodeInvalidation(key));
+        } catch (Exception e) {
+            log.error("Failed to evict cache key from redis: {}", key, e);
         }
+    }
 
-        T value = dbFallback.get();
-        if (value != null) {
-            // 序列化为 JSON 存储
-            String json = serializeToJson(value);
+    /**
+     * 删除某一前缀下的全部缓存：清理本地 L1，并用 SCAN 分批删除 Redis 中的值。
+     * 数据刷新通知会广播到每个实例，各实例自行清理 L1，这里不再单独发送失效消息。
+     *
+     * @return Redis 中删除的 key 数量
+     */
+    public long evictByPrefix(String prefix) {
+        l1Cache.synchronous().asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        try {
+            Long deleted = redisTemplate.execute((RedisCallback<Long>) connection -> deleteByPrefix(connection, prefix));
+            return deleted == null ? 0 : deleted;
+        } catch (Exception e) {
+            log.error("Failed to evict cache keys from redis: prefix={}", prefix, e);
+            return 0;
+        }
+    }
 
-            // 处理异常情况
-            if (json == null) {
-                log.error("Serialization failed. See previous logs for details.");
-                return null;
+    /**
+     * 只清理本地 L1 中某一前缀下的缓存，Redis 中的值由其他实例负责清理
+     */
+    public void evictLocalByPrefix(String prefix) {
+        l1Cache.synchronous().asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static long deleteByPrefix(RedisConnection connection, String prefix) {
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(1000).build();
+        long deleted = 0;
+        List<byte[]> batch = new ArrayList<>();
+        try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == 1000) {
+                    deleted += delete(connection, batch);
+                }
             }
-            redisTemplate.opsForValue().set(key, json, expireTimestamp, timeUnit);
         }
-        return value;
+        return deleted + delete(connection, batch);
     }
 
+    private static long delete(RedisConnection connection, List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long deleted = connection.keyCommands().del(keys.toArray(new byte[0][]));
+        keys.clear();
+        return deleted == null ? 0 : deleted;
+    }
 
     /**
-     * 从缓存获取列表数据
+     * 处理其他实例广播的失效消息，只清理本地 L1
      */
-    public <T> List<T> getListWithCache(String key, Supplier<List<T>> dbFallback, long expireTimestamp, TimeUnit timeUnit, Class<T> elementType) {
-        // 从缓存获取JSON字符串
-        String cachedJson = (String) redisTemplate.opsForValue().get(key);
-        if (cachedJson != null) {
-            try {
-                // 使用TypeFactory指定具体的集合类型
-                JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
-                return objectMapper.readValue(cachedJson, listType);
-            } catch (JsonProcessingException e) {
-                log.error("Deserialization failed", e);
-                return null;
+    public void onInvalidation(String key) {
+        if (key != null && !key.isEmpty()) {
+            l1Cache.synchronous().invalidate(key);
+        }
+    }
+
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    private Object getFromL1(String key, Function<String, L1Entry> loader) {
+        // 并发未命中共享同一个加载中的 future，只会执行一次 loader；加载结果为 null 时条目被移除，不缓存
+        CompletableFuture<L1Entry> future = l1Cache.get(key, loader);
+        L1Entry entry;
+        try {
+            entry = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.refreshAtMs) {
+            refreshAsync(key, future, loader);
+        }
+        return entry.value;
+    }
+
+    /**
+     * 后台重新加载后只在 L1 中仍是 current 这个条目时才替换；刷新期间 evict / 失效广播移除了它，
+     * 或已有更新的值写入时放弃结果，避免把失效前读到的旧值写回 L1
+     */
+    private void refreshAsync(String key, CompletableFuture<L1Entry> current, Function<String, L1Entry> loader) {
+        if (!refreshingKeys.add(key)) {
+            return;
         }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    L1Entry refreshed = loader.apply(key);
+                    if (refreshed != null
+                            && !l1Cache.asMap().replace(key, current, CompletableFuture.completedFuture(refreshed))) {
+                        log.debug("Cache entry changed during background refresh, drop refreshed value: {}", key);
+                    }
+                } catch (Exception e) {
+                    log.warn("Background cache refresh failed, keep serving stale value: {}", key, e);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshingKeys.remove(key);
+            throw e;
+        }
+    }
 
-        // 从数据库获取数据
-        List<T> value = dbFallback.get();
-        if (value != null) {
-            String json = serializeToJson(value);
-            if (json != null) {
-                long finalExpireTimestamp = expireTimestamp + ThreadLocalRandom.current().nextInt(0, 10);
-                redisTemplate.opsForValue().set(key, json, finalExpireTimestamp, timeUnit);
+    /**
+     * 先读 L2，未命中再回源数据库并写回 L2；返回 null 表示没有可缓存的值
+     */
+    private <T> L1Entry load(String key, Supplier<T> dbFallback, JavaType type, long l2TtlMs) {
+        CompactRedisSerializer codec = codecs.computeIfAbsent(type, t -> new CompactRedisSerializer(
+                new Jackson2JsonRedisSerializer<>(objectMapper, t), binaryWrites, deflateThreshold));
+        List<Object> l2 = readWithExpire(key);
+        byte[] cached = l2.size() > 0 && l2.get(0) instanceof byte[] bytes ? bytes : null;
+        if (cached != null) {
+            Object value = deserialize(cached, codec, type);
+            if (value != null) {
+                Long remainingMs = l2.size() > 1 && l2.get(1) instanceof Long ms ? ms : null;
+                long ttlMs = remainingMs != null && remainingMs > 0 ? remainingMs : l2TtlMs;
+                return newEntry(value, cached.length, ttlMs);
             }
         }
-        return value;
+
+        T value = dbFallback.get();
+        if (value == null) {
+            return null;
+        }
+        byte[] encoded = serialize(value, codec);
+        if (encoded == null) {
+            log.error("Serialization failed. See previous logs for details.");
+            return null;
+        }
+        redisTemplate.opsForValue().set(key, encoded, l2TtlMs, TimeUnit.MILLISECONDS);
+        return newEntry(value, encoded.length, l2TtlMs);
+    }
+
+    /**
+     * 在同一个 pipeline 中读取值与剩余过期毫秒数，返回 [value, pttl]
+     */
+    private List<Object> readWithExpire(String key) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                ops.opsForValue().get(key);
+                ops.getExpire(key, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        });
+        return results == null ? List.of() : results;
     }
 
-    // 序列化工具方法
-    private String serializeToJson(Object value) {
+    private L1Entry newEntry(Object value, int weight, long l2RemainingMs) {
+        long now = System.currentTimeMillis();
+        // L1 不会比 L2 活得更久
+        long ttlMs = Math.min(l1TtlMs, l2RemainingMs);
+        return new L1Entry(value, Math.max(1, weight), now + Math.min(l1RefreshAfterMs, ttlMs),
+                TimeUnit.MILLISECONDS.toNanos(ttlMs));
+    }
+
+    /**
+     * 失效消息：新格式为 UTF-8 原文；兼容模式下与旧实例一样发布 JSON 字符串
+     */
+    private byte[] encodeInvalidation(String key) throws IOException {
+        return binaryWrites ? key.getBytes(StandardCharsets.UTF_8) : objectMapper.writeValueAsBytes(key);
+    }
+
+    // 序列化工具方法；兼容模式下写出旧实例按 (String) 读取的 JSON 字符串
+    private byte[] serialize(Object value, CompactRedisSerializer codec) {
         try {
-            return objectMapper.writeValueAsString(value);
-        } catch (JsonProcessingException e) {
+            if (!binaryWrites) {
+                return objectMapper.writeValueAsBytes(objectMapper.writeValueAsString(value));
+            }
+            return codec.serialize(value);
+        } catch (Exception e) {
             log.error("Serialization failed", e);
             return null;
         }
     }
 
-    // 反序列化工具方法
-    private <T> T deserializeFromJson(String json, TypeReference<T> typeRef) {
+    // 反序列化工具方法；解析失败按未命中处理，回源后会覆盖掉坏值
+    private Object deserialize(byte[] bytes, CompactRedisSerializer codec, JavaType type) {
         try {
-            return objectMapper.readValue(json, typeRef);
-        } catch (JsonProcessingException e) {
+            if (!CompactRedisSerializer.isFramed(bytes) && bytes.length > 0 && bytes[0] == '"') {
+                // 旧版把 JSON 文本当作字符串再序列化了一次
+                String json = objectMapper.readValue(bytes, String.class);
+                return objectMapper.readValue(json, type);
+            }
+            return codec.deserialize(bytes);
+        } catch (IOException | RuntimeException e) {
             log.error("Deserialization failed", e);
             return null;
         }
     }
+
+    private static final class L1Entry {
+        private final Object value;
+        private final int weight;
+        private final long refreshAtMs;
+        private final long ttlNanos;
+
+        private L1Entry(Object value, int weight, long refreshAtMs, long ttlNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.refreshAtMs = refreshAtMs;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    /**
+     * 每个条目按写入时计算的 TTL 过期，读取不延长寿命
+     */
+    private static final class L1Expiry implements Expiry<String, L1Entry> {
+        @Override
+        public long expireAfterCreate(String key, L1Entry entry, long currentTime) {
+            return entry.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, L1Entry entry, long currentTime, long currentDuration) {
+            return entry.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, L1Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,251 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockQuoteDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 股票日线的进程内列式存储。
+ * <p>
+ * 每个 ts_code 对应一份 {@link StockDailySeries}（long[] 交易日 + double[] 行情列），任意日期区间的查询
+ * 通过二分查找 + 数组切片完成，重叠窗口共享同一份数据，不再为每个 (tsCode, start, end) 组合单独查库和缓存。
+ * <ul>
+ *     <li>启动后在后台按 preload-days 预热最近一段时间的全市场日线；</li>
+ *     <li>请求的起始日早于已加载范围时，整段加载该股票的历史；</li>
+ *     <li>请求的结束日晚于已加载的最后交易日时，按 refresh-interval 节流读取 trade_date &gt; 最后交易日 的增量行并追加，
+ *     由 fetch 服务写入的新行情因此无需整段重载即可被看到；</li>
+ *     <li>增量追加只能看到最后交易日之后的行，历史区间补录的行情由抓取服务的 stock_daily_backfill 通知触发整体失效。</li>
+ * </ul>
+ * 内存上限由 max-bytes 控制：每只股票按 {@link StockDailySeries#estimatedBytes()} 计权，超出时由 Caffeine 按近似 LRU 淘汰。
+ */
+@Service
+@Slf4j
+public class StockDailyColumnStore {
+
+    private final StockQuoteDao stockQuoteDao;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<String, SymbolSlot> slots;
+
+    @Value("${advanced.stock-daily-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${advanced.stock-daily-store.preload-days:400}")
+    private int preloadDays;
+
+    @Value("${advanced.stock-daily-store.refresh-interval-seconds:300}")
+    private long refreshIntervalSeconds;
+
+    private final long maxBytes;
+
+    public StockDailyColumnStore(StockQuoteDao stockQuoteDao,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${advanced.stock-daily-store.max-bytes:536870912}") long maxBytes) {
+        this.stockQuoteDao = stockQuoteDao;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBytes = Math.max(1, maxBytes);
+        this.slots = Caffeine.newBuilder()
+                .maximumWeight(this.maxBytes)
+                .weigher((String tsCode, SymbolSlot slot) -> slot.weight)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 返回覆盖 [startDate, endDate] 的列式快照，调用方用 lowerBound/upperBound 自行切片
+     */
+    public StockDailySeries getSeries(String tsCode, long startDate, long endDate) {
+        SymbolSlot slot = slots.get(tsCode, SymbolSlot::new);
+
+        if (slot.series == null || startDate < slot.coverageStart) {
+            synchronized (slot) {
+                if (slot.series == null || startDate < slot.coverageStart) {
+                    loadFullHistory(slot);
+                }
+            }
+        } else if (endDate > slot.series.lastTradeDate() && isRefreshDue(slot)) {
+            synchronized (slot) {
+                if (endDate > slot.series.lastTradeDate() && isRefreshDue(slot)) {
+                    appendTail(slot);
+                }
+            }
+        }
+        return slot.series;
+    }
+
+    /**
+     * 仅在内存中已覆盖 [startDate, endDate] 且无需增量刷新时返回快照，否则返回 null，不触发任何数据库读取
+     */
+    public StockDailySeries getSeriesIfCovered(String tsCode, long startDate, long endDate) {
+        SymbolSlot slot = slots.getIfPresent(tsCode);
+        if (slot == null) {
+            return null;
+        }
+        StockDailySeries series = slot.series;
+        if (series == null || startDate < slot.coverageStart) {
+            return null;
+        }
+        if (endDate > series.lastTradeDate() && isRefreshDue(slot)) {
+            return null;
+        }
+        return series;
+    }
+
+    /**
+     * 丢弃某只股票的内存数据，下次查询时重新从数据库加载
+     */
+    public void invalidate(String tsCode) {
+        slots.invalidate(tsCode);
+    }
+
+    /**
+     * 历史区间补录行情后调用：已加载的序列可能缺少补录的行，全部丢弃后按需重新加载
+     */
+    public void invalidateAll() {
+        slots.invalidateAll();
+    }
+
+    /**
+     * 收到新行情入库的通知后调用：下次查询不再等待刷新间隔，立即读取增量行
+     */
+    public void expireRefreshThrottle() {
+        slots.asMap().values().forEach(slot -> slot.refreshedAtMs = 0L);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadOnStartup() {
+        if (!enabled || preloadDays <= 0) {
+            return;
+        }
+        Thread preloadThread = new Thread(this::preloadRecent, "stock-daily-store-preload");
+        preloadThread.setDaemon(true);
+        preloadThread.start();
+    }
+
+    private void preloadRecent() {
+        long startMs = System.currentTimeMillis();
+        long preloadStart = startMs - Duration.ofDays(preloadDays).toMillis();
+        PreloadCollector collector = new PreloadCollector(preloadStart, startMs);
+        try {
+            // 游标读取需要非自动提交的事务
+            transactionTemplate.executeWithoutResult(status ->
+                    stockQuoteDao.scanStockDailySince(preloadStart, context -> collector.accept(context.getResultObject())));
+            collector.flush();
+            log.info("Stock daily column store preloaded: symbols={}, rows={}, cost_ms={}",
+                    collector.symbols, collector.rows, System.currentTimeMillis() - startMs);
+        } catch (Exception e) {
+            log.error("Failed to preload stock daily column store, falling back to lazy loading", e);
+        }
+    }
+
+    private void loadFullHistory(SymbolSlot slot) {
+        List<StockDaily> rows = stockQuoteDao.getStockDailyByTsCodeAfter(slot.tsCode, Long.MIN_VALUE);
+        slot.series = StockDailySeries.fromSortedRows(slot.tsCode, rows);
+        slot.coverageStart = Long.MIN_VALUE;
+        slot.refreshedAtMs = System.currentTimeMillis();
+        reweigh(slot);
+    }
+
+    private void appendTail(SymbolSlot slot) {
+        StockDailySeries current = slot.series;
+        List<StockDaily> rows = stockQuoteDao.getStockDailyByTsCodeAfter(slot.tsCode, current.lastTradeDate());
+        slot.series = current.append(rows);
+        slot.refreshedAtMs = System.currentTimeMillis();
+        reweigh(slot);
+    }
+
+    /**
+     * 序列变化后按新的字节数重新计权；已被淘汰的股票不会因此重新放回缓存
+     */
+    private void reweigh(SymbolSlot slot) {
+        slot.weight = weightOf(slot.series);
+        slots.asMap().replace(slot.tsCode, slot, slot);
+    }
+
+    private static int weightOf(StockDailySeries series) {
+        return series == null ? 0 : (int) Math.min(Integer.MAX_VALUE, series.estimatedBytes());
+    }
+
+    private long weightedSize() {
+        return slots.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    private boolean isRefreshDue(SymbolSlot slot) {
+        return System.currentTimeMillis() - slot.refreshedAtMs >= refreshIntervalSeconds * 1000L;
+    }
+
+    private static final class SymbolSlot {
+        private final String tsCode;
+        private volatile StockDailySeries series;
+        // 早于该日期的数据尚未加载；Long.MIN_VALUE 表示已加载完整历史
+        private volatile long coverageStart = Long.MAX_VALUE;
+        private volatile long refreshedAtMs;
+        private volatile int weight;
+
+        private SymbolSlot(String tsCode) {
+            this.tsCode = tsCode;
+        }
+    }
+
+    /**
+     * 按 (ts_code, trade_date) 顺序接收预热行，ts_code 变化时把上一只股票落成快照
+     */
+    private final class PreloadCollector {
+        private final long coverageStart;
+        private final long loadedAtMs;
+        private final List<StockDaily> buffer = new ArrayList<>();
+        private String currentTsCode;
+        private int symbols;
+        private long rows;
+
+        private PreloadCollector(long coverageStart, long loadedAtMs) {
+            this.coverageStart = coverageStart;
+            this.loadedAtMs = loadedAtMs;
+        }
+
+        private void accept(StockDaily row) {
+            if (row == null || row.getTsCode() == null) {
+                return;
+            }
+            if (!row.getTsCode().equals(currentTsCode)) {
+                flush();
+                currentTsCode = row.getTsCode();
+            }
+            buffer.add(row);
+            rows++;
+        }
+
+        private void flush() {
+            if (currentTsCode == null || buffer.isEmpty()) {
+                return;
+            }
+            // 预热只填充到内存上限，不为了预热淘汰请求线程已经加载的股票
+            if (weightedSize() < maxBytes) {
+                SymbolSlot slot = new SymbolSlot(currentTsCode);
+                slot.series = StockDailySeries.fromSortedRows(currentTsCode, buffer);
+                slot.coverageStart = coverageStart;
+                slot.refreshedAtMs = loadedAtMs;
+                slot.weight = weightOf(slot.series);
+                // 请求线程可能已经抢先加载了完整历史，保留已有数据
+                if (slots.asMap().putIfAbsent(currentTsCode, slot) == null) {
+                    symbols++;
+                }
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
+import world.willfrog.alphafrogmicro.common.utils.DailyBarResampler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单一股票日线的列式快照：交易日与各行情字段分别存放在按交易日升序排列的原始数组中。
+ * <p>
+ * 实例不可变，追加数据时返回新的快照，读方无需加锁即可安全地做二分查找与区间切片。
+ * 数据库中为 NULL 的数值以 {@link Double#NaN} 存放。
+ */
+public final class StockDailySeries {
+
+    private final String tsCode;
+    private final int size;
+    private final long[] tradeDates;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] preClose;
+    private final double[] change;
+    private final double[] pctChg;
+    private final double[] vol;
+    private final double[] amount;
+
+    private StockDailySeries(String tsCode, int size) {
+        this.tsCode = tsCode;
+        this.size = size;
+        this.tradeDates = new long[size];
+        this.open = new double[size];
+        this.high = new double[size];
+        this.low = new double[size];
+        this.close = new double[size];
+        this.preClose = new double[size];
+        this.change = new double[size];
+        this.pctChg = new double[size];
+        this.vol = new double[size];
+        this.amount = new double[size];
+    }
+
+    public static StockDailySeries empty(String tsCode) {
+        return new StockDailySeries(tsCode, 0);
+    }
+
+    /**
+     * 由按交易日升序排列的行构建快照，交易日重复的行只保留第一条
+     */
+    public static StockDailySeries fromSortedRows(String tsCode, List<StockDaily> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return empty(tsCode);
+        }
+        StockDailySeries series = new StockDailySeries(tsCode, rows.size());
+        int n = 0;
+        for (StockDaily row : rows) {
+            if (row == null || row.getTradeDate() == null) {
+                continue;
+            }
+            long tradeDate = row.getTradeDate();
+            if (n > 0 && tradeDate <= series.tradeDates[n - 1]) {
+                continue;
+            }
+            series.set(n++, row);
+        }
+        return n == series.size ? series : series.truncate(n);
+    }
+
+    /**
+     * 将交易日晚于当前最后一个交易日的行追加到末尾，返回新的快照；没有可追加的行时返回自身
+     */
+    public StockDailySeries append(List<StockDaily> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return this;
+        }
+        StockDailySeries merged = new StockDailySeries(tsCode, size + rows.size());
+        copyRange(this, 0, merged, 0, size);
+        int n = size;
+        for (StockDaily row : rows) {
+            if (row == null || row.getTradeDate() == null) {
+                continue;
+            }
+            if (n > 0 && row.getTradeDate() <= merged.tradeDates[n - 1]) {
+                continue;
+            }
+            merged.set(n++, row);
+        }
+        if (n == size) {
+            return this;
+        }
+        return n == merged.size ? merged : merged.truncate(n);
+    }
+
+    /**
+     * 返回 [from, to) 区间按 ratios 逐行缩放价格后的新快照，用于复权：
+     * open/high/low/close/preClose 乘以对应比例，change 按复权后的 close - preClose 重算，pctChg/vol/amount 保持原值
+     */
+    public StockDailySeries adjusted(int from, int to, double[] ratios) {
+        int n = Math.max(0, to - from);
+        StockDailySeries out = new StockDailySeries(tsCode, n);
+        System.arraycopy(tradeDates, from, out.tradeDates, 0, n);
+        System.arraycopy(pctChg, from, out.pctChg, 0, n);
+        System.arraycopy(vol, from, out.vol, 0, n);
+        System.arraycopy(amount, from, out.amount, 0, n);
+        for (int i = 0; i < n; i++) {
+            double ratio = ratios[i];
+            int src = from + i;
+            out.open[i] = open[src] * ratio;
+            out.high[i] = high[src] * ratio;
+            out.low[i] = low[src] * ratio;
+            out.close[i] = close[src] * ratio;
+            out.preClose[i] = preClose[src] * ratio;
+            out.change[i] = out.close[i] - out.preClose[i];
+        }
+        return out;
+    }
+
+    /**
+     * 将 [from, to) 区间复制为重采样使用的列式 K 线
+     */
+    public DailyBarResampler.Bars toBars(int from, int to) {
+        int n = Math.max(0, to - from);
+        DailyBarResampler.Bars bars = DailyBarResampler.Bars.allocate(n);
+        System.arraycopy(tradeDates, from, bars.tradeDates, 0, n);
+        System.arraycopy(open, from, bars.open, 0, n);
+        System.arraycopy(high, from, bars.high, 0, n);
+        System.arraycopy(low, from, bars.low, 0, n);
+        System.arraycopy(close, from, bars.close, 0, n);
+        System.arraycopy(preClose, from, bars.preClose, 0, n);
+        System.arraycopy(change, from, bars.change, 0, n);
+        System.arraycopy(pctChg, from, bars.pctChg, 0, n);
+        System.arraycopy(vol, from, bars.vol, 0, n);
+        System.arraycopy(amount, from, bars.amount, 0, n);
+        return bars;
+    }
+
+    /**
+     * 第一个交易日 >= tradeDate 的下标，不存在时返回 size
+     */
+    public int lowerBound(long tradeDate) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tradeDates[mid] < tradeDate) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 第一个交易日 > tradeDate 的下标，不存在时返回 size
+     */
+    public int upperBound(long tradeDate) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tradeDates[mid] <= tradeDate) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public String getTsCode() {
+        return tsCode;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long firstTradeDate() {
+        return size == 0 ? Long.MAX_VALUE : tradeDates[0];
+    }
+
+    public long lastTradeDate() {
+        return size == 0 ? Long.MIN_VALUE : tradeDates[size - 1];
+    }
+
+    public long tradeDate(int i) {
+        return tradeDates[i];
+    }
+
+    public double open(int i) {
+        return open[i];
+    }
+
+    public double high(int i) {
+        return high[i];
+    }
+
+    public double low(int i) {
+        return low[i];
+    }
+
+    public double close(int i) {
+        return close[i];
+    }
+
+    public double preClose(int i) {
+        return preClose[i];
+    }
+
+    public double change(int i) {
+        return change[i];
+    }
+
+    public double pctChg(int i) {
+        return pctChg[i];
+    }
+
+    public double vol(int i) {
+        return vol[i];
+    }
+
+    public double amount(int i) {
+        return amount[i];
+    }
+
+    /**
+     * 粗略估算占用的堆内存字节数（10 个 8 字节列）
+     */
+    public long estimatedBytes() {
+        return 80L * size;
+    }
+
+    private void set(int i, StockDaily row) {
+        tradeDates[i] = row.getTradeDate();
+        open[i] = valueOf(row.getOpen());
+        high[i] = valueOf(row.getHigh());
+        low[i] = valueOf(row.getLow());
+        close[i] = valueOf(row.getClose());
+        preClose[i] = valueOf(row.getPreClose());
+        change[i] = valueOf(row.getChange());
+        pctChg[i] = valueOf(row.getPctChg());
+        vol[i] = valueOf(row.getVol());
+        amount[i] = valueOf(row.getAmount());
+    }
+
+    private StockDailySeries truncate(int newSize) {
+        StockDailySeries truncated = new StockDailySeries(tsCode, newSize);
+        copyRange(this, 0, truncated, 0, newSize);
+        return truncated;
+    }
+
+    private static void copyRange(StockDailySeries src, int srcPos, StockDailySeries dest, int destPos, int length) {
+        System.arraycopy(src.tradeDates, srcPos, dest.tradeDates, destPos, length);
+        System.arraycopy(src.open, srcPos, dest.open, destPos, length);
+        System.arraycopy(src.high, srcPos, dest.high, destPos, length);
+        System.arraycopy(src.low, srcPos, dest.low, destPos, length);
+        System.arraycopy(src.close, srcPos, dest.close, destPos, length);
+        System.arraycopy(src.preClose, srcPos, dest.preClose, destPos, length);
+        System.arraycopy(src.change, srcPos, dest.change, destPos, length);
+        System.arraycopy(src.pctChg, srcPos, dest.pctChg, destPos, length);
+        System.arraycopy(src.vol, srcPos, dest.vol, destPos, length);
+        System.arraycopy(src.amount, srcPos, dest.amount, destPos, length);
+    }
+
+    private static double valueOf(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    @Override
+    public String toString() {
+        return "StockDailySeries{" +
+                "tsCode='" + tsCode + '\'' +
+                ", size=" + size +
+                ", range=" + (size == 0 ? "[]" : Arrays.asList(tradeDates[0], tradeDates[size - 1])) +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.utils.cache.DataRefreshNotice;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * 处理抓取服务广播的数据刷新通知，清理本实例中受影响的缓存。
+ * <p>
+ * 通知会广播到每个实例：进程内的状态（L1、列式序列、复权因子节流）由各实例自行清理；
+ * 多实例共享的 Redis 缓存按通知 ID 以 SET NX 认领，只由抢到的一个实例清理，避免每个实例都 SCAN 删除一遍。
+ * 旧版发布方不带通知 ID 时退回到每个实例都清理。
+ */
+@Service
+@Slf4j
+public class StockDataRefreshHandler {
+
+    private static final String STOCK_DAILY_CACHE = "stockDailyCache";
+    private static final String CLEAR_CLAIM_KEY_PREFIX = "alphafrog:stock-cache:refresh-claim:";
+    private static final Duration CLEAR_CLAIM_TTL = Duration.ofMinutes(10);
+
+    private final StockInfoSearchService stockInfoSearchService;
+    private final StockDailyColumnStore stockDailyColumnStore;
+    private final StockPriceAdjuster stockPriceAdjuster;
+    private final StockCacheService stockCacheService;
+    private final CacheManager stockDailyCacheManager;
+    private final RedisTemplate<String, byte[]> redisTemplate;
+
+    public StockDataRefreshHandler(StockInfoSearchService stockInfoSearchService,
+                                   StockDailyColumnStore stockDailyColumnStore,
+                                   StockPriceAdjuster stockPriceAdjuster,
+                                   StockCacheService stockCacheService,
+                                   @Qualifier("stockDailyCacheManager") CacheManager stockDailyCacheManager,
+                                   @Qualifier("binaryRedisTemplate") RedisTemplate<String, byte[]> redisTemplate) {
+        this.stockInfoSearchService = stockInfoSearchService;
+        this.stockDailyColumnStore = stockDailyColumnStore;
+        this.stockPriceAdjuster = stockPriceAdjuster;
+        this.stockCacheService = stockCacheService;
+        this.stockDailyCacheManager = stockDailyCacheManager;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void onRefresh(Set<String> datasets, String noticeId) {
+        log.info("Received data refresh notice: id={}, datasets={}", noticeId, datasets);
+        boolean clearShared = (datasets.contains(DataRefreshNotice.STOCK_INFO)
+                || datasets.contains(DataRefreshNotice.STOCK_DAILY)
+                || datasets.contains(DataRefreshNotice.STOCK_DAILY_BACKFILL))
+                && claimSharedClear(noticeId);
+        if (datasets.contains(DataRefreshNotice.STOCK_INFO)) {
+            stockInfoSearchService.refresh();
+            if (clearShared) {
+                long evicted = stockCacheService.evictByPrefix(StockCacheService.STOCK_INFO_KEY_PREFIX);
+                log.info("Evicted stock info cache entries: {}", evicted);
+            } else {
+                stockCacheService.evictLocalByPrefix(StockCacheService.STOCK_INFO_KEY_PREFIX);
+            }
+        }
+        if (datasets.contains(DataRefreshNotice.STOCK_DAILY_BACKFILL)) {
+            // 补录的行情落在已加载序列的中间，增量追加看不到，丢弃全部列式序列
+            stockDailyColumnStore.invalidateAll();
+        } else if (datasets.contains(DataRefreshNotice.STOCK_DAILY)) {
+            stockDailyColumnStore.expireRefreshThrottle();
+        }
+        if (clearShared && (datasets.contains(DataRefreshNotice.STOCK_DAILY)
+                || datasets.contains(DataRefreshNotice.STOCK_DAILY_BACKFILL))) {
+            clearStockDailyCache();
+        }
+        if (datasets.contains(DataRefreshNotice.STOCK_ADJ_FACTOR)) {
+            stockPriceAdjuster.expireRefreshThrottle();
+        }
+    }
+
+    /**
+     * 认领本次通知的共享缓存清理；没有通知 ID 或 Redis 不可用时由本实例清理，宁可重复也不漏清
+     */
+    private boolean claimSharedClear(String noticeId) {
+        if (noticeId == null) {
+            return true;
+        }
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(CLEAR_CLAIM_KEY_PREFIX + noticeId,
+                    new byte[]{1}, CLEAR_CLAIM_TTL);
+            return !Boolean.FALSE.equals(claimed);
+        } catch (Exception e) {
+            log.warn("Failed to claim shared cache clear, clear locally: id={}", noticeId, e);
+            return true;
+        }
+    }
+
+    /**
+     * 区间查询的 Redis 缓存可能缓存了不含新行情的结果；缓存写入器按 SCAN 分批清理，只由认领到通知的实例执行
+     */
+    private void clearStockDailyCache() {
+        Cache cache = stockDailyCacheManager.getCache(STOCK_DAILY_CACHE);
+        if (cache != null) {
+            try {
+                cache.clear();
+            } catch (Exception e) {
+                log.error("Failed to clear stock daily cache", e);
+            }
+        }
+    }
+}
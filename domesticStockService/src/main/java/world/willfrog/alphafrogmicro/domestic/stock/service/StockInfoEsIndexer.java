@@ -0,0 +1,207 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockInfoDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
+import world.willfrog.alphafrogmicro.domestic.stock.doc.StockInfoES;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 将 alphafrog_stock_info 批量同步到 ES 的 alphafrog_stock_info_index。
+ * <p>
+ * alphafrog_stock_info_index 是别名，实际数据写在带版本号的索引 alphafrog_stock_info_index_v{MAPPING_VERSION} 中。
+ * 启动时若当前版本的索引不存在，按 {@link StockInfoES} 的 settings / mapping 新建并全量写入，再把别名切到新索引、
+ * 删除旧版本索引；旧部署中与别名同名的实体索引在同一次别名操作中原子地删除，切换期间查询不会落空。
+ * 分词器或字段映射变化时递增 MAPPING_VERSION 即可重建。
+ * <p>
+ * 之后 searchStockES 被调用且超过 sync-interval 时，后台探测 stock_info 检索列的校验和，发生变化
+ * （stock_info 新增、删除或原地更新了行）才重新同步。
+ * 写入使用 _bulk 接口按 batch-size 分批，文档 id 为 ts_code，重复同步是幂等的。
+ */
+@Service
+@Slf4j
+public class StockInfoEsIndexer {
+
+    /**
+     * 索引 settings / mapping 的版本，修改 StockInfoES 的分词器或字段映射时递增
+     */
+    static final int MAPPING_VERSION = 2;
+
+    private final StockInfoDao stockInfoDao;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-info-es-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean syncing = new AtomicBoolean(false);
+
+    private volatile String syncedVersion;
+    private volatile long checkedAtMs;
+
+    @Value("${advanced.es-enabled}")
+    private boolean elasticsearchEnabled;
+
+    @Value("${advanced.es-sync.batch-size:500}")
+    private int batchSize;
+
+    @Value("${advanced.es-sync.interval-seconds:300}")
+    private long syncIntervalSeconds;
+
+    public StockInfoEsIndexer(StockInfoDao stockInfoDao,
+                              ElasticsearchOperations elasticsearchOperations) {
+        this.stockInfoDao = stockInfoDao;
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncOnStartup() {
+        if (isAvailable()) {
+            triggerSync();
+        }
+    }
+
+    /**
+     * 距离上次检查超过同步间隔时在后台触发一次增量检查，不阻塞调用方
+     */
+    public void syncIfDue() {
+        if (isAvailable() && System.currentTimeMillis() - checkedAtMs >= syncIntervalSeconds * 1000L) {
+            triggerSync();
+        }
+    }
+
+    private boolean isAvailable() {
+        return elasticsearchEnabled && elasticsearchOperations != null;
+    }
+
+    private void triggerSync() {
+        if (syncing.compareAndSet(false, true)) {
+            checkedAtMs = System.currentTimeMillis();
+            executor.execute(this::syncIfChanged);
+        }
+    }
+
+    private void syncIfChanged() {
+        long startMs = System.currentTimeMillis();
+        try {
+            String version = stockInfoDao.getStockInfoSearchChecksum();
+            String alias = elasticsearchOperations.getIndexCoordinatesFor(StockInfoES.class).getIndexName();
+            IndexCoordinates versioned = IndexCoordinates.of(alias + "_v" + MAPPING_VERSION);
+            boolean created = createIfMissing(versioned);
+            if (!created && syncedVersion != null && Objects.equals(version, syncedVersion)) {
+                return;
+            }
+            int indexed = bulkIndex(stockInfoDao.getStockInfoForSearchIndex(), versioned);
+            pointAlias(alias, versioned.getIndexName());
+            syncedVersion = version;
+            log.info("Stock info synced to ES: index={}, created={}, docs={}, cost_ms={}",
+                    versioned.getIndexName(), created, indexed, System.currentTimeMillis() - startMs);
+        } catch (Exception e) {
+            log.error("Failed to sync stock info to ES", e);
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    /**
+     * 当前版本的索引不存在时按 StockInfoES 的 settings / mapping 创建；返回是否新建
+     */
+    private boolean createIfMissing(IndexCoordinates versioned) {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(versioned);
+        if (indexOps.exists()) {
+            return false;
+        }
+        IndexOperations templateOps = elasticsearchOperations.indexOps(StockInfoES.class);
+        Document mapping = templateOps.createMapping();
+        return indexOps.create(templateOps.createSettings(), mapping);
+    }
+
+    /**
+     * 把别名指向当前版本的索引并删除别名原来指向的旧索引；已指向时不做任何事。
+     * 旧部署直接以别名为名创建了实体索引：新索引已写好后，在同一个 _aliases 请求里添加别名并删除该实体索引，
+     * ES 原子地执行整组动作，不会出现既没有旧索引也没有别名的窗口。
+     */
+    private void pointAlias(String alias, String versionedName) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(alias));
+        Map<String, Set<AliasData>> current = aliasTargets(aliasOps, alias);
+        if (current.size() == 1 && current.containsKey(versionedName)) {
+            return;
+        }
+        List<AliasAction> actions = new ArrayList<>();
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(versionedName).withAliases(alias).build()));
+        if (current.isEmpty() && aliasOps.exists()) {
+            log.warn("Replace legacy ES index {} with an alias of {}", alias, versionedName);
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(alias).build()));
+        }
+        for (String previous : current.keySet()) {
+            if (!previous.equals(versionedName)) {
+                actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                        .withIndices(previous).build()));
+            }
+        }
+        aliasOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+        log.info("ES alias {} now points to {}, removed indices={}", alias, versionedName, current.keySet());
+    }
+
+    /**
+     * 别名当前指向的索引；别名不存在时 ES 返回 404，按空处理
+     */
+    private Map<String, Set<AliasData>> aliasTargets(IndexOperations aliasOps, String alias) {
+        try {
+            return aliasOps.getAliases(alias);
+        } catch (Exception e) {
+            log.debug("ES alias {} not found: {}", alias, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private int bulkIndex(List<StockInfo> stockInfoList, IndexCoordinates index) {
+        int size = Math.max(1, batchSize);
+        List<IndexQuery> batch = new ArrayList<>(size);
+        int indexed = 0;
+        for (StockInfo stockInfo : stockInfoList) {
+            if (stockInfo.getTsCode() == null) {
+                continue;
+            }
+            batch.add(new IndexQueryBuilder()
+                    .withId(stockInfo.getTsCode())
+                    .withObject(StockInfoES.fromStockInfo(stockInfo))
+                    .build());
+            if (batch.size() >= size) {
+                elasticsearchOperations.bulkIndex(batch, index);
+                indexed += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            elasticsearchOperations.bulkIndex(batch, index);
+            indexed += batch.size();
+        }
+        return indexed;
+    }
+}
@@ -0,0 +1,65 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockInfoDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockInfo;
+import world.willfrog.alphafrogmicro.common.utils.search.InfoSearchIndex;
+import world.willfrog.alphafrogmicro.common.utils.search.InfoSearchIndexHolder;
+
+import java.util.List;
+
+/**
+ * 股票基础信息的进程内搜索，检索 ts_code / symbol / name / cnspell（拼音首字母）/ fullname。
+ * 索引启动后在后台构建，alphafrog_stock_info 检索列的内容（校验和）变化时自动重建。
+ */
+@Service
+public class StockInfoSearchService {
+
+    private static final int NAME_FIELD = 2;
+
+    private final InfoSearchIndexHolder<StockInfo> holder;
+
+    @Value("${advanced.info-search-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${advanced.info-search-index.refresh-interval-seconds:300}")
+    private long refreshIntervalSeconds;
+
+    public StockInfoSearchService(StockInfoDao stockInfoDao) {
+        this.holder = new InfoSearchIndexHolder<>("stock",
+                stockInfoDao::getStockInfoForSearchIndex,
+                stockInfoDao::getStockInfoSearchChecksum,
+                rows -> InfoSearchIndex.build(rows, NAME_FIELD, row -> new String[]{
+                        row.getTsCode(), row.getSymbol(), row.getName(), row.getCnspell(), row.getFullName()}));
+    }
+
+    /**
+     * 按相关性返回匹配的股票；索引未启用或尚未构建完成时返回 null，调用方应回退到数据库查询
+     */
+    public List<StockInfo> search(String query, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        InfoSearchIndex<StockInfo> index = holder.current(refreshIntervalSeconds * 1000L);
+        return index == null ? null : index.search(query, limit);
+    }
+
+    /**
+     * 基础信息刷新后在后台重建索引，构建期间继续使用旧索引
+     */
+    public void refresh() {
+        if (enabled) {
+            holder.rebuildAsync();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            holder.refreshAsync();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockAdjFactorDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockAdjFactor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 TuShare adj_factor 的复权计算。
+ * <p>
+ * 每只股票的复权因子以 long[] 交易日 + double[] 因子的形式缓存在内存中；复权时对行情区间与因子序列做一次归并遍历，
+ * 得到逐行的价格比例后在原始数组上一次性缩放：
+ * <ul>
+ *     <li>后复权（hfq）：价格 * 当日因子；</li>
+ *     <li>前复权（qfq）：价格 * 当日因子 / 最新可用因子，与 TuShare pro_bar 的口径一致。</li>
+ * </ul>
+ * 前复权的基准是该股票已入库的最后一条因子，与请求区间无关：即使区间早于最近一次除权，也按最新因子折算。
+ * 因此 qfq 要求缓存的因子覆盖到该股票最后一根行情，hfq 只需覆盖到区间最后一根行情；
+ * 新因子入库后由数据刷新通知解除节流，不按当前日期轮询。
+ * 某交易日没有因子时沿用之前最近的因子，早于第一条因子的行情使用第一条因子；没有任何因子的股票按原始价格返回。
+ */
+@Service
+@Slf4j
+public class StockPriceAdjuster {
+
+    public enum AdjustType {
+        NONE, QFQ, HFQ;
+
+        public static AdjustType parse(String raw) {
+            if (raw == null || raw.isBlank()) {
+                return NONE;
+            }
+            return switch (raw.trim().toLowerCase(Locale.ROOT)) {
+                case "qfq" -> QFQ;
+                case "hfq" -> HFQ;
+                case "none" -> NONE;
+                default -> throw new IllegalArgumentException("Unsupported adjust type: " + raw);
+            };
+        }
+    }
+
+    private final StockAdjFactorDao stockAdjFactorDao;
+
+    private final Map<String, FactorSlot> slots = new ConcurrentHashMap<>();
+
+    @Value("${advanced.stock-adj-factor.max-symbols:8000}")
+    private int maxSymbols;
+
+    @Value("${advanced.stock-adj-factor.refresh-interval-seconds:300}")
+    private long refreshIntervalSeconds;
+
+    public StockPriceAdjuster(StockAdjFactorDao stockAdjFactorDao) {
+        this.stockAdjFactorDao = stockAdjFactorDao;
+    }
+
+    /**
+     * 返回 series 中 [from, to) 区间的复权快照；type 为 NONE 时只做切片
+     */
+    public StockDailySeries adjust(StockDailySeries series, int from, int to, AdjustType type) {
+        int n = Math.max(0, to - from);
+        double[] ratios = new double[n];
+        if (type == AdjustType.NONE || n == 0) {
+            Arrays.fill(ratios, 1.0);
+            return series.adjusted(from, to, ratios);
+        }
+
+        // qfq 的基准是最新可用因子，按该股票最后一根行情判断因子是否需要刷新，不能只看区间末尾
+        long freshThrough = type == AdjustType.QFQ ? series.lastTradeDate() : series.tradeDate(to - 1);
+        FactorSeries factors = getFactors(series.getTsCode(), freshThrough);
+        if (factors.size() == 0) {
+            log.debug("No adj factor for tsCode: {}, returning raw prices", series.getTsCode());
+            Arrays.fill(ratios, 1.0);
+            return series.adjusted(from, to, ratios);
+        }
+
+        double base = type == AdjustType.QFQ ? factors.factors[factors.size() - 1] : 1.0;
+        // 行情与因子均按交易日升序，一次归并即可为每一行找到生效的因子
+        int k = factors.upperBound(series.tradeDate(from)) - 1;
+        for (int i = 0; i < n; i++) {
+            long tradeDate = series.tradeDate(from + i);
+            while (k + 1 < factors.size() && factors.tradeDates[k + 1] <= tradeDate) {
+                k++;
+            }
+            double factor = k >= 0 ? factors.factors[k] : factors.factors[0];
+            ratios[i] = factor / base;
+        }
+        return series.adjusted(from, to, ratios);
+    }
+
+    /**
+     * 丢弃某只股票缓存的复权因子，下次复权时重新加载
+     */
+    public void invalidate(String tsCode) {
+        slots.remove(tsCode);
+    }
+
+    /**
+     * 收到复权因子入库的通知后调用：行情晚于已加载因子的股票在下次复权时立即重新加载
+     */
+    public void expireRefreshThrottle() {
+        slots.values().forEach(slot -> slot.refreshedAtMs = 0L);
+    }
+
+    private FactorSeries getFactors(String tsCode, long freshThrough) {
+        FactorSlot slot = slots.computeIfAbsent(tsCode, FactorSlot::new);
+        slot.lastAccessMs = System.currentTimeMillis();
+        FactorSeries current = slot.factors;
+        // 需要覆盖的日期已经晚于最后一条因子时，按刷新间隔节流重新加载，拿到新的除权因子
+        if (current == null || (freshThrough > current.lastTradeDate() && isRefreshDue(slot))) {
+            synchronized (slot) {
+                current = slot.factors;
+                if (current == null || (freshThrough > current.lastTradeDate() && isRefreshDue(slot))) {
+                    current = FactorSeries.fromRows(stockAdjFactorDao.getStockAdjFactorByTsCode(tsCode));
+                    slot.factors = current;
+                    slot.refreshedAtMs = System.currentTimeMillis();
+                }
+            }
+        }
+        evictIfNecessary();
+        return current;
+    }
+
+    private boolean isRefreshDue(FactorSlot slot) {
+        return System.currentTimeMillis() - slot.refreshedAtMs >= refreshIntervalSeconds * 1000L;
+    }
+
+    private void evictIfNecessary() {
+        int overflow = slots.size() - Math.max(1, maxSymbols);
+        for (int i = 0; i < overflow; i++) {
+            FactorSlot eldest = null;
+            for (FactorSlot candidate : slots.values()) {
+                if (eldest == null || candidate.lastAccessMs < eldest.lastAccessMs) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            slots.remove(eldest.tsCode, eldest);
+        }
+    }
+
+    private static final class FactorSlot {
+        private final String tsCode;
+        private volatile FactorSeries factors;
+        private volatile long refreshedAtMs;
+        private volatile long lastAccessMs;
+
+        private FactorSlot(String tsCode) {
+            this.tsCode = tsCode;
+        }
+    }
+
+    private static final class FactorSeries {
+        private final long[] tradeDates;
+        private final double[] factors;
+        private final int size;
+
+        private FactorSeries(long[] tradeDates, double[] factors, int size) {
+            this.tradeDates = tradeDates;
+            this.factors = factors;
+            this.size = size;
+        }
+
+        private static FactorSeries fromRows(List<StockAdjFactor> rows) {
+            int capacity = rows == null ? 0 : rows.size();
+            long[] tradeDates = new long[capacity];
+            double[] factors = new double[capacity];
+            int n = 0;
+            if (rows != null) {
+                for (StockAdjFactor row : rows) {
+                    if (row == null || row.getTradeDate() == null || row.getAdjFactor() == null || row.getAdjFactor() <= 0) {
+                        continue;
+                    }
+                    if (n > 0 && row.getTradeDate() <= tradeDates[n - 1]) {
+                        continue;
+                    }
+                    tradeDates[n] = row.getTradeDate();
+                    factors[n] = row.getAdjFactor();
+                    n++;
+                }
+            }
+            return new FactorSeries(tradeDates, factors, n);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private long lastTradeDate() {
+            return size == 0 ? Long.MIN_VALUE : tradeDates[size - 1];
+        }
+
+        private int upperBound(long tradeDate) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (tradeDates[mid] <= tradeDate) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
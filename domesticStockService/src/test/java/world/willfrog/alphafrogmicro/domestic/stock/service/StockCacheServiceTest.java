@@ -0,0 +1,205 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StockCacheServiceTest {
+
+    private final FakeRedisTemplate redis = new FakeRedisTemplate();
+    private final StockCacheService cacheService =
+            new StockCacheService(redis, new ObjectMapper(), 1024 * 1024, 600, 60, "test-channel", 4, true, 1024);
+
+    @Test
+    public void l1HitSkipsRedisAndDatabase() {
+        AtomicInteger dbCalls = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            List<String> value = cacheService.getListWithCache("k", () -> {
+                dbCalls.incrementAndGet();
+                return List.of("000001.SZ");
+            }, 1, TimeUnit.HOURS, String.class);
+            assertEquals(List.of("000001.SZ"), value);
+        }
+
+        assertEquals(1, dbCalls.get());
+        assertEquals(1, redis.gets.get());
+        // GET 与 PTTL 在同一个 pipeline 中发送
+        assertEquals(1, redis.pipelines.get());
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        AtomicInteger dbCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return cacheService.getListWithCache("hot", () -> {
+                        dbCalls.incrementAndGet();
+                        sleep(50);
+                        return List.of("v");
+                    }, 1, TimeUnit.HOURS, String.class);
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> future : futures) {
+                assertEquals(List.of("v"), future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, dbCalls.get());
+    }
+
+    @Test
+    public void evictClearsBothLevelsAndPublishes() {
+        AtomicInteger dbCalls = new AtomicInteger();
+        cacheService.getListWithCache("k", () -> List.of(dbCalls.incrementAndGet()), 1, TimeUnit.HOURS, Integer.class);
+
+        cacheService.evict("k");
+        List<Integer> reloaded = cacheService.getListWithCache("k", () -> List.of(dbCalls.incrementAndGet()), 1, TimeUnit.HOURS, Integer.class);
+
+        assertEquals(List.of(2), reloaded);
+        assertEquals(List.of("test-channel:k"), redis.published);
+    }
+
+    @Test
+    public void nullResultIsNotCached() {
+        AtomicInteger dbCalls = new AtomicInteger();
+
+        assertNull(cacheService.getListWithCache("missing", () -> {
+            dbCalls.incrementAndGet();
+            return null;
+        }, 1, TimeUnit.HOURS, String.class));
+        cacheService.getListWithCache("missing", () -> {
+            dbCalls.incrementAndGet();
+            return null;
+        }, 1, TimeUnit.HOURS, String.class);
+
+        assertEquals(2, dbCalls.get());
+    }
+
+    @Test
+    public void legacyJsonStringValueIsStillReadable() {
+        redis.store.put("legacy", "\"[\\\"000001.SZ\\\"]\"".getBytes(StandardCharsets.UTF_8));
+
+        List<String> value = cacheService.getListWithCache("legacy", () -> {
+            throw new AssertionError("should be served from redis");
+        }, 1, TimeUnit.HOURS, String.class);
+
+        assertEquals(List.of("000001.SZ"), value);
+    }
+
+    @Test
+    public void legacyWritesKeepOldStringFormatAndQuotedInvalidation() throws Exception {
+        StockCacheService legacyService =
+                new StockCacheService(redis, new ObjectMapper(), 1024 * 1024, 600, 60, "test-channel", 4, false, 1024);
+
+        legacyService.getListWithCache("k", () -> List.of("000001.SZ"), 1, TimeUnit.HOURS, String.class);
+        legacyService.evict("k");
+
+        // 旧实例以 GenericJackson2JsonRedisSerializer 读出 String 后再解析
+        byte[] stored = redis.written.get("k");
+        assertEquals("[\"000001.SZ\"]", new ObjectMapper().readValue(stored, String.class));
+        assertEquals(List.of("test-channel:\"k\""), redis.published);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 以内存 Map 模拟 Redis 的字节读写、过期查询、删除与发布；pipeline 中的命令按顺序收集结果
+     */
+    private static final class FakeRedisTemplate extends RedisTemplate<String, byte[]> {
+        private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+        private final AtomicInteger gets = new AtomicInteger();
+        private final AtomicInteger pipelines = new AtomicInteger();
+        private final ThreadLocal<List<Object>> pipelineResults = new ThreadLocal<>();
+        private final Map<String, byte[]> written = new ConcurrentHashMap<>();
+        private final List<String> published = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, byte[]> opsForValue() {
+            return (ValueOperations<String, byte[]>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "get":
+                                gets.incrementAndGet();
+                                return record(store.get((String) args[0]));
+                            case "set":
+                                store.put((String) args[0], (byte[]) args[1]);
+                                written.put((String) args[0], (byte[]) args[1]);
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        @Override
+        public Long getExpire(String key, TimeUnit timeUnit) {
+            return (Long) record(timeUnit.convert(1, TimeUnit.HOURS));
+        }
+
+        @Override
+        public List<Object> executePipelined(SessionCallback<?> session) {
+            pipelines.incrementAndGet();
+            List<Object> results = new ArrayList<>();
+            pipelineResults.set(results);
+            try {
+                session.execute(this);
+            } finally {
+                pipelineResults.remove();
+            }
+            return results;
+        }
+
+        private Object record(Object result) {
+            List<Object> results = pipelineResults.get();
+            if (results != null) {
+                results.add(result);
+            }
+            return result;
+        }
+
+        @Override
+        public Boolean delete(String key) {
+            return store.remove(key) != null;
+        }
+
+        @Override
+        public Long convertAndSend(String channel, Object message) {
+            published.add(channel + ":" + new String((byte[]) message, StandardCharsets.UTF_8));
+            return 1L;
+        }
+    }
+}
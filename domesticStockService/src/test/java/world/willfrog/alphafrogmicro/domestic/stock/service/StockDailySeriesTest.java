@@ -0,0 +1,59 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import org.junit.Test;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StockDailySeriesTest {
+
+    @Test
+    public void sliceByBinarySearch() {
+        StockDailySeries series = StockDailySeries.fromSortedRows("000001.SZ", rows(10L, 20L, 30L, 40L));
+
+        assertEquals(1, series.lowerBound(15L));
+        assertEquals(3, series.upperBound(30L));
+        assertEquals(0, series.lowerBound(0L));
+        assertEquals(4, series.upperBound(99L));
+        assertEquals(30.0, series.close(2), 0.0);
+    }
+
+    @Test
+    public void appendSkipsOverlappingRows() {
+        StockDailySeries series = StockDailySeries.fromSortedRows("000001.SZ", rows(10L, 20L));
+
+        StockDailySeries appended = series.append(rows(20L, 30L, 40L));
+
+        assertEquals(4, appended.size());
+        assertEquals(40L, appended.lastTradeDate());
+        assertSame(appended, appended.append(rows(30L)));
+    }
+
+    @Test
+    public void nullValuesBecomeNaN() {
+        StockDaily row = new StockDaily();
+        row.setTsCode("000001.SZ");
+        row.setTradeDate(10L);
+        StockDailySeries series = StockDailySeries.fromSortedRows("000001.SZ", List.of(row));
+
+        assertTrue(Double.isNaN(series.close(0)));
+        assertTrue(StockDailySeries.empty("000001.SZ").isEmpty());
+    }
+
+    private List<StockDaily> rows(long... tradeDates) {
+        List<StockDaily> rows = new ArrayList<>();
+        for (long tradeDate : tradeDates) {
+            StockDaily row = new StockDaily();
+            row.setTsCode("000001.SZ");
+            row.setTradeDate(tradeDate);
+            row.setClose((double) tradeDate);
+            rows.add(row);
+        }
+        return rows;
+    }
+}
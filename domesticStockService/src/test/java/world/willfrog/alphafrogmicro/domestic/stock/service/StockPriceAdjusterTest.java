@@ -0,0 +1,116 @@
+package world.willfrog.alphafrogmicro.domestic.stock.service;
+
+import org.junit.Test;
+import world.willfrog.alphafrogmicro.common.dao.domestic.stock.StockAdjFactorDao;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockAdjFactor;
+import world.willfrog.alphafrogmicro.common.pojo.domestic.stock.StockDaily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class StockPriceAdjusterTest {
+
+    // 10 日因子 1.0，30 日 1 拆 2 后因子 2.0；20 日无因子记录，沿用 10 日的因子
+    private final StockPriceAdjuster adjuster = new StockPriceAdjuster(factorDao(new long[]{10L, 30L}, new double[]{1.0, 2.0}));
+
+    @Test
+    public void backwardAdjustMultipliesByFactor() {
+        StockDailySeries series = series(new long[]{10L, 20L, 30L}, new double[]{10.0, 10.0, 5.0});
+
+        StockDailySeries hfq = adjuster.adjust(series, 0, 3, StockPriceAdjuster.AdjustType.HFQ);
+
+        assertEquals(10.0, hfq.close(0), 1e-9);
+        assertEquals(10.0, hfq.close(1), 1e-9);
+        assertEquals(10.0, hfq.close(2), 1e-9);
+        assertEquals(0.0, hfq.change(2), 1e-9);
+    }
+
+    @Test
+    public void forwardAdjustUsesLatestFactorAsBase() {
+        StockDailySeries series = series(new long[]{10L, 20L, 30L}, new double[]{10.0, 10.0, 5.0});
+
+        StockDailySeries qfq = adjuster.adjust(series, 1, 3, StockPriceAdjuster.AdjustType.QFQ);
+
+        assertEquals(2, qfq.size());
+        assertEquals(20L, qfq.tradeDate(0));
+        assertEquals(5.0, qfq.close(0), 1e-9);
+        assertEquals(5.0, qfq.close(1), 1e-9);
+    }
+
+    @Test
+    public void forwardAdjustAnchorsOnFactorsNewerThanWindow() {
+        // 先按 [10, 20] 的因子加载缓存，随后 30 日除权因子入库；只查询 20 日之前区间的 qfq 也要以最新因子为基准
+        List<StockAdjFactor> rows = new ArrayList<>();
+        rows.add(factor(10L, 1.0));
+        rows.add(factor(20L, 1.0));
+        StockPriceAdjuster growing = new StockPriceAdjuster(factorDao(rows));
+        StockDailySeries series = series(new long[]{10L, 20L, 30L}, new double[]{10.0, 10.0, 5.0});
+        growing.adjust(series, 0, 2, StockPriceAdjuster.AdjustType.HFQ);
+        rows.add(factor(30L, 2.0));
+
+        StockDailySeries qfq = growing.adjust(series, 0, 2, StockPriceAdjuster.AdjustType.QFQ);
+
+        assertEquals(5.0, qfq.close(0), 1e-9);
+        assertEquals(5.0, qfq.close(1), 1e-9);
+    }
+
+    @Test
+    public void parseAdjustType() {
+        assertEquals(StockPriceAdjuster.AdjustType.NONE, StockPriceAdjuster.AdjustType.parse(""));
+        assertEquals(StockPriceAdjuster.AdjustType.QFQ, StockPriceAdjuster.AdjustType.parse("QFQ"));
+        assertEquals(StockPriceAdjuster.AdjustType.HFQ, StockPriceAdjuster.AdjustType.parse(" hfq "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectUnknownAdjustType() {
+        StockPriceAdjuster.AdjustType.parse("xfq");
+    }
+
+    private StockDailySeries series(long[] tradeDates, double[] closes) {
+        List<StockDaily> rows = new ArrayList<>();
+        for (int i = 0; i < tradeDates.length; i++) {
+            StockDaily row = new StockDaily();
+            row.setTsCode("000001.SZ");
+            row.setTradeDate(tradeDates[i]);
+            row.setOpen(closes[i]);
+            row.setHigh(closes[i]);
+            row.setLow(closes[i]);
+            row.setClose(closes[i]);
+            row.setPreClose(closes[i]);
+            rows.add(row);
+        }
+        return StockDailySeries.fromSortedRows("000001.SZ", rows);
+    }
+
+    private StockAdjFactorDao factorDao(long[] tradeDates, double[] factors) {
+        List<StockAdjFactor> rows = new ArrayList<>();
+        for (int i = 0; i < tradeDates.length; i++) {
+            rows.add(factor(tradeDates[i], factors[i]));
+        }
+        return factorDao(rows);
+    }
+
+    private StockAdjFactor factor(long tradeDate, double adjFactor) {
+        StockAdjFactor row = new StockAdjFactor();
+        row.setTsCode("000001.SZ");
+        row.setTradeDate(tradeDate);
+        row.setAdjFactor(adjFactor);
+        return row;
+    }
+
+    private StockAdjFactorDao factorDao(List<StockAdjFactor> rows) {
+        return new StockAdjFactorDao() {
+            @Override
+            public int insertStockAdjFactor(StockAdjFactor stockAdjFactor) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<StockAdjFactor> getStockAdjFactorByTsCode(String tsCode) {
+                return new ArrayList<>(rows);
+            }
+        };
+    }
+}
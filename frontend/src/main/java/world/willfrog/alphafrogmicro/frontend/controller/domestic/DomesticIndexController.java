@@ -77,6 +77,7 @@ public class DomesticIndexController {
     public ResponseEntity<String> getIndexDailyByTsCodeAndDateRange(@RequestParam("ts_code") String tsCode,
                                                                       @RequestParam("start_date_timestamp") long startDateTimestamp,
                                                                       @RequestParam("end_date_timestamp") long endDateTimestamp,
+                                                                      @RequestParam(value = "resample", required = false, defaultValue = "") String resample,
                                                                       @RequestParam(value = "format", required = false, defaultValue = "standard") String format) {
         try {
             DomesticIndexDailyByTsCodeAndDateRangeResponse response = domesticIndexService.getDomesticIndexDailyByTsCodeAndDateRange(
@@ -84,6 +85,7 @@ public class DomesticIndexController {
                             .setTsCode(tsCode)
                             .setStartDate(startDateTimestamp)
                             .setEndDate(endDateTimestamp)
+                            .setResample(resample)
                             .build());
             
             String jsonResponse;
@@ -113,6 +115,9 @@ public class DomesticIndexController {
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(jsonResponse);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid index daily request option, resample: {}", resample);
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             log.error("Error occurred while getting index dailies by ts code and date range: {}", e.getMessage());
             return ResponseEntity.status(500).body("Error occurred while getting index dailies by ts code and date range");
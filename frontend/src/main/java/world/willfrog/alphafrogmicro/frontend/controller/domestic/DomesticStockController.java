@@ -2,6 +2,7 @@ package world.willfrog.alphafrogmicro.frontend.controller.domestic;
 
 import com.google.protobuf.util.JsonFormat;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.common.stream.StreamObserver;
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -9,17 +10,23 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import world.willfrog.alphafrogmicro.common.dto.compact.CompactMeta;
 import world.willfrog.alphafrogmicro.common.utils.compact.CompactJsonConverter;
 import world.willfrog.alphafrogmicro.common.utils.compact.CompactJsonFormatter;
 import world.willfrog.alphafrogmicro.domestic.idl.*;
 import world.willfrog.alphafrogmicro.domestic.idl.DomesticStockService;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @Controller
 @RequestMapping("/domestic/stock")
 @Slf4j
 public class DomesticStockController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final long STREAM_TIMEOUT_MS = 120_000L;
+
     @DubboReference(timeout = 35000)
     private DomesticStockService domesticStockService;
 
@@ -111,10 +118,12 @@ public class DomesticStockController {
     public ResponseEntity<String> getStockDailyByTsCode(@RequestParam("ts_code") String tsCode,
                                                         @RequestParam("start_date_timestamp") long startDate,
                                                         @RequestParam("end_date_timestamp") long endDate,
+                                                        @RequestParam(value = "adjust", required = false, defaultValue = "") String adjust,
+                                                        @RequestParam(value = "resample", required = false, defaultValue = "") String resample,
                                                         @RequestParam(value = "format", required = false, defaultValue = "standard") String format) {
         try {
-            log.info("Getting stock daily data for tsCode: {}, startDate: {}, endDate: {}, format: {}", 
-                    tsCode, startDate, endDate, format);
+            log.info("Getting stock daily data for tsCode: {}, startDate: {}, endDate: {}, adjust: {}, resample: {}, format: {}", 
+                    tsCode, startDate, endDate, adjust, resample, format);
             
             // 构建请求
             DomesticStockDailyByTsCodeAndDateRangeRequest request =
@@ -122,6 +131,8 @@ public class DomesticStockController {
                             .setTsCode(tsCode)
                             .setStartDate(startDate)
                             .setEndDate(endDate)
+                            .setAdjust(adjust)
+                            .setResample(resample)
                             .build();
             
             // 调用服务
@@ -157,9 +168,77 @@ public class DomesticStockController {
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(jsonResponse);
                     
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid stock daily request option, adjust: {}, resample: {}", adjust, resample);
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             log.error("Error occurred while getting stock daily by ts code: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body("Error occurred while getting stock daily by ts code");
         }
     }
+
+    /**
+     * 以 NDJSON 流式返回某交易日的全市场日线截面，每行对应服务端推送的一个分块。
+     * format=compact 时每行为 fields + rows 的紧凑格式，否则为标准 proto JSON。
+     */
+    @GetMapping("/daily/trade_date/stream")
+    public ResponseEntity<ResponseBodyEmitter> streamStockDailyByTradeDate(
+            @RequestParam("trade_date_timestamp") long tradeDate,
+            @RequestParam(value = "chunk_size", required = false, defaultValue = "500") int chunkSize,
+            @RequestParam(value = "format", required = false, defaultValue = "standard") String format) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+        boolean compact = "compact".equals(format);
+
+        DomesticStockDailyByTradeDateStreamRequest request = DomesticStockDailyByTradeDateStreamRequest.newBuilder()
+                .setTradeDate(tradeDate)
+                .setChunkSize(chunkSize)
+                .build();
+
+        // 客户端断开、超时或写失败后不再向 emitter 写数据，后续分片直接丢弃
+        AtomicBoolean closed = new AtomicBoolean(false);
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        domesticStockService.streamStockDailyByTradeDate(request, new StreamObserver<>() {
+            @Override
+            public void onNext(DomesticStockDailyChunk chunk) {
+                if (closed.get()) {
+                    return;
+                }
+                try {
+                    String line = compact
+                            ? CompactJsonFormatter.toCompactJsonStockDaily(chunk)
+                            : JsonFormat.printer()
+                            .preservingProtoFieldNames()
+                            .omittingInsignificantWhitespace()
+                            .includingDefaultValueFields()
+                            .print(chunk);
+                    emitter.send(line + "\n", NDJSON);
+                } catch (Exception e) {
+                    log.warn("Failed to write stock daily chunk for trade date: {}", tradeDate, e);
+                    if (closed.compareAndSet(false, true)) {
+                        emitter.completeWithError(e);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                log.error("Error occurred while streaming stock daily by trade date: {}", throwable.getMessage());
+                if (closed.compareAndSet(false, true)) {
+                    emitter.completeWithError(throwable);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                if (closed.compareAndSet(false, true)) {
+                    emitter.complete();
+                }
+            }
+        });
+
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
 }
@@ -91,4 +91,36 @@ public class DomesticStockFetchController {
         res.put("task_uuid", taskUuid);
         return ResponseEntity.ok(res.toString());
     }
+
+    @GetMapping("/adj_factor/trade_date")
+    public ResponseEntity<String> fetchDomesticStockAdjFactorByTradeDate(@RequestParam(name = "trade_date_timestamp") long tradeDateTimestamp,
+                                                                         @RequestParam(name = "offset") int offset,
+                                                                         @RequestParam(name = "limit") int limit) {
+        String taskUuid = UUID.randomUUID().toString();
+        fetchTaskStatusService.registerTask(taskUuid, "stock_adj_factor", 1);
+        CompletableFuture<DomesticStockAdjFactorFetchByTradeDateResponse> futureResponse = domesticStockFetchService.fetchStockAdjFactorByTradeDateAsync(
+                DomesticStockAdjFactorFetchByTradeDateRequest.newBuilder()
+                        .setTradeDate(tradeDateTimestamp).setOffset(offset).setLimit(limit).build()
+        );
+
+        futureResponse.whenComplete((response, ex) -> {
+            if (ex != null) {
+                fetchTaskStatusService.markFailure(taskUuid, "stock_adj_factor", 1, -1, ex.getMessage());
+                log.error("Failed to fetch stock adj factor for trade date {}", tradeDateTimestamp, ex);
+                return;
+            }
+            int fetchedItemsCount = response.getFetchedItemsCount();
+            if ("success".equalsIgnoreCase(response.getStatus())) {
+                fetchTaskStatusService.markSuccess(taskUuid, "stock_adj_factor", 1, fetchedItemsCount);
+            } else {
+                fetchTaskStatusService.markFailure(taskUuid, "stock_adj_factor", 1, fetchedItemsCount, response.getStatus());
+            }
+            log.info("Fetched {} adj factors from trade date {}", fetchedItemsCount, tradeDateTimestamp);
+        });
+
+        JSONObject res = new JSONObject();
+        res.put("message", "Task created. Please refer to the console for the result.");
+        res.put("task_uuid", taskUuid);
+        return ResponseEntity.ok(res.toString());
+    }
 }
@@ -16,6 +16,10 @@ import world.willfrog.alphafrogmicro.frontend.service.AuthService;
 import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestRunListRequest;
 import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestRunListResponse;
 import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestRunMessage;
+import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestSweepGetRequest;
+import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestSweepMessage;
+import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestSweepRowMessage;
+import world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestWindowMessage;
 import world.willfrog.alphafrogmicro.portfolio.idl.StrategyDubboService;
 import world.willfrog.alphafrogmicro.portfolio.idl.StrategyGetRequest;
 import world.willfrog.alphafrogmicro.portfolio.idl.StrategyListRequest;
@@ -31,6 +35,10 @@ import world.willfrog.alphafrogmicro.portfolio.idl.StrategyArchiveRequest;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.PageResult;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestRunCreateRequest;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestRunResponse;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepCreateRequest;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepResponse;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepRow;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestWindow;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyCreateRequest;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyNavResponse;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyResponse;
@@ -312,6 +320,65 @@ public class StrategyController {
         }
     }
 
+    @PostMapping("/{id}/backtest-sweeps")
+    public ResponseWrapper<StrategyBacktestSweepResponse> createBacktestSweep(Authentication authentication,
+                                                                              @PathVariable("id") Long strategyId,
+                                                                              @RequestBody StrategyBacktestSweepCreateRequest request) {
+        String userId = resolveUserId(authentication);
+        if (userId == null) {
+            return ResponseWrapper.error(ResponseCode.UNAUTHORIZED, "未登录或用户不存在");
+        }
+        try {
+            world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestSweepCreateRequest.Builder b =
+                    world.willfrog.alphafrogmicro.portfolio.idl.StrategyBacktestSweepCreateRequest.newBuilder()
+                    .setUserId(userId)
+                    .setStrategyId(strategyId)
+                    .setParamsJson(nvl(request.getParamsJson()));
+            if (request.getRebalanceRules() != null) {
+                request.getRebalanceRules().forEach(rule -> b.addRebalanceRules(nvl(rule)));
+            }
+            if (request.getWindows() != null) {
+                for (StrategyBacktestWindow window : request.getWindows()) {
+                    b.addWindows(StrategyBacktestWindowMessage.newBuilder()
+                            .setStartDate(toStr(window.getStartDate()))
+                            .setEndDate(toStr(window.getEndDate()))
+                            .build());
+                }
+            }
+            if (request.getCapitalBases() != null) {
+                request.getCapitalBases().forEach(capitalBase -> b.addCapitalBases(toStr(capitalBase)));
+            }
+            StrategyBacktestSweepMessage response = strategyDubboService.backtestSweepCreate(b.build());
+            return ResponseWrapper.success(toSweepResponse(response));
+        } catch (RpcException e) {
+            return handleRpcError(e, "创建参数扫描");
+        } catch (Exception e) {
+            return handleError(e, "创建参数扫描");
+        }
+    }
+
+    @GetMapping("/{id}/backtest-sweeps/{sweepId}")
+    public ResponseWrapper<StrategyBacktestSweepResponse> getBacktestSweep(Authentication authentication,
+                                                                           @PathVariable("id") Long strategyId,
+                                                                           @PathVariable("sweepId") String sweepId) {
+        String userId = resolveUserId(authentication);
+        if (userId == null) {
+            return ResponseWrapper.error(ResponseCode.UNAUTHORIZED, "未登录或用户不存在");
+        }
+        try {
+            StrategyBacktestSweepGetRequest req = StrategyBacktestSweepGetRequest.newBuilder()
+                    .setUserId(userId)
+                    .setStrategyId(strategyId)
+                    .setSweepId(nvl(sweepId))
+                    .build();
+            return ResponseWrapper.success(toSweepResponse(strategyDubboService.backtestSweepGet(req)));
+        } catch (RpcException e) {
+            return handleRpcError(e, "查询参数扫描");
+        } catch (Exception e) {
+            return handleError(e, "查询参数扫描");
+        }
+    }
+
     @GetMapping("/{id}/backtests/{runId}/nav")
     public ResponseWrapper<?> listNav(Authentication authentication,
                                       @PathVariable("id") Long strategyId,
@@ -422,6 +489,40 @@ public class StrategyController {
                 .build();
     }
 
+    private StrategyBacktestSweepResponse toSweepResponse(StrategyBacktestSweepMessage msg) {
+        List<StrategyBacktestSweepRow> rows = new ArrayList<>();
+        for (StrategyBacktestSweepRowMessage row : msg.getRowsList()) {
+            rows.add(StrategyBacktestSweepRow.builder()
+                    .runId(row.getRunId())
+                    .status(emptyToNull(row.getStatus()))
+                    .startDate(parseDate(row.getStartDate()))
+                    .endDate(parseDate(row.getEndDate()))
+                    .rebalanceRule(emptyToNull(row.getRebalanceRule()))
+                    .capitalBase(toDecimal(row.getCapitalBase()))
+                    .tradingDays(row.getTradingDays() > 0 ? row.getTradingDays() : null)
+                    .finalNav(toDecimal(row.getFinalNav()))
+                    .totalReturn(toDecimal(row.getTotalReturn()))
+                    .annualizedReturn(toDecimal(row.getAnnualizedReturn()))
+                    .annualizedVolatility(toDecimal(row.getAnnualizedVolatility()))
+                    .sharpe(toDecimal(row.getSharpe()))
+                    .maxDrawdown(toDecimal(row.getMaxDrawdown()))
+                    .turnover(toDecimal(row.getTurnover()))
+                    .totalCost(toDecimal(row.getTotalCost()))
+                    .errorMessage(emptyToNull(row.getErrorMessage()))
+                    .build());
+        }
+        return StrategyBacktestSweepResponse.builder()
+                .sweepId(emptyToNull(msg.getSweepId()))
+                .strategyId(msg.getStrategyId())
+                .total(msg.getTotal())
+                .pending(msg.getPending())
+                .running(msg.getRunning())
+                .completed(msg.getCompleted())
+                .failed(msg.getFailed())
+                .rows(rows)
+                .build();
+    }
+
     private PageResult<StrategyNavResponse> toNavPage(StrategyNavListResponse response) {
         List<StrategyNavResponse> list = new ArrayList<>();
         for (StrategyNavMessage msg : response.getItemsList()) {
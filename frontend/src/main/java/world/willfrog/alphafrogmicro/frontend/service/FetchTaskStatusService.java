@@ -14,6 +14,7 @@ public class FetchTaskStatusService {
     public static final String STATUS_RUNNING = "running";
     public static final String STATUS_SUCCESS = "success";
     public static final String STATUS_FAILURE = "failure";
+    public static final String STATUS_PARTIAL = "partial";
 
     private final ConcurrentHashMap<String, FetchTaskStatus> statusMap = new ConcurrentHashMap<>();
 
@@ -51,6 +52,14 @@ public class FetchTaskStatusService {
                     previous == null ? null : previous.getUpdatedAt());
         }
         FetchTaskStatus updated = statusMap.compute(taskUuid, (key, existing) -> {
+            // 分片进度由多个副本上报，晚到的 running 不能覆盖已经结束的状态
+            if (existing != null && isTerminal(existing.getStatus()) && !isTerminal(status)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Ignore stale fetch task status task_uuid={} status={} current_status={}",
+                            taskUuid, status, existing.getStatus());
+                }
+                return existing;
+            }
             FetchTaskStatus target = existing == null ? new FetchTaskStatus() : existing;
             target.setTaskUuid(taskUuid);
             if (taskName != null && !taskName.isBlank()) {
@@ -94,6 +103,12 @@ public class FetchTaskStatusService {
         return updateStatus(taskUuid, taskName, taskSubType, STATUS_FAILURE, fetchedItemsCount, message);
     }
 
+    private static boolean isTerminal(String status) {
+        return STATUS_SUCCESS.equalsIgnoreCase(status)
+                || STATUS_FAILURE.equalsIgnoreCase(status)
+                || STATUS_PARTIAL.equalsIgnoreCase(status);
+    }
+
     public Optional<FetchTaskStatus> getStatus(String taskUuid) {
         FetchTaskStatus status = statusMap.get(taskUuid);
         if (log.isDebugEnabled()) {
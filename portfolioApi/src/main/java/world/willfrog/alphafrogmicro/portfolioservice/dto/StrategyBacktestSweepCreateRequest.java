@@ -0,0 +1,28 @@
+package world.willfrog.alphafrogmicro.portfolioservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 参数扫描：按 再平衡规则 × 回测区间 × 初始资金 的笛卡尔积生成一批回测；
+ * 某一维为空时沿用策略自身的配置
+ */
+@Data
+public class StrategyBacktestSweepCreateRequest {
+    @Size(max = 32)
+    private List<String> rebalanceRules;
+
+    @Valid
+    @Size(max = 64)
+    private List<StrategyBacktestWindow> windows;
+
+    @Size(max = 32)
+    private List<BigDecimal> capitalBases;
+
+    @Size(max = 8000)
+    private String paramsJson;
+}
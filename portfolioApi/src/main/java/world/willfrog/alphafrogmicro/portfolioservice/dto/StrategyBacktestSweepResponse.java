@@ -0,0 +1,19 @@
+package world.willfrog.alphafrogmicro.portfolioservice.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class StrategyBacktestSweepResponse {
+    private String sweepId;
+    private Long strategyId;
+    private int total;
+    private int pending;
+    private int running;
+    private int completed;
+    private int failed;
+    private List<StrategyBacktestSweepRow> rows;
+}
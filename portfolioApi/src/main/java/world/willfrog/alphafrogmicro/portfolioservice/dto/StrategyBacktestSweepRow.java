@@ -0,0 +1,28 @@
+package world.willfrog.alphafrogmicro.portfolioservice.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class StrategyBacktestSweepRow {
+    private Long runId;
+    private String status;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String rebalanceRule;
+    private BigDecimal capitalBase;
+    private Integer tradingDays;
+    private BigDecimal finalNav;
+    private BigDecimal totalReturn;
+    private BigDecimal annualizedReturn;
+    private BigDecimal annualizedVolatility;
+    private BigDecimal sharpe;
+    private BigDecimal maxDrawdown;
+    private BigDecimal turnover;
+    private BigDecimal totalCost;
+    private String errorMessage;
+}
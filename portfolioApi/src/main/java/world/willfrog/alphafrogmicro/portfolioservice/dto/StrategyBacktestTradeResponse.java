@@ -0,0 +1,23 @@
+package world.willfrog.alphafrogmicro.portfolioservice.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class StrategyBacktestTradeResponse {
+    private Long id;
+    private Long runId;
+    private LocalDate tradeDate;
+    private String symbol;
+    private String side;
+    private BigDecimal quantity;
+    private BigDecimal price;
+    private BigDecimal amount;
+    private BigDecimal commission;
+    private BigDecimal stampDuty;
+    private BigDecimal slippage;
+}
@@ -0,0 +1,15 @@
+package world.willfrog.alphafrogmicro.portfolioservice.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class StrategyBacktestWindow {
+    @NotNull
+    private LocalDate startDate;
+
+    @NotNull
+    private LocalDate endDate;
+}
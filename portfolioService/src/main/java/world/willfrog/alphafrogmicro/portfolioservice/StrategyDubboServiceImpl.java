@@ -4,6 +4,9 @@ import org.apache.dubbo.config.annotation.DubboService;
 import world.willfrog.alphafrogmicro.portfolio.idl.*;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.PageResult;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestRunResponse;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepResponse;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepRow;
+import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestWindow;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyNavResponse;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyResponse;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyTargetResponse;
@@ -129,6 +132,23 @@ public class StrategyDubboServiceImpl extends DubboStrategyDubboServiceTriple.St
         return b.build();
     }
 
+    @Override
+    public StrategyBacktestSweepMessage backtestSweepCreate(StrategyBacktestSweepCreateRequest request) {
+        world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepCreateRequest dto =
+                new world.willfrog.alphafrogmicro.portfolioservice.dto.StrategyBacktestSweepCreateRequest();
+        dto.setRebalanceRules(request.getRebalanceRulesList());
+        dto.setWindows(request.getWindowsList().stream().map(this::toWindow).toList());
+        dto.setCapitalBases(request.getCapitalBasesList().stream().map(this::toDecimal).toList());
+        dto.setParamsJson(request.getParamsJson());
+        return toSweepMessage(strategyService.createBacktestSweep(request.getStrategyId(), request.getUserId(), dto));
+    }
+
+    @Override
+    public StrategyBacktestSweepMessage backtestSweepGet(StrategyBacktestSweepGetRequest request) {
+        return toSweepMessage(strategyService.getBacktestSweep(
+                request.getStrategyId(), request.getUserId(), request.getSweepId()));
+    }
+
     @Override
     public StrategyNavListResponse navList(StrategyNavListRequest request) {
         PageResult<StrategyNavResponse> page = strategyService.listNav(
@@ -206,6 +226,47 @@ public class StrategyDubboServiceImpl extends DubboStrategyDubboServiceTriple.St
                 .build();
     }
 
+    private StrategyBacktestWindow toWindow(StrategyBacktestWindowMessage msg) {
+        StrategyBacktestWindow window = new StrategyBacktestWindow();
+        window.setStartDate(parseDate(msg.getStartDate()));
+        window.setEndDate(parseDate(msg.getEndDate()));
+        return window;
+    }
+
+    private StrategyBacktestSweepMessage toSweepMessage(StrategyBacktestSweepResponse resp) {
+        StrategyBacktestSweepMessage.Builder b = StrategyBacktestSweepMessage.newBuilder()
+                .setSweepId(nvl(resp.getSweepId()))
+                .setStrategyId(nvl(resp.getStrategyId()))
+                .setTotal(resp.getTotal())
+                .setPending(resp.getPending())
+                .setRunning(resp.getRunning())
+                .setCompleted(resp.getCompleted())
+                .setFailed(resp.getFailed());
+        resp.getRows().forEach(row -> b.addRows(toSweepRowMessage(row)));
+        return b.build();
+    }
+
+    private StrategyBacktestSweepRowMessage toSweepRowMessage(StrategyBacktestSweepRow row) {
+        return StrategyBacktestSweepRowMessage.newBuilder()
+                .setRunId(nvl(row.getRunId()))
+                .setStatus(nvl(row.getStatus()))
+                .setStartDate(toStr(row.getStartDate()))
+                .setEndDate(toStr(row.getEndDate()))
+                .setRebalanceRule(nvl(row.getRebalanceRule()))
+                .setCapitalBase(toStr(row.getCapitalBase()))
+                .setTradingDays(row.getTradingDays() == null ? 0 : row.getTradingDays())
+                .setFinalNav(toStr(row.getFinalNav()))
+                .setTotalReturn(toStr(row.getTotalReturn()))
+                .setAnnualizedReturn(toStr(row.getAnnualizedReturn()))
+                .setAnnualizedVolatility(toStr(row.getAnnualizedVolatility()))
+                .setSharpe(toStr(row.getSharpe()))
+                .setMaxDrawdown(toStr(row.getMaxDrawdown()))
+                .setTurnover(toStr(row.getTurnover()))
+                .setTotalCost(toStr(row.getTotalCost()))
+                .setErrorMessage(nvl(row.getErrorMessage()))
+                .build();
+    }
+
     private StrategyNavMessage toNavMessage(StrategyNavResponse resp) {
         return StrategyNavMessage.newBuilder()
                 .setId(nvl(resp.getId()))
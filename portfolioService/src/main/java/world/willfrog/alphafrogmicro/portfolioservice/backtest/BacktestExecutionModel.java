@@ -0,0 +1,118 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 再平衡时的成交模型：佣金（按成交额比例，不足最低佣金按最低收取）、卖出印花税、按基点计的滑点和整手约束。
+ * <p>
+ * 参数取自策略 rule_json 的 execution 对象，回测 params_json 的 execution 对象可逐项覆盖，例如
+ * {"execution": {"commissionBps": 2.5, "minCommission": 5, "stampDutyBps": 5, "slippageBps": 5, "lotSize": 100}}。
+ * 未配置时为无摩擦模型（零成本、可成交任意小数数量），与原实现口径一致。
+ */
+record BacktestExecutionModel(double commissionRate,
+                              double minCommission,
+                              double stampDutyRate,
+                              double slippageRate,
+                              int lotSize) {
+
+    static final BacktestExecutionModel FRICTIONLESS = new BacktestExecutionModel(0, 0, 0, 0, 0);
+
+    private static final double BPS = 10_000.0;
+
+    BacktestExecutionModel {
+        if (commissionRate < 0 || minCommission < 0 || stampDutyRate < 0 || slippageRate < 0 || lotSize < 0) {
+            throw new IllegalArgumentException("交易成本参数不能为负数");
+        }
+        if (slippageRate >= 1) {
+            throw new IllegalArgumentException("slippageBps 必须小于 10000");
+        }
+    }
+
+    /**
+     * 依次读取各层 JSON 的 execution 对象，后面的层覆盖前面的层；缺失或为 null 的层忽略
+     */
+    static BacktestExecutionModel of(JsonNode... layers) {
+        double commissionBps = 0;
+        double minCommission = 0;
+        double stampDutyBps = 0;
+        double slippageBps = 0;
+        int lotSize = 0;
+        for (JsonNode layer : layers) {
+            JsonNode execution = layer == null ? null : layer.get("execution");
+            if (execution == null || !execution.isObject()) {
+                continue;
+            }
+            commissionBps = number(execution, "commissionBps", commissionBps);
+            minCommission = number(execution, "minCommission", minCommission);
+            stampDutyBps = number(execution, "stampDutyBps", stampDutyBps);
+            slippageBps = number(execution, "slippageBps", slippageBps);
+            lotSize = (int) number(execution, "lotSize", lotSize);
+        }
+        return new BacktestExecutionModel(commissionBps / BPS, minCommission, stampDutyBps / BPS,
+                slippageBps / BPS, lotSize);
+    }
+
+    private static double number(JsonNode node, String field, double defaultValue) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return defaultValue;
+        }
+        if (value.isNumber()) {
+            return value.doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.asText().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("交易成本参数 " + field + " 不是数字: " + value.asText());
+        }
+    }
+
+    /**
+     * 按整手向下取整；lotSize 为 0 时不取整
+     */
+    double roundQuantity(double quantity) {
+        if (quantity <= 0) {
+            return 0;
+        }
+        return lotSize > 0 ? Math.floor(quantity / lotSize) * lotSize : quantity;
+    }
+
+    double buyPrice(double price) {
+        return price * (1 + slippageRate);
+    }
+
+    double sellPrice(double price) {
+        return price * (1 - slippageRate);
+    }
+
+    double commission(double amount) {
+        return amount > 0 ? Math.max(minCommission, amount * commissionRate) : 0;
+    }
+
+    double stampDuty(double sellAmount) {
+        return sellAmount * stampDutyRate;
+    }
+
+    /**
+     * 现金约束下可买入的数量：先按目标数量检查，不足时按可用现金反推并重新取整，最后逐手扣减直到含佣金的成本不超过现金
+     */
+    double affordableQuantity(double quantity, double executionPrice, double cash) {
+        if (quantity <= 0 || cash <= 0 || executionPrice <= 0) {
+            return 0;
+        }
+        if (quantity * executionPrice + commission(quantity * executionPrice) <= cash) {
+            return quantity;
+        }
+        double affordable = cash / (executionPrice * (1 + commissionRate));
+        if (affordable * executionPrice * commissionRate < minCommission) {
+            affordable = (cash - minCommission) / executionPrice;
+        }
+        affordable = roundQuantity(Math.min(quantity, affordable));
+        if (lotSize > 0) {
+            while (affordable > 0 && affordable * executionPrice + commission(affordable * executionPrice) > cash) {
+                affordable -= lotSize;
+            }
+        }
+        return Math.max(0, affordable);
+    }
+}
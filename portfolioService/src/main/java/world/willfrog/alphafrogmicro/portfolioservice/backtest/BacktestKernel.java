@@ -0,0 +1,241 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import java.util.Arrays;
+
+/**
+ * 基于原始 double 数组的回测内核。
+ * <p>
+ * 输入为对齐后的收盘价矩阵、预展开的权重时间表和再平衡日标记，逐日循环只读写定长数组：
+ * 前向填充最新价、检查持仓标的是否都有价格、在再平衡日按目标权重和成交模型调仓、计算净值/回撤/基准净值。
+ * 调仓先卖后买：卖出所得扣除佣金与印花税后计入现金，买入受现金约束，整手取整与费用产生的余额留作现金。
+ * 除结果数组与成交明细外循环内不分配对象；无摩擦模型下口径与原 BigDecimal 实现一致（差异仅来自浮点舍入）。
+ */
+final class BacktestKernel {
+
+    /**
+     * 回测输出；第 i 条对应交易日下标 dayIndex[i]，benchmarkNav 缺失为 NaN
+     */
+    record Result(int size, int[] dayIndex, double[] nav, double[] drawdown, double[] benchmarkNav,
+                  BacktestTradeLog trades) {
+    }
+
+    private BacktestKernel() {
+    }
+
+    /**
+     * @param rebalanceDays 每个交易日是否为再平衡日；首个可建仓日无论如何都会建仓
+     * @param benchmark     对齐到交易日的基准价格，缺失为 NaN；为 null 表示没有基准
+     * @param capitalBase   初始资金，必须为正
+     */
+    static Result run(BacktestMarketData market, BacktestWeightSchedule schedule, boolean[] rebalanceDays,
+                      double[] benchmark, double capitalBase) {
+        return run(market, schedule, rebalanceDays, benchmark, capitalBase, 0, market.dayCount());
+    }
+
+    /**
+     * 只在交易日下标 [fromDay, toDay) 内回测，用于多个区间共享同一份行情矩阵；
+     * 区间之前的价格不参与前向填充，与单独加载该区间行情的结果一致
+     */
+    static Result run(BacktestMarketData market, BacktestWeightSchedule schedule, boolean[] rebalanceDays,
+                      double[] benchmark, double capitalBase, int fromDay, int toDay) {
+        return run(market, schedule, rebalanceDays, benchmark, capitalBase, fromDay, toDay,
+                BacktestExecutionModel.FRICTIONLESS);
+    }
+
+    static Result run(BacktestMarketData market, BacktestWeightSchedule schedule, boolean[] rebalanceDays,
+                      double[] benchmark, double capitalBase, int fromDay, int toDay,
+                      BacktestExecutionModel model) {
+        double[][] closes = market.closes();
+        int symbolCount = market.symbolCount();
+        int dayCount = Math.max(0, toDay - fromDay);
+
+        double[] lastPrices = new double[symbolCount];
+        Arrays.fill(lastPrices, Double.NaN);
+        Book book = new Book(symbolCount, capitalBase);
+        BacktestTradeLog trades = new BacktestTradeLog();
+        boolean initialized = false;
+        double maxNav = Double.NEGATIVE_INFINITY;
+        double benchmarkBase = Double.NaN;
+        double benchmarkLast = Double.NaN;
+
+        int[] dayIndex = new int[dayCount];
+        double[] navs = new double[dayCount];
+        double[] drawdowns = new double[dayCount];
+        double[] benchmarkNavs = new double[dayCount];
+        int size = 0;
+
+        for (int day = fromDay; day < toDay; day++) {
+            for (int s = 0; s < symbolCount; s++) {
+                double price = closes[s][day];
+                if (!Double.isNaN(price)) {
+                    lastPrices[s] = price;
+                }
+            }
+            int segment = schedule.segmentOfDay(day);
+            if (segment < 0) {
+                continue;
+            }
+            int[] symbols = schedule.symbols(segment);
+            if (!hasAllPrices(symbols, lastPrices)) {
+                continue;
+            }
+
+            if (rebalanceDays[day] || !initialized) {
+                book.rebalance(day, symbols, schedule.weights(segment), lastPrices, model, trades);
+                initialized = true;
+            }
+
+            double nav = book.value(lastPrices) / capitalBase;
+            maxNav = Math.max(maxNav, nav);
+
+            double benchmarkNav = Double.NaN;
+            if (benchmark != null) {
+                double price = benchmark[day];
+                if (!Double.isNaN(price)) {
+                    benchmarkLast = price;
+                    if (Double.isNaN(benchmarkBase)) {
+                        benchmarkBase = price;
+                    }
+                }
+                if (!Double.isNaN(benchmarkBase)) {
+                    benchmarkNav = benchmarkLast / benchmarkBase;
+                }
+            }
+
+            dayIndex[size] = day;
+            navs[size] = nav;
+            drawdowns[size] = nav / maxNav - 1;
+            benchmarkNavs[size] = benchmarkNav;
+            size++;
+        }
+        return new Result(size, dayIndex, navs, drawdowns, benchmarkNavs, trades);
+    }
+
+    private static boolean hasAllPrices(int[] symbols, double[] lastPrices) {
+        for (int symbol : symbols) {
+            if (Double.isNaN(lastPrices[symbol])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 小于该比例（相对组合市值）的调仓差额视为浮点误差
+     */
+    private static final double NOTIONAL_EPSILON = 1e-9;
+
+    /**
+     * 账户状态：现金与各标的持仓数量；heldSymbols 只记录持仓非零的标的，避免每天遍历全部标的
+     */
+    private static final class Book {
+        private final double[] holdings;
+        private final double[] targets;
+        private final int[] heldSymbols;
+        private final boolean[] held;
+        private int heldCount;
+        private double cash;
+
+        private Book(int symbolCount, double capitalBase) {
+            this.holdings = new double[symbolCount];
+            this.targets = new double[symbolCount];
+            this.heldSymbols = new int[symbolCount];
+            this.held = new boolean[symbolCount];
+            this.cash = capitalBase;
+        }
+
+        /**
+         * 现金加持仓市值；尚未建仓时为初始资金
+         */
+        private double value(double[] lastPrices) {
+            double total = cash;
+            for (int i = 0; i < heldCount; i++) {
+                int symbol = heldSymbols[i];
+                total += holdings[symbol] * lastPrices[symbol];
+            }
+            return total;
+        }
+
+        /**
+         * 卖出以调仓前市值定目标，买入以扣除单边费用后的市值定目标，给买入费用留出现金；
+         * 持仓落在两者之间时不交易，权重不变的再平衡不会因为费用反复卖出零头。
+         * 成交额不超过市值 {@link #NOTIONAL_EPSILON} 的差额视为浮点误差，不下单；目标为 0 的标的不受此限，余量全部卖出。
+         */
+        private void rebalance(int day, int[] symbols, double[] weights, double[] lastPrices,
+                               BacktestExecutionModel model, BacktestTradeLog trades) {
+            double value = value(lastPrices);
+            double buyBudget = value / (1 + model.slippageRate() + model.commissionRate());
+            double tolerance = value * NOTIONAL_EPSILON;
+            for (int i = 0; i < heldCount; i++) {
+                targets[heldSymbols[i]] = 0;
+            }
+            for (int i = 0; i < symbols.length; i++) {
+                double price = lastPrices[symbols[i]];
+                targets[symbols[i]] = price > 0 ? model.roundQuantity(value * weights[i] / price) : 0;
+            }
+
+            double traded = 0;
+            for (int i = 0; i < heldCount; i++) {
+                int symbol = heldSymbols[i];
+                double quantity = holdings[symbol] - targets[symbol];
+                double price = lastPrices[symbol];
+                if (quantity <= 0 || price <= 0 || (targets[symbol] > 0 && quantity * price <= tolerance)) {
+                    continue;
+                }
+                double executionPrice = model.sellPrice(price);
+                double amount = quantity * executionPrice;
+                double commission = model.commission(amount);
+                double stampDuty = model.stampDuty(amount);
+                cash += amount - commission - stampDuty;
+                holdings[symbol] -= quantity;
+                traded += amount;
+                trades.add(day, symbol, -quantity, executionPrice, amount, commission, stampDuty,
+                        quantity * (price - executionPrice));
+            }
+            for (int i = 0; i < symbols.length; i++) {
+                int symbol = symbols[i];
+                double price = lastPrices[symbol];
+                if (price <= 0) {
+                    continue;
+                }
+                double buyTarget = model.roundQuantity(buyBudget * weights[i] / price);
+                if ((buyTarget - holdings[symbol]) * price <= tolerance) {
+                    continue;
+                }
+                double executionPrice = model.buyPrice(price);
+                double quantity = model.affordableQuantity(buyTarget - holdings[symbol], executionPrice, cash);
+                if (quantity <= 0) {
+                    continue;
+                }
+                double amount = quantity * executionPrice;
+                double commission = model.commission(amount);
+                cash -= amount + commission;
+                holdings[symbol] += quantity;
+                traded += amount;
+                trades.add(day, symbol, quantity, executionPrice, amount, commission, 0,
+                        quantity * (executionPrice - price));
+            }
+            if (value > 0) {
+                trades.addTurnover(traded / 2 / value);
+            }
+
+            // 重建持仓列表：调仓前的持仓（无价格时不卖出，低于容差的减仓也会留下余量）与本次目标标的都可能仍有持仓
+            int count = 0;
+            for (int i = 0; i < heldCount; i++) {
+                int symbol = heldSymbols[i];
+                if (holdings[symbol] > 0) {
+                    heldSymbols[count++] = symbol;
+                } else {
+                    held[symbol] = false;
+                }
+            }
+            for (int symbol : symbols) {
+                if (holdings[symbol] > 0 && !held[symbol]) {
+                    held[symbol] = true;
+                    heldSymbols[count++] = symbol;
+                }
+            }
+            heldCount = count;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.portfolioservice.domain.PricePoint;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回测行情的稠密矩阵：所有标的按交易日对齐为 [symbol][dayIndex] 的 double 收盘价，缺失为 NaN。
+ * 交易日序列取所有标的有行情日期的并集（与原先 TreeSet 的口径一致），日期只在构建时转换一次。
+ */
+final class BacktestMarketData {
+
+    private final String[] symbols;
+    private final Map<String, Integer> symbolIndex;
+    private final long[] epochDays;
+    private final LocalDate[] dates;
+    private final double[][] closes;
+
+    private BacktestMarketData(String[] symbols, Map<String, Integer> symbolIndex, long[] epochDays, double[][] closes) {
+        this.symbols = symbols;
+        this.symbolIndex = symbolIndex;
+        this.epochDays = epochDays;
+        this.closes = closes;
+        this.dates = new LocalDate[epochDays.length];
+        for (int d = 0; d < epochDays.length; d++) {
+            dates[d] = LocalDate.ofEpochDay(epochDays[d]);
+        }
+    }
+
+    /**
+     * 按给定标的顺序对齐行情；不属于 symbols 或缺少日期/收盘价的点被忽略，同一标的同一日期以后出现的点为准
+     */
+    static BacktestMarketData align(List<String> symbols, List<PricePoint> points) {
+        Map<String, Integer> symbolIndex = new HashMap<>(symbols.size() * 2);
+        for (String symbol : symbols) {
+            symbolIndex.putIfAbsent(symbol, symbolIndex.size());
+        }
+        String[] orderedSymbols = new String[symbolIndex.size()];
+        symbolIndex.forEach((symbol, index) -> orderedSymbols[index] = symbol);
+
+        int[] pointSymbols = new int[points.size()];
+        long[] pointDays = new long[points.size()];
+        int valid = 0;
+        for (PricePoint point : points) {
+            Integer index = point.getTsCode() == null ? null : symbolIndex.get(point.getTsCode());
+            if (index == null || point.getTradeDate() == null || point.getClose() == null) {
+                continue;
+            }
+            pointSymbols[valid] = index;
+            pointDays[valid] = DateConvertUtils.convertTimestampToLocalDate(point.getTradeDate()).toEpochDay();
+            valid++;
+        }
+        long[] epochDays = distinctSorted(pointDays, valid);
+
+        double[][] closes = new double[orderedSymbols.length][epochDays.length];
+        for (double[] row : closes) {
+            Arrays.fill(row, Double.NaN);
+        }
+        int p = 0;
+        for (PricePoint point : points) {
+            Integer index = point.getTsCode() == null ? null : symbolIndex.get(point.getTsCode());
+            if (index == null || point.getTradeDate() == null || point.getClose() == null) {
+                continue;
+            }
+            int day = Arrays.binarySearch(epochDays, pointDays[p++]);
+            closes[index][day] = point.getClose().doubleValue();
+        }
+        return new BacktestMarketData(orderedSymbols, symbolIndex, epochDays, closes);
+    }
+
+    /**
+     * 把另一条序列（如基准）对齐到本矩阵的交易日，不在交易日序列中的点被忽略
+     */
+    double[] alignSeries(List<PricePoint> points) {
+        double[] values = new double[epochDays.length];
+        Arrays.fill(values, Double.NaN);
+        for (PricePoint point : points) {
+            if (point.getTradeDate() == null || point.getClose() == null) {
+                continue;
+            }
+            long epochDay = DateConvertUtils.convertTimestampToLocalDate(point.getTradeDate()).toEpochDay();
+            int day = Arrays.binarySearch(epochDays, epochDay);
+            if (day >= 0) {
+                values[day] = point.getClose().doubleValue();
+            }
+        }
+        return values;
+    }
+
+    int symbolCount() {
+        return symbols.length;
+    }
+
+    int dayCount() {
+        return epochDays.length;
+    }
+
+    String symbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * 标的下标，不存在时为 -1
+     */
+    int indexOf(String symbol) {
+        Integer index = symbolIndex.get(symbol);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 第一个不早于 date 的交易日下标；全部早于 date 时为 dayCount
+     */
+    int lowerBound(LocalDate date) {
+        int index = Arrays.binarySearch(epochDays, date.toEpochDay());
+        return index >= 0 ? index : -index - 1;
+    }
+
+    LocalDate date(int day) {
+        return dates[day];
+    }
+
+    LocalDate[] dates() {
+        return dates;
+    }
+
+    double[][] closes() {
+        return closes;
+    }
+
+    private static long[] distinctSorted(long[] values, int length) {
+        long[] sorted = Arrays.copyOf(values, length);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+}
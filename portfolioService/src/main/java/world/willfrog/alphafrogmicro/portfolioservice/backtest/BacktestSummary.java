@@ -0,0 +1,88 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次回测的汇总指标，写入回测记录的 ext.summary，供参数扫描的对比表使用。
+ * 年化收益按自然日折算，年化波动率与夏普比率（无风险利率取 0）按 252 个交易日折算；
+ * 换手率为累计单边换手，交易成本为佣金、印花税与滑点之和（金额，与初始资金同单位）。
+ */
+record BacktestSummary(int tradingDays,
+                       double finalNav,
+                       double totalReturn,
+                       double annualizedReturn,
+                       double annualizedVolatility,
+                       double sharpe,
+                       double maxDrawdown,
+                       double turnover,
+                       double totalCost,
+                       int tradeCount) {
+
+    private static final int TRADING_DAYS_PER_YEAR = 252;
+    private static final int SCALE = 6;
+
+    static BacktestSummary of(BacktestKernel.Result result, BacktestMarketData market) {
+        int size = result.size();
+        if (size == 0) {
+            return new BacktestSummary(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                    Double.NaN, Double.NaN, 0);
+        }
+        double[] navs = result.nav();
+        double finalNav = navs[size - 1] / navs[0];
+        double maxDrawdown = 0;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < size; i++) {
+            maxDrawdown = Math.min(maxDrawdown, result.drawdown()[i]);
+            if (i > 0) {
+                double dailyReturn = navs[i] / navs[i - 1] - 1;
+                sum += dailyReturn;
+                sumSquares += dailyReturn * dailyReturn;
+            }
+        }
+        long calendarDays = ChronoUnit.DAYS.between(market.date(result.dayIndex()[0]),
+                market.date(result.dayIndex()[size - 1]));
+        double annualizedReturn = calendarDays > 0 ? Math.pow(finalNav, 365.0 / calendarDays) - 1 : finalNav - 1;
+        double volatility = Double.NaN;
+        double sharpe = Double.NaN;
+        int returns = size - 1;
+        if (returns > 1) {
+            double mean = sum / returns;
+            double variance = (sumSquares - returns * mean * mean) / (returns - 1);
+            volatility = Math.sqrt(Math.max(variance, 0) * TRADING_DAYS_PER_YEAR);
+            sharpe = volatility > 0 ? mean * TRADING_DAYS_PER_YEAR / volatility : Double.NaN;
+        }
+        BacktestTradeLog trades = result.trades();
+        return new BacktestSummary(size, finalNav, finalNav - 1, annualizedReturn, volatility, sharpe, maxDrawdown,
+                trades.turnover(), trades.totalCost(), trades.size());
+    }
+
+    /**
+     * 序列化用的有序 Map，数值保留 6 位小数，无法计算的指标为 null
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("tradingDays", tradingDays);
+        map.put("finalNav", decimal(finalNav));
+        map.put("totalReturn", decimal(totalReturn));
+        map.put("annualizedReturn", decimal(annualizedReturn));
+        map.put("annualizedVolatility", decimal(annualizedVolatility));
+        map.put("sharpe", decimal(sharpe));
+        map.put("maxDrawdown", decimal(maxDrawdown));
+        map.put("turnover", decimal(turnover));
+        map.put("totalCost", decimal(totalCost));
+        map.put("tradeCount", tradeCount);
+        return map;
+    }
+
+    private static BigDecimal decimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+}
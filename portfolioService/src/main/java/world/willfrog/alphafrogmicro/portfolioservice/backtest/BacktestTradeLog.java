@@ -0,0 +1,109 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import java.util.Arrays;
+
+/**
+ * 回测内核产生的成交明细，按列存放在可扩容的原始类型数组中，逐笔追加不分配对象。
+ * quantity 为正表示买入、为负表示卖出；price 为含滑点的成交价，amount 为成交额（不含费用）。
+ */
+final class BacktestTradeLog {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private int[] dayIndex = new int[INITIAL_CAPACITY];
+    private int[] symbolIndex = new int[INITIAL_CAPACITY];
+    private double[] quantity = new double[INITIAL_CAPACITY];
+    private double[] price = new double[INITIAL_CAPACITY];
+    private double[] amount = new double[INITIAL_CAPACITY];
+    private double[] commission = new double[INITIAL_CAPACITY];
+    private double[] stampDuty = new double[INITIAL_CAPACITY];
+    private double[] slippage = new double[INITIAL_CAPACITY];
+    private double turnover;
+
+    void add(int day, int symbol, double tradeQuantity, double tradePrice, double tradeAmount,
+             double tradeCommission, double tradeStampDuty, double tradeSlippage) {
+        if (size == dayIndex.length) {
+            grow();
+        }
+        dayIndex[size] = day;
+        symbolIndex[size] = symbol;
+        quantity[size] = tradeQuantity;
+        price[size] = tradePrice;
+        amount[size] = tradeAmount;
+        commission[size] = tradeCommission;
+        stampDuty[size] = tradeStampDuty;
+        slippage[size] = tradeSlippage;
+        size++;
+    }
+
+    void addTurnover(double value) {
+        turnover += value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int dayIndex(int i) {
+        return dayIndex[i];
+    }
+
+    int symbolIndex(int i) {
+        return symbolIndex[i];
+    }
+
+    double quantity(int i) {
+        return quantity[i];
+    }
+
+    double price(int i) {
+        return price[i];
+    }
+
+    double amount(int i) {
+        return amount[i];
+    }
+
+    double commission(int i) {
+        return commission[i];
+    }
+
+    double stampDuty(int i) {
+        return stampDuty[i];
+    }
+
+    double slippage(int i) {
+        return slippage[i];
+    }
+
+    /**
+     * 累计单边换手率：每次再平衡的 (买入额 + 卖出额) / 2 / 调仓前组合市值 之和
+     */
+    double turnover() {
+        return turnover;
+    }
+
+    /**
+     * 佣金、印花税与滑点成本之和
+     */
+    double totalCost() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += commission[i] + stampDuty[i] + slippage[i];
+        }
+        return total;
+    }
+
+    private void grow() {
+        int capacity = dayIndex.length * 2;
+        dayIndex = Arrays.copyOf(dayIndex, capacity);
+        symbolIndex = Arrays.copyOf(symbolIndex, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        price = Arrays.copyOf(price, capacity);
+        amount = Arrays.copyOf(amount, capacity);
+        commission = Arrays.copyOf(commission, capacity);
+        stampDuty = Arrays.copyOf(stampDuty, capacity);
+        slippage = Arrays.copyOf(slippage, capacity);
+    }
+}
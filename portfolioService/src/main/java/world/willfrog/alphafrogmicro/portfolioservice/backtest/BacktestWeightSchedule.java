@@ -0,0 +1,132 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import world.willfrog.alphafrogmicro.portfolioservice.domain.StrategyTargetPo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 预先展开的目标权重时间表。
+ * <p>
+ * 目标权重只在某个 effective_date 上变化，因此按所有生效日把交易日切成若干段，每段只解析一次权重
+ * （选取每个标的最后一个已生效的目标、剔除非正权重、再归一化），回测循环按交易日下标直接取段，
+ * 不再逐日重建权重 Map。
+ */
+final class BacktestWeightSchedule {
+
+    private static final int[] NO_SYMBOLS = new int[0];
+    private static final double[] NO_WEIGHTS = new double[0];
+
+    private final int[] segmentOfDay;
+    private final int[][] segmentSymbols;
+    private final double[][] segmentWeights;
+
+    private BacktestWeightSchedule(int[] segmentOfDay, int[][] segmentSymbols, double[][] segmentWeights) {
+        this.segmentOfDay = segmentOfDay;
+        this.segmentSymbols = segmentSymbols;
+        this.segmentWeights = segmentWeights;
+    }
+
+    /**
+     * @param targetsBySymbol 每个标的的目标列表，已按生效日升序（缺失生效日的排在最前）
+     */
+    static BacktestWeightSchedule build(BacktestMarketData market, Map<String, List<StrategyTargetPo>> targetsBySymbol) {
+        TreeSet<LocalDate> boundarySet = new TreeSet<>();
+        for (List<StrategyTargetPo> targets : targetsBySymbol.values()) {
+            for (StrategyTargetPo target : targets) {
+                if (target.getEffectiveDate() != null) {
+                    boundarySet.add(target.getEffectiveDate());
+                }
+            }
+        }
+        LocalDate[] boundaries = boundarySet.toArray(new LocalDate[0]);
+
+        int[][] segmentSymbols = new int[boundaries.length + 1][];
+        double[][] segmentWeights = new double[boundaries.length + 1][];
+        int[] segmentOfDay = new int[market.dayCount()];
+        int segment = 0;
+        for (int day = 0; day < segmentOfDay.length; day++) {
+            LocalDate date = market.date(day);
+            while (segment < boundaries.length && !boundaries[segment].isAfter(date)) {
+                segment++;
+            }
+            if (segmentSymbols[segment] == null) {
+                // 段内任意一天的权重都与段起点相同；首段之前没有任何生效日
+                resolveSegment(market, targetsBySymbol, segment == 0 ? LocalDate.MIN : boundaries[segment - 1],
+                        segment, segmentSymbols, segmentWeights);
+            }
+            segmentOfDay[day] = segmentSymbols[segment].length == 0 ? -1 : segment;
+        }
+        return new BacktestWeightSchedule(segmentOfDay, segmentSymbols, segmentWeights);
+    }
+
+    /**
+     * 当日生效的权重段，-1 表示当日没有任何正权重
+     */
+    int segmentOfDay(int day) {
+        return segmentOfDay[day];
+    }
+
+    /**
+     * 段内持有的标的下标
+     */
+    int[] symbols(int segment) {
+        return segmentSymbols[segment];
+    }
+
+    /**
+     * 与 {@link #symbols(int)} 一一对应的归一化权重
+     */
+    double[] weights(int segment) {
+        return segmentWeights[segment];
+    }
+
+    private static void resolveSegment(BacktestMarketData market, Map<String, List<StrategyTargetPo>> targetsBySymbol,
+                                       LocalDate date, int segment, int[][] segmentSymbols, double[][] segmentWeights) {
+        int[] symbols = new int[targetsBySymbol.size()];
+        double[] weights = new double[targetsBySymbol.size()];
+        int count = 0;
+        double total = 0;
+        for (Map.Entry<String, List<StrategyTargetPo>> entry : targetsBySymbol.entrySet()) {
+            StrategyTargetPo selected = selectTarget(entry.getValue(), date);
+            if (selected == null || selected.getTargetWeight() == null
+                    || selected.getTargetWeight().compareTo(BigDecimal.ZERO) <= 0) {
+                continue;
+            }
+            int symbol = market.indexOf(entry.getKey());
+            if (symbol < 0) {
+                continue;
+            }
+            symbols[count] = symbol;
+            weights[count] = selected.getTargetWeight().doubleValue();
+            total += weights[count];
+            count++;
+        }
+        if (count == 0) {
+            segmentSymbols[segment] = NO_SYMBOLS;
+            segmentWeights[segment] = NO_WEIGHTS;
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            weights[i] /= total;
+        }
+        segmentSymbols[segment] = Arrays.copyOf(symbols, count);
+        segmentWeights[segment] = Arrays.copyOf(weights, count);
+    }
+
+    private static StrategyTargetPo selectTarget(List<StrategyTargetPo> list, LocalDate date) {
+        StrategyTargetPo selected = null;
+        for (StrategyTargetPo item : list) {
+            LocalDate effective = item.getEffectiveDate();
+            if (effective != null && effective.isAfter(date)) {
+                break;
+            }
+            selected = item;
+        }
+        return selected;
+    }
+}
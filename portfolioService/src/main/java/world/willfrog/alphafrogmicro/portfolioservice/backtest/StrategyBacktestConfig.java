@@ -2,8 +2,10 @@ package world.willfrog.alphafrogmicro.portfolioservice.backtest;
 
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 @EnableConfigurationProperties(StrategyBacktestProperties.class)
 public class StrategyBacktestConfig {
 }
@@ -1,35 +1,167 @@
 package world.willfrog.alphafrogmicro.portfolioservice.backtest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回测事件消费端。
+ * <p>
+ * 监听线程只负责解析消息并把回测提交到有界工作线程池，不在监听线程上执行计算；
+ * 执行中与排队中的回测合计达到 worker-parallelism + worker-queue-capacity 时暂停监听容器，
+ * 有回测结束、低于上限后再恢复拉取。监听线程从不阻塞，不会超过 max.poll.interval.ms 被踢出消费组；
+ * 每次最多拉取 max-poll-records 条，暂停生效前已拉到的消息照常入队。
+ * <p>
+ * 消息提交到线程池后即确认，进程停止时已确认但未执行完的回测不会被重投：停止时先等待
+ * worker-shutdown-timeout-seconds 让线程池执行完，超时后中断剩余任务，并把仍未结束的回测标记为失败，
+ * 不会一直停留在 pending / running；进程被强杀时由 {@link StrategyBacktestRunReaper} 按超时回收。
+ * <p>
+ * 在途回测按提交序号登记，重投的重复消息与原消息值相等，但各自独立登记与移除。
+ */
 @Slf4j
 @Component
 @ConditionalOnProperty(name = "portfolio.backtest.consumer-enabled", havingValue = "true", matchIfMissing = true)
 public class StrategyBacktestConsumer {
 
+    static final String LISTENER_ID = "strategyBacktestConsumer";
+
     private final ObjectMapper objectMapper;
     private final StrategyBacktestExecutor executor;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ExecutorService workerPool;
+    private final int capacity;
+    private final long shutdownTimeoutSeconds;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong submissionSequence = new AtomicLong();
+    private final Map<Long, StrategyBacktestRunEvent> pendingEvents = new ConcurrentHashMap<>();
 
-    public StrategyBacktestConsumer(ObjectMapper objectMapper, StrategyBacktestExecutor executor) {
+    public StrategyBacktestConsumer(ObjectMapper objectMapper,
+                                    StrategyBacktestExecutor executor,
+                                    StrategyBacktestProperties properties,
+                                    KafkaListenerEndpointRegistry listenerRegistry) {
         this.objectMapper = objectMapper;
         this.executor = executor;
+        this.listenerRegistry = listenerRegistry;
+        int parallelism = properties.getWorkerParallelism() > 0
+                ? properties.getWorkerParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.capacity = parallelism + Math.max(0, properties.getWorkerQueueCapacity());
+        this.shutdownTimeoutSeconds = Math.max(0, properties.getWorkerShutdownTimeoutSeconds());
+        AtomicInteger sequence = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "backtest-worker-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${portfolio.backtest.topic}",
-            groupId = "${portfolio.backtest.consumer-group}"
+            groupId = "${portfolio.backtest.consumer-group}",
+            properties = "max.poll.records=${portfolio.backtest.max-poll-records:4}"
     )
     public void onMessage(String message) {
+        StrategyBacktestRunEvent event;
         try {
-            // 消费到回测事件后交给执行器完成具体计算
-            StrategyBacktestRunEvent event = objectMapper.readValue(message, StrategyBacktestRunEvent.class);
-            executor.execute(event);
+            event = objectMapper.readValue(message, StrategyBacktestRunEvent.class);
         } catch (Exception e) {
             log.error("Failed to consume backtest message: {}", message, e);
+            return;
+        }
+        long submission = submissionSequence.incrementAndGet();
+        pendingEvents.put(submission, event);
+        inFlight.incrementAndGet();
+        try {
+            workerPool.execute(() -> run(submission, event));
+        } catch (RejectedExecutionException e) {
+            finish(submission);
+            executor.abandon(event, "回测服务正在停止");
+            log.error("Backtest worker pool rejected runId={}", event.runId(), e);
+            return;
+        }
+        adjustFlow();
+    }
+
+    /**
+     * 监听容器在此之前已经停止拉取；等待已入队的回测执行完，超时后中断，并把未结束的回测标记为失败
+     */
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                List<Runnable> dropped = workerPool.shutdownNow();
+                log.warn("Backtest workers did not finish in {}s, dropped {} queued runs and interrupted the rest",
+                        shutdownTimeoutSeconds, dropped.size());
+                workerPool.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (StrategyBacktestRunEvent event : pendingEvents.values()) {
+            try {
+                int marked = executor.abandon(event, "回测服务停止，任务被中断，请重新提交");
+                log.warn("Marked interrupted backtest runs failed: runId={}, runs={}", event.runId(), marked);
+            } catch (Exception e) {
+                log.error("Failed to mark interrupted backtest failed: runId={}", event.runId(), e);
+            }
+        }
+    }
+
+    private void run(long submission, StrategyBacktestRunEvent event) {
+        try {
+            // 参数扫描一次加载行情后在执行器内部并行计算各组合
+            if (event.hasSweepRuns()) {
+                executor.executeSweep(event);
+            } else {
+                executor.execute(event);
+            }
+        } catch (Exception e) {
+            log.error("Backtest worker failed: runId={}", event.runId(), e);
+        } finally {
+            finish(submission);
+            adjustFlow();
+        }
+    }
+
+    private void finish(long submission) {
+        pendingEvents.remove(submission);
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 按当前在途数量暂停或恢复监听容器；加锁保证最后一次调用看到的是最新的在途数量
+     */
+    private synchronized void adjustFlow() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container == null) {
+            return;
+        }
+        if (inFlight.get() >= capacity) {
+            if (!container.isPauseRequested()) {
+                container.pause();
+                log.info("Backtest workers saturated, pause consuming: in_flight={}", inFlight.get());
+            }
+        } else if (container.isPauseRequested()) {
+            container.resume();
+            log.info("Backtest workers available, resume consuming: in_flight={}", inFlight.get());
         }
     }
 }
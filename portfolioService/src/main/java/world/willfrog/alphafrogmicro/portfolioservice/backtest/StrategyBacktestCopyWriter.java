@@ -0,0 +1,168 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 回测净值与成交明细的 COPY 写入通道。
+ * <p>
+ * 直接从内核结果的 double 数组逐行编码为 CSV，经 PgJDBC COPY 流式写入 alphafrog_strategy_nav
+ * 与 alphafrog_strategy_backtest_trade，不再构造 StrategyNavPo 列表和多行 INSERT；每写满 nav-copy-chunk-rows
+ * 行刷新一次缓冲发给服务端，内存占用与回测长度无关。必须在 Spring 事务内调用：COPY 使用事务绑定的连接，
+ * 与 MyBatis 的删除/状态更新同属一个事务，中途失败时随事务整体回滚。
+ */
+@Slf4j
+@Component
+class StrategyBacktestCopyWriter {
+
+    private static final String NAV_COPY_SQL = "COPY alphafrog_strategy_nav "
+            + "(run_id, user_id, trade_date, nav, return_pct, benchmark_nav, drawdown) FROM STDIN WITH (FORMAT csv)";
+    private static final String TRADE_COPY_SQL = "COPY alphafrog_strategy_backtest_trade "
+            + "(run_id, user_id, trade_date, symbol, side, quantity, price, amount, commission, stamp_duty, slippage) "
+            + "FROM STDIN WITH (FORMAT csv)";
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final int SCALE = 6;
+    private static final int AMOUNT_SCALE = 4;
+
+    private final DataSource dataSource;
+    private final int chunkRows;
+
+    StrategyBacktestCopyWriter(DataSource dataSource, StrategyBacktestProperties properties) {
+        this.dataSource = dataSource;
+        this.chunkRows = Math.max(1, properties.getNavCopyChunkRows());
+    }
+
+    /**
+     * 写入一次回测的全部净值，返回写入行数
+     */
+    int writeNav(Long runId, String userId, BacktestMarketData market, BacktestKernel.Result result)
+            throws SQLException, IOException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            long startMs = System.currentTimeMillis();
+            try (Writer writer = copyWriter(connection, NAV_COPY_SQL)) {
+                encodeNav(writer, runId, userId, market, result, chunkRows);
+            }
+            log.debug("Strategy nav copied: runId={}, rows={}, cost_ms={}",
+                    runId, result.size(), System.currentTimeMillis() - startMs);
+            return result.size();
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 写入一次回测的全部成交明细，返回写入行数；金额类字段保留 4 位小数
+     */
+    int writeTrades(Long runId, String userId, BacktestMarketData market, BacktestTradeLog trades)
+            throws SQLException, IOException {
+        if (trades.size() == 0) {
+            return 0;
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            long startMs = System.currentTimeMillis();
+            try (Writer writer = copyWriter(connection, TRADE_COPY_SQL)) {
+                encodeTrades(writer, runId, userId, market, trades, chunkRows);
+            }
+            log.debug("Strategy backtest trades copied: runId={}, rows={}, cost_ms={}",
+                    runId, trades.size(), System.currentTimeMillis() - startMs);
+            return trades.size();
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static Writer copyWriter(Connection connection, String sql) throws SQLException {
+        return new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(
+                connection.unwrap(PGConnection.class), sql, COPY_BUFFER_BYTES), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 按 NAV_COPY_SQL 的列顺序逐行编码 CSV；基准缺失写空字段，COPY 的 CSV 格式按 NULL 处理
+     */
+    static void encodeNav(Writer writer, Long runId, String userId, BacktestMarketData market,
+                          BacktestKernel.Result result, int chunkRows) throws IOException {
+        String runPrefix = runId + "," + quoted(userId) + ",";
+        for (int i = 0; i < result.size(); i++) {
+            BigDecimal nav = decimal(result.nav()[i]);
+            double benchmarkNav = result.benchmarkNav()[i];
+            writer.write(runPrefix);
+            writer.write(market.date(result.dayIndex()[i]).toString());
+            writer.write(',');
+            writer.write(nav.toPlainString());
+            writer.write(',');
+            writer.write(nav.subtract(BigDecimal.ONE).toPlainString());
+            writer.write(',');
+            if (!Double.isNaN(benchmarkNav)) {
+                writer.write(decimal(benchmarkNav).toPlainString());
+            }
+            writer.write(',');
+            writer.write(decimal(result.drawdown()[i]).toPlainString());
+            writer.write('\n');
+            if ((i + 1) % chunkRows == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * 按 TRADE_COPY_SQL 的列顺序逐行编码 CSV；数量写绝对值，方向写入 side
+     */
+    static void encodeTrades(Writer writer, Long runId, String userId, BacktestMarketData market,
+                             BacktestTradeLog trades, int chunkRows) throws IOException {
+        String runPrefix = runId + "," + quoted(userId) + ",";
+        for (int i = 0; i < trades.size(); i++) {
+            double quantity = trades.quantity(i);
+            writer.write(runPrefix);
+            writer.write(market.date(trades.dayIndex(i)).toString());
+            writer.write(',');
+            writer.write(quoted(market.symbol(trades.symbolIndex(i))));
+            writer.write(quantity > 0 ? ",buy," : ",sell,");
+            writer.write(decimal(Math.abs(quantity)).toPlainString());
+            writer.write(',');
+            writer.write(decimal(trades.price(i)).toPlainString());
+            writer.write(',');
+            writer.write(amount(trades.amount(i)).toPlainString());
+            writer.write(',');
+            writer.write(amount(trades.commission(i)).toPlainString());
+            writer.write(',');
+            writer.write(amount(trades.stampDuty(i)).toPlainString());
+            writer.write(',');
+            writer.write(amount(trades.slippage(i)).toPlainString());
+            writer.write('\n');
+            if ((i + 1) % chunkRows == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * 与原实现一致，净值类字段保留 6 位小数
+     */
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal amount(double value) {
+        return BigDecimal.valueOf(value).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static String quoted(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
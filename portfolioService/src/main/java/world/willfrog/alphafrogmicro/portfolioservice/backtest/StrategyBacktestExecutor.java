@@ -1,39 +1,47 @@
 package world.willfrog.alphafrogmicro.portfolioservice.backtest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
 import world.willfrog.alphafrogmicro.portfolioservice.domain.PortfolioPo;
 import world.willfrog.alphafrogmicro.portfolioservice.domain.PricePoint;
 import world.willfrog.alphafrogmicro.portfolioservice.domain.StrategyBacktestRunPo;
 import world.willfrog.alphafrogmicro.portfolioservice.domain.StrategyDefinitionPo;
-import world.willfrog.alphafrogmicro.portfolioservice.domain.StrategyNavPo;
 import world.willfrog.alphafrogmicro.portfolioservice.domain.StrategyTargetPo;
 import world.willfrog.alphafrogmicro.portfolioservice.mapper.PortfolioMapper;
 import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyBacktestRunMapper;
+import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyBacktestTradeMapper;
 import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyDefinitionMapper;
 import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyNavMapper;
 import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyPriceMapper;
 import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyTargetMapper;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.YearMonth;
 import java.time.temporal.WeekFields;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Component
@@ -41,30 +49,74 @@ public class StrategyBacktestExecutor {
 
     private static final BigDecimal ZERO = new BigDecimal("0");
     private static final BigDecimal ONE = new BigDecimal("1");
-    private static final int SCALE = 6;
 
     private final StrategyBacktestRunMapper runMapper;
     private final StrategyDefinitionMapper strategyDefinitionMapper;
     private final StrategyTargetMapper targetMapper;
     private final StrategyNavMapper navMapper;
+    private final StrategyBacktestTradeMapper tradeMapper;
+    private final StrategyBacktestCopyWriter copyWriter;
     private final StrategyPriceMapper priceMapper;
     private final PortfolioMapper portfolioMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService sweepExecutor;
 
     public StrategyBacktestExecutor(StrategyBacktestRunMapper runMapper,
                                     StrategyDefinitionMapper strategyDefinitionMapper,
                                     StrategyTargetMapper targetMapper,
                                     StrategyNavMapper navMapper,
+                                    StrategyBacktestTradeMapper tradeMapper,
+                                    StrategyBacktestCopyWriter copyWriter,
                                     StrategyPriceMapper priceMapper,
-                                    PortfolioMapper portfolioMapper) {
+                                    PortfolioMapper portfolioMapper,
+                                    ObjectMapper objectMapper,
+                                    TransactionTemplate transactionTemplate,
+                                    StrategyBacktestProperties properties) {
         this.runMapper = runMapper;
         this.strategyDefinitionMapper = strategyDefinitionMapper;
         this.targetMapper = targetMapper;
         this.navMapper = navMapper;
+        this.tradeMapper = tradeMapper;
+        this.copyWriter = copyWriter;
         this.priceMapper = priceMapper;
         this.portfolioMapper = portfolioMapper;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        int parallelism = properties.getSweepParallelism() > 0
+                ? properties.getSweepParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.sweepExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "backtest-sweep-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    @Transactional
+    /**
+     * 单个回测的参数：区间来自回测记录，再平衡规则、初始资金与成交模型可由 params_json 覆盖策略配置
+     */
+    private record BacktestVariant(LocalDate startDate,
+                                   LocalDate endDate,
+                                   String rebalanceRule,
+                                   BigDecimal capitalBase,
+                                   BacktestExecutionModel execution) {
+    }
+
+    /**
+     * 一次加载、可被多个回测共享的行情面板
+     */
+    private record BacktestPanel(BacktestMarketData market, BacktestWeightSchedule schedule, double[] benchmark) {
+    }
+
+    private record BacktestOutcome(BacktestMarketData market, BacktestKernel.Result result, BacktestSummary summary) {
+    }
+
+    /**
+     * 执行单个回测，分为加载（只读查询）、计算（纯内存）、持久化三个阶段；
+     * markRunning 与最终写入各自是短事务，模拟期间不持有数据库连接
+     */
     public void execute(StrategyBacktestRunEvent event) {
         OffsetDateTime startedAt = OffsetDateTime.now();
         // 只允许 pending 的任务进入执行，避免重复消费
@@ -86,109 +138,219 @@ public class StrategyBacktestExecutor {
         }
 
         try {
-            List<StrategyNavPo> navList = computeNav(strategy, run);
-            if (navList.isEmpty()) {
+            long startMs = System.currentTimeMillis();
+            BacktestVariant variant = resolveVariant(strategy, run);
+            BacktestPanel panel = loadPanel(strategy, run.getUserId(), variant.startDate(), variant.endDate());
+            long loadedMs = System.currentTimeMillis();
+            BacktestOutcome outcome = simulate(panel, variant);
+            long computedMs = System.currentTimeMillis();
+            if (outcome.result().size() == 0) {
                 markFailed(event, "未生成任何净值数据");
                 return;
             }
-            navMapper.insertBatch(navList);
-            runMapper.markFinished(event.runId(), event.userId(), "completed", OffsetDateTime.now(), null);
+            persist(run, outcome);
+            log.info("Backtest run finished: runId={}, days={}, load_ms={}, compute_ms={}, persist_ms={}",
+                    run.getId(), outcome.result().size(), loadedMs - startMs, computedMs - loadedMs,
+                    System.currentTimeMillis() - computedMs);
         } catch (Exception e) {
             log.error("Backtest run failed: runId={}", event.runId(), e);
             markFailed(event, e.getMessage());
         }
     }
 
+    /**
+     * 执行一次参数扫描：行情、目标权重与基准只按所有区间的并集加载一次，
+     * 各回测在共享面板上按自己的区间切片，并行计算，逐个独立提交结果
+     */
+    public void executeSweep(StrategyBacktestRunEvent event) {
+        OffsetDateTime startedAt = OffsetDateTime.now();
+        List<StrategyBacktestRunPo> runs = new ArrayList<>();
+        for (Long runId : event.sweepRunIds()) {
+            if (runMapper.markRunning(runId, event.userId(), startedAt) == 0) {
+                log.info("Backtest run already handled, skip runId={}", runId);
+                continue;
+            }
+            StrategyBacktestRunPo run = runMapper.findByIdAndUser(runId, event.userId());
+            if (run == null) {
+                markFailed(runId, event.userId(), "回测记录不存在");
+                continue;
+            }
+            runs.add(run);
+        }
+        if (runs.isEmpty()) {
+            return;
+        }
+        StrategyDefinitionPo strategy = strategyDefinitionMapper.findByIdAndUser(event.strategyId(), event.userId());
+        if (strategy == null) {
+            runs.forEach(run -> markFailed(run.getId(), run.getUserId(), "策略不存在"));
+            return;
+        }
+
+        long startMs = System.currentTimeMillis();
+        List<BacktestVariant> variants = new ArrayList<>(runs.size());
+        BacktestPanel panel;
+        try {
+            LocalDate panelStart = null;
+            LocalDate panelEnd = null;
+            for (StrategyBacktestRunPo run : runs) {
+                BacktestVariant variant = resolveVariant(strategy, run);
+                variants.add(variant);
+                panelStart = panelStart == null || variant.startDate().isBefore(panelStart) ? variant.startDate() : panelStart;
+                panelEnd = panelEnd == null || variant.endDate().isAfter(panelEnd) ? variant.endDate() : panelEnd;
+            }
+            panel = loadPanel(strategy, event.userId(), panelStart, panelEnd);
+        } catch (Exception e) {
+            log.error("Backtest sweep failed to load panel: strategyId={}", event.strategyId(), e);
+            runs.forEach(run -> markFailed(run.getId(), run.getUserId(), e.getMessage()));
+            return;
+        }
+        long loadedMs = System.currentTimeMillis();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(runs.size());
+        for (int i = 0; i < runs.size(); i++) {
+            StrategyBacktestRunPo run = runs.get(i);
+            BacktestVariant variant = variants.get(i);
+            futures.add(CompletableFuture.runAsync(() -> runSweepVariant(panel, variant, run), sweepExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        log.info("Backtest sweep finished: strategyId={}, runs={}, symbols={}, days={}, load_ms={}, compute_ms={}",
+                event.strategyId(), runs.size(), panel.market().symbolCount(), panel.market().dayCount(),
+                loadedMs - startMs, System.currentTimeMillis() - loadedMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+    }
+
+    private void runSweepVariant(BacktestPanel panel, BacktestVariant variant, StrategyBacktestRunPo run) {
+        try {
+            BacktestOutcome outcome = simulate(panel, variant);
+            if (outcome.result().size() == 0) {
+                markFailed(run.getId(), run.getUserId(), "未生成任何净值数据");
+                return;
+            }
+            persist(run, outcome);
+        } catch (Exception e) {
+            log.error("Backtest run failed: runId={}", run.getId(), e);
+            markFailed(run.getId(), run.getUserId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 净值、成交明细、汇总指标与完成状态在同一个短事务内写入，失败时整体回滚；
+     * 写入前先清掉该回测已有的净值与成交，重复执行（例如进程中断后重投）也不会留下重复行
+     */
+    private void persist(StrategyBacktestRunPo run, BacktestOutcome outcome) throws JsonProcessingException {
+        String summaryJson = writeSummary(outcome.summary());
+        transactionTemplate.executeWithoutResult(status -> {
+            navMapper.deleteByRun(run.getId(), run.getUserId());
+            tradeMapper.deleteByRun(run.getId(), run.getUserId());
+            try {
+                copyWriter.writeNav(run.getId(), run.getUserId(), outcome.market(), outcome.result());
+                copyWriter.writeTrades(run.getId(), run.getUserId(), outcome.market(), outcome.result().trades());
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("净值写入失败: " + e.getMessage(), e);
+            }
+            runMapper.updateSummary(run.getId(), run.getUserId(), summaryJson);
+            runMapper.markFinished(run.getId(), run.getUserId(), "completed", OffsetDateTime.now(), null);
+        });
+    }
+
+    /**
+     * 把事件涉及的回测中仍未结束的标记为失败，用于服务停止时被丢弃或中断的任务；返回标记的条数
+     */
+    public int abandon(StrategyBacktestRunEvent event, String message) {
+        List<Long> runIds = event.hasSweepRuns() ? event.sweepRunIds() : List.of(event.runId());
+        String error = StringUtils.abbreviate(message, 500);
+        int marked = 0;
+        for (Long runId : runIds) {
+            marked += runMapper.markUnfinishedFailed(runId, event.userId(), OffsetDateTime.now(), error);
+        }
+        return marked;
+    }
+
     private void markFailed(StrategyBacktestRunEvent event, String message) {
+        markFailed(event.runId(), event.userId(), message);
+    }
+
+    private void markFailed(Long runId, String userId, String message) {
         String error = StringUtils.abbreviate(message, 500);
-        runMapper.markFinished(event.runId(), event.userId(), "failed", OffsetDateTime.now(), error);
+        runMapper.markFinished(runId, userId, "failed", OffsetDateTime.now(), error);
     }
 
-    private List<StrategyNavPo> computeNav(StrategyDefinitionPo strategy, StrategyBacktestRunPo run) {
-        LocalDate startDate = run.getStartDate();
-        LocalDate endDate = run.getEndDate();
-        if (startDate == null || endDate == null) {
+    private BacktestVariant resolveVariant(StrategyDefinitionPo strategy, StrategyBacktestRunPo run) {
+        if (run.getStartDate() == null || run.getEndDate() == null) {
             throw new IllegalStateException("回测时间范围缺失");
         }
-        // 读取目标权重与行情数据，生成交易日序列
-        List<StrategyTargetPo> targets = targetMapper.listByStrategy(strategy.getId(), run.getUserId());
+        String rebalanceRule = strategy.getRebalanceRule();
+        BigDecimal capitalBase = strategy.getCapitalBase();
+        JsonNode rule = readJson(strategy.getRuleJson(), "策略规则解析失败: ");
+        JsonNode params = readJson(run.getParamsJson(), "回测参数解析失败: ");
+        if (params.hasNonNull("rebalanceRule")) {
+            rebalanceRule = params.get("rebalanceRule").asText();
+        }
+        if (params.hasNonNull("capitalBase")) {
+            try {
+                capitalBase = new BigDecimal(params.get("capitalBase").asText());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("回测参数解析失败: capitalBase 不是数字", e);
+            }
+        }
+        if (capitalBase == null || capitalBase.compareTo(ZERO) <= 0) {
+            capitalBase = ONE;
+        }
+        return new BacktestVariant(run.getStartDate(), run.getEndDate(), rebalanceRule, capitalBase,
+                BacktestExecutionModel.of(rule, params));
+    }
+
+    private JsonNode readJson(String json, String errorPrefix) {
+        if (StringUtils.isBlank(json)) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(errorPrefix + e.getOriginalMessage(), e);
+        }
+    }
+
+    private BacktestPanel loadPanel(StrategyDefinitionPo strategy, String userId, LocalDate startDate, LocalDate endDate) {
+        // 读取目标权重与行情数据，对齐为按交易日下标访问的稠密矩阵
+        List<StrategyTargetPo> targets = targetMapper.listByStrategy(strategy.getId(), userId);
         if (targets == null || targets.isEmpty()) {
             throw new IllegalStateException("策略未配置目标权重");
         }
 
         Map<String, List<StrategyTargetPo>> targetsBySymbol = groupTargets(targets);
-        Map<String, Map<LocalDate, BigDecimal>> priceSeries = loadPriceSeries(targetsBySymbol, startDate, endDate);
-        if (priceSeries.isEmpty()) {
+        BacktestMarketData market = BacktestMarketData.align(new ArrayList<>(targetsBySymbol.keySet()),
+                loadPricePoints(targetsBySymbol, startDate, endDate));
+        if (market.dayCount() == 0) {
             throw new IllegalStateException("缺少行情数据");
         }
 
-        NavigableSet<LocalDate> tradingDates = collectTradingDates(priceSeries);
-        if (tradingDates.isEmpty()) {
-            throw new IllegalStateException("缺少交易日数据");
-        }
-
-        Set<LocalDate> rebalanceDates = resolveRebalanceDates(new ArrayList<>(tradingDates), strategy.getRebalanceRule());
-        BigDecimal capitalBase = strategy.getCapitalBase() == null || strategy.getCapitalBase().compareTo(ZERO) <= 0
-                ? ONE
-                : strategy.getCapitalBase();
-
-        PortfolioPo portfolio = portfolioMapper.findByIdAndUser(strategy.getPortfolioId(), run.getUserId());
+        PortfolioPo portfolio = portfolioMapper.findByIdAndUser(strategy.getPortfolioId(), userId);
         String benchmarkSymbol = portfolio != null ? portfolio.getBenchmarkSymbol() : null;
-        // 基准净值按同区间行情计算，缺失时返回 null
-        BenchmarkTracker benchmarkTracker = buildBenchmarkTracker(benchmarkSymbol, startDate, endDate);
-        Map<String, BigDecimal> lastPrices = new HashMap<>();
-        Map<String, BigDecimal> holdings = new HashMap<>();
-        boolean initialized = false;
-        BigDecimal maxNav = null;
-        List<StrategyNavPo> navList = new ArrayList<>();
-
-        for (LocalDate tradeDate : tradingDates) {
-            updateLastPrices(priceSeries, lastPrices, tradeDate);
-            Map<String, BigDecimal> weights = resolveWeights(targetsBySymbol, tradeDate);
-            if (weights.isEmpty()) {
-                continue;
-            }
-            if (!hasAllPrices(weights.keySet(), lastPrices)) {
-                continue;
-            }
-
-            boolean shouldRebalance = rebalanceDates.contains(tradeDate);
-            if (!initialized) {
-                shouldRebalance = true;
-            }
-            if (shouldRebalance) {
-                // 按目标权重在再平衡日重新计算持仓数量
-                holdings = allocateHoldings(weights, lastPrices, currentPortfolioValue(holdings, lastPrices, capitalBase, initialized));
-                initialized = true;
-            }
-
-            if (!initialized) {
-                continue;
-            }
+        // 基准净值按同区间行情计算，缺失时为 null
+        double[] benchmark = loadBenchmark(market, benchmarkSymbol, startDate, endDate);
+        return new BacktestPanel(market, BacktestWeightSchedule.build(market, targetsBySymbol), benchmark);
+    }
 
-            BigDecimal portfolioValue = currentPortfolioValue(holdings, lastPrices, capitalBase, true);
-            BigDecimal nav = scale(portfolioValue.divide(capitalBase, SCALE, RoundingMode.HALF_UP));
-            if (maxNav == null || nav.compareTo(maxNav) > 0) {
-                maxNav = nav;
-            }
-            BigDecimal returnPct = scale(nav.subtract(ONE));
-            BigDecimal drawdown = maxNav == null
-                    ? ZERO
-                    : scale(nav.divide(maxNav, SCALE, RoundingMode.HALF_UP).subtract(ONE));
-            BigDecimal benchmarkNav = benchmarkTracker.resolve(tradeDate);
-
-            StrategyNavPo navPo = new StrategyNavPo();
-            navPo.setRunId(run.getId());
-            navPo.setUserId(run.getUserId());
-            navPo.setTradeDate(tradeDate);
-            navPo.setNav(nav);
-            navPo.setReturnPct(returnPct);
-            navPo.setBenchmarkNav(benchmarkNav);
-            navPo.setDrawdown(drawdown);
-            navList.add(navPo);
+    private BacktestOutcome simulate(BacktestPanel panel, BacktestVariant variant) {
+        BacktestMarketData market = panel.market();
+        int fromDay = market.lowerBound(variant.startDate());
+        int toDay = market.lowerBound(variant.endDate().plusDays(1));
+        if (fromDay >= toDay) {
+            throw new IllegalStateException("缺少行情数据");
         }
+        boolean[] rebalanceDays = resolveRebalanceDays(market.dates(), fromDay, toDay, variant.rebalanceRule());
+        BacktestKernel.Result result = BacktestKernel.run(market, panel.schedule(), rebalanceDays, panel.benchmark(),
+                variant.capitalBase().doubleValue(), fromDay, toDay, variant.execution());
+        return new BacktestOutcome(market, result, BacktestSummary.of(result, market));
+    }
 
-        return navList;
+    private String writeSummary(BacktestSummary summary) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(summary.toMap());
     }
 
     private Map<String, List<StrategyTargetPo>> groupTargets(List<StrategyTargetPo> targets) {
@@ -205,180 +367,74 @@ public class StrategyBacktestExecutor {
         return grouped;
     }
 
-    private Map<String, BigDecimal> resolveWeights(Map<String, List<StrategyTargetPo>> targetsBySymbol, LocalDate date) {
-        Map<String, BigDecimal> weights = new LinkedHashMap<>();
-        BigDecimal total = ZERO;
-        for (Map.Entry<String, List<StrategyTargetPo>> entry : targetsBySymbol.entrySet()) {
-            StrategyTargetPo selected = selectTarget(entry.getValue(), date);
-            if (selected == null || selected.getTargetWeight() == null) {
-                continue;
-            }
-            BigDecimal weight = selected.getTargetWeight();
-            if (weight.compareTo(ZERO) <= 0) {
-                continue;
-            }
-            weights.put(entry.getKey(), weight);
-            total = total.add(weight);
-        }
-        if (total.compareTo(ZERO) <= 0) {
-            return Map.of();
-        }
-        Map<String, BigDecimal> normalized = new LinkedHashMap<>();
-        for (Map.Entry<String, BigDecimal> entry : weights.entrySet()) {
-            normalized.put(entry.getKey(), entry.getValue().divide(total, SCALE, RoundingMode.HALF_UP));
-        }
-        return normalized;
-    }
-
-    private StrategyTargetPo selectTarget(List<StrategyTargetPo> list, LocalDate date) {
-        StrategyTargetPo selected = null;
-        for (StrategyTargetPo item : list) {
-            LocalDate effective = item.getEffectiveDate();
-            if (effective != null && effective.isAfter(date)) {
-                break;
-            }
-            selected = item;
-        }
-        return selected;
-    }
-
-    private Map<String, Map<LocalDate, BigDecimal>> loadPriceSeries(Map<String, List<StrategyTargetPo>> targetsBySymbol,
-                                                                    LocalDate startDate,
-                                                                    LocalDate endDate) {
-        Map<String, Map<LocalDate, BigDecimal>> series = new HashMap<>();
+    private List<PricePoint> loadPricePoints(Map<String, List<StrategyTargetPo>> targetsBySymbol,
+                                             LocalDate startDate,
+                                             LocalDate endDate) {
         long startTs = DateConvertUtils.convertLocalDateToMsTimestamp(startDate);
         long endTs = DateConvertUtils.convertLocalDateToMsTimestamp(endDate);
+        // 按标的类型分组，每种类型只发一次批量查询
+        Map<String, List<String>> symbolsByType = new HashMap<>();
         for (List<StrategyTargetPo> targets : targetsBySymbol.values()) {
             if (targets.isEmpty()) {
                 continue;
             }
             StrategyTargetPo sample = targets.get(0);
-            String symbol = sample.getSymbol();
-            String symbolType = StringUtils.defaultString(sample.getSymbolType()).toLowerCase(Locale.ROOT);
-            List<PricePoint> points = switch (symbolType) {
-                case "index" -> priceMapper.listIndexDaily(symbol, startTs, endTs);
-                case "fund" -> priceMapper.listFundNav(symbol, startTs, endTs);
-                default -> priceMapper.listStockDaily(symbol, startTs, endTs);
+            String symbolType = switch (StringUtils.defaultString(sample.getSymbolType()).toLowerCase(Locale.ROOT)) {
+                case "index" -> "index";
+                case "fund" -> "fund";
+                default -> "stock";
             };
-            Map<LocalDate, BigDecimal> map = toDateMap(points);
-            if (!map.isEmpty()) {
-                series.put(symbol, map);
-            }
+            symbolsByType.computeIfAbsent(symbolType, key -> new ArrayList<>()).add(sample.getSymbol());
         }
-        return series;
-    }
-
-    private Map<LocalDate, BigDecimal> toDateMap(List<PricePoint> points) {
-        Map<LocalDate, BigDecimal> map = new HashMap<>();
-        for (PricePoint point : points) {
-            if (point.getTradeDate() == null || point.getClose() == null) {
-                continue;
-            }
-            LocalDate date = DateConvertUtils.convertTimestampToLocalDate(point.getTradeDate());
-            map.put(date, point.getClose());
-        }
-        return map;
-    }
 
-    private NavigableSet<LocalDate> collectTradingDates(Map<String, Map<LocalDate, BigDecimal>> priceSeries) {
-        NavigableSet<LocalDate> dates = new TreeSet<>();
-        for (Map<LocalDate, BigDecimal> series : priceSeries.values()) {
-            dates.addAll(series.keySet());
+        List<PricePoint> points = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : symbolsByType.entrySet()) {
+            String[] symbols = entry.getValue().toArray(new String[0]);
+            points.addAll(switch (entry.getKey()) {
+                case "index" -> priceMapper.listIndexDailyBatch(symbols, startTs, endTs);
+                case "fund" -> priceMapper.listFundNavBatch(symbols, startTs, endTs);
+                default -> priceMapper.listStockDailyBatch(symbols, startTs, endTs);
+            });
         }
-        return dates;
+        return points;
     }
 
-    private Set<LocalDate> resolveRebalanceDates(List<LocalDate> tradingDates, String rule) {
-        if (tradingDates.isEmpty()) {
-            return Set.of();
+    /**
+     * 交易日下标 [fromDay, toDay) 内的再平衡日标记：monthly/weekly 取每月/每周首个交易日，daily 为每个交易日，其余规则只在首个交易日建仓
+     */
+    private boolean[] resolveRebalanceDays(LocalDate[] tradingDates, int fromDay, int toDay, String rule) {
+        boolean[] rebalanceDays = new boolean[tradingDates.length];
+        if (fromDay >= toDay) {
+            return rebalanceDays;
         }
-        if (StringUtils.isBlank(rule)) {
-            return Set.of(tradingDates.get(0));
-        }
-        String normalized = rule.toLowerCase(Locale.ROOT);
+        String normalized = StringUtils.defaultString(rule).toLowerCase(Locale.ROOT);
         if (normalized.contains("monthly")) {
-            Map<YearMonth, LocalDate> firstByMonth = new LinkedHashMap<>();
-            for (LocalDate date : tradingDates) {
-                firstByMonth.putIfAbsent(YearMonth.from(date), date);
+            for (int day = fromDay; day < toDay; day++) {
+                rebalanceDays[day] = day == fromDay
+                        || !YearMonth.from(tradingDates[day]).equals(YearMonth.from(tradingDates[day - 1]));
             }
-            return Set.copyOf(firstByMonth.values());
-        }
-        if (normalized.contains("weekly")) {
-            Map<String, LocalDate> firstByWeek = new LinkedHashMap<>();
+        } else if (normalized.contains("weekly")) {
+            // 以自然年 + ISO 周序号为键，取每个键首次出现的交易日
             WeekFields weekFields = WeekFields.ISO;
-            for (LocalDate date : tradingDates) {
-                String key = date.getYear() + "-" + date.get(weekFields.weekOfWeekBasedYear());
-                firstByWeek.putIfAbsent(key, date);
-            }
-            return Set.copyOf(firstByWeek.values());
-        }
-        if (normalized.contains("daily")) {
-            return Set.copyOf(tradingDates);
-        }
-        return Set.of(tradingDates.get(0));
-    }
-
-    private void updateLastPrices(Map<String, Map<LocalDate, BigDecimal>> priceSeries,
-                                  Map<String, BigDecimal> lastPrices,
-                                  LocalDate tradeDate) {
-        for (Map.Entry<String, Map<LocalDate, BigDecimal>> entry : priceSeries.entrySet()) {
-            BigDecimal price = entry.getValue().get(tradeDate);
-            if (price != null) {
-                lastPrices.put(entry.getKey(), price);
-            }
-        }
-    }
-
-    private boolean hasAllPrices(Set<String> symbols, Map<String, BigDecimal> lastPrices) {
-        for (String symbol : symbols) {
-            if (!lastPrices.containsKey(symbol)) {
-                return false;
+            Set<Integer> seenWeeks = new HashSet<>();
+            for (int day = fromDay; day < toDay; day++) {
+                rebalanceDays[day] = seenWeeks.add(weekKey(tradingDates[day], weekFields));
             }
+        } else if (normalized.contains("daily")) {
+            Arrays.fill(rebalanceDays, fromDay, toDay, true);
+        } else {
+            rebalanceDays[fromDay] = true;
         }
-        return true;
+        return rebalanceDays;
     }
 
-    private Map<String, BigDecimal> allocateHoldings(Map<String, BigDecimal> weights,
-                                                     Map<String, BigDecimal> prices,
-                                                     BigDecimal portfolioValue) {
-        Map<String, BigDecimal> holdings = new HashMap<>();
-        for (Map.Entry<String, BigDecimal> entry : weights.entrySet()) {
-            BigDecimal price = prices.get(entry.getKey());
-            if (price == null || price.compareTo(ZERO) <= 0) {
-                continue;
-            }
-            BigDecimal allocation = portfolioValue.multiply(entry.getValue());
-            BigDecimal quantity = allocation.divide(price, 10, RoundingMode.HALF_UP);
-            holdings.put(entry.getKey(), quantity);
-        }
-        return holdings;
+    private static int weekKey(LocalDate date, WeekFields weekFields) {
+        return date.getYear() * 100 + date.get(weekFields.weekOfWeekBasedYear());
     }
 
-    private BigDecimal currentPortfolioValue(Map<String, BigDecimal> holdings,
-                                             Map<String, BigDecimal> prices,
-                                             BigDecimal capitalBase,
-                                             boolean initialized) {
-        if (!initialized || holdings.isEmpty()) {
-            return capitalBase;
-        }
-        BigDecimal total = ZERO;
-        for (Map.Entry<String, BigDecimal> entry : holdings.entrySet()) {
-            BigDecimal price = prices.get(entry.getKey());
-            if (price == null) {
-                continue;
-            }
-            total = total.add(price.multiply(entry.getValue()));
-        }
-        return total;
-    }
-
-    private BigDecimal scale(BigDecimal value) {
-        return value.setScale(SCALE, RoundingMode.HALF_UP);
-    }
-
-    private BenchmarkTracker buildBenchmarkTracker(String benchmarkSymbol, LocalDate start, LocalDate end) {
+    private double[] loadBenchmark(BacktestMarketData market, String benchmarkSymbol, LocalDate start, LocalDate end) {
         if (StringUtils.isBlank(benchmarkSymbol)) {
-            return new BenchmarkTracker(Map.of());
+            return null;
         }
         long startTs = DateConvertUtils.convertLocalDateToMsTimestamp(start);
         long endTs = DateConvertUtils.convertLocalDateToMsTimestamp(end);
@@ -389,34 +445,6 @@ public class StrategyBacktestExecutor {
         if (points.isEmpty()) {
             points = priceMapper.listFundNav(benchmarkSymbol, startTs, endTs);
         }
-        Map<LocalDate, BigDecimal> series = toDateMap(points);
-        return new BenchmarkTracker(series);
-    }
-
-    private class BenchmarkTracker {
-        private final Map<LocalDate, BigDecimal> series;
-        private BigDecimal basePrice;
-        private BigDecimal lastPrice;
-
-        BenchmarkTracker(Map<LocalDate, BigDecimal> series) {
-            this.series = series;
-        }
-
-        BigDecimal resolve(LocalDate tradeDate) {
-            if (series.isEmpty()) {
-                return null;
-            }
-            BigDecimal price = series.get(tradeDate);
-            if (price != null) {
-                lastPrice = price;
-                if (basePrice == null) {
-                    basePrice = price;
-                }
-            }
-            if (lastPrice == null || basePrice == null) {
-                return null;
-            }
-            return scale(lastPrice.divide(basePrice, SCALE, RoundingMode.HALF_UP));
-        }
+        return points.isEmpty() ? null : market.alignSeries(points);
     }
 }
@@ -0,0 +1,53 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 创建策略或回测任务时对回测参数的前置校验，与执行端的解析口径一致，避免非法参数写入后才在消费端失败
+ */
+public final class StrategyBacktestParams {
+
+    /**
+     * 执行端按包含关系识别的调仓频率关键字，见 StrategyBacktestExecutor#resolveRebalanceDays
+     */
+    private static final List<String> REBALANCE_KEYWORDS = List.of("monthly", "weekly", "daily");
+
+    /**
+     * 不调仓：只在首个交易日建仓
+     */
+    private static final String NO_REBALANCE = "none";
+
+    private StrategyBacktestParams() {
+    }
+
+    /**
+     * 校验各层 JSON 的 execution 对象（后面的层覆盖前面的层）能否组成合法的成交模型
+     *
+     * @throws IllegalArgumentException 交易成本参数不是数字、为负数或滑点不小于 10000bp
+     */
+    public static void validateExecution(JsonNode... layers) {
+        BacktestExecutionModel.of(layers);
+    }
+
+    /**
+     * 调仓规则是否能被执行端识别：包含 monthly/weekly/daily 之一，或为 none
+     */
+    public static boolean isSupportedRebalanceRule(String rule) {
+        if (rule == null || rule.isBlank()) {
+            return false;
+        }
+        String normalized = rule.trim().toLowerCase(Locale.ROOT);
+        if (NO_REBALANCE.equals(normalized)) {
+            return true;
+        }
+        for (String keyword : REBALANCE_KEYWORDS) {
+            if (normalized.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -10,4 +10,44 @@ public class StrategyBacktestProperties {
     private String consumerGroup = "portfolio-backtest-consumer";
     private boolean producerEnabled = true;
     private boolean consumerEnabled = true;
+    /**
+     * 单次参数扫描允许生成的回测数上限
+     */
+    private int sweepMaxRuns = 200;
+    /**
+     * 参数扫描的并行计算线程数，0 表示取 CPU 核数
+     */
+    private int sweepParallelism = 0;
+    /**
+     * 消费端并行执行回测的线程数，0 表示取 CPU 核数
+     */
+    private int workerParallelism = 0;
+    /**
+     * 等待执行的回测数上限；已满时暂停监听容器，不再拉取新消息
+     */
+    private int workerQueueCapacity = 16;
+    /**
+     * 消费端单次拉取的消息数上限，也是暂停生效前可能超出队列上限的条数
+     */
+    private int maxPollRecords = 4;
+    /**
+     * 停止服务时等待在途回测执行完的秒数，超时后中断并标记为失败
+     */
+    private long workerShutdownTimeoutSeconds = 60;
+    /**
+     * running 超过该分钟数仍未结束的回测视为执行进程已异常退出，由巡检标记为失败；需大于单次回测的最长耗时，0 表示不巡检
+     */
+    private long staleRunningTimeoutMinutes = 120;
+    /**
+     * pending 超过该分钟数仍未开始的回测视为消息已丢失，由巡检标记为失败
+     */
+    private long stalePendingTimeoutMinutes = 360;
+    /**
+     * 未结束回测的巡检间隔毫秒数，服务启动后立即执行一次
+     */
+    private long staleRunCheckIntervalMs = 600000;
+    /**
+     * COPY 写入净值时每多少行刷新一次缓冲
+     */
+    private int navCopyChunkRows = 2000;
 }
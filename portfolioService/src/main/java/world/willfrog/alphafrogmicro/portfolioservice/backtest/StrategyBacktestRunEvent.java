@@ -1,4 +1,17 @@
 package world.willfrog.alphafrogmicro.portfolioservice.backtest;
 
-public record StrategyBacktestRunEvent(Long runId, Long strategyId, String userId) {
+import java.util.List;
+
+/**
+ * 回测事件；sweepRunIds 非空时为一次参数扫描，runId 为其中第一条，整批共享一次行情加载
+ */
+public record StrategyBacktestRunEvent(Long runId, Long strategyId, String userId, List<Long> sweepRunIds) {
+
+    public StrategyBacktestRunEvent(Long runId, Long strategyId, String userId) {
+        this(runId, strategyId, userId, null);
+    }
+
+    public boolean hasSweepRuns() {
+        return sweepRunIds != null && !sweepRunIds.isEmpty();
+    }
 }
@@ -0,0 +1,50 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import world.willfrog.alphafrogmicro.portfolioservice.mapper.StrategyBacktestRunMapper;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 未结束回测巡检。
+ * <p>
+ * 消费端在回测提交到线程池时即确认消息，进程被强杀时正常停止流程不会执行，回测会一直停留在 running / pending。
+ * 服务启动后立即巡检一次，之后按间隔巡检，把超过超时时间仍未结束的回测标记为失败，提示用户重新提交。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "portfolio.backtest.consumer-enabled", havingValue = "true", matchIfMissing = true)
+public class StrategyBacktestRunReaper {
+
+    private final StrategyBacktestRunMapper runMapper;
+    private final StrategyBacktestProperties properties;
+
+    public StrategyBacktestRunReaper(StrategyBacktestRunMapper runMapper, StrategyBacktestProperties properties) {
+        this.runMapper = runMapper;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.backtest.stale-run-check-interval-ms:600000}")
+    public void reapStaleRuns() {
+        if (properties.getStaleRunningTimeoutMinutes() <= 0) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        long pendingTimeout = Math.max(properties.getStalePendingTimeoutMinutes(), properties.getStaleRunningTimeoutMinutes());
+        try {
+            int marked = runMapper.markStaleFailed(
+                    now.minusMinutes(properties.getStaleRunningTimeoutMinutes()),
+                    now.minusMinutes(pendingTimeout),
+                    now,
+                    "回测执行超时或执行进程已退出，请重新提交");
+            if (marked > 0) {
+                log.warn("Marked stale backtest runs failed: runs={}", marked);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reap stale backtest runs", e);
+        }
+    }
+}
@@ -92,6 +92,22 @@ public class StrategyController {
         return ResponseWrapper.success(strategyService.listBacktestRuns(strategyId, userId, status, page, size));
     }
 
+    @PostMapping("/{id}/backtest-sweeps")
+    public ResponseWrapper<StrategyBacktestSweepResponse> createBacktestSweep(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable("id") Long strategyId,
+            @Valid @RequestBody StrategyBacktestSweepCreateRequest request) {
+        return ResponseWrapper.success(strategyService.createBacktestSweep(strategyId, userId, request));
+    }
+
+    @GetMapping("/{id}/backtest-sweeps/{sweepId}")
+    public ResponseWrapper<StrategyBacktestSweepResponse> getBacktestSweep(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable("id") Long strategyId,
+            @PathVariable("sweepId") String sweepId) {
+        return ResponseWrapper.success(strategyService.getBacktestSweep(strategyId, userId, sweepId));
+    }
+
     @GetMapping("/{id}/backtests/{runId}/nav")
     public ResponseWrapper<PageResult<StrategyNavResponse>> listNav(
             @RequestHeader("X-User-Id") String userId,
@@ -103,4 +119,16 @@ public class StrategyController {
             @RequestParam(value = "size", defaultValue = "200") int size) {
         return ResponseWrapper.success(strategyService.listNav(strategyId, runId, userId, from, to, page, size));
     }
+
+    @GetMapping("/{id}/backtests/{runId}/trades")
+    public ResponseWrapper<PageResult<StrategyBacktestTradeResponse>> listBacktestTrades(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable("id") Long strategyId,
+            @PathVariable("runId") Long runId,
+            @RequestParam(value = "from", required = false) LocalDate from,
+            @RequestParam(value = "to", required = false) LocalDate to,
+            @RequestParam(value = "page", defaultValue = "1") int page,
+            @RequestParam(value = "size", defaultValue = "200") int size) {
+        return ResponseWrapper.success(strategyService.listBacktestTrades(strategyId, runId, userId, from, to, page, size));
+    }
 }
@@ -6,6 +6,7 @@ import java.math.BigDecimal;
 
 @Data
 public class PricePoint {
+    private String tsCode;
     private Long tradeDate;
     private BigDecimal close;
 }
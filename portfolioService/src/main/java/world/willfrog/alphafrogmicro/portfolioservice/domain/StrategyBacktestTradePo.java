@@ -0,0 +1,24 @@
+package world.willfrog.alphafrogmicro.portfolioservice.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+@Data
+public class StrategyBacktestTradePo {
+    private Long id;
+    private Long runId;
+    private String userId;
+    private LocalDate tradeDate;
+    private String symbol;
+    private String side;
+    private BigDecimal quantity;
+    private BigDecimal price;
+    private BigDecimal amount;
+    private BigDecimal commission;
+    private BigDecimal stampDuty;
+    private BigDecimal slippage;
+    private OffsetDateTime createdAt;
+}
@@ -23,6 +23,13 @@ public interface StrategyBacktestRunMapper {
                          @Param("userId") String userId,
                          @Param("status") String status);
 
+    /**
+     * 同一次参数扫描生成的回测（params_json.sweepId 相同），按 id 升序即网格顺序
+     */
+    List<StrategyBacktestRunPo> listBySweep(@Param("strategyId") Long strategyId,
+                                            @Param("userId") String userId,
+                                            @Param("sweepId") String sweepId);
+
     int markRunning(@Param("id") Long id,
                     @Param("userId") String userId,
                     @Param("startedAt") java.time.OffsetDateTime startedAt);
@@ -33,5 +40,29 @@ public interface StrategyBacktestRunMapper {
                      @Param("finishedAt") java.time.OffsetDateTime finishedAt,
                      @Param("errorMessage") String errorMessage);
 
+    /**
+     * 只把仍处于 pending / running 的回测标记为失败，已完成的不受影响
+     */
+    int markUnfinishedFailed(@Param("id") Long id,
+                             @Param("userId") String userId,
+                             @Param("finishedAt") java.time.OffsetDateTime finishedAt,
+                             @Param("errorMessage") String errorMessage);
+
+    /**
+     * 把 running 且 started_at 早于 runningBefore、或 pending 且 queued_at 早于 pendingBefore 的回测标记为失败，
+     * 用于回收进程被强杀后停留在未结束状态的回测
+     */
+    int markStaleFailed(@Param("runningBefore") java.time.OffsetDateTime runningBefore,
+                        @Param("pendingBefore") java.time.OffsetDateTime pendingBefore,
+                        @Param("finishedAt") java.time.OffsetDateTime finishedAt,
+                        @Param("errorMessage") String errorMessage);
+
+    /**
+     * 把回测汇总指标写入 ext.summary
+     */
+    int updateSummary(@Param("id") Long id,
+                      @Param("userId") String userId,
+                      @Param("summaryJson") String summaryJson);
+
     int update(StrategyBacktestRunPo po);
 }
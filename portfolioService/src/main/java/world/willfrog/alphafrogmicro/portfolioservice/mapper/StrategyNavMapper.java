@@ -10,7 +10,8 @@ import java.util.List;
 @Mapper
 public interface StrategyNavMapper {
 
-    int insertBatch(@Param("list") List<StrategyNavPo> list);
+    int deleteByRun(@Param("runId") Long runId,
+                    @Param("userId") String userId);
 
     List<StrategyNavPo> listByRun(@Param("runId") Long runId,
                                   @Param("userId") String userId,
@@ -20,4 +20,16 @@ public interface StrategyPriceMapper {
     List<PricePoint> listFundNav(@Param("tsCode") String tsCode,
                                  @Param("startDate") long startDate,
                                  @Param("endDate") long endDate);
+
+    List<PricePoint> listStockDailyBatch(@Param("tsCodes") String[] tsCodes,
+                                         @Param("startDate") long startDate,
+                                         @Param("endDate") long endDate);
+
+    List<PricePoint> listIndexDailyBatch(@Param("tsCodes") String[] tsCodes,
+                                         @Param("startDate") long startDate,
+                                         @Param("endDate") long endDate);
+
+    List<PricePoint> listFundNavBatch(@Param("tsCodes") String[] tsCodes,
+                                      @Param("startDate") long startDate,
+                                      @Param("endDate") long endDate);
 }
@@ -23,6 +23,10 @@ public interface StrategyService {
 
     StrategyBacktestRunResponse createBacktestRun(Long strategyId, String userId, StrategyBacktestRunCreateRequest request);
 
+    StrategyBacktestSweepResponse createBacktestSweep(Long strategyId, String userId, StrategyBacktestSweepCreateRequest request);
+
+    StrategyBacktestSweepResponse getBacktestSweep(Long strategyId, String userId, String sweepId);
+
     PageResult<StrategyBacktestRunResponse> listBacktestRuns(Long strategyId,
                                                              String userId,
                                                              String status,
@@ -36,4 +40,12 @@ public interface StrategyService {
                                             LocalDate to,
                                             int page,
                                             int size);
+
+    PageResult<StrategyBacktestTradeResponse> listBacktestTrades(Long strategyId,
+                                                                 Long runId,
+                                                                 String userId,
+                                                                 LocalDate from,
+                                                                 LocalDate to,
+                                                                 int page,
+                                                                 int size);
 }
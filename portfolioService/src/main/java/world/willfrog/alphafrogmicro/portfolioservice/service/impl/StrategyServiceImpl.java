@@ -1,9 +1,14 @@
 package world.willfrog.alphafrogmicro.portfolioservice.service.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import world.willfrog.alphafrogmicro.common.dto.ResponseCode;
+import world.willfrog.alphafrogmicro.portfolioservice.backtest.StrategyBacktestParams;
+import world.willfrog.alphafrogmicro.portfolioservice.backtest.StrategyBacktestProperties;
 import world.willfrog.alphafrogmicro.portfolioservice.constants.PortfolioConstants;
 import world.willfrog.alphafrogmicro.portfolioservice.domain.*;
 import world.willfrog.alphafrogmicro.portfolioservice.dto.*;
@@ -15,8 +20,10 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class StrategyServiceImpl implements StrategyService {
@@ -28,21 +35,30 @@ public class StrategyServiceImpl implements StrategyService {
     private final StrategyTargetMapper strategyTargetMapper;
     private final StrategyBacktestRunMapper strategyBacktestRunMapper;
     private final StrategyNavMapper strategyNavMapper;
+    private final StrategyBacktestTradeMapper strategyBacktestTradeMapper;
     private final PortfolioMapper portfolioMapper;
     private final world.willfrog.alphafrogmicro.portfolioservice.backtest.StrategyBacktestPublisher backtestPublisher;
+    private final StrategyBacktestProperties backtestProperties;
+    private final ObjectMapper objectMapper;
 
     public StrategyServiceImpl(StrategyDefinitionMapper strategyDefinitionMapper,
                                StrategyTargetMapper strategyTargetMapper,
                                StrategyBacktestRunMapper strategyBacktestRunMapper,
                                StrategyNavMapper strategyNavMapper,
+                               StrategyBacktestTradeMapper strategyBacktestTradeMapper,
                                PortfolioMapper portfolioMapper,
-                               world.willfrog.alphafrogmicro.portfolioservice.backtest.StrategyBacktestPublisher backtestPublisher) {
+                               world.willfrog.alphafrogmicro.portfolioservice.backtest.StrategyBacktestPublisher backtestPublisher,
+                               StrategyBacktestProperties backtestProperties,
+                               ObjectMapper objectMapper) {
         this.strategyDefinitionMapper = strategyDefinitionMapper;
         this.strategyTargetMapper = strategyTargetMapper;
         this.strategyBacktestRunMapper = strategyBacktestRunMapper;
         this.strategyNavMapper = strategyNavMapper;
+        this.strategyBacktestTradeMapper = strategyBacktestTradeMapper;
         this.portfolioMapper = portfolioMapper;
         this.backtestPublisher = backtestPublisher;
+        this.backtestProperties = backtestProperties;
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -51,6 +67,7 @@ public class StrategyServiceImpl implements StrategyService {
         if (portfolioMapper.countActiveName(userId, request.getName()) > 0) {
             throw new BizException(ResponseCode.DATA_EXIST, "同名组合已存在");
         }
+        validateExecution(readJson(request.getRuleJson()));
 
         PortfolioPo portfolio = new PortfolioPo();
         portfolio.setUserId(userId);
@@ -142,6 +159,7 @@ public class StrategyServiceImpl implements StrategyService {
             po.setDescription(request.getDescription());
         }
         if (request.getRuleJson() != null) {
+            validateExecution(readJson(request.getRuleJson()));
             po.setRuleJson(defaultJson(request.getRuleJson()));
         }
         if (request.getRebalanceRule() != null) {
@@ -235,6 +253,7 @@ public class StrategyServiceImpl implements StrategyService {
         if (strategy == null || !"active".equals(strategy.getStatus())) {
             throw new BizException(ResponseCode.DATA_NOT_FOUND, "策略不存在或已归档");
         }
+        validateExecution(readJson(strategy.getRuleJson()), readJson(request.getParamsJson()));
 
         OffsetDateTime now = OffsetDateTime.now();
         // 写入回测任务（pending），随后由 Kafka 消费端执行回测
@@ -266,6 +285,149 @@ public class StrategyServiceImpl implements StrategyService {
         return toRunResponse(run);
     }
 
+    @Override
+    @Transactional
+    public StrategyBacktestSweepResponse createBacktestSweep(Long strategyId,
+                                                             String userId,
+                                                             StrategyBacktestSweepCreateRequest request) {
+        StrategyDefinitionPo strategy = strategyDefinitionMapper.findByIdAndUser(strategyId, userId);
+        if (strategy == null || !"active".equals(strategy.getStatus())) {
+            throw new BizException(ResponseCode.DATA_NOT_FOUND, "策略不存在或已归档");
+        }
+
+        // 某一维未指定时沿用策略自身的配置
+        List<String> rebalanceRules = request.getRebalanceRules() == null || request.getRebalanceRules().isEmpty()
+                ? Collections.singletonList(strategy.getRebalanceRule())
+                : request.getRebalanceRules();
+        if (request.getRebalanceRules() != null) {
+            for (String rebalanceRule : request.getRebalanceRules()) {
+                if (!StrategyBacktestParams.isSupportedRebalanceRule(rebalanceRule)) {
+                    throw new BizException(ResponseCode.PARAM_ERROR,
+                            "rebalanceRules 仅支持 monthly/weekly/daily/none: " + rebalanceRule);
+                }
+            }
+        }
+        List<StrategyBacktestWindow> windows = request.getWindows();
+        if (windows == null || windows.isEmpty()) {
+            StrategyBacktestWindow window = new StrategyBacktestWindow();
+            window.setStartDate(strategy.getStartDate());
+            window.setEndDate(strategy.getEndDate());
+            windows = List.of(window);
+        }
+        for (StrategyBacktestWindow window : windows) {
+            if (window.getStartDate() == null || window.getEndDate() == null) {
+                throw new BizException(ResponseCode.PARAM_ERROR, "回测区间不能为空");
+            }
+            if (window.getStartDate().isAfter(window.getEndDate())) {
+                throw new BizException(ResponseCode.PARAM_ERROR, "回测区间开始日期不能晚于结束日期");
+            }
+        }
+        List<BigDecimal> capitalBases = new ArrayList<>();
+        if (request.getCapitalBases() == null || request.getCapitalBases().isEmpty()) {
+            capitalBases.add(strategy.getCapitalBase());
+        } else {
+            for (BigDecimal capitalBase : request.getCapitalBases()) {
+                capitalBases.add(defaultCapitalBase(capitalBase));
+            }
+        }
+
+        long combinations = (long) rebalanceRules.size() * windows.size() * capitalBases.size();
+        if (combinations > backtestProperties.getSweepMaxRuns()) {
+            throw new BizException(ResponseCode.PARAM_ERROR,
+                    "参数组合数超过上限 " + backtestProperties.getSweepMaxRuns());
+        }
+        ObjectNode baseParams = parseParams(request.getParamsJson());
+        validateExecution(readJson(strategy.getRuleJson()), baseParams);
+
+        String sweepId = UUID.randomUUID().toString();
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Long> runIds = new ArrayList<>();
+        for (String rebalanceRule : rebalanceRules) {
+            for (StrategyBacktestWindow window : windows) {
+                for (BigDecimal capitalBase : capitalBases) {
+                    // 扫描维度写入 params_json，执行端据此覆盖策略配置
+                    ObjectNode params = baseParams.deepCopy();
+                    params.put("sweepId", sweepId);
+                    if (rebalanceRule != null) {
+                        params.put("rebalanceRule", rebalanceRule);
+                    }
+                    if (capitalBase != null) {
+                        params.put("capitalBase", capitalBase.toPlainString());
+                    }
+
+                    StrategyBacktestRunPo run = new StrategyBacktestRunPo();
+                    run.setStrategyId(strategyId);
+                    run.setUserId(userId);
+                    run.setRunTime(now);
+                    run.setStartDate(window.getStartDate());
+                    run.setEndDate(window.getEndDate());
+                    run.setParamsJson(params.toString());
+                    run.setStatus("pending");
+                    run.setQueuedAt(now);
+                    run.setExtJson("{}");
+                    strategyBacktestRunMapper.insert(run);
+                    runIds.add(run.getId());
+                }
+            }
+        }
+        try {
+            // 整个扫描只发布一条事件，消费端一次加载行情后并行计算各组合
+            backtestPublisher.publish(
+                    new world.willfrog.alphafrogmicro.portfolioservice.backtest.StrategyBacktestRunEvent(
+                            runIds.get(0),
+                            strategyId,
+                            userId,
+                            runIds
+                    )
+            );
+        } catch (Exception e) {
+            String message = StringUtils.abbreviate(e.getMessage(), 500);
+            for (Long runId : runIds) {
+                strategyBacktestRunMapper.markFinished(runId, userId, "failed", OffsetDateTime.now(), message);
+            }
+        }
+
+        return getBacktestSweep(strategyId, userId, sweepId);
+    }
+
+    @Override
+    public StrategyBacktestSweepResponse getBacktestSweep(Long strategyId, String userId, String sweepId) {
+        if (StringUtils.isBlank(sweepId)) {
+            throw new BizException(ResponseCode.PARAM_ERROR, "sweepId 不能为空");
+        }
+        List<StrategyBacktestRunPo> runs = strategyBacktestRunMapper.listBySweep(strategyId, userId, sweepId);
+        if (runs.isEmpty()) {
+            throw new BizException(ResponseCode.DATA_NOT_FOUND, "参数扫描不存在");
+        }
+
+        int pending = 0;
+        int running = 0;
+        int completed = 0;
+        int failed = 0;
+        List<StrategyBacktestSweepRow> rows = new ArrayList<>(runs.size());
+        for (StrategyBacktestRunPo run : runs) {
+            switch (StringUtils.defaultString(run.getStatus())) {
+                case "pending" -> pending++;
+                case "running" -> running++;
+                case "completed" -> completed++;
+                case "failed" -> failed++;
+                default -> {
+                }
+            }
+            rows.add(toSweepRow(run));
+        }
+        return StrategyBacktestSweepResponse.builder()
+                .sweepId(sweepId)
+                .strategyId(strategyId)
+                .total(runs.size())
+                .pending(pending)
+                .running(running)
+                .completed(completed)
+                .failed(failed)
+                .rows(rows)
+                .build();
+    }
+
     @Override
     public PageResult<StrategyBacktestRunResponse> listBacktestRuns(Long strategyId,
                                                                     String userId,
@@ -322,6 +484,35 @@ public class StrategyServiceImpl implements StrategyService {
                 .build();
     }
 
+    @Override
+    public PageResult<StrategyBacktestTradeResponse> listBacktestTrades(Long strategyId,
+                                                                        Long runId,
+                                                                        String userId,
+                                                                        LocalDate from,
+                                                                        LocalDate to,
+                                                                        int page,
+                                                                        int size) {
+        StrategyBacktestRunPo run = strategyBacktestRunMapper.findByIdAndUser(runId, userId);
+        if (run == null || !run.getStrategyId().equals(strategyId)) {
+            throw new BizException(ResponseCode.DATA_NOT_FOUND, "回测记录不存在");
+        }
+
+        int pageNum = Math.max(page, PortfolioConstants.DEFAULT_PAGE);
+        int pageSize = Math.min(Math.max(size, 1), PortfolioConstants.MAX_PAGE_SIZE);
+        int offset = (pageNum - 1) * pageSize;
+
+        List<StrategyBacktestTradePo> list = strategyBacktestTradeMapper.listByRun(runId, userId, from, to, offset, pageSize);
+        long total = strategyBacktestTradeMapper.countByRun(runId, userId, from, to);
+
+        List<StrategyBacktestTradeResponse> dtoList = list.stream().map(this::toTradeResponse).toList();
+        return PageResult.<StrategyBacktestTradeResponse>builder()
+                .items(dtoList)
+                .total(total)
+                .page(pageNum)
+                .size(pageSize)
+                .build();
+    }
+
     private String normalizeStatus(String status) {
         if (StringUtils.isBlank(status)) {
             return null;
@@ -352,6 +543,43 @@ public class StrategyServiceImpl implements StrategyService {
         return StringUtils.defaultIfBlank(json, "{}");
     }
 
+    private ObjectNode parseParams(String paramsJson) {
+        if (StringUtils.isBlank(paramsJson)) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            JsonNode node = objectMapper.readTree(paramsJson);
+            if (node instanceof ObjectNode objectNode) {
+                return objectNode;
+            }
+        } catch (Exception e) {
+            // 统一按格式错误处理
+        }
+        throw new BizException(ResponseCode.PARAM_ERROR, "paramsJson 必须是 JSON 对象");
+    }
+
+    private JsonNode readJson(String json) {
+        if (StringUtils.isBlank(json)) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    /**
+     * 回测成交模型参数在写入时校验，非法配置直接返回参数错误，不等到消费端执行失败
+     */
+    private void validateExecution(JsonNode... layers) {
+        try {
+            StrategyBacktestParams.validateExecution(layers);
+        } catch (IllegalArgumentException e) {
+            throw new BizException(ResponseCode.PARAM_ERROR, e.getMessage());
+        }
+    }
+
     private void validateTarget(StrategyTargetUpsertItem item) {
         if (!SYMBOL_TYPES.contains(item.getSymbolType())) {
             throw new BizException(ResponseCode.PARAM_ERROR, "symbolType 仅支持 stock/etf/index/fund");
@@ -432,6 +660,43 @@ public class StrategyServiceImpl implements StrategyService {
                 .build();
     }
 
+    private StrategyBacktestSweepRow toSweepRow(StrategyBacktestRunPo po) {
+        JsonNode params = readJson(po.getParamsJson());
+        JsonNode summary = readJson(po.getExtJson()).path("summary");
+        return StrategyBacktestSweepRow.builder()
+                .runId(po.getId())
+                .status(po.getStatus())
+                .startDate(po.getStartDate())
+                .endDate(po.getEndDate())
+                .rebalanceRule(params.hasNonNull("rebalanceRule") ? params.get("rebalanceRule").asText() : null)
+                .capitalBase(decimalOf(params.get("capitalBase")))
+                .tradingDays(summary.hasNonNull("tradingDays") ? summary.get("tradingDays").asInt() : null)
+                .finalNav(decimalOf(summary.get("finalNav")))
+                .totalReturn(decimalOf(summary.get("totalReturn")))
+                .annualizedReturn(decimalOf(summary.get("annualizedReturn")))
+                .annualizedVolatility(decimalOf(summary.get("annualizedVolatility")))
+                .sharpe(decimalOf(summary.get("sharpe")))
+                .maxDrawdown(decimalOf(summary.get("maxDrawdown")))
+                .turnover(decimalOf(summary.get("turnover")))
+                .totalCost(decimalOf(summary.get("totalCost")))
+                .errorMessage(po.getErrorMessage())
+                .build();
+    }
+
+    private BigDecimal decimalOf(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        if (node.isNumber()) {
+            return node.decimalValue();
+        }
+        try {
+            return new BigDecimal(node.asText());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     private StrategyNavResponse toNavResponse(StrategyNavPo po) {
         return StrategyNavResponse.builder()
                 .id(po.getId())
@@ -443,4 +708,20 @@ public class StrategyServiceImpl implements StrategyService {
                 .drawdown(po.getDrawdown())
                 .build();
     }
+
+    private StrategyBacktestTradeResponse toTradeResponse(StrategyBacktestTradePo po) {
+        return StrategyBacktestTradeResponse.builder()
+                .id(po.getId())
+                .runId(po.getRunId())
+                .tradeDate(po.getTradeDate())
+                .symbol(po.getSymbol())
+                .side(po.getSide())
+                .quantity(po.getQuantity())
+                .price(po.getPrice())
+                .amount(po.getAmount())
+                .commission(po.getCommission())
+                .stampDuty(po.getStampDuty())
+                .slippage(po.getSlippage())
+                .build();
+    }
 }
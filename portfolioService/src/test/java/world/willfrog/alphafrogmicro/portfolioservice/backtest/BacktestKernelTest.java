@@ -0,0 +1,403 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import org.junit.jupiter.api.Test;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.portfolioservice.domain.PricePoint;
+import world.willfrog.alphafrogmicro.portfolioservice.domain.StrategyTargetPo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BacktestKernelTest {
+
+    private static final LocalDate START = LocalDate.of(2021, 1, 4);
+
+    @Test
+    void run_shouldMatchDecimalEngineOnRandomPortfolio() {
+        Random random = new Random(42);
+        int symbolCount = 40;
+        int dayCount = 750;
+        List<PricePoint> points = new ArrayList<>();
+        Map<String, Map<LocalDate, BigDecimal>> priceSeries = new HashMap<>();
+        List<StrategyTargetPo> targets = new ArrayList<>();
+        for (int s = 0; s < symbolCount; s++) {
+            String symbol = String.format("%06d.SZ", s);
+            double price = 5 + random.nextDouble() * 50;
+            // 部分标的晚于区间起点才有行情，且随机停牌
+            int listedFrom = s % 7 == 0 ? 20 + random.nextInt(100) : 0;
+            for (int d = listedFrom; d < dayCount; d++) {
+                price *= 1 + (random.nextDouble() - 0.5) * 0.04;
+                if (random.nextDouble() < 0.03) {
+                    continue;
+                }
+                BigDecimal close = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+                points.add(point(symbol, START.plusDays(d), close));
+                priceSeries.computeIfAbsent(symbol, key -> new HashMap<>()).put(START.plusDays(d), close);
+            }
+            targets.add(target(symbol, null, BigDecimal.valueOf(1 + random.nextInt(10))));
+            targets.add(target(symbol, START.plusDays(200 + random.nextInt(300)),
+                    BigDecimal.valueOf(random.nextInt(10))));
+        }
+        Map<LocalDate, BigDecimal> benchmark = new HashMap<>();
+        List<PricePoint> benchmarkPoints = new ArrayList<>();
+        for (int d = 3; d < dayCount; d += 1 + random.nextInt(2)) {
+            BigDecimal close = BigDecimal.valueOf(3000 + random.nextInt(500));
+            benchmark.put(START.plusDays(d), close);
+            benchmarkPoints.add(point("000300.SH", START.plusDays(d), close));
+        }
+
+        Map<String, List<StrategyTargetPo>> targetsBySymbol = group(targets);
+        BacktestMarketData market = BacktestMarketData.align(new ArrayList<>(targetsBySymbol.keySet()), points);
+        boolean[] rebalanceDays = new boolean[market.dayCount()];
+        Set<LocalDate> rebalanceDates = new HashSet<>();
+        for (int d = 0; d < market.dayCount(); d += 5) {
+            rebalanceDays[d] = true;
+            rebalanceDates.add(market.date(d));
+        }
+        BigDecimal capitalBase = new BigDecimal("1000000");
+
+        BacktestKernel.Result result = BacktestKernel.run(market, BacktestWeightSchedule.build(market, targetsBySymbol),
+                rebalanceDays, market.alignSeries(benchmarkPoints), capitalBase.doubleValue());
+        List<DecimalNav> expected = DecimalReferenceEngine.run(priceSeries, targetsBySymbol, rebalanceDates,
+                benchmark, capitalBase);
+
+        // 原实现把归一化权重舍入到 6 位小数，每次再平衡都会带入约 1e-6 量级的偏差，三年周度再平衡累计不超过 1e-3
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            DecimalNav nav = expected.get(i);
+            assertEquals(nav.tradeDate(), market.date(result.dayIndex()[i]));
+            assertEquals(nav.nav().doubleValue(), result.nav()[i], 1e-3);
+            assertEquals(nav.drawdown().doubleValue(), result.drawdown()[i], 1e-3);
+            if (nav.benchmarkNav() == null) {
+                assertTrue(Double.isNaN(result.benchmarkNav()[i]));
+            } else {
+                assertEquals(nav.benchmarkNav().doubleValue(), result.benchmarkNav()[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void run_shouldSkipDaysUntilAllWeightedSymbolsHavePrices() {
+        List<PricePoint> points = List.of(
+                point("A", START, new BigDecimal("10")),
+                point("A", START.plusDays(1), new BigDecimal("11")),
+                point("B", START.plusDays(1), new BigDecimal("20")),
+                point("A", START.plusDays(2), new BigDecimal("12")),
+                point("B", START.plusDays(3), new BigDecimal("10")));
+        Map<String, List<StrategyTargetPo>> targetsBySymbol = group(List.of(
+                target("A", null, new BigDecimal("1")),
+                target("B", null, new BigDecimal("1"))));
+        BacktestMarketData market = BacktestMarketData.align(List.of("A", "B"), points);
+
+        BacktestKernel.Result result = BacktestKernel.run(market, BacktestWeightSchedule.build(market, targetsBySymbol),
+                new boolean[market.dayCount()], null, 100);
+
+        assertEquals(3, result.size());
+        assertEquals(1, result.dayIndex()[0]);
+        assertEquals(1.0, result.nav()[0], 1e-12);
+        // A 价格前向填充为 12，B 跌到 10：0.5 * 12/11 + 0.5 * 10/20
+        assertEquals(0.5 * 12 / 11 + 0.25, result.nav()[2], 1e-12);
+        assertEquals(result.nav()[2] / result.nav()[1] - 1, result.drawdown()[2], 1e-12);
+        assertTrue(Double.isNaN(result.benchmarkNav()[0]));
+    }
+
+    @Test
+    void run_windowOnSharedMarketShouldMatchStandaloneLoad() {
+        Random random = new Random(7);
+        List<PricePoint> points = new ArrayList<>();
+        for (String symbol : List.of("A", "B", "C")) {
+            double price = 10 + random.nextInt(20);
+            for (int d = 0; d < 120; d++) {
+                price *= 1 + (random.nextDouble() - 0.5) * 0.05;
+                if (random.nextDouble() < 0.1) {
+                    continue;
+                }
+                points.add(point(symbol, START.plusDays(d), BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP)));
+            }
+        }
+        Map<String, List<StrategyTargetPo>> targetsBySymbol = group(List.of(
+                target("A", null, new BigDecimal("2")),
+                target("B", null, new BigDecimal("1")),
+                target("C", START.plusDays(50), new BigDecimal("1"))));
+        LocalDate windowStart = START.plusDays(30);
+        LocalDate windowEnd = START.plusDays(90);
+
+        BacktestMarketData shared = BacktestMarketData.align(List.of("A", "B", "C"), points);
+        int fromDay = shared.lowerBound(windowStart);
+        int toDay = shared.lowerBound(windowEnd.plusDays(1));
+        boolean[] sharedRebalance = new boolean[shared.dayCount()];
+        for (int d = fromDay; d < toDay; d += 10) {
+            sharedRebalance[d] = true;
+        }
+        BacktestKernel.Result sliced = BacktestKernel.run(shared, BacktestWeightSchedule.build(shared, targetsBySymbol),
+                sharedRebalance, null, 1000, fromDay, toDay);
+
+        List<PricePoint> windowPoints = points.stream()
+                .filter(p -> {
+                    LocalDate date = DateConvertUtils.convertTimestampToLocalDate(p.getTradeDate());
+                    return !date.isBefore(windowStart) && !date.isAfter(windowEnd);
+                })
+                .toList();
+        BacktestMarketData standalone = BacktestMarketData.align(List.of("A", "B", "C"), windowPoints);
+        boolean[] standaloneRebalance = new boolean[standalone.dayCount()];
+        for (int d = 0; d < standalone.dayCount(); d += 10) {
+            standaloneRebalance[d] = true;
+        }
+        BacktestKernel.Result expected = BacktestKernel.run(standalone,
+                BacktestWeightSchedule.build(standalone, targetsBySymbol), standaloneRebalance, null, 1000);
+
+        assertEquals(expected.size(), sliced.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(standalone.date(expected.dayIndex()[i]), shared.date(sliced.dayIndex()[i]));
+            assertEquals(expected.nav()[i], sliced.nav()[i], 1e-12);
+            assertEquals(expected.drawdown()[i], sliced.drawdown()[i], 1e-12);
+        }
+    }
+
+    @Test
+    void run_shouldApplyCostsLotsAndKeepCashResidual() {
+        List<PricePoint> points = List.of(
+                point("A", START, new BigDecimal("10")),
+                point("A", START.plusDays(1), new BigDecimal("11")),
+                point("B", START, new BigDecimal("20")),
+                point("B", START.plusDays(1), new BigDecimal("20")));
+        // 第二天起全部换成 B
+        Map<String, List<StrategyTargetPo>> targetsBySymbol = group(List.of(
+                target("A", null, new BigDecimal("1")),
+                target("A", START.plusDays(1), new BigDecimal("0")),
+                target("B", START.plusDays(1), new BigDecimal("1"))));
+        BacktestMarketData market = BacktestMarketData.align(List.of("A", "B"), points);
+        // 佣金万三（最低 5 元）、卖出印花税千一、滑点 10bp、100 股一手
+        BacktestExecutionModel model = new BacktestExecutionModel(0.0003, 5, 0.001, 0.001, 100);
+
+        BacktestKernel.Result result = BacktestKernel.run(market, BacktestWeightSchedule.build(market, targetsBySymbol),
+                new boolean[]{true, true}, null, 10000, 0, market.dayCount(), model);
+
+        // 第一天：预算 10000 / 1.0013，买 900 股 A @10.01，成交额 9009，佣金取最低 5 元，余现金 986
+        assertEquals(2, result.size());
+        assertEquals((986 + 900 * 10) / 10000.0, result.nav()[0], 1e-9);
+        // 第二天：卖 900 股 A @10.989，扣佣金 5 与印花税 9.8901；买 500 股 B @20.02，佣金 5
+        double cash = 986 + 900 * 10.989 - 5 - 900 * 10.989 * 0.001 - 500 * 20.02 - 5;
+        assertEquals((cash + 500 * 20) / 10000.0, result.nav()[1], 1e-9);
+
+        BacktestTradeLog trades = result.trades();
+        assertEquals(3, trades.size());
+        assertEquals(900, trades.quantity(0), 1e-9);
+        assertEquals(-900, trades.quantity(1), 1e-9);
+        assertEquals(500, trades.quantity(2), 1e-9);
+        assertEquals(market.indexOf("B"), trades.symbolIndex(2));
+        double slippage = 900 * 0.01 + 900 * 0.011 + 500 * 0.02;
+        assertEquals(15 + 900 * 10.989 * 0.001 + slippage, trades.totalCost(), 1e-9);
+        assertEquals(9009 / 2.0 / 10000 + (900 * 10.989 + 500 * 20.02) / 2 / (986 + 900 * 11.0),
+                trades.turnover(), 1e-9);
+    }
+
+    @Test
+    void run_shouldNotTradeWhenWeightsAndPricesAreUnchanged() {
+        List<PricePoint> points = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            points.add(point("A", START.plusDays(day), new BigDecimal("10")));
+            points.add(point("B", START.plusDays(day), new BigDecimal("20")));
+        }
+        Map<String, List<StrategyTargetPo>> targetsBySymbol = group(List.of(
+                target("A", null, new BigDecimal("0.5")),
+                target("B", null, new BigDecimal("0.5"))));
+        BacktestMarketData market = BacktestMarketData.align(List.of("A", "B"), points);
+        // 按股成交：扣除费用后的市值缩水不应触发卖出零头
+        BacktestExecutionModel model = new BacktestExecutionModel(0.0003, 5, 0.001, 0.001, 1);
+
+        BacktestKernel.Result result = BacktestKernel.run(market, BacktestWeightSchedule.build(market, targetsBySymbol),
+                new boolean[]{true, true, true}, null, 10000, 0, market.dayCount(), model);
+
+        BacktestTradeLog trades = result.trades();
+        assertEquals(2, trades.size());
+        assertEquals(0, trades.dayIndex(0));
+        assertEquals(0, trades.dayIndex(1));
+        // 首日买 499 股 A、249 股 B，各付最低佣金 5 元
+        assertEquals(10 + 499 * 0.01 + 249 * 0.02, trades.totalCost(), 1e-9);
+        assertEquals(result.nav()[0], result.nav()[1], 1e-12);
+        assertEquals(result.nav()[0], result.nav()[2], 1e-12);
+    }
+
+    @Test
+    void run_shouldNotLogFloatingPointNoiseTradesWithoutCosts() {
+        List<PricePoint> points = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            points.add(point("A", START.plusDays(day), new BigDecimal("13.37")));
+            points.add(point("B", START.plusDays(day), new BigDecimal("7.11")));
+            points.add(point("C", START.plusDays(day), new BigDecimal("101.03")));
+        }
+        Map<String, List<StrategyTargetPo>> targetsBySymbol = group(List.of(
+                target("A", null, new BigDecimal("0.3")),
+                target("B", null, new BigDecimal("0.3")),
+                target("C", null, new BigDecimal("0.4"))));
+        BacktestMarketData market = BacktestMarketData.align(List.of("A", "B", "C"), points);
+        boolean[] rebalanceDays = new boolean[market.dayCount()];
+        Arrays.fill(rebalanceDays, true);
+
+        BacktestKernel.Result result = BacktestKernel.run(market, BacktestWeightSchedule.build(market, targetsBySymbol),
+                rebalanceDays, null, 10000);
+
+        assertEquals(3, result.trades().size());
+        assertEquals(0, result.trades().totalCost(), 1e-12);
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(1.0, result.nav()[i], 1e-9);
+        }
+    }
+
+    private static Map<String, List<StrategyTargetPo>> group(List<StrategyTargetPo> targets) {
+        Map<String, List<StrategyTargetPo>> grouped = new LinkedHashMap<>();
+        for (StrategyTargetPo target : targets) {
+            grouped.computeIfAbsent(target.getSymbol(), key -> new ArrayList<>()).add(target);
+        }
+        for (List<StrategyTargetPo> list : grouped.values()) {
+            list.sort(Comparator.comparing(t -> t.getEffectiveDate() == null ? LocalDate.MIN : t.getEffectiveDate()));
+        }
+        return grouped;
+    }
+
+    private static PricePoint point(String symbol, LocalDate date, BigDecimal close) {
+        PricePoint point = new PricePoint();
+        point.setTsCode(symbol);
+        point.setTradeDate(DateConvertUtils.convertLocalDateToMsTimestamp(date));
+        point.setClose(close);
+        return point;
+    }
+
+    private static StrategyTargetPo target(String symbol, LocalDate effectiveDate, BigDecimal weight) {
+        StrategyTargetPo target = new StrategyTargetPo();
+        target.setSymbol(symbol);
+        target.setEffectiveDate(effectiveDate);
+        target.setTargetWeight(weight);
+        return target;
+    }
+
+    private record DecimalNav(LocalDate tradeDate, BigDecimal nav, BigDecimal drawdown, BigDecimal benchmarkNav) {
+    }
+
+    /**
+     * 原 StrategyBacktestExecutor 中基于 BigDecimal 与 Map 的回测循环，作为新内核的对照
+     */
+    private static final class DecimalReferenceEngine {
+
+        private static final BigDecimal ZERO = BigDecimal.ZERO;
+        private static final BigDecimal ONE = BigDecimal.ONE;
+        private static final int SCALE = 6;
+
+        static List<DecimalNav> run(Map<String, Map<LocalDate, BigDecimal>> priceSeries,
+                                    Map<String, List<StrategyTargetPo>> targetsBySymbol,
+                                    Set<LocalDate> rebalanceDates,
+                                    Map<LocalDate, BigDecimal> benchmark,
+                                    BigDecimal capitalBase) {
+            NavigableSet<LocalDate> tradingDates = new TreeSet<>();
+            for (Map<LocalDate, BigDecimal> series : priceSeries.values()) {
+                tradingDates.addAll(series.keySet());
+            }
+            Map<String, BigDecimal> lastPrices = new HashMap<>();
+            Map<String, BigDecimal> holdings = new HashMap<>();
+            boolean initialized = false;
+            BigDecimal maxNav = null;
+            BigDecimal benchmarkBase = null;
+            BigDecimal benchmarkLast = null;
+            List<DecimalNav> navList = new ArrayList<>();
+
+            for (LocalDate tradeDate : tradingDates) {
+                for (Map.Entry<String, Map<LocalDate, BigDecimal>> entry : priceSeries.entrySet()) {
+                    BigDecimal price = entry.getValue().get(tradeDate);
+                    if (price != null) {
+                        lastPrices.put(entry.getKey(), price);
+                    }
+                }
+                Map<String, BigDecimal> weights = resolveWeights(targetsBySymbol, tradeDate);
+                if (weights.isEmpty() || !lastPrices.keySet().containsAll(weights.keySet())) {
+                    continue;
+                }
+                if (rebalanceDates.contains(tradeDate) || !initialized) {
+                    BigDecimal value = currentValue(holdings, lastPrices, capitalBase, initialized);
+                    holdings = new HashMap<>();
+                    for (Map.Entry<String, BigDecimal> entry : weights.entrySet()) {
+                        BigDecimal price = lastPrices.get(entry.getKey());
+                        if (price.compareTo(ZERO) <= 0) {
+                            continue;
+                        }
+                        holdings.put(entry.getKey(),
+                                value.multiply(entry.getValue()).divide(price, 10, RoundingMode.HALF_UP));
+                    }
+                    initialized = true;
+                }
+                BigDecimal nav = currentValue(holdings, lastPrices, capitalBase, true)
+                        .divide(capitalBase, SCALE, RoundingMode.HALF_UP);
+                if (maxNav == null || nav.compareTo(maxNav) > 0) {
+                    maxNav = nav;
+                }
+                BigDecimal drawdown = nav.divide(maxNav, SCALE, RoundingMode.HALF_UP).subtract(ONE);
+                BigDecimal price = benchmark.get(tradeDate);
+                if (price != null) {
+                    benchmarkLast = price;
+                    if (benchmarkBase == null) {
+                        benchmarkBase = price;
+                    }
+                }
+                BigDecimal benchmarkNav = benchmarkBase == null
+                        ? null
+                        : benchmarkLast.divide(benchmarkBase, SCALE, RoundingMode.HALF_UP);
+                navList.add(new DecimalNav(tradeDate, nav, drawdown, benchmarkNav));
+            }
+            return navList;
+        }
+
+        private static Map<String, BigDecimal> resolveWeights(Map<String, List<StrategyTargetPo>> targetsBySymbol,
+                                                              LocalDate date) {
+            Map<String, BigDecimal> weights = new LinkedHashMap<>();
+            BigDecimal total = ZERO;
+            for (Map.Entry<String, List<StrategyTargetPo>> entry : targetsBySymbol.entrySet()) {
+                StrategyTargetPo selected = null;
+                for (StrategyTargetPo item : entry.getValue()) {
+                    if (item.getEffectiveDate() != null && item.getEffectiveDate().isAfter(date)) {
+                        break;
+                    }
+                    selected = item;
+                }
+                if (selected == null || selected.getTargetWeight() == null
+                        || selected.getTargetWeight().compareTo(ZERO) <= 0) {
+                    continue;
+                }
+                weights.put(entry.getKey(), selected.getTargetWeight());
+                total = total.add(selected.getTargetWeight());
+            }
+            Map<String, BigDecimal> normalized = new LinkedHashMap<>();
+            for (Map.Entry<String, BigDecimal> entry : weights.entrySet()) {
+                normalized.put(entry.getKey(), entry.getValue().divide(total, SCALE, RoundingMode.HALF_UP));
+            }
+            return normalized;
+        }
+
+        private static BigDecimal currentValue(Map<String, BigDecimal> holdings, Map<String, BigDecimal> prices,
+                                               BigDecimal capitalBase, boolean initialized) {
+            if (!initialized || holdings.isEmpty()) {
+                return capitalBase;
+            }
+            BigDecimal total = ZERO;
+            for (Map.Entry<String, BigDecimal> entry : holdings.entrySet()) {
+                total = total.add(prices.get(entry.getKey()).multiply(entry.getValue()));
+            }
+            return total;
+        }
+    }
+}
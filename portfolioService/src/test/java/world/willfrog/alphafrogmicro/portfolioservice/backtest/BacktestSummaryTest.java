@@ -0,0 +1,128 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import org.junit.jupiter.api.Test;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.portfolioservice.domain.PricePoint;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BacktestSummaryTest {
+
+    private static final LocalDate START = LocalDate.of(2021, 1, 4);
+
+    @Test
+    void of_shouldAnnualizeReturnByCalendarDays() {
+        // 首尾相隔 730 个自然日，累计 21% 折合年化 10%
+        BacktestMarketData market = market(START, START.plusDays(1), START.plusDays(2), START.plusDays(730));
+        double[] navs = {1.0, 1.1, 0.99, 1.21};
+
+        BacktestSummary summary = BacktestSummary.of(result(navs, new BacktestTradeLog()), market);
+
+        assertEquals(4, summary.tradingDays());
+        assertEquals(1.21, summary.finalNav(), 1e-12);
+        assertEquals(0.21, summary.totalReturn(), 1e-12);
+        assertEquals(0.1, summary.annualizedReturn(), 1e-12);
+    }
+
+    @Test
+    void of_shouldComputeVolatilityAndSharpeFromDailyReturns() {
+        BacktestMarketData market = market(START, START.plusDays(1), START.plusDays(2), START.plusDays(3),
+                START.plusDays(4));
+        double[] navs = {2.0, 2.04, 1.98, 2.1, 2.142};
+
+        BacktestSummary summary = BacktestSummary.of(result(navs, new BacktestTradeLog()), market);
+
+        // 两遍法计算的样本标准差作为对照，年化按 252 个交易日
+        double[] returns = new double[navs.length - 1];
+        double mean = 0;
+        for (int i = 1; i < navs.length; i++) {
+            returns[i - 1] = navs[i] / navs[i - 1] - 1;
+            mean += returns[i - 1];
+        }
+        mean /= returns.length;
+        double variance = 0;
+        for (double r : returns) {
+            variance += (r - mean) * (r - mean);
+        }
+        variance /= returns.length - 1;
+        double volatility = Math.sqrt(variance * 252);
+
+        assertEquals(2.142 / 2.0, summary.finalNav(), 1e-12);
+        assertEquals(volatility, summary.annualizedVolatility(), 1e-9);
+        assertEquals(mean * 252 / volatility, summary.sharpe(), 1e-9);
+    }
+
+    @Test
+    void of_shouldReportDeepestDrawdownAndTradeTotals() {
+        BacktestMarketData market = market(START, START.plusDays(1), START.plusDays(2), START.plusDays(3),
+                START.plusDays(4));
+        double[] navs = {1.0, 1.2, 0.9, 1.08, 1.3};
+        BacktestTradeLog trades = new BacktestTradeLog();
+        trades.add(0, 0, 100, 10.01, 1001, 5, 0, 1);
+        trades.add(2, 0, -100, 8.991, 899.1, 5, 0.8991, 0.9);
+        trades.addTurnover(0.5);
+        trades.addTurnover(0.4);
+
+        BacktestSummary summary = BacktestSummary.of(result(navs, trades), market);
+
+        assertEquals(0.9 / 1.2 - 1, summary.maxDrawdown(), 1e-12);
+        assertEquals(0.9, summary.turnover(), 1e-12);
+        assertEquals(5 + 1 + 5 + 0.8991 + 0.9, summary.totalCost(), 1e-12);
+        assertEquals(2, summary.tradeCount());
+    }
+
+    @Test
+    void of_shouldLeaveUndefinedMetricsEmpty() {
+        BacktestMarketData market = market(START);
+
+        BacktestSummary single = BacktestSummary.of(result(new double[]{1.0}, new BacktestTradeLog()), market);
+        assertEquals(0, single.annualizedReturn(), 1e-12);
+        assertTrue(Double.isNaN(single.annualizedVolatility()));
+        assertTrue(Double.isNaN(single.sharpe()));
+
+        BacktestSummary empty = BacktestSummary.of(result(new double[0], new BacktestTradeLog()), market);
+        Map<String, Object> map = empty.toMap();
+        assertEquals(0, map.get("tradingDays"));
+        assertNull(map.get("finalNav"));
+        assertNull(map.get("sharpe"));
+        assertNull(map.get("maxDrawdown"));
+    }
+
+    /**
+     * 按净值序列构造内核结果，回撤与内核口径一致：相对历史最高净值
+     */
+    private static BacktestKernel.Result result(double[] navs, BacktestTradeLog trades) {
+        int size = navs.length;
+        int[] dayIndex = new int[size];
+        double[] drawdowns = new double[size];
+        double[] benchmarkNavs = new double[size];
+        double maxNav = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            dayIndex[i] = i;
+            maxNav = Math.max(maxNav, navs[i]);
+            drawdowns[i] = navs[i] / maxNav - 1;
+            benchmarkNavs[i] = Double.NaN;
+        }
+        return new BacktestKernel.Result(size, dayIndex, navs, drawdowns, benchmarkNavs, trades);
+    }
+
+    private static BacktestMarketData market(LocalDate... dates) {
+        List<PricePoint> points = new ArrayList<>();
+        for (LocalDate date : dates) {
+            PricePoint point = new PricePoint();
+            point.setTsCode("A");
+            point.setTradeDate(DateConvertUtils.convertLocalDateToMsTimestamp(date));
+            point.setClose(BigDecimal.TEN);
+            points.add(point);
+        }
+        return BacktestMarketData.align(List.of("A"), points);
+    }
+}
@@ -0,0 +1,59 @@
+package world.willfrog.alphafrogmicro.portfolioservice.backtest;
+
+import org.junit.jupiter.api.Test;
+import world.willfrog.alphafrogmicro.common.utils.DateConvertUtils;
+import world.willfrog.alphafrogmicro.portfolioservice.domain.PricePoint;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StrategyBacktestCopyWriterTest {
+
+    private static final LocalDate START = LocalDate.of(2021, 1, 4);
+    // 含引号与逗号的 user_id 需要按 CSV 规则加引号并转义
+    private static final String USER_ID = "u\"1,2";
+
+    private final BacktestMarketData market = BacktestMarketData.align(List.of("A"), List.of(
+            point("A", START, new BigDecimal("10")),
+            point("A", START.plusDays(1), new BigDecimal("11"))));
+
+    @Test
+    void encodeNav_shouldWriteEmptyBenchmarkAsNullAndQuoteUserId() throws Exception {
+        BacktestKernel.Result result = new BacktestKernel.Result(2, new int[]{0, 1},
+                new double[]{1.0, 1.1234567}, new double[]{0, -0.05}, new double[]{Double.NaN, 1.02},
+                new BacktestTradeLog());
+        StringWriter writer = new StringWriter();
+
+        StrategyBacktestCopyWriter.encodeNav(writer, 7L, USER_ID, market, result, 1);
+
+        assertEquals("7,\"u\"\"1,2\",2021-01-04,1.000000,0.000000,,0.000000\n"
+                        + "7,\"u\"\"1,2\",2021-01-05,1.123457,0.123457,1.020000,-0.050000\n",
+                writer.toString());
+    }
+
+    @Test
+    void encodeTrades_shouldWriteSideAbsoluteQuantityAndAmountScale() throws Exception {
+        BacktestTradeLog trades = new BacktestTradeLog();
+        trades.add(0, 0, 100, 10.01, 1001, 5, 0, 1);
+        trades.add(1, 0, -100, 10.989, 1098.9, 5, 1.0989, 1.1);
+        StringWriter writer = new StringWriter();
+
+        StrategyBacktestCopyWriter.encodeTrades(writer, 7L, USER_ID, market, trades, 2000);
+
+        assertEquals("7,\"u\"\"1,2\",2021-01-04,\"A\",buy,100.000000,10.010000,1001.0000,5.0000,0.0000,1.0000\n"
+                        + "7,\"u\"\"1,2\",2021-01-05,\"A\",sell,100.000000,10.989000,1098.9000,5.0000,1.0989,1.1000\n",
+                writer.toString());
+    }
+
+    private static PricePoint point(String symbol, LocalDate date, BigDecimal close) {
+        PricePoint point = new PricePoint();
+        point.setTsCode(symbol);
+        point.setTradeDate(DateConvertUtils.convertLocalDateToMsTimestamp(date));
+        point.setClose(close);
+        return point;
+    }
+}
@@ -0,0 +1,18 @@
+-- Backtest trade-level output: fills produced by the execution model (commission, stamp duty, slippage, board lots).
+CREATE TABLE IF NOT EXISTS alphafrog_strategy_backtest_trade (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES alphafrog_strategy_backtest_run(id) ON DELETE CASCADE,
+    user_id VARCHAR(64) NOT NULL,
+    trade_date DATE NOT NULL,
+    symbol VARCHAR(64) NOT NULL,
+    side VARCHAR(8) NOT NULL CHECK (side IN ('buy', 'sell')),
+    quantity NUMERIC(24, 6) NOT NULL,
+    price NUMERIC(20, 6) NOT NULL,
+    amount NUMERIC(24, 4) NOT NULL,
+    commission NUMERIC(20, 4) NOT NULL DEFAULT 0,
+    stamp_duty NUMERIC(20, 4) NOT NULL DEFAULT 0,
+    slippage NUMERIC(20, 4) NOT NULL DEFAULT 0,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_strategy_backtest_trade_run ON alphafrog_strategy_backtest_trade (run_id);
@@ -0,0 +1,4 @@
+-- Trade calendar version probe: the in-memory calendar reloads when COUNT(1) or MAX(updated_at) changes,
+-- so in-place corrections (is_open / pre_trade_date_timestamp) are picked up as well as new rows.
+ALTER TABLE alphafrog_trade_calendar
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP;